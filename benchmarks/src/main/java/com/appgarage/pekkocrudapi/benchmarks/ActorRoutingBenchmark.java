@@ -0,0 +1,196 @@
+package com.appgarage.pekkocrudapi.benchmarks;
+
+import com.appgarage.pekkocrudapi.actor.EntityRouters;
+import com.appgarage.pekkocrudapi.actor.ProductActor;
+import com.appgarage.pekkocrudapi.actor.ProductMessages;
+import com.appgarage.pekkocrudapi.actor.TrackingDetailActor;
+import com.appgarage.pekkocrudapi.actor.TrackingDetailMessages;
+import com.appgarage.pekkocrudapi.actor.UserActor;
+import com.appgarage.pekkocrudapi.actor.UserMessages;
+import com.appgarage.pekkocrudapi.model.Product;
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.model.User;
+import com.appgarage.pekkocrudapi.store.CompactTrackingDetailStore;
+import com.appgarage.pekkocrudapi.store.InMemoryEntityStore;
+import com.appgarage.pekkocrudapi.store.ProductStore;
+import com.appgarage.pekkocrudapi.store.TrackingDetailStore;
+import com.appgarage.pekkocrudapi.store.UserStore;
+import com.typesafe.config.ConfigFactory;
+import org.apache.pekko.actor.AbstractActor;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.actor.Props;
+import org.apache.pekko.pattern.Patterns;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Message handling through the actor routers, created from the application.conf deployment the way
+ * ProductService, UserService and PekkoCrudApiApplication create them. product-round-robin compares the
+ * adaptive smallest-mailbox-pool of products with a plain round-robin-pool; tracking details run behind
+ * either round-robin-pool or tracking-shard-pool.
+ * tell* measures pipelined throughput, sending a batch of messages and waiting for every reply;
+ * ask* measures the round trip of a single ask, sampled for p50/p99.
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ActorRoutingBenchmark {
+
+    private static final int ENTITIES = 1 << 13;
+    private static final int BATCH = 1000;
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Param({"product", "product-round-robin", "user", "tracking-round-robin", "tracking-sharded"})
+    public String router;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final AtomicReference<CountDownLatch> pending = new AtomicReference<>();
+    private ActorSystem actorSystem;
+    private ActorRef routerRef;
+    private ActorRef replies;
+    // Messages are built up front so the benchmarks measure routing and handling, not message construction
+    private Object[] gets;
+    private Object[] updates;
+
+    @Setup(Level.Trial)
+    public void start() {
+        String overrides = "";
+        if (router.equals("product-round-robin")) {
+            overrides = "pekko.actor.deployment./productRouter { router = round-robin-pool, optimal-size-exploring-resizer.enabled = off }";
+        } else if (router.equals("tracking-round-robin")) {
+            overrides = "pekko.actor.deployment./trackingDetailRouter { router = round-robin-pool, nr-of-instances = 5 }";
+        }
+        actorSystem = ActorSystem.create("actor-routing-benchmark", ConfigFactory.parseString(overrides).withFallback(ConfigFactory.load()));
+        gets = new Object[ENTITIES];
+        updates = new Object[ENTITIES];
+        switch (router) {
+            case "product":
+            case "product-round-robin": {
+                ProductStore productStore = new ProductStore(new InMemoryEntityStore<>());
+                for (int i = 0; i < ENTITIES; i++) {
+                    Product product = productStore.create(EntityStoreBenchmark.Stores.product(i));
+                    gets[i] = new ProductMessages.GetProduct(product.getId());
+                    updates[i] = new ProductMessages.UpdateProduct(product.getId(), EntityStoreBenchmark.Stores.product(i));
+                }
+                routerRef = EntityRouters.create(actorSystem, EntityRouters.PRODUCT_ROUTER, ProductActor.props(productStore));
+                break;
+            }
+            case "user": {
+                UserStore userStore = new UserStore(new InMemoryEntityStore<>());
+                for (int i = 0; i < ENTITIES; i++) {
+                    User user = userStore.create(EntityStoreBenchmark.Stores.user(i));
+                    gets[i] = new UserMessages.GetUser(user.getId());
+                    updates[i] = new UserMessages.UpdateUser(user.getId(), EntityStoreBenchmark.Stores.user(i));
+                }
+                routerRef = EntityRouters.create(actorSystem, EntityRouters.USER_ROUTER, UserActor.props(userStore));
+                break;
+            }
+            case "tracking-round-robin":
+            case "tracking-sharded": {
+                TrackingDetailStore trackingDetailStore = new TrackingDetailStore(new CompactTrackingDetailStore());
+                for (int i = 0; i < ENTITIES; i++) {
+                    TrackingDetail trackingDetail = EntityStoreBenchmark.Stores.trackingDetail(i);
+                    trackingDetailStore.create(trackingDetail);
+                    gets[i] = new TrackingDetailMessages.GetTrackingDetail(trackingDetail.getTrackingNumber());
+                    updates[i] = new TrackingDetailMessages.UpdateTrackingDetail(trackingDetail.getTrackingNumber(), EntityStoreBenchmark.Stores.trackingDetail(i));
+                }
+                routerRef = EntityRouters.create(actorSystem, EntityRouters.TRACKING_DETAIL_ROUTER, TrackingDetailActor.props("1.0", trackingDetailStore));
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown router: " + router);
+        }
+        replies = actorSystem.actorOf(Props.create(Replies.class, () -> new Replies(pending)), "replies");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws InterruptedException, ExecutionException {
+        actorSystem.terminate();
+        actorSystem.getWhenTerminated().toCompletableFuture().get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void tellGet() throws InterruptedException {
+        tellBatch(gets);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void tellUpdate() throws InterruptedException {
+        tellBatch(updates);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object askGet() throws InterruptedException, ExecutionException {
+        return Patterns.ask(routerRef, next(gets), TIMEOUT).toCompletableFuture().get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object askUpdate() throws InterruptedException, ExecutionException {
+        return Patterns.ask(routerRef, next(updates), TIMEOUT).toCompletableFuture().get();
+    }
+
+    private void tellBatch(Object[] messages) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(BATCH);
+        pending.set(latch);
+        for (int i = 0; i < BATCH; i++) {
+            routerRef.tell(next(messages), replies);
+        }
+        if (!latch.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Timed out waiting for " + latch.getCount() + " replies");
+        }
+    }
+
+    private Object next(Object[] messages) {
+        return messages[sequence.getAndIncrement() & (ENTITIES - 1)];
+    }
+
+    /**
+     * Counts replies down on the latch of the batch in flight.
+     */
+    static class Replies extends AbstractActor {
+
+        private final AtomicReference<CountDownLatch> pending;
+
+        Replies(AtomicReference<CountDownLatch> pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder()
+                    .matchAny(reply -> pending.get().countDown())
+                    .build();
+        }
+    }
+}
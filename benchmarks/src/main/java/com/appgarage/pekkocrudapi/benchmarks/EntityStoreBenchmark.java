@@ -0,0 +1,132 @@
+package com.appgarage.pekkocrudapi.benchmarks;
+
+import com.appgarage.pekkocrudapi.model.Product;
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.model.User;
+import com.appgarage.pekkocrudapi.store.CompactTrackingDetailStore;
+import com.appgarage.pekkocrudapi.store.EntityStore;
+import com.appgarage.pekkocrudapi.store.InMemoryEntityStore;
+import com.appgarage.pekkocrudapi.store.TrackingDetailCodec;
+import com.appgarage.pekkocrudapi.store.WalEntityStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Write throughput of the storage engines behind the entity stores.
+ * memory is the in-memory baseline and compact the primitive-column tracking store. wal-sync acknowledges
+ * each write after its group commit is fsynced, wal-async only queues it; event-sourced is wal-async logging
+ * timestamped events.
+ * Runs with several threads so group commit has writers to batch.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class EntityStoreBenchmark {
+
+    @Param({"memory", "compact", "wal-sync", "wal-async", "event-sourced"})
+    public String engine;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private Path directory;
+    private EntityStore<TrackingDetail> store;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        directory = Files.createTempDirectory("entity-store-benchmark");
+        store = Stores.open(engine, directory, Long.MAX_VALUE);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        store.close();
+        Stores.delete(directory);
+    }
+
+    @Benchmark
+    public boolean create() {
+        TrackingDetail trackingDetail = Stores.trackingDetail(sequence.getAndIncrement());
+        return store.putIfAbsent(trackingDetail.getTrackingNumber(), trackingDetail);
+    }
+
+    /**
+     * Store setup and entity fixtures shared by the benchmarks.
+     */
+    static final class Stores {
+
+        private Stores() {
+            // Private constructor to prevent instantiation
+        }
+
+        static EntityStore<TrackingDetail> open(String engine, Path directory, long snapshotEvery) throws IOException {
+            switch (engine) {
+                case "memory":
+                    return new InMemoryEntityStore<>();
+                case "compact":
+                    return new CompactTrackingDetailStore();
+                case "wal-sync":
+                    return new WalEntityStore<>(directory, "tracking-details", new TrackingDetailCodec(), new CompactTrackingDetailStore(), true, 1024, snapshotEvery);
+                case "wal-async":
+                    return new WalEntityStore<>(directory, "tracking-details", new TrackingDetailCodec(), new CompactTrackingDetailStore(), false, 1024, snapshotEvery);
+                case "event-sourced":
+                    return new WalEntityStore<>(directory, "tracking-details", new TrackingDetailCodec(), new CompactTrackingDetailStore(), false, 1024, snapshotEvery, true, false);
+                default:
+                    throw new IllegalArgumentException("Unknown engine: " + engine);
+            }
+        }
+
+        static TrackingDetail trackingDetail(long n) {
+            TrackingDetail trackingDetail = new TrackingDetail();
+            trackingDetail.setTrackingNumber(String.format("9400%018d", n));
+            trackingDetail.setMailingDate(LocalDate.of(2024, 1, 1).plusDays(n % 365));
+            trackingDetail.setDestinationZipCode(String.format("%05d", n % 100000));
+            return trackingDetail;
+        }
+
+        static Product product(long n) {
+            Product product = new Product();
+            product.setName("Product " + n);
+            product.setPrice(1 + n % 1000);
+            product.setDescription("Benchmark product number " + n);
+            return product;
+        }
+
+        static User user(long n) {
+            User user = new User();
+            user.setUsername("user" + n);
+            user.setEmail("user" + n + "@example.com");
+            user.setRole(n % 10 == 0 ? "ADMIN" : "USER");
+            return user;
+        }
+
+        static void delete(Path directory) throws IOException {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
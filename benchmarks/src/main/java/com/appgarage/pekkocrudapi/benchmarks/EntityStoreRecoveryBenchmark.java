@@ -0,0 +1,104 @@
+package com.appgarage.pekkocrudapi.benchmarks;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.store.EntityStore;
+import com.appgarage.pekkocrudapi.store.InMemoryEntityStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of rebuilding a tracking store.
+ * walLog replays a log with no snapshot. walSnapshotFirstRead measures how soon a store opened from a
+ * snapshot serves its first read (the snapshot is only mapped), walSnapshotLoaded how long until the
+ * snapshot is fully on the heap. The memory baseline re-creates the same entities one by one,
+ * as a restart without a log would have to.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityStoreRecoveryBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int records;
+
+    private Path logDirectory;
+    private Path snapshotDirectory;
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        logDirectory = Files.createTempDirectory("entity-store-log");
+        snapshotDirectory = Files.createTempDirectory("entity-store-snapshot");
+        fill(logDirectory, Long.MAX_VALUE);
+        // Snapshotting once all records are logged leaves only the snapshot to load
+        fill(snapshotDirectory, records);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        EntityStoreBenchmark.Stores.delete(logDirectory);
+        EntityStoreBenchmark.Stores.delete(snapshotDirectory);
+    }
+
+    @Benchmark
+    public int memory() throws IOException {
+        try (EntityStore<TrackingDetail> store = new InMemoryEntityStore<>()) {
+            for (int i = 0; i < records; i++) {
+                TrackingDetail trackingDetail = EntityStoreBenchmark.Stores.trackingDetail(i);
+                store.putIfAbsent(trackingDetail.getTrackingNumber(), trackingDetail);
+            }
+            return store.size();
+        }
+    }
+
+    @Benchmark
+    public int walLog() throws IOException {
+        return recover(logDirectory);
+    }
+
+    @Benchmark
+    public TrackingDetail walSnapshotFirstRead() throws IOException {
+        try (EntityStore<TrackingDetail> store = EntityStoreBenchmark.Stores.open("wal-async", snapshotDirectory, Long.MAX_VALUE)) {
+            return store.get(EntityStoreBenchmark.Stores.trackingDetail(records / 2).getTrackingNumber());
+        }
+    }
+
+    @Benchmark
+    public int walSnapshotLoaded() throws IOException {
+        return recover(snapshotDirectory);
+    }
+
+    // size() waits until a mapped snapshot is fully loaded
+    private int recover(Path directory) throws IOException {
+        try (EntityStore<TrackingDetail> store = EntityStoreBenchmark.Stores.open("wal-async", directory, Long.MAX_VALUE)) {
+            return store.size();
+        }
+    }
+
+    private void fill(Path directory, long snapshotEvery) throws IOException {
+        try (EntityStore<TrackingDetail> store = EntityStoreBenchmark.Stores.open("wal-async", directory, snapshotEvery)) {
+            for (int i = 0; i < records; i++) {
+                TrackingDetail trackingDetail = EntityStoreBenchmark.Stores.trackingDetail(i);
+                store.putIfAbsent(trackingDetail.getTrackingNumber(), trackingDetail);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.appgarage.pekkocrudapi.benchmarks;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.store.EntityStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of an event-sourced tracking store after a long history of events.
+ * The journal holds events creating a quarter as many tracking details as there are events, followed by
+ * updates of them. snapshotEvery 0 replays the whole journal; otherwise snapshots are taken every that
+ * many events, so recovery loads the last snapshot and replays only the events after it.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventJournalRecoveryBenchmark {
+
+    @Param({"10000000"})
+    public int events;
+
+    @Param({"0", "1000000"})
+    public long snapshotEvery;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        directory = Files.createTempDirectory("event-journal");
+        int trackingDetails = events / 4;
+        try (EntityStore<TrackingDetail> store = open()) {
+            for (int i = 0; i < events; i++) {
+                TrackingDetail trackingDetail = EntityStoreBenchmark.Stores.trackingDetail(i % trackingDetails);
+                if (i < trackingDetails) {
+                    store.putIfAbsent(trackingDetail.getTrackingNumber(), trackingDetail);
+                } else {
+                    trackingDetail.setDestinationZipCode(String.format("%05d", i % 100000));
+                    store.put(trackingDetail.getTrackingNumber(), trackingDetail);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        EntityStoreBenchmark.Stores.delete(directory);
+    }
+
+    // size() waits until a mapped snapshot is fully loaded
+    @Benchmark
+    public int recover() throws IOException {
+        try (EntityStore<TrackingDetail> store = open()) {
+            return store.size();
+        }
+    }
+
+    private EntityStore<TrackingDetail> open() throws IOException {
+        return EntityStoreBenchmark.Stores.open("event-sourced", directory, snapshotEvery == 0 ? Long.MAX_VALUE : snapshotEvery);
+    }
+}
@@ -0,0 +1,150 @@
+package com.appgarage.pekkocrudapi.benchmarks;
+
+import com.appgarage.pekkocrudapi.PekkoCrudApiApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.typesafe.config.ConfigFactory;
+import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.http.javadsl.Http;
+import org.apache.pekko.http.javadsl.model.ContentTypes;
+import org.apache.pekko.http.javadsl.model.HttpRequest;
+import org.apache.pekko.http.javadsl.model.HttpResponse;
+import org.apache.pekko.stream.Materializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The whole application under load through real sockets, with /api/products and /api/users served by each
+ * http.stack: spring runs them on Spring MVC in Tomcat, pekko on ProductApiRoute and UserApiRoute in Pekko HTTP
+ * (the pekko-http profile, without Tomcat). Both stacks call the same services, actors and in-memory stores.
+ * Requests come from a Pekko HTTP client pool in a separate actor system, one outstanding request per JMH thread,
+ * so each mode is measured with 32 concurrent keep-alive clients.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class HttpStackBenchmark {
+
+    private static final int ENTITIES = 1 << 10;
+    private static final int SPRING_PORT = 18080;
+    private static final int PEKKO_PORT = 18088;
+
+    @Param({"spring", "pekko"})
+    public String stack;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private ConfigurableApplicationContext application;
+    private ActorSystem clientSystem;
+    private Http http;
+    private Materializer materializer;
+    private String baseUri;
+    private String[] productIds;
+    private String[] userIds;
+    private byte[][] userBodies;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        List<String> args = new ArrayList<>();
+        args.add("--store.engine=memory");
+        args.add("--server.port=" + SPRING_PORT);
+        args.add("--server.port.pekko=" + PEKKO_PORT);
+        args.add("--logging.level.root=WARN");
+        if (PekkoCrudApiApplication.HTTP_STACK_PEKKO.equals(stack)) {
+            args.add("--spring.profiles.active=pekko-http");
+        }
+        application = SpringApplication.run(PekkoCrudApiApplication.class, args.toArray(new String[0]));
+        application.getBean("pekkoHttpServer", CompletionStage.class).toCompletableFuture().get();
+        baseUri = "http://localhost:" + (PekkoCrudApiApplication.HTTP_STACK_PEKKO.equals(stack) ? PEKKO_PORT : SPRING_PORT);
+
+        // Enough pooled connections that every benchmark thread has one
+        clientSystem = ActorSystem.create("http-stack-benchmark-client", ConfigFactory.parseString(
+                "pekko.http.host-connection-pool { max-connections = 64, max-open-requests = 256 }").withFallback(ConfigFactory.load()));
+        http = Http.get(clientSystem);
+        materializer = Materializer.matFromSystem(clientSystem);
+        ObjectMapper objectMapper = new ObjectMapper();
+        productIds = new String[ENTITIES];
+        userIds = new String[ENTITIES];
+        userBodies = new byte[ENTITIES][];
+        for (int i = 0; i < ENTITIES; i++) {
+            productIds[i] = objectMapper.readTree(post("/api/products", productBody(i))).get("id").asText();
+            userBodies[i] = ("{\"username\":\"user" + i + "\",\"email\":\"user" + i + "@example.com\",\"role\":\"member\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            userIds[i] = objectMapper.readTree(post("/api/users", userBodies[i])).get("id").asText();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws InterruptedException, ExecutionException {
+        clientSystem.terminate();
+        clientSystem.getWhenTerminated().toCompletableFuture().get();
+        application.close();
+    }
+
+    @Benchmark
+    public int getProduct() throws Exception {
+        return send(HttpRequest.GET(baseUri + "/api/products/" + productIds[next()]));
+    }
+
+    @Benchmark
+    public int createProduct() throws Exception {
+        return send(HttpRequest.POST(baseUri + "/api/products")
+                .withEntity(ContentTypes.APPLICATION_JSON, productBody(created.getAndIncrement())));
+    }
+
+    @Benchmark
+    public int updateUser() throws Exception {
+        int i = next();
+        return send(HttpRequest.PUT(baseUri + "/api/users/" + userIds[i]).withEntity(ContentTypes.APPLICATION_JSON, userBodies[i]));
+    }
+
+    private byte[] post(String path, byte[] body) throws Exception {
+        HttpResponse response = http.singleRequest(HttpRequest.POST(baseUri + path).withEntity(ContentTypes.APPLICATION_JSON, body))
+                .toCompletableFuture().get();
+        if (response.status().intValue() != 201) {
+            throw new IllegalStateException("POST " + path + " answered " + response.status());
+        }
+        return response.entity().toStrict(10000, materializer).toCompletableFuture().get().getData().toArray();
+    }
+
+    private int send(HttpRequest request) throws Exception {
+        HttpResponse response = http.singleRequest(request).toCompletableFuture().get();
+        response.discardEntityBytes(materializer);
+        return response.status().intValue();
+    }
+
+    private int next() {
+        return sequence.getAndIncrement() & (ENTITIES - 1);
+    }
+
+    private static byte[] productBody(long i) {
+        return ("{\"name\":\"Product " + i + "\",\"description\":\"Benchmark product " + i + "\",\"price\":" + (1 + i % 1000) + "}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,77 @@
+package com.appgarage.pekkocrudapi.benchmarks;
+
+import com.appgarage.pekkocrudapi.config.JacksonConfig;
+import com.appgarage.pekkocrudapi.model.Product;
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the models with the ObjectMapper from JacksonConfig, which backs both the
+ * Spring MVC controllers and the Pekko HTTP marshaller.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({"tracking-detail", "product", "user"})
+    public String entity;
+
+    private final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+    private Object value;
+    private Class<?> type;
+    private byte[] json;
+
+    @Setup
+    public void prepare() throws IOException {
+        switch (entity) {
+            case "tracking-detail":
+                value = EntityStoreBenchmark.Stores.trackingDetail(42);
+                type = TrackingDetail.class;
+                break;
+            case "product":
+                Product product = EntityStoreBenchmark.Stores.product(42);
+                product.setId("7c9e6679-7425-40de-944b-e07fc1f90ae7");
+                value = product;
+                type = Product.class;
+                break;
+            case "user":
+                User user = EntityStoreBenchmark.Stores.user(42);
+                user.setId("7c9e6679-7425-40de-944b-e07fc1f90ae7");
+                value = user;
+                type = User.class;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown entity: " + entity);
+        }
+        json = objectMapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException {
+        return objectMapper.readValue(json, type);
+    }
+}
@@ -0,0 +1,116 @@
+package com.appgarage.pekkocrudapi.benchmarks;
+
+import com.appgarage.pekkocrudapi.model.Product;
+import com.appgarage.pekkocrudapi.store.InMemoryEntityStore;
+import com.appgarage.pekkocrudapi.store.ProductSearchQuery;
+import com.appgarage.pekkocrudapi.store.ProductStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProductStore.search over catalogs of different sizes, with the search index or scanning every product.
+ * Names and descriptions draw words from a fixed vocabulary with a skewed distribution, so some terms are in
+ * a large share of the catalog and most are rare. Each query kind cycles through queries for terms of all
+ * frequencies: a single term, two terms, a 2-letter prefix, a term within a price range and a price range alone.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductSearchBenchmark {
+
+    private static final int VOCABULARY = 5000;
+    private static final int DESCRIPTION_WORDS = 12;
+    private static final int QUERIES = 256;
+    private static final int LIMIT = 20;
+
+    @Param({"100000", "1000000"})
+    public int products;
+
+    @Param({"true", "false"})
+    public boolean searchIndex;
+
+    @Param({"term", "terms", "prefix", "termAndPrice", "price"})
+    public String query;
+
+    private ProductStore productStore;
+    private ProductSearchQuery[] queries;
+    private int sequence;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        Random random = new Random(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = word(random, i);
+        }
+        productStore = new ProductStore(new InMemoryEntityStore<>(), searchIndex, 10000);
+        for (int i = 0; i < products; i++) {
+            Product product = new Product();
+            product.setName(words[skewed(random)] + " " + words[skewed(random)]);
+            StringBuilder description = new StringBuilder();
+            for (int w = 0; w < DESCRIPTION_WORDS; w++) {
+                description.append(words[skewed(random)]).append(' ');
+            }
+            product.setDescription(description.toString());
+            product.setPrice(1 + random.nextInt(99900) / 100.0);
+            productStore.create(product);
+        }
+        queries = new ProductSearchQuery[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String word = words[skewed(random)];
+            double minPrice = 1 + random.nextInt(990);
+            switch (query) {
+                case "term":
+                    queries[i] = new ProductSearchQuery(word, null, null);
+                    break;
+                case "terms":
+                    queries[i] = new ProductSearchQuery(word + " " + words[skewed(random)], null, null);
+                    break;
+                case "prefix":
+                    queries[i] = new ProductSearchQuery(word.substring(0, 2), null, null);
+                    break;
+                case "termAndPrice":
+                    queries[i] = new ProductSearchQuery(word, minPrice, minPrice + 10);
+                    break;
+                default:
+                    queries[i] = new ProductSearchQuery(null, minPrice, minPrice + 10);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Product> search() {
+        return productStore.search(queries[sequence++ & (QUERIES - 1)], LIMIT);
+    }
+
+    // Word index i of the vocabulary: low indexes are drawn far more often than high ones
+    private static int skewed(Random random) {
+        return (int) Math.pow(VOCABULARY, random.nextDouble()) - 1;
+    }
+
+    private static String word(Random random, int i) {
+        StringBuilder word = new StringBuilder();
+        int length = 4 + random.nextInt(6);
+        for (int c = 0; c < length; c++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.append(i).toString();
+    }
+}
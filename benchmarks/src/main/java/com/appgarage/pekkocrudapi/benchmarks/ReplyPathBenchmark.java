@@ -0,0 +1,108 @@
+package com.appgarage.pekkocrudapi.benchmarks;
+
+import com.appgarage.pekkocrudapi.actor.EntityClient;
+import com.appgarage.pekkocrudapi.actor.EntityCommand;
+import com.appgarage.pekkocrudapi.actor.EntityReply;
+import com.appgarage.pekkocrudapi.actor.EntityRouters;
+import com.appgarage.pekkocrudapi.actor.ProductActor;
+import com.appgarage.pekkocrudapi.actor.ProductMessages;
+import com.appgarage.pekkocrudapi.model.Product;
+import com.appgarage.pekkocrudapi.store.InMemoryEntityStore;
+import com.appgarage.pekkocrudapi.store.ProductStore;
+import com.typesafe.config.ConfigFactory;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.actor.typed.Scheduler;
+import org.apache.pekko.actor.typed.javadsl.Adapter;
+import org.apache.pekko.actor.typed.javadsl.AskPattern;
+import org.apache.pekko.actor.typed.javadsl.Routers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Round trip of a product get through each way of getting a response back from the entity actors, to compare
+ * allocations per request; run with -prof gc and compare gc.alloc.rate.norm.
+ * ask is EntityClient without the ReplyPool, as the services asked before: Patterns.ask to the classic router,
+ * with a PromiseActorRef and timeout task per request. typed-ask is AskPattern.ask to a typed pool of
+ * ProductActor.behavior, with a temporary reply actor per request. pooled and pooled-typed send the same requests
+ * through EntityClient and the ReplyPool's long-lived reply actors to the classic router and the typed pool.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ReplyPathBenchmark {
+
+    private static final int ENTITIES = 1 << 13;
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Param({"ask", "typed-ask", "pooled", "pooled-typed"})
+    public String path;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+    private ActorSystem actorSystem;
+    private ActorRef classicRouter;
+    private org.apache.pekko.actor.typed.ActorRef<EntityCommand> typedRouter;
+    private Scheduler scheduler;
+    private EntityClient client;
+    private EntityClient pooledClient;
+    // Requests are built up front so the benchmarks measure the round trip, not request construction
+    private ProductMessages.GetProduct[] gets;
+
+    @Setup(Level.Trial)
+    public void start() {
+        actorSystem = ActorSystem.create("reply-path-benchmark", ConfigFactory.load());
+        ProductStore productStore = new ProductStore(new InMemoryEntityStore<>());
+        gets = new ProductMessages.GetProduct[ENTITIES];
+        for (int i = 0; i < ENTITIES; i++) {
+            Product product = productStore.create(EntityStoreBenchmark.Stores.product(i));
+            gets[i] = new ProductMessages.GetProduct(product.getId());
+        }
+        classicRouter = EntityRouters.create(actorSystem, EntityRouters.PRODUCT_ROUTER, ProductActor.props(productStore));
+        typedRouter = Adapter.spawn(actorSystem, Routers.pool(5, ProductActor.behavior(productStore)), "typedProductRouter");
+        scheduler = Adapter.toTyped(actorSystem.scheduler());
+        client = new EntityClient(actorSystem, classicRouter, EntityRouters.PRODUCT_ROUTER, false);
+        ActorRef target = path.equals("pooled-typed") ? Adapter.toClassic(typedRouter) : classicRouter;
+        pooledClient = new EntityClient(actorSystem, target, EntityRouters.PRODUCT_ROUTER);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws InterruptedException, ExecutionException {
+        actorSystem.terminate();
+        actorSystem.getWhenTerminated().toCompletableFuture().get();
+    }
+
+    @Benchmark
+    public Object get() throws InterruptedException, ExecutionException {
+        ProductMessages.GetProduct request = gets[sequence.getAndIncrement() & (ENTITIES - 1)];
+        switch (path) {
+            case "ask":
+                return client.ask(request).get();
+            case "typed-ask":
+                return AskPattern.<EntityCommand, EntityReply>ask(typedRouter, replyTo -> new EntityCommand(request, 0, replyTo), TIMEOUT, scheduler)
+                        .toCompletableFuture().get().getResponse();
+            default:
+                return pooledClient.ask(request).get();
+        }
+    }
+}
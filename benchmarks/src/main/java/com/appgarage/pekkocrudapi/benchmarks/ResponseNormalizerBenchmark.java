@@ -0,0 +1,47 @@
+package com.appgarage.pekkocrudapi.benchmarks;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.utils.ResponseNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ResponseNormalizer.normalizeTrackingDetail on ZIP codes it keeps and ZIP codes it clears.
+ * The ZIP code is reset before each call, since normalizing an invalid one clears it.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseNormalizerBenchmark {
+
+    @Param({"12345", "12345-6789", "1234X"})
+    public String zipCode;
+
+    private TrackingDetail trackingDetail;
+
+    @Setup
+    public void prepare() {
+        trackingDetail = EntityStoreBenchmark.Stores.trackingDetail(42);
+    }
+
+    @Benchmark
+    public String normalizeTrackingDetail() {
+        trackingDetail.setDestinationZipCode(zipCode);
+        ResponseNormalizer.normalizeTrackingDetail(trackingDetail);
+        return trackingDetail.getDestinationZipCode();
+    }
+}
@@ -0,0 +1,38 @@
+package com.appgarage.pekkocrudapi.benchmarks;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.store.CompactTrackingDetailStore;
+import com.appgarage.pekkocrudapi.store.EntityStore;
+import com.appgarage.pekkocrudapi.store.InMemoryEntityStore;
+
+/**
+ * Retained heap per tracking detail for the object-based and the compact tracking store.
+ * Not a JMH benchmark: it fills each store and compares used heap after a full GC.
+ * Run with java -cp target/benchmarks.jar com.appgarage.pekkocrudapi.benchmarks.StoreFootprint [records]
+ */
+public class StoreFootprint {
+
+    public static void main(String[] args) {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        report("memory", new InMemoryEntityStore<>(), records);
+        report("compact", new CompactTrackingDetailStore(), records);
+    }
+
+    private static void report(String name, EntityStore<TrackingDetail> store, int records) {
+        long before = usedHeap();
+        for (int i = 0; i < records; i++) {
+            TrackingDetail trackingDetail = EntityStoreBenchmark.Stores.trackingDetail(i);
+            store.putIfAbsent(trackingDetail.getTrackingNumber(), trackingDetail);
+        }
+        long retained = usedHeap() - before;
+        System.out.printf("%-8s %,d records, %,d bytes retained, %d bytes per record%n", name, store.size(), retained, retained / records);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
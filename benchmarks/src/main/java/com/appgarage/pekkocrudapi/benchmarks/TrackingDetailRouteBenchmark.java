@@ -0,0 +1,134 @@
+package com.appgarage.pekkocrudapi.benchmarks;
+
+import com.appgarage.pekkocrudapi.actor.EntityRouters;
+import com.appgarage.pekkocrudapi.actor.TrackingDetailActor;
+import com.appgarage.pekkocrudapi.cache.JsonResponseCache;
+import com.appgarage.pekkocrudapi.config.JacksonConfig;
+import com.appgarage.pekkocrudapi.logging.AccessLog;
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.routes.JsonEntitySupport;
+import com.appgarage.pekkocrudapi.routes.TrackingDetailApiRoute;
+import com.appgarage.pekkocrudapi.store.CompactTrackingDetailStore;
+import com.appgarage.pekkocrudapi.store.TrackingDetailStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.http.javadsl.model.ContentTypes;
+import org.apache.pekko.http.javadsl.model.HttpRequest;
+import org.apache.pekko.http.javadsl.model.HttpResponse;
+import org.apache.pekko.japi.function.Function;
+import org.apache.pekko.stream.Materializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TrackingDetailApiRoute handling requests in process: requests go through the sealed route's handler
+ * function, so the numbers cover routing, unmarshalling, the actors or read-through store and
+ * marshalling, without sockets or HTTP parsing.
+ * readThrough=false sends GETs through the sharded router as well. responseCache=true puts a response cache large
+ * enough for every tracking number in front of GETs, so once warm they are served from its encoded bytes.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrackingDetailRouteBenchmark {
+
+    private static final int ENTITIES = 1 << 13;
+    private static final String PATH = "/api/tracking-details";
+
+    @Param({"true", "false"})
+    public boolean readThrough;
+
+    @Param({"true", "false"})
+    public boolean responseCache;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private ActorSystem actorSystem;
+    private Materializer materializer;
+    private AccessLog accessLog;
+    private Function<HttpRequest, CompletionStage<HttpResponse>> handler;
+    private String[] trackingNumbers;
+    private byte[][] bodies;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        actorSystem = ActorSystem.create("tracking-route-benchmark");
+        materializer = Materializer.matFromSystem(actorSystem);
+        ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+        TrackingDetailStore trackingDetailStore = new TrackingDetailStore(new CompactTrackingDetailStore());
+        trackingNumbers = new String[ENTITIES];
+        bodies = new byte[ENTITIES][];
+        for (int i = 0; i < ENTITIES; i++) {
+            TrackingDetail trackingDetail = EntityStoreBenchmark.Stores.trackingDetail(i);
+            trackingDetailStore.create(trackingDetail);
+            trackingNumbers[i] = trackingDetail.getTrackingNumber();
+            bodies[i] = objectMapper.writeValueAsBytes(trackingDetail);
+        }
+        JsonResponseCache cache = new JsonResponseCache(responseCache ? ENTITIES : 0);
+        ActorRef router = EntityRouters.create(actorSystem, EntityRouters.TRACKING_DETAIL_ROUTER, TrackingDetailActor.props("1.0", trackingDetailStore, cache));
+        // Same limits as the application.properties defaults
+        JsonEntitySupport jsonEntitySupport = new JsonEntitySupport(objectMapper, 65536, 268435456L, 65536, 1000);
+        // Same access log settings as the application.properties defaults
+        accessLog = new AccessLog(new SimpleMeterRegistry(), true, 8192, 0.01, 1.0, true, 256, new String[]{"destinationZipCode"}, "info", new String[0]);
+        TrackingDetailApiRoute route = new TrackingDetailApiRoute(actorSystem, "1.0", router, trackingDetailStore, readThrough, jsonEntitySupport, cache, accessLog);
+        handler = route.createRoute().seal().handler(actorSystem);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws InterruptedException, ExecutionException {
+        accessLog.close();
+        actorSystem.terminate();
+        actorSystem.getWhenTerminated().toCompletableFuture().get();
+    }
+
+    @Benchmark
+    public int get() throws Exception {
+        return handle(HttpRequest.GET(PATH + "/" + trackingNumbers[next()]));
+    }
+
+    @Benchmark
+    public int put() throws Exception {
+        int i = next();
+        return handle(HttpRequest.PUT(PATH + "/" + trackingNumbers[i]).withEntity(ContentTypes.APPLICATION_JSON, bodies[i]));
+    }
+
+    @Benchmark
+    public int post() throws Exception {
+        String body = "{\"trackingNumber\":\"BENCH" + created.getAndIncrement()
+                + "\",\"mailingDate\":\"2024-01-01\",\"destinationZipCode\":\"12345\"}";
+        return handle(HttpRequest.POST(PATH).withEntity(ContentTypes.APPLICATION_JSON, body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private int handle(HttpRequest request) throws Exception {
+        HttpResponse response = handler.apply(request).toCompletableFuture().get();
+        response.discardEntityBytes(materializer);
+        return response.status().intValue();
+    }
+
+    private int next() {
+        return sequence.getAndIncrement() & (ENTITIES - 1);
+    }
+}
@@ -1,46 +1,98 @@
 package com.appgarage.pekkocrudapi;
 
+import com.appgarage.pekkocrudapi.actor.EntityRouters;
+import com.appgarage.pekkocrudapi.actor.TrackingDetailActor;
+import com.appgarage.pekkocrudapi.actor.TrackingDetailCluster;
+import com.appgarage.pekkocrudapi.actor.TrackingDetailMessages;
+import com.appgarage.pekkocrudapi.cache.IdempotencyCache;
+import com.appgarage.pekkocrudapi.cache.JsonResponseCache;
+import com.appgarage.pekkocrudapi.logging.AccessLog;
+import com.appgarage.pekkocrudapi.metrics.HttpRouteMetrics;
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.routes.JsonEntitySupport;
+import com.appgarage.pekkocrudapi.routes.ProductApiRoute;
 import com.appgarage.pekkocrudapi.routes.TrackingDetailApiRoute;
+import com.appgarage.pekkocrudapi.routes.UserApiRoute;
+import com.appgarage.pekkocrudapi.store.TrackingDetailBucketStores;
+import com.appgarage.pekkocrudapi.store.TrackingDetailStore;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
 import org.apache.pekko.actor.ActorRef;
 import org.apache.pekko.actor.ActorSystem;
 import org.apache.pekko.http.javadsl.Http;
 import org.apache.pekko.http.javadsl.ServerBinding;
-import org.apache.pekko.routing.RoundRobinPool;
+import org.apache.pekko.http.javadsl.server.Directives;
+import org.apache.pekko.http.javadsl.server.Route;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletionStage;
 
 // Spring Boot application class to bootstrap the Pekko HTTP server and Actor System
 @SpringBootApplication
 public class PekkoCrudApiApplication {
 
+    // http.stack values: products and users on Spring MVC (Tomcat), or on Pekko HTTP next to the tracking details
+    public static final String HTTP_STACK_SPRING = "spring";
+    public static final String HTTP_STACK_PEKKO = "pekko";
+
     @Value("${server.port.pekko:8088}")
     private int pekkoPort;
 
+    @Value("${http.stack:spring}")
+    private String httpStack;
+
     public static void main(String[] args) {
         SpringApplication.run(PekkoCrudApiApplication.class, args);
     }
 
     @Bean
-    public ActorRef trackingDetailRouter(ActorSystem actorSystem, @Value("${api.version}") String apiVersion) {
-        return actorSystem.actorOf(
-                new RoundRobinPool(5).props(com.appgarage.pekkocrudapi.actor.TrackingDetailActor.props(apiVersion)),
-                "trackingDetailRouter"
-        );
+    public ActorRef trackingDetailRouter(ActorSystem actorSystem, @Value("${api.version}") String apiVersion,
+                                         TrackingDetailStore trackingDetailStore, JsonResponseCache trackingDetailResponseCache,
+                                         TrackingDetailBucketStores trackingDetailBucketStores,
+                                         IdempotencyCache<TrackingDetail, TrackingDetailMessages.TrackingDetailResponse> trackingDetailIdempotencyCache) {
+        if (TrackingDetailCluster.isEnabled(actorSystem)) {
+            // Buckets are sharded over the cluster nodes, see tracking-detail-cluster in application.conf
+            return TrackingDetailCluster.start(actorSystem, apiVersion, trackingDetailBucketStores, trackingDetailIdempotencyCache);
+        }
+        // Router type and shard count come from pekko.actor.deployment./trackingDetailRouter
+        return EntityRouters.create(actorSystem, EntityRouters.TRACKING_DETAIL_ROUTER,
+                TrackingDetailActor.props(apiVersion, trackingDetailStore, trackingDetailResponseCache, trackingDetailIdempotencyCache));
     }
 
     @Bean
-    public TrackingDetailApiRoute trackingDetailApiRoute(ActorSystem actorSystem, @Value("${api.version}") String apiVersion, ActorRef trackingDetailRouter, com.fasterxml.jackson.databind.ObjectMapper objectMapper) {
-        return new TrackingDetailApiRoute(actorSystem, apiVersion, trackingDetailRouter, objectMapper);
+    public TrackingDetailApiRoute trackingDetailApiRoute(ActorSystem actorSystem, @Value("${api.version}") String apiVersion, ActorRef trackingDetailRouter,
+                                                         TrackingDetailStore trackingDetailStore, @Value("${read.through.enabled:true}") boolean readThrough,
+                                                         JsonEntitySupport jsonEntitySupport, JsonResponseCache trackingDetailResponseCache,
+                                                         AccessLog accessLog) {
+        // The shared store only holds this node's writes in cluster mode, so reads go through the buckets;
+        // the response cache is left out too, since writes on other nodes could not invalidate it
+        boolean cluster = TrackingDetailCluster.isEnabled(actorSystem);
+        boolean storeReads = readThrough && !cluster;
+        return new TrackingDetailApiRoute(actorSystem, apiVersion, trackingDetailRouter, trackingDetailStore, storeReads, jsonEntitySupport,
+                cluster ? null : trackingDetailResponseCache, accessLog);
     }
 
     @Bean
-    public CompletionStage<ServerBinding> pekkoHttpServer(ActorSystem actorSystem, TrackingDetailApiRoute route) {
+    public CompletionStage<ServerBinding> pekkoHttpServer(ActorSystem actorSystem, TrackingDetailApiRoute route, ProductApiRoute productApiRoute,
+                                                         UserApiRoute userApiRoute, HttpRouteMetrics httpRouteMetrics,
+                                                         ObjectProvider<PrometheusMeterRegistry> prometheusRegistry) {
+        List<Route> routes = new ArrayList<>();
+        routes.add(route.createRoute());
+        if (HTTP_STACK_PEKKO.equalsIgnoreCase(httpStack)) {
+            // The pekko-http profile also keeps Tomcat from starting, so the scrape endpoint moves here too
+            routes.add(productApiRoute.createRoute());
+            routes.add(userApiRoute.createRoute());
+            prometheusRegistry.ifAvailable(registry -> routes.add(httpRouteMetrics.prometheusScrape(registry)));
+        } else if (!HTTP_STACK_SPRING.equalsIgnoreCase(httpStack)) {
+            throw new IllegalArgumentException("Unknown http.stack: " + httpStack);
+        }
         return Http.get(actorSystem)
                 .newServerAt("localhost", pekkoPort)
-                .bind(route.createRoute());
+                .bind(httpRouteMetrics.instrument(Directives.concat(routes.get(0), routes.subList(1, routes.size()).toArray(new Route[0]))));
     }
 }
@@ -0,0 +1,98 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Message classes for applying many TrackingDetail operations in one actor message.
+ * Operations are grouped by owning routee before sending, so every ApplyBatch holds
+ * only tracking numbers owned by the routee receiving it.
+ */
+public class BatchTrackingDetailMessages {
+
+    public enum OperationType {
+        @JsonProperty("create") CREATE,
+        @JsonProperty("update") UPDATE,
+        @JsonProperty("delete") DELETE
+    }
+
+    /**
+     * A single create, update or delete inside a batch request.
+     * Creates take the tracking number from the tracking detail; updates and deletes from trackingNumber.
+     */
+    public static class Operation implements Serializable {
+        private final OperationType op;
+        private final String trackingNumber;
+        private final TrackingDetail trackingDetail;
+
+        @JsonCreator
+        public Operation(@JsonProperty("op") OperationType op,
+                         @JsonProperty("trackingNumber") String trackingNumber,
+                         @JsonProperty("trackingDetail") TrackingDetail trackingDetail) {
+            this.op = op;
+            this.trackingNumber = trackingNumber;
+            this.trackingDetail = trackingDetail;
+        }
+
+        public OperationType getOp() {
+            return op;
+        }
+
+        public String getTrackingNumber() {
+            return trackingNumber;
+        }
+
+        public TrackingDetail getTrackingDetail() {
+            return trackingDetail;
+        }
+
+        /**
+         * The tracking number this operation addresses, or null if it is missing.
+         */
+        public String key() {
+            if (op == OperationType.CREATE) {
+                return trackingDetail == null ? null : trackingDetail.getTrackingNumber();
+            }
+            return trackingNumber;
+        }
+    }
+
+    /**
+     * Request to apply a group of operations owned by one routee, in order.
+     */
+    public static class ApplyBatch implements EntityRequest<BatchResponse>, Serializable {
+        private final List<Operation> operations;
+
+        public ApplyBatch(List<Operation> operations) {
+            this.operations = operations;
+        }
+
+        public List<Operation> getOperations() {
+            return operations;
+        }
+
+        @Override
+        public Class<BatchResponse> responseType() {
+            return BatchResponse.class;
+        }
+    }
+
+    /**
+     * Response for ApplyBatch, with one result per operation in the same order.
+     */
+    public static class BatchResponse implements Serializable {
+        private final List<TrackingDetailMessages.TrackingDetailResponse> results;
+
+        public BatchResponse(List<TrackingDetailMessages.TrackingDetailResponse> results) {
+            this.results = results;
+        }
+
+        public List<TrackingDetailMessages.TrackingDetailResponse> getResults() {
+            return results;
+        }
+    }
+}
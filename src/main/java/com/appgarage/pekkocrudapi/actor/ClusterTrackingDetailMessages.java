@@ -0,0 +1,118 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Message classes of the cluster mode, in which tracking details are partitioned into buckets
+ * and every bucket is one sharded TrackingDetailEntity.
+ */
+public class ClusterTrackingDetailMessages {
+
+    /**
+     * Delivers a message without a tracking number (GetAll, ApplyBatch) to one bucket through the shard region.
+     */
+    public static class BucketEnvelope implements Serializable {
+        private final int bucket;
+        private final Object message;
+
+        public BucketEnvelope(int bucket, Object message) {
+            this.bucket = bucket;
+            this.message = message;
+        }
+
+        public int getBucket() {
+            return bucket;
+        }
+
+        public Object getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * Request to a node's TrackingDetailArchive to hand over the archived contents of a bucket, if it has them.
+     */
+    public static class TakeBucket implements Serializable {
+        private final int bucket;
+
+        public TakeBucket(int bucket) {
+            this.bucket = bucket;
+        }
+
+        public int getBucket() {
+            return bucket;
+        }
+    }
+
+    /**
+     * One chunk of a bucket's tracking details, answering TakeBucket. last marks the final chunk of the reply.
+     */
+    public static class BucketContents implements Serializable {
+        private final int bucket;
+        private final List<TrackingDetail> trackingDetails;
+        private final boolean last;
+
+        public BucketContents(int bucket, List<TrackingDetail> trackingDetails, boolean last) {
+            this.bucket = bucket;
+            this.trackingDetails = trackingDetails;
+            this.last = last;
+        }
+
+        public int getBucket() {
+            return bucket;
+        }
+
+        public List<TrackingDetail> getTrackingDetails() {
+            return trackingDetails;
+        }
+
+        public boolean isLast() {
+            return last;
+        }
+    }
+
+    /**
+     * Keeps the tracking details of a stopped bucket entity in the local TrackingDetailArchive.
+     */
+    public static class ArchiveBucket {
+        private final int bucket;
+        private final List<TrackingDetail> trackingDetails;
+
+        public ArchiveBucket(int bucket, List<TrackingDetail> trackingDetails) {
+            this.bucket = bucket;
+            this.trackingDetails = trackingDetails;
+        }
+
+        public int getBucket() {
+            return bucket;
+        }
+
+        public List<TrackingDetail> getTrackingDetails() {
+            return trackingDetails;
+        }
+    }
+
+    /**
+     * Asks the local TrackingDetailArchive, while this node leaves the cluster, to have the buckets it has on disk
+     * started on the remaining nodes; answered with Done once all of them were taken.
+     */
+    public static final class HandOverStoredBuckets {
+        public static final HandOverStoredBuckets INSTANCE = new HandOverStoredBuckets();
+
+        private HandOverStoredBuckets() {
+        }
+    }
+
+    /**
+     * Sent by the shard to a bucket entity that is handed off to another node, or passivated.
+     */
+    public static final class Stop {
+        public static final Stop INSTANCE = new Stop();
+
+        private Stop() {
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import org.apache.pekko.actor.Status;
+import org.apache.pekko.event.Logging;
+import org.apache.pekko.event.LoggingAdapter;
+
+/**
+ * Base class of the classic entity actors, which answer requests through their EntityHandler.
+ * A plain request is answered to its sender; an EntityCommand, sent by the ReplyPool, is answered to its replyTo
+ * with its correlation id. A request the handler does not know is left unhandled. A request the handler fails on,
+ * e.g. because the store could not log a write, is answered with a Status.Failure, so the ask fails right away
+ * instead of timing out while the actor restarts.
+ */
+public abstract class EntityActor extends InstrumentedActor {
+
+    private final LoggingAdapter log = Logging.getLogger(getContext().getSystem(), this);
+    private final EntityHandler<?, ?> handler;
+
+    protected EntityActor(EntityHandler<?, ?> handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(EntityCommand.class, command -> {
+                    Object response = handle(command.getRequest());
+                    if (response == null) {
+                        unhandled(command);
+                        return;
+                    }
+                    command.reply(response);
+                })
+                .matchAny(request -> {
+                    Object response = handle(request);
+                    if (response == null) {
+                        unhandled(request);
+                        return;
+                    }
+                    getSender().tell(response, getSelf());
+                })
+                .build();
+    }
+
+    private Object handle(Object request) {
+        try {
+            return handler.handle(request);
+        } catch (RuntimeException e) {
+            log.error(e, "Failed to handle {}", request.getClass().getSimpleName());
+            return new Status.Failure(e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.metrics.ActorMetrics;
+import org.apache.pekko.actor.typed.Behavior;
+import org.apache.pekko.actor.typed.SupervisorStrategy;
+import org.apache.pekko.actor.typed.javadsl.AbstractBehavior;
+import org.apache.pekko.actor.typed.javadsl.ActorContext;
+import org.apache.pekko.actor.typed.javadsl.Adapter;
+import org.apache.pekko.actor.typed.javadsl.Behaviors;
+import org.apache.pekko.actor.typed.javadsl.Receive;
+
+import java.util.function.Supplier;
+
+/**
+ * Typed implementation of an entity protocol: EntityCommands are answered through the entity's EntityHandler,
+ * exactly like its classic actor answers them, and processing time is recorded under the classic actor's name.
+ * Like a classic actor it is restarted if a request fails.
+ */
+public class EntityBehavior extends AbstractBehavior<EntityCommand> {
+
+    private final EntityHandler<?, ?> handler;
+    private final ActorMetrics.MessageTimers messageTimers;
+
+    private EntityBehavior(ActorContext<EntityCommand> context, EntityHandler<?, ?> handler, Class<?> actorClass) {
+        super(context);
+        this.handler = handler;
+        this.messageTimers = ActorMetrics.get(Adapter.toClassic(context.getSystem())).messageTimers(actorClass);
+    }
+
+    /**
+     * @param actorClass the entity's classic actor, whose name tags the processing time meters
+     * @param handler    creates the handler of each started or restarted instance
+     */
+    public static Behavior<EntityCommand> create(Class<?> actorClass, Supplier<EntityHandler<?, ?>> handler) {
+        return Behaviors.supervise(Behaviors.<EntityCommand>setup(context -> new EntityBehavior(context, handler.get(), actorClass)))
+                .onFailure(SupervisorStrategy.restart());
+    }
+
+    @Override
+    public Receive<EntityCommand> createReceive() {
+        return newReceiveBuilder()
+                .onMessage(EntityCommand.class, this::onCommand)
+                .build();
+    }
+
+    private Behavior<EntityCommand> onCommand(EntityCommand command) {
+        long start = System.nanoTime();
+        Object response = handler.handle(command.getRequest());
+        if (response == null) {
+            return Behaviors.unhandled();
+        }
+        command.reply(response);
+        messageTimers.record(command.getRequest().getClass(), System.nanoTime() - start);
+        return this;
+    }
+}
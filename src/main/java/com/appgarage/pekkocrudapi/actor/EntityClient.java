@@ -0,0 +1,63 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.metrics.ActorMetrics;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.ActorSystem;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Typed asks to one entity router, with the ask-timeout from the router's deployment section.
+ * Every request declares its response type, so replies come back as that type instead of Object, and a reply of
+ * any other type fails the future with UnexpectedResponseException.
+ * Requests go through the ReplyPool, whose long-lived reply actors take the place of a temporary actor per ask,
+ * unless it is disabled or the router's routees may be on other nodes.
+ */
+public class EntityClient {
+
+    private final ActorRef router;
+    private final ActorMetrics actorMetrics;
+    private final long askTimeoutMillis;
+    // Null if requests are sent with Patterns.ask
+    private final ReplyPool replyPool;
+
+    public EntityClient(ActorSystem actorSystem, ActorRef router, String routerName) {
+        this(actorSystem, router, routerName, true);
+    }
+
+    /**
+     * @param pooledReplies false for a router that forwards requests to other nodes, since EntityCommand is only
+     *                      sent between local actors
+     */
+    public EntityClient(ActorSystem actorSystem, ActorRef router, String routerName, boolean pooledReplies) {
+        this.router = router;
+        this.actorMetrics = ActorMetrics.get(actorSystem);
+        this.askTimeoutMillis = EntityRouters.askTimeoutMillis(actorSystem, routerName);
+        ReplyPool pool = ReplyPool.get(actorSystem);
+        this.replyPool = pooledReplies && pool.isEnabled() ? pool : null;
+    }
+
+    /**
+     * Asks the router, recording the round trip in the ask metrics.
+     */
+    public <R> CompletableFuture<R> ask(EntityRequest<R> request) {
+        if (replyPool != null) {
+            return replyPool.ask(router, request, askTimeoutMillis);
+        }
+        Class<R> responseType = request.responseType();
+        return actorMetrics.ask(router, request, askTimeoutMillis).toCompletableFuture().thenApply(response -> {
+            if (!responseType.isInstance(response)) {
+                throw new UnexpectedResponseException(request, response);
+            }
+            return responseType.cast(response);
+        });
+    }
+
+    public ActorRef getRouter() {
+        return router;
+    }
+
+    public long getAskTimeoutMillis() {
+        return askTimeoutMillis;
+    }
+}
@@ -0,0 +1,41 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import org.apache.pekko.actor.typed.ActorRef;
+
+/**
+ * Message of the typed entity protocol: a request and the actor its response goes to.
+ * The response is sent back as an EntityReply carrying the correlation id, so one long-lived reply actor can
+ * receive the responses to many outstanding requests (see ReplyPool) instead of a temporary actor per ask.
+ * Classic entity actors accept it as well; routers route it by its request.
+ */
+public final class EntityCommand {
+
+    private final EntityRequest<?> request;
+    private final long correlationId;
+    private final ActorRef<EntityReply> replyTo;
+
+    public EntityCommand(EntityRequest<?> request, long correlationId, ActorRef<EntityReply> replyTo) {
+        this.request = request;
+        this.correlationId = correlationId;
+        this.replyTo = replyTo;
+    }
+
+    public EntityRequest<?> getRequest() {
+        return request;
+    }
+
+    public long getCorrelationId() {
+        return correlationId;
+    }
+
+    public ActorRef<EntityReply> getReplyTo() {
+        return replyTo;
+    }
+
+    /**
+     * Sends the response, or a Status.Failure, to replyTo.
+     */
+    public void reply(Object response) {
+        replyTo.tell(new EntityReply(correlationId, response));
+    }
+}
@@ -0,0 +1,50 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Request handling of one entity type, shared by its classic actor (EntityActor) and its typed behavior
+ * (EntityBehavior), so both answer every request the same way.
+ * Subclasses register one function per request class, which returns the response instead of sending it.
+ * Requests for an entity that does not exist are answered with one not-found response, created once and shared,
+ * since responses are never modified, instead of a new response and error for every miss.
+ *
+ * @param <V> entity type
+ * @param <R> response to requests for one entity
+ */
+public abstract class EntityHandler<V, R extends EntityResponse<V, ?>> {
+
+    private final Map<Class<?>, Function<Object, Object>> handlers = new HashMap<>();
+    private final R notFound;
+
+    protected EntityHandler(R notFound) {
+        this.notFound = notFound;
+    }
+
+    /**
+     * Registers the handling of one request class; call from the subclass constructor.
+     */
+    protected final <M> void on(Class<M> type, Function<? super M, ?> handler) {
+        handlers.put(type, message -> handler.apply(type.cast(message)));
+    }
+
+    /**
+     * The response to a request, or null if no handling is registered for its class.
+     */
+    public final Object handle(Object request) {
+        Function<Object, Object> handler = handlers.get(request.getClass());
+        return handler == null ? null : handler.apply(request);
+    }
+
+    /**
+     * The response carrying an entity that was found, or the shared not-found response if it is null.
+     */
+    protected final R found(V entity) {
+        return entity == null ? notFound : response(entity);
+    }
+
+    // Response carrying an entity that was found, created or changed
+    protected abstract R response(V entity);
+}
@@ -0,0 +1,19 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import java.util.List;
+
+/**
+ * Response of an entity actor to a request for a list or page of entities, or an error if the request failed.
+ *
+ * @param <V> entity type
+ * @param <E> error type
+ */
+public interface EntityListResponse<V, E> {
+
+    List<V> getEntities();
+
+    E getError();
+
+    // Cursor for the next page, or null when this was the last page or the whole list
+    String getNextCursor();
+}
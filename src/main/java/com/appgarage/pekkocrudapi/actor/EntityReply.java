@@ -0,0 +1,24 @@
+package com.appgarage.pekkocrudapi.actor;
+
+/**
+ * Response to an EntityCommand, with the correlation id of the command it answers.
+ * The response is a Status.Failure if the request could not be handled, e.g. when the mailbox was full.
+ */
+public final class EntityReply {
+
+    private final long correlationId;
+    private final Object response;
+
+    public EntityReply(long correlationId, Object response) {
+        this.correlationId = correlationId;
+        this.response = response;
+    }
+
+    public long getCorrelationId() {
+        return correlationId;
+    }
+
+    public Object getResponse() {
+        return response;
+    }
+}
@@ -0,0 +1,12 @@
+package com.appgarage.pekkocrudapi.actor;
+
+/**
+ * A request to an entity actor, typed by the response the actor answers it with.
+ * EntityClient checks each reply against {@link #responseType()}, so callers get it back without casting.
+ *
+ * @param <R> response type
+ */
+public interface EntityRequest<R> {
+
+    Class<R> responseType();
+}
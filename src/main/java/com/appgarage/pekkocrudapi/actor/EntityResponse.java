@@ -0,0 +1,19 @@
+package com.appgarage.pekkocrudapi.actor;
+
+/**
+ * Response of an entity actor to a request for one entity: the entity, or an error if the request failed.
+ *
+ * @param <V> entity type
+ * @param <E> error type
+ */
+public interface EntityResponse<V, E> {
+
+    V getEntity();
+
+    E getError();
+
+    // True if the error is a conflict with another entity, like a username that is already taken
+    default boolean isConflict() {
+        return false;
+    }
+}
@@ -0,0 +1,46 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigUtil;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.actor.Props;
+import org.apache.pekko.routing.FromConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the entity routers from their pekko.actor.deployment section in application.conf.
+ * The section sets the router type and nr-of-instances, and the routees' dispatcher and mailbox through
+ * the "/router/*" entry, so pools are sized per deployment without rebuilding. Each section also holds
+ * the ask-timeout callers use for that router.
+ */
+public class EntityRouters {
+
+    public static final String PRODUCT_ROUTER = "productRouter";
+    public static final String USER_ROUTER = "userRouter";
+    public static final String TRACKING_DETAIL_ROUTER = "trackingDetailRouter";
+
+    private static final long DEFAULT_ASK_TIMEOUT_MILLIS = 5000;
+
+    private EntityRouters() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Starts the named top-level router over routees built from the given props.
+     * Fails with a ConfigurationException if the router has no deployment section.
+     */
+    public static ActorRef create(ActorSystem system, String name, Props routeeProps) {
+        return system.actorOf(FromConfig.getInstance().props(routeeProps), name);
+    }
+
+    /**
+     * The router's ask-timeout in milliseconds, 5000 if its deployment section does not set one.
+     */
+    public static long askTimeoutMillis(ActorSystem system, String name) {
+        Config deployment = system.settings().config().getConfig("pekko.actor.deployment");
+        String path = ConfigUtil.joinPath("/" + name, "ask-timeout");
+        return deployment.hasPath(path) ? deployment.getDuration(path, TimeUnit.MILLISECONDS) : DEFAULT_ASK_TIMEOUT_MILLIS;
+    }
+}
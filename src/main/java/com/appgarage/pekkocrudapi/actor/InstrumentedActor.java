@@ -0,0 +1,26 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.metrics.ActorMetrics;
+import org.apache.pekko.actor.AbstractActor;
+import scala.PartialFunction;
+import scala.runtime.BoxedUnit;
+
+/**
+ * Base class for the CRUD actors that records how long each message spends in receive,
+ * per actor class and message type. An EntityCommand is recorded as the request it carries.
+ */
+public abstract class InstrumentedActor extends AbstractActor {
+
+    private final ActorMetrics.MessageTimers messageTimers = ActorMetrics.get(getContext().getSystem()).messageTimers(getClass());
+
+    @Override
+    public void aroundReceive(PartialFunction<Object, BoxedUnit> receive, Object msg) {
+        long start = System.nanoTime();
+        try {
+            super.aroundReceive(receive, msg);
+        } finally {
+            Class<?> messageType = msg instanceof EntityCommand ? ((EntityCommand) msg).getRequest().getClass() : msg.getClass();
+            messageTimers.record(messageType, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.appgarage.pekkocrudapi.actor;
+
+/**
+ * Failure sent back to the sender of a message that an actor's bounded mailbox had no room for.
+ * Callers answer it with 503 and a Retry-After of {@link #getRetryAfterSeconds()} instead of waiting for the ask to time out.
+ * Carries no stack trace, since it is created on the sender's thread for every shed message.
+ */
+public class MailboxFullException extends RuntimeException {
+
+    private final String actorPath;
+    private final int capacity;
+    private final long retryAfterSeconds;
+
+    public MailboxFullException(String actorPath, int capacity, long retryAfterSeconds) {
+        super("Mailbox of " + actorPath + " is full (capacity " + capacity + ")", null, false, false);
+        this.actorPath = actorPath;
+        this.capacity = capacity;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getActorPath() {
+        return actorPath;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,59 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.model.Product;
+import com.appgarage.pekkocrudapi.store.Page;
+import com.appgarage.pekkocrudapi.store.ProductStore;
+import com.appgarage.pekkocrudapi.utils.Pagination;
+
+/**
+ * Handling of the product protocol for ProductActor and its typed behavior: CRUD operations, pages and search.
+ * All handlers share one thread-safe ProductStore (replace with DB in production).
+ */
+public class ProductHandler extends EntityHandler<Product, ProductMessages.ProductResponse> {
+
+    private final ProductStore productStore;
+
+    public ProductHandler(ProductStore productStore) {
+        super(ProductMessages.ProductResponse.NOT_FOUND);
+        this.productStore = productStore;
+        on(ProductMessages.CreateProduct.class, this::handleCreate);
+        on(ProductMessages.GetProduct.class, this::handleGet);
+        on(ProductMessages.UpdateProduct.class, this::handleUpdate);
+        on(ProductMessages.DeleteProduct.class, this::handleDelete);
+        on(ProductMessages.GetAllProducts.class, this::handleGetAll);
+        on(ProductMessages.SearchProducts.class, this::handleSearch);
+    }
+
+    @Override
+    protected ProductMessages.ProductResponse response(Product product) {
+        return new ProductMessages.ProductResponse(product, null);
+    }
+
+    private ProductMessages.ProductResponse handleCreate(ProductMessages.CreateProduct msg) {
+        return response(productStore.create(msg.getProduct()));
+    }
+
+    private ProductMessages.ProductResponse handleGet(ProductMessages.GetProduct msg) {
+        return found(productStore.get(msg.getId()));
+    }
+
+    private ProductMessages.ProductResponse handleUpdate(ProductMessages.UpdateProduct msg) {
+        return found(productStore.update(msg.getId(), msg.getProduct()));
+    }
+
+    private ProductMessages.ProductResponse handleDelete(ProductMessages.DeleteProduct msg) {
+        return found(productStore.delete(msg.getId()));
+    }
+
+    private ProductMessages.ProductListResponse handleGetAll(ProductMessages.GetAllProducts msg) {
+        if (msg.isPaged()) {
+            Page<Product> page = productStore.page(msg.getAfterId(), msg.getLimit());
+            return new ProductMessages.ProductListResponse(page.getItems(), null, Pagination.encodeCursor(page.getNextKey()));
+        }
+        return new ProductMessages.ProductListResponse(productStore.getAll(), null);
+    }
+
+    private ProductMessages.ProductListResponse handleSearch(ProductMessages.SearchProducts msg) {
+        return new ProductMessages.ProductListResponse(productStore.search(msg.getQuery(), msg.getLimit()), null);
+    }
+}
@@ -1,16 +1,34 @@
 package com.appgarage.pekkocrudapi.actor;
 
 import com.appgarage.pekkocrudapi.model.Product;
+import com.appgarage.pekkocrudapi.store.ProductSearchQuery;
 import java.io.Serializable;
 
 import java.util.List;
 
 /**
  * Message classes for Pekko actor communication.
+ * Requests implement ProductRequest or ProductListRequest, which name the response ProductActor answers them with.
  */
 public class ProductMessages {
 
-    public static class CreateProduct implements Serializable {
+    // Requests answered with a ProductResponse
+    public interface ProductRequest extends EntityRequest<ProductResponse> {
+        @Override
+        default Class<ProductResponse> responseType() {
+            return ProductResponse.class;
+        }
+    }
+
+    // Requests answered with a ProductListResponse
+    public interface ProductListRequest extends EntityRequest<ProductListResponse> {
+        @Override
+        default Class<ProductListResponse> responseType() {
+            return ProductListResponse.class;
+        }
+    }
+
+    public static class CreateProduct implements ProductRequest, Serializable {
         private final Product product;
 
         public CreateProduct(Product product) {
@@ -22,7 +40,7 @@ public class ProductMessages {
         }
     }
 
-    public static class GetProduct implements Serializable {
+    public static class GetProduct implements ProductRequest, Serializable {
         private final String id;
 
         public GetProduct(String id) {
@@ -34,7 +52,7 @@ public class ProductMessages {
         }
     }
 
-    public static class UpdateProduct implements Serializable {
+    public static class UpdateProduct implements ProductRequest, Serializable {
         private final String id;
         private final Product product;
 
@@ -52,7 +70,7 @@ public class ProductMessages {
         }
     }
 
-    public static class DeleteProduct implements Serializable {
+    public static class DeleteProduct implements ProductRequest, Serializable {
         private final String id;
 
         public DeleteProduct(String id) {
@@ -64,11 +82,57 @@ public class ProductMessages {
         }
     }
 
-    public static class GetAllProducts implements Serializable {
-        // No fields needed for this message
+    public static class GetAllProducts implements ProductListRequest, Serializable {
+        private final String afterId;
+        private final int limit;
+
+        // Requests every product in one response
+        public GetAllProducts() {
+            this(null, 0);
+        }
+
+        // Requests one page of at most limit products following afterId
+        public GetAllProducts(String afterId, int limit) {
+            this.afterId = afterId;
+            this.limit = limit;
+        }
+
+        public String getAfterId() {
+            return afterId;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public boolean isPaged() {
+            return limit > 0;
+        }
     }
 
-    public static class ProductResponse implements Serializable {
+    // Requests the limit best products matching the query
+    public static class SearchProducts implements ProductListRequest, Serializable {
+        private final ProductSearchQuery query;
+        private final int limit;
+
+        public SearchProducts(ProductSearchQuery query, int limit) {
+            this.query = query;
+            this.limit = limit;
+        }
+
+        public ProductSearchQuery getQuery() {
+            return query;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+    }
+
+    public static class ProductResponse implements EntityResponse<Product, String>, Serializable {
+        // Answer to a get, update or delete of a product that does not exist
+        public static final ProductResponse NOT_FOUND = new ProductResponse(null, "Product not found");
+
         private final Product product;
         private final String error;
 
@@ -81,26 +145,50 @@ public class ProductMessages {
             return product;
         }
 
+        @Override
+        public Product getEntity() {
+            return product;
+        }
+
+        @Override
         public String getError() {
             return error;
         }
     }
 
-    public static class ProductListResponse implements Serializable {
+    public static class ProductListResponse implements EntityListResponse<Product, String>, Serializable {
         private final List<Product> products;
         private final String error;
+        private final String nextCursor;
 
         public ProductListResponse(List<Product> products, String error) {
+            this(products, error, null);
+        }
+
+        public ProductListResponse(List<Product> products, String error, String nextCursor) {
             this.products = products;
             this.error = error;
+            this.nextCursor = nextCursor;
         }
 
         public List<Product> getProducts() {
             return products;
         }
 
+        @Override
+        public List<Product> getEntities() {
+            return products;
+        }
+
+        @Override
         public String getError() {
             return error;
         }
+
+        // Cursor for the next page, or null when this was the last page
+        @Override
+        public String getNextCursor() {
+            return nextCursor;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,183 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.metrics.ActorMetrics;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.apache.pekko.actor.AbstractExtensionId;
+import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.actor.ExtendedActorSystem;
+import org.apache.pekko.actor.Extension;
+import org.apache.pekko.actor.ExtensionIdProvider;
+import org.apache.pekko.actor.Status;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.apache.pekko.actor.typed.Behavior;
+import org.apache.pekko.actor.typed.javadsl.Adapter;
+import org.apache.pekko.actor.typed.javadsl.Behaviors;
+import org.apache.pekko.pattern.AskTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pekko extension that receives the responses to EntityClient requests on a few long-lived typed reply actors,
+ * instead of the temporary PromiseActorRef, promise and scheduled timeout task Patterns.ask creates per request.
+ * <p>
+ * Each request is sent as an EntityCommand with a new correlation id and one of the reply actors as replyTo.
+ * The reply actor looks the id up in the map of pending replies and completes its future, which also records the
+ * round trip in the ask metrics. Requests are spread over the reply actors by id, so replies are not funnelled
+ * through one mailbox. Timeouts are found by a sweep of the pending replies every sweep-interval rather than a
+ * timer per request, so a request times out up to one interval late.
+ * Settings are in entity-reply-pool in application.conf; size = 0 starts one reply actor per core.
+ */
+public class ReplyPool implements Extension {
+
+    public static final Id ID = new Id();
+
+    private static final Config DEFAULTS = ConfigFactory.parseString("enabled = on, size = 0, sweep-interval = 100ms");
+
+    private final boolean enabled;
+    private final ActorMetrics actorMetrics;
+    private final AtomicLong correlationIds = new AtomicLong();
+    private final Map<Long, PendingReply<?>> pending = new ConcurrentHashMap<>();
+    private final List<ActorRef<EntityReply>> replyActors = new ArrayList<>();
+
+    private ReplyPool(ExtendedActorSystem system) {
+        Config root = system.settings().config();
+        Config settings = (root.hasPath("entity-reply-pool") ? root.getConfig("entity-reply-pool") : ConfigFactory.empty()).withFallback(DEFAULTS);
+        this.enabled = settings.getBoolean("enabled");
+        this.actorMetrics = ActorMetrics.get(system);
+        if (!enabled) {
+            return;
+        }
+        int size = settings.getInt("size") > 0 ? settings.getInt("size") : Runtime.getRuntime().availableProcessors();
+        Behavior<EntityReply> replies = Behaviors.receive(EntityReply.class)
+                .onMessage(EntityReply.class, reply -> {
+                    complete(reply);
+                    return Behaviors.same();
+                })
+                .build();
+        for (int i = 0; i < size; i++) {
+            replyActors.add(Adapter.spawn(system, replies, "entity-reply-" + i));
+        }
+        Duration sweepInterval = settings.getDuration("sweep-interval");
+        system.scheduler().scheduleWithFixedDelay(sweepInterval, sweepInterval, this::sweep, system.dispatcher());
+        system.registerOnTermination(this::failAll);
+    }
+
+    public static ReplyPool get(ActorSystem system) {
+        return ID.get(system);
+    }
+
+    /**
+     * Whether entity-reply-pool.enabled is on; if not, EntityClient asks with Patterns.ask.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sends the request to target, a classic or typed entity actor or router, and returns its response.
+     * The future fails with the cause of a Status.Failure response, with an UnexpectedResponseException if the
+     * response is not of the request's response type, or with an AskTimeoutException if there is no response
+     * within the timeout. It is completed by the reply actor itself, without further stages.
+     */
+    public <R> CompletableFuture<R> ask(org.apache.pekko.actor.ActorRef target, EntityRequest<R> request, long timeoutMillis) {
+        long correlationId = correlationIds.incrementAndGet();
+        PendingReply<R> reply = new PendingReply<>(target, request, timeoutMillis, actorMetrics.askMeters(target.path().name(), request.getClass()));
+        // Registered before sending, so even an immediate response finds it
+        pending.put(correlationId, reply);
+        ActorRef<EntityReply> replyTo = replyActors.get((int) (correlationId % replyActors.size()));
+        target.tell(new EntityCommand(request, correlationId, replyTo), org.apache.pekko.actor.ActorRef.noSender());
+        return reply;
+    }
+
+    private void complete(EntityReply entityReply) {
+        PendingReply<?> reply = pending.remove(entityReply.getCorrelationId());
+        if (reply == null) {
+            // Already timed out
+            return;
+        }
+        Object response = entityReply.getResponse();
+        if (response instanceof Status.Failure) {
+            reply.fail(((Status.Failure) response).cause());
+        } else {
+            reply.succeed(response);
+        }
+    }
+
+    private void sweep() {
+        long now = System.nanoTime();
+        for (Map.Entry<Long, PendingReply<?>> entry : pending.entrySet()) {
+            PendingReply<?> reply = entry.getValue();
+            if (now - reply.deadline >= 0 && pending.remove(entry.getKey(), reply)) {
+                reply.fail(new AskTimeoutException("Ask timed out on [" + reply.target + "] after [" + reply.timeoutMillis
+                        + " ms]. Message of type [" + reply.request.getClass().getName() + "]"));
+            }
+        }
+    }
+
+    private void failAll() {
+        for (Long correlationId : pending.keySet()) {
+            PendingReply<?> reply = pending.remove(correlationId);
+            if (reply != null) {
+                reply.fail(new IllegalStateException("Actor system terminated before the response to " + reply.request.getClass().getName()));
+            }
+        }
+    }
+
+    /**
+     * Future of one outstanding request, holding what the sweep and the ask metrics need.
+     */
+    private static final class PendingReply<R> extends CompletableFuture<R> {
+
+        private final org.apache.pekko.actor.ActorRef target;
+        private final EntityRequest<R> request;
+        private final long timeoutMillis;
+        private final ActorMetrics.AskMeters meters;
+        private final long start;
+        private final long deadline;
+
+        PendingReply(org.apache.pekko.actor.ActorRef target, EntityRequest<R> request, long timeoutMillis, ActorMetrics.AskMeters meters) {
+            this.target = target;
+            this.request = request;
+            this.timeoutMillis = timeoutMillis;
+            this.meters = meters;
+            this.start = System.nanoTime();
+            this.deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        }
+
+        void succeed(Object response) {
+            Class<R> responseType = request.responseType();
+            if (!responseType.isInstance(response)) {
+                fail(new UnexpectedResponseException(request, response));
+                return;
+            }
+            meters.record(System.nanoTime() - start, null);
+            complete(responseType.cast(response));
+        }
+
+        void fail(Throwable failure) {
+            meters.record(System.nanoTime() - start, failure);
+            completeExceptionally(failure);
+        }
+    }
+
+    public static class Id extends AbstractExtensionId<ReplyPool> implements ExtensionIdProvider {
+
+        @Override
+        public Id lookup() {
+            return ID;
+        }
+
+        @Override
+        public ReplyPool createExtension(ExtendedActorSystem system) {
+            return new ReplyPool(system);
+        }
+    }
+}
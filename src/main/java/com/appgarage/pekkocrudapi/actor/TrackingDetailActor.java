@@ -1,88 +1,60 @@
 package com.appgarage.pekkocrudapi.actor;
 
+import com.appgarage.pekkocrudapi.cache.IdempotencyCache;
+import com.appgarage.pekkocrudapi.cache.JsonResponseCache;
 import com.appgarage.pekkocrudapi.model.TrackingDetail;
-import com.appgarage.pekkocrudapi.model.ErrorMessage;
-import org.apache.pekko.actor.AbstractActor;
+import com.appgarage.pekkocrudapi.store.TrackingDetailStore;
 import org.apache.pekko.actor.Props;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import org.apache.pekko.actor.typed.Behavior;
 
 /**
  * Actor responsible for handling TrackingDetail CRUD operations.
- * Uses ConcurrentHashMap for thread-safe storage (aligned with USPS code).
+ * Requests are answered by a TrackingDetailHandler; {@link #behavior} is the typed implementation of the same
+ * protocol. All routees write to one shared, thread-safe TrackingDetailStore (aligned with USPS code).
+ * Updates and deletes invalidate the tracking number in the route's response cache, if there is one,
+ * before they are acknowledged. Creates with an idempotency key are replayed from the idempotency cache, if there
+ * is one, when they are retried.
  */
-public class TrackingDetailActor extends AbstractActor {
-
-    private final Map<String, TrackingDetail> trackingStore = new ConcurrentHashMap<>();
-    private final String apiVersion;
-
-    public TrackingDetailActor(String apiVersion) {
-        this.apiVersion = apiVersion;
-    }
-
-    public static Props props(String apiVersion) {
-        return Props.create(TrackingDetailActor.class, apiVersion);
-    }
-
-    @Override
-    public Receive createReceive() {
-        return receiveBuilder()
-                .match(TrackingDetailMessages.CreateTrackingDetail.class, this::handleCreate)
-                .match(TrackingDetailMessages.GetTrackingDetail.class, this::handleGet)
-                .match(TrackingDetailMessages.UpdateTrackingDetail.class, this::handleUpdate)
-                .match(TrackingDetailMessages.DeleteTrackingDetail.class, this::handleDelete)
-                .match(TrackingDetailMessages.GetAllTrackingDetails.class, this::handleGetAll)
-                .build();
-    }
+public class TrackingDetailActor extends EntityActor {
 
-    private void handleCreate(TrackingDetailMessages.CreateTrackingDetail msg) {
-        TrackingDetail trackingDetail = msg.getTrackingDetail();
-        if (trackingStore.containsKey(trackingDetail.getTrackingNumber())) {
-            ErrorMessage error = createErrorMessage("150004", "Duplicate tracking number");
-            sender().tell(new TrackingDetailMessages.TrackingDetailResponse(null, error), self());
-        } else {
-            trackingStore.put(trackingDetail.getTrackingNumber(), trackingDetail);
-            sender().tell(new TrackingDetailMessages.TrackingDetailResponse(trackingDetail, null), self());
-        }
+    public TrackingDetailActor(String apiVersion, TrackingDetailStore trackingStore, JsonResponseCache responseCache,
+                               IdempotencyCache<TrackingDetail, TrackingDetailMessages.TrackingDetailResponse> idempotencyCache) {
+        super(new TrackingDetailHandler(apiVersion, trackingStore, responseCache, idempotencyCache));
     }
 
-    private void handleGet(TrackingDetailMessages.GetTrackingDetail msg) {
-        TrackingDetail trackingDetail = trackingStore.get(msg.getTrackingNumber());
-        ErrorMessage error = trackingDetail == null ? createErrorMessage("150002", "Tracking detail not found") : null;
-        sender().tell(new TrackingDetailMessages.TrackingDetailResponse(trackingDetail, error), self());
+    public static Props props(String apiVersion, TrackingDetailStore trackingStore) {
+        return props(apiVersion, trackingStore, null);
     }
 
-    private void handleUpdate(TrackingDetailMessages.UpdateTrackingDetail msg) {
-        if (trackingStore.containsKey(msg.getTrackingNumber())) {
-            TrackingDetail trackingDetail = msg.getTrackingDetail();
-            trackingDetail.setTrackingNumber(msg.getTrackingNumber());
-            trackingStore.put(msg.getTrackingNumber(), trackingDetail);
-            sender().tell(new TrackingDetailMessages.TrackingDetailResponse(trackingDetail, null), self());
-        } else {
-            ErrorMessage error = createErrorMessage("150002", "Tracking detail not found");
-            sender().tell(new TrackingDetailMessages.TrackingDetailResponse(null, error), self());
-        }
+    /**
+     * @param responseCache cache of encoded tracking details to invalidate on writes, or null
+     */
+    public static Props props(String apiVersion, TrackingDetailStore trackingStore, JsonResponseCache responseCache) {
+        return props(apiVersion, trackingStore, responseCache, null);
     }
 
-    private void handleDelete(TrackingDetailMessages.DeleteTrackingDetail msg) {
-        TrackingDetail trackingDetail = trackingStore.remove(msg.getTrackingNumber());
-        ErrorMessage error = trackingDetail == null ? createErrorMessage("150002", "Tracking detail not found") : null;
-        sender().tell(new TrackingDetailMessages.TrackingDetailResponse(trackingDetail, error), self());
+    /**
+     * @param responseCache    cache of encoded tracking details to invalidate on writes, or null
+     * @param idempotencyCache responses to creates by idempotency key, shared by all routees, or null
+     */
+    public static Props props(String apiVersion, TrackingDetailStore trackingStore, JsonResponseCache responseCache,
+                              IdempotencyCache<TrackingDetail, TrackingDetailMessages.TrackingDetailResponse> idempotencyCache) {
+        return Props.create(TrackingDetailActor.class, () -> new TrackingDetailActor(apiVersion, trackingStore, responseCache, idempotencyCache));
     }
 
-    private void handleGetAll(TrackingDetailMessages.GetAllTrackingDetails msg) {
-        List<TrackingDetail> trackingDetails = new ArrayList<>(trackingStore.values());
-        sender().tell(new TrackingDetailMessages.TrackingDetailListResponse(trackingDetails, null), self());
+    /**
+     * @param responseCache cache of encoded tracking details to invalidate on writes, or null
+     */
+    public static Behavior<EntityCommand> behavior(String apiVersion, TrackingDetailStore trackingStore, JsonResponseCache responseCache) {
+        return behavior(apiVersion, trackingStore, responseCache, null);
     }
 
-    private ErrorMessage createErrorMessage(String returnCode, String message) {
-        ErrorMessage error = new ErrorMessage();
-        error.setApiVersion(apiVersion);
-        error.setReturnCode(returnCode);
-        error.setTrackingNumber(null);
-        return error;
+    /**
+     * @param responseCache    cache of encoded tracking details to invalidate on writes, or null
+     * @param idempotencyCache responses to creates by idempotency key, shared by all instances, or null
+     */
+    public static Behavior<EntityCommand> behavior(String apiVersion, TrackingDetailStore trackingStore, JsonResponseCache responseCache,
+                                                   IdempotencyCache<TrackingDetail, TrackingDetailMessages.TrackingDetailResponse> idempotencyCache) {
+        return EntityBehavior.create(TrackingDetailActor.class, () -> new TrackingDetailHandler(apiVersion, trackingStore, responseCache, idempotencyCache));
     }
 }
@@ -0,0 +1,133 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.store.EntityStore;
+import com.appgarage.pekkocrudapi.store.TrackingDetailBucketStores;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.AbstractActor;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.ActorSelection;
+import org.apache.pekko.actor.Props;
+import org.apache.pekko.actor.RootActorPath;
+import org.apache.pekko.cluster.Cluster;
+import org.apache.pekko.cluster.Member;
+import org.apache.pekko.cluster.MemberStatus;
+import org.apache.pekko.cluster.sharding.ShardRegion;
+import org.apache.pekko.event.Logging;
+import org.apache.pekko.event.LoggingAdapter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-node source of the buckets that other nodes take over from this one. In memory it holds the tracking details
+ * of bucket entities handed off from this node until their new owner pulls them; with a durable store engine it reads
+ * the bucket this node last owned from disk, then retires that copy, so at most one node has a bucket at a time.
+ * When the node leaves, buckets that were passivated here are started on a remaining node so they are taken too.
+ * The archive is not a backup: a node that crashes takes its buckets with it until it comes back. Contents are sent
+ * in chunks to stay below the remote frame size.
+ */
+public class TrackingDetailArchive extends AbstractActor {
+
+    public static final String NAME = "trackingDetailArchive";
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final LoggingAdapter log = Logging.getLogger(getContext().getSystem(), this);
+    private final TrackingDetailBucketStores bucketStores;
+    private final Map<Integer, List<TrackingDetail>> buckets = new HashMap<>();
+    // Buckets still to be taken while the node leaves, and who to tell once they are
+    private final Set<Integer> handingOver = new HashSet<>();
+    private ActorRef handOverDone;
+
+    public TrackingDetailArchive(TrackingDetailBucketStores bucketStores) {
+        this.bucketStores = bucketStores;
+    }
+
+    public static Props props(TrackingDetailBucketStores bucketStores) {
+        return Props.create(TrackingDetailArchive.class, () -> new TrackingDetailArchive(bucketStores));
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(ClusterTrackingDetailMessages.ArchiveBucket.class, this::handleArchive)
+                .match(ClusterTrackingDetailMessages.TakeBucket.class, this::handleTake)
+                .match(ClusterTrackingDetailMessages.HandOverStoredBuckets.class, this::handleHandOver)
+                .match(ShardRegion.StartEntityAck.class, ack -> { })
+                .build();
+    }
+
+    private void handleArchive(ClusterTrackingDetailMessages.ArchiveBucket msg) {
+        if (!msg.getTrackingDetails().isEmpty()) {
+            buckets.put(msg.getBucket(), msg.getTrackingDetails());
+        }
+    }
+
+    private void handleTake(ClusterTrackingDetailMessages.TakeBucket msg) {
+        List<TrackingDetail> trackingDetails = buckets.remove(msg.getBucket());
+        if (trackingDetails == null && bucketStores.exists(msg.getBucket())) {
+            trackingDetails = readStored(msg.getBucket());
+        }
+        if (trackingDetails == null || trackingDetails.isEmpty()) {
+            sender().tell(new ClusterTrackingDetailMessages.BucketContents(msg.getBucket(), Collections.emptyList(), true), self());
+        } else {
+            for (int from = 0; from < trackingDetails.size(); from += CHUNK_SIZE) {
+                int to = Math.min(from + CHUNK_SIZE, trackingDetails.size());
+                List<TrackingDetail> chunk = new ArrayList<>(trackingDetails.subList(from, to));
+                sender().tell(new ClusterTrackingDetailMessages.BucketContents(msg.getBucket(), chunk, to == trackingDetails.size()), self());
+            }
+        }
+        if (handingOver.remove(msg.getBucket()) && handingOver.isEmpty()) {
+            handOverDone.tell(Done.getInstance(), self());
+        }
+    }
+
+    // Starting a bucket through the region of another member makes its new owner take it from here
+    private void handleHandOver(ClusterTrackingDetailMessages.HandOverStoredBuckets msg) throws IOException {
+        handingOver.addAll(buckets.keySet());
+        handingOver.addAll(bucketStores.storedBuckets());
+        handOverDone = sender();
+        Cluster cluster = Cluster.get(getContext().getSystem());
+        Member remaining = null;
+        for (Member member : cluster.state().getMembers()) {
+            if (!member.address().equals(cluster.selfAddress()) && member.status() == MemberStatus.up()) {
+                remaining = member;
+                break;
+            }
+        }
+        if (handingOver.isEmpty() || remaining == null) {
+            handingOver.clear();
+            handOverDone.tell(Done.getInstance(), self());
+            return;
+        }
+        ActorSelection region = getContext().actorSelection(new RootActorPath(remaining.address(), "/")
+                .child("system").child("sharding").child(TrackingDetailCluster.TYPE_NAME));
+        for (int bucket : handingOver) {
+            region.tell(new ShardRegion.StartEntity(String.valueOf(bucket)), self());
+        }
+    }
+
+    // A copy that cannot be read stays where it is, rather than restarting the archive with the buckets it holds
+    private List<TrackingDetail> readStored(int bucket) {
+        List<TrackingDetail> trackingDetails;
+        try (EntityStore<TrackingDetail> store = bucketStores.open(bucket)) {
+            trackingDetails = new ArrayList<>(store.values());
+        } catch (IOException | RuntimeException e) {
+            log.error(e, "Could not read bucket {}", bucket);
+            return null;
+        }
+        try {
+            bucketStores.retire(bucket);
+        } catch (IOException e) {
+            log.error(e, "Could not remove bucket {} after handing it over", bucket);
+        }
+        return trackingDetails;
+    }
+}
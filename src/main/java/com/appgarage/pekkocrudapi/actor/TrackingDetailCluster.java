@@ -0,0 +1,118 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.cache.IdempotencyCache;
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.store.TrackingDetailBucketStores;
+import com.typesafe.config.Config;
+import org.apache.pekko.Done;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.actor.CoordinatedShutdown;
+import org.apache.pekko.actor.ExtendedActorSystem;
+import org.apache.pekko.cluster.Cluster;
+import org.apache.pekko.cluster.ClusterActorRefProvider;
+import org.apache.pekko.cluster.sharding.ClusterSharding;
+import org.apache.pekko.cluster.sharding.ClusterShardingSettings;
+import org.apache.pekko.cluster.sharding.ShardRegion;
+import org.apache.pekko.pattern.Patterns;
+import org.apache.pekko.routing.ConsistentHashingRouter.ConsistentHashable;
+
+import java.time.Duration;
+
+/**
+ * Cluster mode of the tracking details, active when pekko.actor.provider = cluster.
+ * Tracking numbers are hashed into a fixed number of buckets (see {@link TrackingDetailRouting#shardFor});
+ * every bucket is one TrackingDetailEntity and one shard, so Cluster Sharding spreads buckets over the
+ * nodes and rebalances them when nodes join or leave. Buckets keep their tracking details in the store engine's
+ * bucket stores; with a durable engine an idle bucket is passivated and reopened from disk on its next request,
+ * in memory it stays resident. Active buckets are remembered, so a handed-off bucket restarts on its new owner at once.
+ * Settings are read from the tracking-detail-cluster section of application.conf.
+ * Each node's buckets record idempotent creates in the node's idempotency cache, so a retry is replayed as long as
+ * its bucket has not moved to another node since.
+ */
+public class TrackingDetailCluster {
+
+    public static final String TYPE_NAME = "TrackingDetail";
+
+    private TrackingDetailCluster() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static boolean isEnabled(ActorSystem system) {
+        return ((ExtendedActorSystem) system).provider() instanceof ClusterActorRefProvider;
+    }
+
+    /**
+     * Joins the cluster, starts this node's archive and shard region, and returns the local entry point,
+     * named trackingDetailRouter. Without configured seed nodes the node forms a cluster of its own.
+     * @param bucketStores stores of the buckets on this node
+     * @param idempotencyCache responses to creates by idempotency key, for the buckets on this node, or null
+     */
+    public static ActorRef start(ActorSystem system, String apiVersion, TrackingDetailBucketStores bucketStores,
+                                 IdempotencyCache<TrackingDetail, TrackingDetailMessages.TrackingDetailResponse> idempotencyCache) {
+        Config config = system.settings().config().getConfig("tracking-detail-cluster");
+        int buckets = config.getInt("number-of-buckets");
+        Cluster cluster = Cluster.get(system);
+        if (cluster.settings().SeedNodes().isEmpty()) {
+            cluster.join(cluster.selfAddress());
+        }
+        ActorRef archive = system.actorOf(TrackingDetailArchive.props(bucketStores), TrackingDetailArchive.NAME);
+        // By then this node's shards are handed off; buckets passivated here still have to be taken
+        Duration handoffTimeout = config.getDuration("handoff-timeout");
+        CoordinatedShutdown.get(system).addTask(CoordinatedShutdown.PhaseClusterExiting(), "hand-over-tracking-detail-buckets",
+                () -> Patterns.ask(archive, ClusterTrackingDetailMessages.HandOverStoredBuckets.INSTANCE, handoffTimeout)
+                        .thenApply(done -> Done.getInstance()));
+
+        ClusterSharding sharding = ClusterSharding.get(system);
+        ClusterShardingSettings settings = ClusterShardingSettings.create(system);
+        ActorRef region = sharding.start(
+                TYPE_NAME,
+                TrackingDetailEntity.props(apiVersion, config.getString("dispatcher"), config.getString("mailbox"), handoffTimeout,
+                        config.getDuration("passivate-after"), bucketStores, idempotencyCache),
+                settings,
+                new BucketExtractor(buckets),
+                sharding.defaultShardAllocationStrategy(settings),
+                ClusterTrackingDetailMessages.Stop.INSTANCE);
+        Duration askTimeout = Duration.ofMillis(EntityRouters.askTimeoutMillis(system, EntityRouters.TRACKING_DETAIL_ROUTER));
+        return system.actorOf(TrackingDetailClusterRouter.props(region, buckets, askTimeout), EntityRouters.TRACKING_DETAIL_ROUTER);
+    }
+
+    /**
+     * Maps requests to their bucket, which is both the entity id and the shard id.
+     */
+    static class BucketExtractor implements ShardRegion.MessageExtractor {
+
+        private final int buckets;
+
+        BucketExtractor(int buckets) {
+            this.buckets = buckets;
+        }
+
+        @Override
+        public String entityId(Object message) {
+            if (message instanceof ClusterTrackingDetailMessages.BucketEnvelope) {
+                return String.valueOf(((ClusterTrackingDetailMessages.BucketEnvelope) message).getBucket());
+            }
+            if (message instanceof ConsistentHashable) {
+                return String.valueOf(TrackingDetailRouting.shardFor(String.valueOf(((ConsistentHashable) message).consistentHashKey()), buckets));
+            }
+            return null;
+        }
+
+        @Override
+        public Object entityMessage(Object message) {
+            if (message instanceof ClusterTrackingDetailMessages.BucketEnvelope) {
+                return ((ClusterTrackingDetailMessages.BucketEnvelope) message).getMessage();
+            }
+            return message;
+        }
+
+        @Override
+        public String shardId(Object message) {
+            if (message instanceof ShardRegion.StartEntity) {
+                return ((ShardRegion.StartEntity) message).entityId();
+            }
+            return entityId(message);
+        }
+    }
+}
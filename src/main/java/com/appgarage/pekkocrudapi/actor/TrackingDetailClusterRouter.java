@@ -0,0 +1,187 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.store.TrackingDetailQuery;
+import com.appgarage.pekkocrudapi.utils.Pagination;
+import org.apache.pekko.actor.AbstractActor;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.Props;
+import org.apache.pekko.pattern.Patterns;
+import org.apache.pekko.routing.ActorRefRoutee;
+import org.apache.pekko.routing.GetRoutees;
+import org.apache.pekko.routing.Routee;
+import org.apache.pekko.routing.Routees;
+import scala.jdk.javaapi.CollectionConverters;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Entry point of the tracking detail shard region in cluster mode, started as trackingDetailRouter so
+ * routes and services talk to it exactly as to the local router.
+ * Requests for one tracking number are forwarded to the region, which delivers them to the owning bucket
+ * on whichever node hosts it. GetAll and FindTrackingDetails are sent to every bucket and the pages are merged
+ * in tracking number or position order; an unpaged GetAll walks every bucket a page at a time, so no reply
+ * carries a whole bucket. ApplyBatch is split into one batch per bucket.
+ * To TrackingDetailRouting.applyBatch it presents itself as a router with this actor as its only routee,
+ * so whole batches arrive here to be split by bucket.
+ */
+public class TrackingDetailClusterRouter extends AbstractActor {
+
+    // Tracking details per bucket reply when walking the buckets for an unpaged GetAll
+    private static final int PAGE_SIZE = 1000;
+
+    private final ActorRef region;
+    private final int buckets;
+    private final Duration askTimeout;
+
+    public TrackingDetailClusterRouter(ActorRef region, int buckets, Duration askTimeout) {
+        this.region = region;
+        this.buckets = buckets;
+        this.askTimeout = askTimeout;
+    }
+
+    public static Props props(ActorRef region, int buckets, Duration askTimeout) {
+        return Props.create(TrackingDetailClusterRouter.class, region, buckets, askTimeout);
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(GetRoutees.class, msg -> sender().tell(selfAsRoutees(), self()))
+                .match(TrackingDetailMessages.GetAllTrackingDetails.class, this::handleGetAll)
+                .match(TrackingDetailMessages.FindTrackingDetails.class, this::handleFind)
+                .match(BatchTrackingDetailMessages.ApplyBatch.class, this::handleBatch)
+                .matchAny(msg -> region.forward(msg, getContext()))
+                .build();
+    }
+
+    private Routees selfAsRoutees() {
+        List<Routee> routees = Collections.singletonList(new ActorRefRoutee(self()));
+        return new Routees(CollectionConverters.asScala(routees).toIndexedSeq());
+    }
+
+    private void handleGetAll(TrackingDetailMessages.GetAllTrackingDetails msg) {
+        if (msg.isPaged()) {
+            gather(bucket -> ask(bucket, msg), responses -> firstPage(responses, TrackingDetail::getTrackingNumber, msg.getLimit()));
+        } else {
+            gather(bucket -> walk(bucket, null, new ArrayList<>()),
+                    responses -> new TrackingDetailMessages.TrackingDetailListResponse(concat(responses), null));
+        }
+    }
+
+    private void handleFind(TrackingDetailMessages.FindTrackingDetails msg) {
+        gather(bucket -> ask(bucket, msg), responses -> firstPage(responses, TrackingDetailQuery::positionOf, msg.getLimit()));
+    }
+
+    private CompletableFuture<TrackingDetailMessages.TrackingDetailListResponse> ask(int bucket, Object msg) {
+        return Patterns.ask(region, new ClusterTrackingDetailMessages.BucketEnvelope(bucket, msg), askTimeout)
+                .toCompletableFuture()
+                .thenApply(response -> (TrackingDetailMessages.TrackingDetailListResponse) response);
+    }
+
+    // Collects every tracking detail of the bucket after afterTrackingNumber, one page per request
+    private CompletableFuture<TrackingDetailMessages.TrackingDetailListResponse> walk(int bucket, String afterTrackingNumber, List<TrackingDetail> collected) {
+        return ask(bucket, new TrackingDetailMessages.GetAllTrackingDetails(afterTrackingNumber, PAGE_SIZE)).thenCompose(response -> {
+            if (response.getError() != null) {
+                return CompletableFuture.completedFuture(response);
+            }
+            List<TrackingDetail> page = response.getTrackingDetails();
+            collected.addAll(page);
+            if (response.getNextCursor() == null || page.isEmpty()) {
+                return CompletableFuture.completedFuture(new TrackingDetailMessages.TrackingDetailListResponse(collected, null));
+            }
+            return walk(bucket, page.get(page.size() - 1).getTrackingNumber(), collected);
+        });
+    }
+
+    // Asks every bucket and replies with the merged responses, or the first error
+    private void gather(IntFunction<CompletableFuture<TrackingDetailMessages.TrackingDetailListResponse>> ask,
+                        Function<List<TrackingDetailMessages.TrackingDetailListResponse>, TrackingDetailMessages.TrackingDetailListResponse> merge) {
+        List<CompletableFuture<TrackingDetailMessages.TrackingDetailListResponse>> pages = new ArrayList<>(buckets);
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            pages.add(ask.apply(bucket));
+        }
+        CompletableFuture<TrackingDetailMessages.TrackingDetailListResponse> merged = CompletableFuture.allOf(pages.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> {
+                    List<TrackingDetailMessages.TrackingDetailListResponse> responses = new ArrayList<>(buckets);
+                    for (CompletableFuture<TrackingDetailMessages.TrackingDetailListResponse> page : pages) {
+                        TrackingDetailMessages.TrackingDetailListResponse response = page.join();
+                        if (response.getError() != null) {
+                            return response;
+                        }
+                        responses.add(response);
+                    }
+                    return merge.apply(responses);
+                });
+        Patterns.pipe(merged, getContext().getDispatcher()).to(sender());
+    }
+
+    private static List<TrackingDetail> concat(List<TrackingDetailMessages.TrackingDetailListResponse> responses) {
+        List<TrackingDetail> trackingDetails = new ArrayList<>();
+        for (TrackingDetailMessages.TrackingDetailListResponse response : responses) {
+            trackingDetails.addAll(response.getTrackingDetails());
+        }
+        return trackingDetails;
+    }
+
+    // Every bucket returned its first limit entries after the cursor, so the first limit overall, in sort key order, are among them
+    private static TrackingDetailMessages.TrackingDetailListResponse firstPage(List<TrackingDetailMessages.TrackingDetailListResponse> responses,
+                                                                              Function<TrackingDetail, String> sortKey, int limit) {
+        List<TrackingDetail> trackingDetails = concat(responses);
+        boolean more = false;
+        for (TrackingDetailMessages.TrackingDetailListResponse response : responses) {
+            more |= response.getNextCursor() != null;
+        }
+        trackingDetails.sort(Comparator.comparing(sortKey));
+        if (trackingDetails.size() > limit) {
+            trackingDetails = new ArrayList<>(trackingDetails.subList(0, limit));
+            more = true;
+        }
+        String nextCursor = more ? Pagination.encodeCursor(sortKey.apply(trackingDetails.get(trackingDetails.size() - 1))) : null;
+        return new TrackingDetailMessages.TrackingDetailListResponse(trackingDetails, null, nextCursor);
+    }
+
+    private void handleBatch(BatchTrackingDetailMessages.ApplyBatch msg) {
+        List<BatchTrackingDetailMessages.Operation> operations = msg.getOperations();
+        List<List<Integer>> positions = new ArrayList<>(buckets);
+        List<List<BatchTrackingDetailMessages.Operation>> groups = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            positions.add(new ArrayList<>());
+            groups.add(new ArrayList<>());
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            int bucket = TrackingDetailRouting.shardFor(operations.get(i).key(), buckets);
+            positions.get(bucket).add(i);
+            groups.get(bucket).add(operations.get(i));
+        }
+
+        TrackingDetailMessages.TrackingDetailResponse[] results = new TrackingDetailMessages.TrackingDetailResponse[operations.size()];
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (groups.get(bucket).isEmpty()) {
+                continue;
+            }
+            List<Integer> groupPositions = positions.get(bucket);
+            BatchTrackingDetailMessages.ApplyBatch group = new BatchTrackingDetailMessages.ApplyBatch(groups.get(bucket));
+            pending.add(Patterns.ask(region, new ClusterTrackingDetailMessages.BucketEnvelope(bucket, group), askTimeout)
+                    .toCompletableFuture()
+                    .thenAccept(response -> {
+                        List<TrackingDetailMessages.TrackingDetailResponse> groupResults = ((BatchTrackingDetailMessages.BatchResponse) response).getResults();
+                        for (int i = 0; i < groupResults.size(); i++) {
+                            results[groupPositions.get(i)] = groupResults.get(i);
+                        }
+                    }));
+        }
+        CompletableFuture<BatchTrackingDetailMessages.BatchResponse> done = CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> new BatchTrackingDetailMessages.BatchResponse(Arrays.asList(results)));
+        Patterns.pipe(done, getContext().getDispatcher()).to(sender());
+    }
+}
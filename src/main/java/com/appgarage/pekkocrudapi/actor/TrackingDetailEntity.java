@@ -0,0 +1,172 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.cache.IdempotencyCache;
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.store.EntityStore;
+import com.appgarage.pekkocrudapi.store.TrackingDetailBucketStores;
+import com.appgarage.pekkocrudapi.store.TrackingDetailStore;
+import org.apache.pekko.actor.AbstractActorWithStash;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.Cancellable;
+import org.apache.pekko.actor.PoisonPill;
+import org.apache.pekko.actor.Props;
+import org.apache.pekko.actor.ReceiveTimeout;
+import org.apache.pekko.actor.RootActorPath;
+import org.apache.pekko.actor.Terminated;
+import org.apache.pekko.cluster.Cluster;
+import org.apache.pekko.cluster.Member;
+import org.apache.pekko.cluster.MemberStatus;
+import org.apache.pekko.cluster.sharding.ShardRegion;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Sharded owner of one bucket of tracking numbers in cluster mode.
+ * The bucket's tracking details live in this entity's own store, opened from TrackingDetailBucketStores, and are
+ * served by a TrackingDetailActor child, so requests are handled exactly as in local mode.
+ * On start the entity collects its bucket from the TrackingDetailArchive of the other members (and of this one when
+ * the store is in memory), which has it on the previous owner, stashing requests until all members answered or the
+ * handoff timeout passed.
+ * On Stop, sent for a handoff or after passivation, it lets the child finish queued requests. A durable store is then
+ * closed, leaving the bucket on this node's disk; an in-memory bucket is archived on this node for the new owner to
+ * take. Only durable buckets passivate themselves when idle, as an in-memory one would be lost.
+ */
+public class TrackingDetailEntity extends AbstractActorWithStash {
+
+    private static final Object LOAD_TIMEOUT = "load-timeout";
+
+    private final int bucket;
+    private final Duration handoffTimeout;
+    private final Duration passivateAfter;
+    private final boolean durable;
+    private final EntityStore<TrackingDetail> store;
+    private final TrackingDetailStore trackingStore;
+    private final ActorRef handler;
+    private int pendingMembers;
+    private Cancellable loadTimeout;
+    private boolean closed;
+
+    public TrackingDetailEntity(String apiVersion, String dispatcher, String mailbox, Duration handoffTimeout, Duration passivateAfter,
+                                TrackingDetailBucketStores bucketStores,
+                                IdempotencyCache<TrackingDetail, TrackingDetailMessages.TrackingDetailResponse> idempotencyCache) throws IOException {
+        this.bucket = Integer.parseInt(self().path().name());
+        this.handoffTimeout = handoffTimeout;
+        this.passivateAfter = passivateAfter;
+        this.durable = bucketStores.isDurable();
+        this.store = bucketStores.open(bucket);
+        this.trackingStore = new TrackingDetailStore(store);
+        this.handler = getContext().actorOf(TrackingDetailActor.props(apiVersion, trackingStore, null, idempotencyCache)
+                .withDispatcher(dispatcher)
+                .withMailbox(mailbox), "handler");
+    }
+
+    public static Props props(String apiVersion, String dispatcher, String mailbox, Duration handoffTimeout, Duration passivateAfter,
+                              TrackingDetailBucketStores bucketStores,
+                              IdempotencyCache<TrackingDetail, TrackingDetailMessages.TrackingDetailResponse> idempotencyCache) {
+        return Props.create(TrackingDetailEntity.class, () -> new TrackingDetailEntity(apiVersion, dispatcher, mailbox, handoffTimeout, passivateAfter,
+                        bucketStores, idempotencyCache))
+                .withDispatcher(dispatcher);
+    }
+
+    @Override
+    public void preStart() {
+        Cluster cluster = Cluster.get(getContext().getSystem());
+        for (Member member : cluster.state().getMembers()) {
+            // This node's durable copy is already open; its archive would hand over the same files
+            if (durable && member.address().equals(cluster.selfAddress())) {
+                continue;
+            }
+            if (member.status() == MemberStatus.up() || member.status() == MemberStatus.weaklyUp()
+                    || member.status() == MemberStatus.leaving() || member.status() == MemberStatus.exiting()) {
+                getContext().actorSelection(new RootActorPath(member.address(), "/").child("user").child(TrackingDetailArchive.NAME))
+                        .tell(new ClusterTrackingDetailMessages.TakeBucket(bucket), self());
+                pendingMembers++;
+            }
+        }
+        loadTimeout = getContext().getSystem().scheduler().scheduleOnce(handoffTimeout, self(), LOAD_TIMEOUT, getContext().getDispatcher(), self());
+        if (pendingMembers == 0) {
+            loaded();
+        }
+    }
+
+    @Override
+    public void postStop() throws IOException {
+        loadTimeout.cancel();
+        close();
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(ClusterTrackingDetailMessages.BucketContents.class, this::handleContents)
+                .matchEquals(LOAD_TIMEOUT, timeout -> loaded())
+                .matchAny(msg -> stash())
+                .build();
+    }
+
+    private Receive active() {
+        return receiveBuilder()
+                .match(ClusterTrackingDetailMessages.BucketContents.class, this::restore)
+                .match(ClusterTrackingDetailMessages.Stop.class, this::handleStop)
+                .match(ReceiveTimeout.class, timeout -> getContext().getParent().tell(new ShardRegion.Passivate(ClusterTrackingDetailMessages.Stop.INSTANCE), self()))
+                .matchEquals(LOAD_TIMEOUT, timeout -> { })
+                .matchAny(msg -> handler.forward(msg, getContext()))
+                .build();
+    }
+
+    private Receive stopping() {
+        return receiveBuilder()
+                .match(Terminated.class, terminated -> {
+                    if (durable) {
+                        close();
+                    } else {
+                        getContext().actorSelection("/user/" + TrackingDetailArchive.NAME)
+                                .tell(new ClusterTrackingDetailMessages.ArchiveBucket(bucket, trackingStore.getAll()), self());
+                    }
+                    getContext().stop(self());
+                })
+                .match(ClusterTrackingDetailMessages.BucketContents.class, this::restore)
+                .match(ReceiveTimeout.class, timeout -> { })
+                .build();
+    }
+
+    private void handleContents(ClusterTrackingDetailMessages.BucketContents msg) {
+        restore(msg);
+        if (msg.isLast() && --pendingMembers == 0) {
+            loaded();
+        }
+    }
+
+    // Late chunks, from a member that answered after the timeout, are still taken in
+    private void restore(ClusterTrackingDetailMessages.BucketContents msg) {
+        for (TrackingDetail trackingDetail : msg.getTrackingDetails()) {
+            trackingStore.create(trackingDetail);
+        }
+    }
+
+    private void loaded() {
+        loadTimeout.cancel();
+        if (durable) {
+            getContext().setReceiveTimeout(passivateAfter);
+        }
+        getContext().become(active());
+        unstashAll();
+    }
+
+    // Writes acknowledged by the child are in the log once it has stopped, so the log is complete when closed
+    private void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            store.close();
+        }
+    }
+
+    private void handleStop(ClusterTrackingDetailMessages.Stop msg) {
+        getContext().cancelReceiveTimeout();
+        // The child handles everything forwarded before the PoisonPill, so no acknowledged write is left behind
+        getContext().watch(handler);
+        handler.tell(PoisonPill.getInstance(), self());
+        getContext().become(stopping());
+    }
+}
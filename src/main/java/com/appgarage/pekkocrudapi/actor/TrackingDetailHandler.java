@@ -0,0 +1,162 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.cache.IdempotencyCache;
+import com.appgarage.pekkocrudapi.cache.JsonResponseCache;
+import com.appgarage.pekkocrudapi.model.ErrorMessage;
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.store.Page;
+import com.appgarage.pekkocrudapi.store.TrackingDetailStore;
+import com.appgarage.pekkocrudapi.utils.Pagination;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Handling of the tracking detail protocol for TrackingDetailActor and its typed behavior: CRUD operations,
+ * pages, filtered queries and batches. All handlers write to one shared, thread-safe TrackingDetailStore
+ * (aligned with USPS code). Updates and deletes invalidate the tracking number in the route's response cache,
+ * if there is one, before they are acknowledged.
+ * Creates sent with an idempotency key are recorded in the idempotency cache, if there is one, and a retry with
+ * the same key and tracking detail is answered with the recorded response without creating it again.
+ */
+public class TrackingDetailHandler extends EntityHandler<TrackingDetail, TrackingDetailMessages.TrackingDetailResponse> {
+
+    private final TrackingDetailStore trackingStore;
+    private final JsonResponseCache responseCache;
+    private final IdempotencyCache<TrackingDetail, TrackingDetailMessages.TrackingDetailResponse> idempotencyCache;
+    private final TrackingDetailMessages.TrackingDetailResponse duplicate;
+    private final TrackingDetailMessages.TrackingDetailResponse idempotencyKeyReused;
+    private final TrackingDetailMessages.TrackingDetailResponse invalidOperation;
+    private final TrackingDetailMessages.TrackingDetailResponse missingTrackingNumber;
+    private final TrackingDetailMessages.TrackingDetailResponse missingTrackingDetail;
+
+    /**
+     * @param responseCache cache of encoded tracking details to invalidate on writes, or null
+     */
+    public TrackingDetailHandler(String apiVersion, TrackingDetailStore trackingStore, JsonResponseCache responseCache) {
+        this(apiVersion, trackingStore, responseCache, null);
+    }
+
+    /**
+     * @param responseCache    cache of encoded tracking details to invalidate on writes, or null
+     * @param idempotencyCache responses to creates by idempotency key, or null
+     */
+    public TrackingDetailHandler(String apiVersion, TrackingDetailStore trackingStore, JsonResponseCache responseCache,
+                                 IdempotencyCache<TrackingDetail, TrackingDetailMessages.TrackingDetailResponse> idempotencyCache) {
+        super(new TrackingDetailMessages.TrackingDetailResponse(null, new ErrorMessage(apiVersion, "150002", "Tracking detail not found")));
+        this.trackingStore = trackingStore;
+        this.responseCache = responseCache;
+        this.idempotencyCache = idempotencyCache != null && idempotencyCache.isEnabled() ? idempotencyCache : null;
+        this.duplicate = new TrackingDetailMessages.TrackingDetailResponse(null, new ErrorMessage(apiVersion, "150004", "Duplicate tracking number"));
+        this.idempotencyKeyReused = new TrackingDetailMessages.TrackingDetailResponse(null,
+                new ErrorMessage(apiVersion, "150009", "Idempotency-Key already used for a different tracking detail"), true);
+        this.invalidOperation = new TrackingDetailMessages.TrackingDetailResponse(null, new ErrorMessage(apiVersion, "150001", "Invalid batch operation"));
+        this.missingTrackingNumber = new TrackingDetailMessages.TrackingDetailResponse(null, new ErrorMessage(apiVersion, "150001", "trackingNumber is required"));
+        this.missingTrackingDetail = new TrackingDetailMessages.TrackingDetailResponse(null, new ErrorMessage(apiVersion, "150001", "Tracking detail is required"));
+        on(TrackingDetailMessages.CreateTrackingDetail.class, this::handleCreate);
+        on(TrackingDetailMessages.GetTrackingDetail.class, this::handleGet);
+        on(TrackingDetailMessages.UpdateTrackingDetail.class, this::handleUpdate);
+        on(TrackingDetailMessages.DeleteTrackingDetail.class, this::handleDelete);
+        on(TrackingDetailMessages.GetAllTrackingDetails.class, this::handleGetAll);
+        on(TrackingDetailMessages.FindTrackingDetails.class, this::handleFind);
+        on(BatchTrackingDetailMessages.ApplyBatch.class, this::handleBatch);
+    }
+
+    @Override
+    protected TrackingDetailMessages.TrackingDetailResponse response(TrackingDetail trackingDetail) {
+        return new TrackingDetailMessages.TrackingDetailResponse(trackingDetail, null);
+    }
+
+    private TrackingDetailMessages.TrackingDetailResponse handleCreate(TrackingDetailMessages.CreateTrackingDetail msg) {
+        String key = msg.getIdempotencyKey();
+        if (key == null || idempotencyCache == null) {
+            return create(msg.getTrackingDetail());
+        }
+        IdempotencyCache.Entry<TrackingDetail, TrackingDetailMessages.TrackingDetailResponse> recorded = idempotencyCache.get(key);
+        if (recorded != null) {
+            return Objects.equals(recorded.getRequest(), msg.getTrackingDetail()) ? recorded.getResponse() : idempotencyKeyReused;
+        }
+        // Duplicates are recorded too, so a retry gets the same answer as the first attempt
+        TrackingDetailMessages.TrackingDetailResponse response = create(msg.getTrackingDetail());
+        idempotencyCache.put(key, msg.getTrackingDetail(), response);
+        return response;
+    }
+
+    private TrackingDetailMessages.TrackingDetailResponse handleGet(TrackingDetailMessages.GetTrackingDetail msg) {
+        return found(trackingStore.get(msg.getTrackingNumber()));
+    }
+
+    private TrackingDetailMessages.TrackingDetailResponse handleUpdate(TrackingDetailMessages.UpdateTrackingDetail msg) {
+        return update(msg.getTrackingNumber(), msg.getTrackingDetail());
+    }
+
+    private TrackingDetailMessages.TrackingDetailResponse handleDelete(TrackingDetailMessages.DeleteTrackingDetail msg) {
+        return delete(msg.getTrackingNumber());
+    }
+
+    private BatchTrackingDetailMessages.BatchResponse handleBatch(BatchTrackingDetailMessages.ApplyBatch msg) {
+        List<TrackingDetailMessages.TrackingDetailResponse> results = new ArrayList<>(msg.getOperations().size());
+        for (BatchTrackingDetailMessages.Operation operation : msg.getOperations()) {
+            results.add(apply(operation));
+        }
+        return new BatchTrackingDetailMessages.BatchResponse(results);
+    }
+
+    private TrackingDetailMessages.TrackingDetailResponse apply(BatchTrackingDetailMessages.Operation operation) {
+        if (operation.getOp() == null || operation.key() == null
+                || (operation.getOp() != BatchTrackingDetailMessages.OperationType.DELETE && operation.getTrackingDetail() == null)) {
+            return invalidOperation;
+        }
+        switch (operation.getOp()) {
+            case CREATE:
+                return create(operation.getTrackingDetail());
+            case UPDATE:
+                return update(operation.getTrackingNumber(), operation.getTrackingDetail());
+            default:
+                return delete(operation.getTrackingNumber());
+        }
+    }
+
+    // Checked here as well as in the route, so no sender can put a null key into the store
+    private TrackingDetailMessages.TrackingDetailResponse create(TrackingDetail trackingDetail) {
+        if (trackingDetail == null || trackingDetail.getTrackingNumber() == null || trackingDetail.getTrackingNumber().trim().isEmpty()) {
+            return missingTrackingNumber;
+        }
+        return trackingStore.create(trackingDetail) ? response(trackingDetail) : duplicate;
+    }
+
+    private TrackingDetailMessages.TrackingDetailResponse update(String trackingNumber, TrackingDetail trackingDetail) {
+        if (trackingDetail == null) {
+            return missingTrackingDetail;
+        }
+        TrackingDetail updated = trackingStore.update(trackingNumber, trackingDetail);
+        invalidate(trackingNumber);
+        return found(updated);
+    }
+
+    private TrackingDetailMessages.TrackingDetailResponse delete(String trackingNumber) {
+        TrackingDetail deleted = trackingStore.delete(trackingNumber);
+        invalidate(trackingNumber);
+        return found(deleted);
+    }
+
+    private void invalidate(String trackingNumber) {
+        if (responseCache != null) {
+            responseCache.invalidate(trackingNumber);
+        }
+    }
+
+    private TrackingDetailMessages.TrackingDetailListResponse handleGetAll(TrackingDetailMessages.GetAllTrackingDetails msg) {
+        if (msg.isPaged()) {
+            Page<TrackingDetail> page = trackingStore.page(msg.getAfterTrackingNumber(), msg.getLimit());
+            return new TrackingDetailMessages.TrackingDetailListResponse(page.getItems(), null, Pagination.encodeCursor(page.getNextKey()));
+        }
+        return new TrackingDetailMessages.TrackingDetailListResponse(trackingStore.getAll(), null);
+    }
+
+    private TrackingDetailMessages.TrackingDetailListResponse handleFind(TrackingDetailMessages.FindTrackingDetails msg) {
+        Page<TrackingDetail> page = trackingStore.find(msg.getQuery(), msg.getAfterPosition(), msg.getLimit());
+        return new TrackingDetailMessages.TrackingDetailListResponse(page.getItems(), null, Pagination.encodeCursor(page.getNextKey()));
+    }
+}
@@ -2,6 +2,8 @@ package com.appgarage.pekkocrudapi.actor;
 
 import com.appgarage.pekkocrudapi.model.TrackingDetail;
 import com.appgarage.pekkocrudapi.model.ErrorMessage;
+import com.appgarage.pekkocrudapi.store.TrackingDetailQuery;
+import org.apache.pekko.routing.ConsistentHashingRouter.ConsistentHashable;
 
 import java.io.Serializable;
 import java.util.List;
@@ -10,28 +12,69 @@ import java.util.Set;
 /**
  * Message classes for Pekko actor communication for TrackingDetail operations.
  * Includes request and response messages for CRUD operations.
+ * Requests addressing a single tracking number are ConsistentHashable so the sharded
+ * router always delivers them to the routee owning that tracking number.
+ * Requests implement TrackingDetailRequest or TrackingDetailListRequest, which name the response they are answered with.
  */
 public class TrackingDetailMessages {
 
     /**
-     * Request to create a new TrackingDetail.
+     * Requests answered with a TrackingDetailResponse.
      */
-    public static class CreateTrackingDetail implements Serializable {
+    public interface TrackingDetailRequest extends EntityRequest<TrackingDetailResponse> {
+        @Override
+        default Class<TrackingDetailResponse> responseType() {
+            return TrackingDetailResponse.class;
+        }
+    }
+
+    /**
+     * Requests answered with a TrackingDetailListResponse.
+     */
+    public interface TrackingDetailListRequest extends EntityRequest<TrackingDetailListResponse> {
+        @Override
+        default Class<TrackingDetailListResponse> responseType() {
+            return TrackingDetailListResponse.class;
+        }
+    }
+
+    /**
+     * Request to create a new TrackingDetail, optionally with the Idempotency-Key its client sent.
+     * It is routed by tracking number like the other single tracking detail requests, so retries of one create
+     * reach the same shard.
+     */
+    public static class CreateTrackingDetail implements TrackingDetailRequest, Serializable, ConsistentHashable {
         private final TrackingDetail trackingDetail;
+        private final String idempotencyKey;
 
         public CreateTrackingDetail(TrackingDetail trackingDetail) {
+            this(trackingDetail, null);
+        }
+
+        public CreateTrackingDetail(TrackingDetail trackingDetail, String idempotencyKey) {
             this.trackingDetail = trackingDetail;
+            this.idempotencyKey = idempotencyKey;
         }
 
         public TrackingDetail getTrackingDetail() {
             return trackingDetail;
         }
+
+        // Null if the request was sent without one
+        public String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+
+        @Override
+        public Object consistentHashKey() {
+            return hashKey(trackingDetail == null ? null : trackingDetail.getTrackingNumber());
+        }
     }
 
     /**
      * Request to retrieve a TrackingDetail by tracking number.
      */
-    public static class GetTrackingDetail implements Serializable {
+    public static class GetTrackingDetail implements TrackingDetailRequest, Serializable, ConsistentHashable {
         private final String trackingNumber;
 
         public GetTrackingDetail(String trackingNumber) {
@@ -41,12 +84,17 @@ public class TrackingDetailMessages {
         public String getTrackingNumber() {
             return trackingNumber;
         }
+
+        @Override
+        public Object consistentHashKey() {
+            return hashKey(trackingNumber);
+        }
     }
 
     /**
      * Request to update an existing TrackingDetail.
      */
-    public static class UpdateTrackingDetail implements Serializable {
+    public static class UpdateTrackingDetail implements TrackingDetailRequest, Serializable, ConsistentHashable {
         private final String trackingNumber;
         private final TrackingDetail trackingDetail;
 
@@ -62,12 +110,17 @@ public class TrackingDetailMessages {
         public TrackingDetail getTrackingDetail() {
             return trackingDetail;
         }
+
+        @Override
+        public Object consistentHashKey() {
+            return hashKey(trackingNumber);
+        }
     }
 
     /**
      * Request to delete a TrackingDetail by tracking number.
      */
-    public static class DeleteTrackingDetail implements Serializable {
+    public static class DeleteTrackingDetail implements TrackingDetailRequest, Serializable, ConsistentHashable {
         private final String trackingNumber;
 
         public DeleteTrackingDetail(String trackingNumber) {
@@ -77,54 +130,153 @@ public class TrackingDetailMessages {
         public String getTrackingNumber() {
             return trackingNumber;
         }
+
+        @Override
+        public Object consistentHashKey() {
+            return hashKey(trackingNumber);
+        }
+    }
+
+    /**
+     * Request to retrieve all TrackingDetails, or one page of them in tracking number order.
+     */
+    public static class GetAllTrackingDetails implements TrackingDetailListRequest, Serializable {
+        private final String afterTrackingNumber;
+        private final int limit;
+
+        // Requests every TrackingDetail in one response
+        public GetAllTrackingDetails() {
+            this(null, 0);
+        }
+
+        // Requests one page of at most limit TrackingDetails following afterTrackingNumber
+        public GetAllTrackingDetails(String afterTrackingNumber, int limit) {
+            this.afterTrackingNumber = afterTrackingNumber;
+            this.limit = limit;
+        }
+
+        public String getAfterTrackingNumber() {
+            return afterTrackingNumber;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public boolean isPaged() {
+            return limit > 0;
+        }
     }
 
     /**
-     * Request to retrieve all TrackingDetails.
+     * Request for one page of TrackingDetails matching a query on the indexed fields,
+     * ordered by mailing date and then tracking number.
      */
-    public static class GetAllTrackingDetails implements Serializable {
-        // No fields needed
+    public static class FindTrackingDetails implements TrackingDetailListRequest, Serializable {
+        private final TrackingDetailQuery query;
+        private final String afterPosition;
+        private final int limit;
+
+        // Requests at most limit matches following afterPosition (see TrackingDetailQuery.positionOf)
+        public FindTrackingDetails(TrackingDetailQuery query, String afterPosition, int limit) {
+            this.query = query;
+            this.afterPosition = afterPosition;
+            this.limit = limit;
+        }
+
+        public TrackingDetailQuery getQuery() {
+            return query;
+        }
+
+        public String getAfterPosition() {
+            return afterPosition;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
     }
 
     /**
      * Response for single TrackingDetail operations (Create, Get, Update, Delete).
      */
-    public static class TrackingDetailResponse implements Serializable {
+    public static class TrackingDetailResponse implements EntityResponse<TrackingDetail, ErrorMessage>, Serializable {
         private final TrackingDetail trackingDetail;
         private final ErrorMessage error;
+        private final boolean conflict;
 
         public TrackingDetailResponse(TrackingDetail trackingDetail, ErrorMessage error) {
+            this(trackingDetail, error, false);
+        }
+
+        public TrackingDetailResponse(TrackingDetail trackingDetail, ErrorMessage error, boolean conflict) {
             this.trackingDetail = trackingDetail;
             this.error = error;
+            this.conflict = conflict;
         }
 
         public TrackingDetail getTrackingDetail() {
             return trackingDetail;
         }
 
+        @Override
+        public TrackingDetail getEntity() {
+            return trackingDetail;
+        }
+
+        @Override
         public ErrorMessage getError() {
             return error;
         }
+
+        // True if the error is an Idempotency-Key already used for a different tracking detail
+        @Override
+        public boolean isConflict() {
+            return conflict;
+        }
     }
 
     /**
-     * Response for GetAllTrackingDetails operation.
+     * Response for GetAllTrackingDetails and FindTrackingDetails operations.
      */
-    public static class TrackingDetailListResponse implements Serializable {
+    public static class TrackingDetailListResponse implements EntityListResponse<TrackingDetail, ErrorMessage>, Serializable {
         private final List<TrackingDetail> trackingDetails;
         private final ErrorMessage error;
+        private final String nextCursor;
 
         public TrackingDetailListResponse(List<TrackingDetail> trackingDetails, ErrorMessage error) {
+            this(trackingDetails, error, null);
+        }
+
+        public TrackingDetailListResponse(List<TrackingDetail> trackingDetails, ErrorMessage error, String nextCursor) {
             this.trackingDetails = trackingDetails;
             this.error = error;
+            this.nextCursor = nextCursor;
         }
 
         public List<TrackingDetail> getTrackingDetails() {
             return trackingDetails;
         }
 
+        @Override
+        public List<TrackingDetail> getEntities() {
+            return trackingDetails;
+        }
+
+        @Override
         public ErrorMessage getError() {
             return error;
         }
+
+        // Cursor for the next page, or null when this was the last page
+        @Override
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    // Consistent hashing cannot route a null key, so missing tracking numbers share one shard
+    private static Object hashKey(String trackingNumber) {
+        return trackingNumber == null ? "" : trackingNumber;
     }
 }
@@ -0,0 +1,85 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.pattern.Patterns;
+import org.apache.pekko.routing.ActorRefRoutee;
+import org.apache.pekko.routing.GetRoutees;
+import org.apache.pekko.routing.Routee;
+import org.apache.pekko.routing.Routees;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Shard assignment and batch fan-out for the TrackingDetailActor routees.
+ * With the tracking-shard-pool router every tracking number is hashed to a fixed routee, so each routee
+ * is the only writer for a disjoint slice of the keyspace.
+ */
+public class TrackingDetailRouting {
+
+    private TrackingDetailRouting() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Index of the routee owning a tracking number in a pool of the given size.
+     */
+    public static int shardFor(String trackingNumber, int shards) {
+        int h = trackingNumber == null ? 0 : trackingNumber.hashCode();
+        // Murmur3 finalizer, so similar tracking numbers still spread evenly over the shards
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, shards);
+    }
+
+    /**
+     * Applies a batch of operations with one ApplyBatch message per owning routee.
+     * @return one response per operation, in the order of the given operations
+     */
+    public static CompletionStage<List<TrackingDetailMessages.TrackingDetailResponse>> applyBatch(
+            ActorRef router, List<BatchTrackingDetailMessages.Operation> operations, Duration timeout) {
+        return Patterns.ask(router, GetRoutees.getInstance(), timeout)
+                .thenCompose(reply -> {
+                    List<Routee> routees = ((Routees) reply).getRoutees();
+                    int shards = routees.size();
+                    List<List<Integer>> positions = new ArrayList<>(shards);
+                    List<List<BatchTrackingDetailMessages.Operation>> groups = new ArrayList<>(shards);
+                    for (int i = 0; i < shards; i++) {
+                        positions.add(new ArrayList<>());
+                        groups.add(new ArrayList<>());
+                    }
+                    for (int i = 0; i < operations.size(); i++) {
+                        int shard = shardFor(operations.get(i).key(), shards);
+                        positions.get(shard).add(i);
+                        groups.get(shard).add(operations.get(i));
+                    }
+
+                    TrackingDetailMessages.TrackingDetailResponse[] results = new TrackingDetailMessages.TrackingDetailResponse[operations.size()];
+                    List<CompletableFuture<Void>> pending = new ArrayList<>();
+                    for (int shard = 0; shard < shards; shard++) {
+                        if (groups.get(shard).isEmpty()) {
+                            continue;
+                        }
+                        List<Integer> groupPositions = positions.get(shard);
+                        ActorRef owner = ((ActorRefRoutee) routees.get(shard)).ref();
+                        pending.add(Patterns.ask(owner, new BatchTrackingDetailMessages.ApplyBatch(groups.get(shard)), timeout)
+                                .toCompletableFuture()
+                                .thenAccept(response -> {
+                                    List<TrackingDetailMessages.TrackingDetailResponse> groupResults = ((BatchTrackingDetailMessages.BatchResponse) response).getResults();
+                                    for (int i = 0; i < groupResults.size(); i++) {
+                                        results[groupPositions.get(i)] = groupResults.get(i);
+                                    }
+                                }));
+                    }
+                    return CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+                            .thenApply(done -> Arrays.asList(results));
+                });
+    }
+}
@@ -0,0 +1,314 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.model.ErrorMessage;
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.store.TrackingDetailCodec;
+import com.appgarage.pekkocrudapi.store.TrackingDetailQuery;
+import org.apache.pekko.serialization.SerializerWithStringManifest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary serializer for the tracking detail messages that cross nodes in cluster mode, bound in
+ * application.conf. Tracking details use the TrackingDetailCodec layout of the write-ahead log,
+ * preceded by their tracking number; nullable strings and objects are preceded by a presence flag.
+ */
+public class TrackingDetailSerializer extends SerializerWithStringManifest {
+
+    private static final String CREATE = "create";
+    private static final String GET = "get";
+    private static final String UPDATE = "update";
+    private static final String DELETE = "delete";
+    private static final String GET_ALL = "get-all";
+    private static final String FIND = "find";
+    private static final String RESPONSE = "response";
+    private static final String LIST_RESPONSE = "list-response";
+    private static final String APPLY_BATCH = "apply-batch";
+    private static final String BATCH_RESPONSE = "batch-response";
+    private static final String BUCKET_ENVELOPE = "bucket-envelope";
+    private static final String TAKE_BUCKET = "take-bucket";
+    private static final String BUCKET_CONTENTS = "bucket-contents";
+    private static final String MAILBOX_FULL = "mailbox-full";
+
+    private static final TrackingDetailCodec CODEC = new TrackingDetailCodec();
+
+    @Override
+    public int identifier() {
+        return 150100;
+    }
+
+    @Override
+    public String manifest(Object o) {
+        if (o instanceof TrackingDetailMessages.CreateTrackingDetail) {
+            return CREATE;
+        } else if (o instanceof TrackingDetailMessages.GetTrackingDetail) {
+            return GET;
+        } else if (o instanceof TrackingDetailMessages.UpdateTrackingDetail) {
+            return UPDATE;
+        } else if (o instanceof TrackingDetailMessages.DeleteTrackingDetail) {
+            return DELETE;
+        } else if (o instanceof TrackingDetailMessages.GetAllTrackingDetails) {
+            return GET_ALL;
+        } else if (o instanceof TrackingDetailMessages.FindTrackingDetails) {
+            return FIND;
+        } else if (o instanceof TrackingDetailMessages.TrackingDetailResponse) {
+            return RESPONSE;
+        } else if (o instanceof TrackingDetailMessages.TrackingDetailListResponse) {
+            return LIST_RESPONSE;
+        } else if (o instanceof BatchTrackingDetailMessages.ApplyBatch) {
+            return APPLY_BATCH;
+        } else if (o instanceof BatchTrackingDetailMessages.BatchResponse) {
+            return BATCH_RESPONSE;
+        } else if (o instanceof ClusterTrackingDetailMessages.BucketEnvelope) {
+            return BUCKET_ENVELOPE;
+        } else if (o instanceof ClusterTrackingDetailMessages.TakeBucket) {
+            return TAKE_BUCKET;
+        } else if (o instanceof ClusterTrackingDetailMessages.BucketContents) {
+            return BUCKET_CONTENTS;
+        } else if (o instanceof MailboxFullException) {
+            return MAILBOX_FULL;
+        }
+        throw new IllegalArgumentException("Cannot serialize " + o.getClass().getName());
+    }
+
+    @Override
+    public byte[] toBinary(Object o) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            write(out, o);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Object fromBinary(byte[] bytes, String manifest) throws NotSerializableException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return read(in, manifest);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(DataOutputStream out, Object o) throws IOException {
+        if (o instanceof TrackingDetailMessages.CreateTrackingDetail) {
+            TrackingDetailMessages.CreateTrackingDetail create = (TrackingDetailMessages.CreateTrackingDetail) o;
+            writeTrackingDetail(out, create.getTrackingDetail());
+            writeString(out, create.getIdempotencyKey());
+        } else if (o instanceof TrackingDetailMessages.GetTrackingDetail) {
+            writeString(out, ((TrackingDetailMessages.GetTrackingDetail) o).getTrackingNumber());
+        } else if (o instanceof TrackingDetailMessages.UpdateTrackingDetail) {
+            TrackingDetailMessages.UpdateTrackingDetail update = (TrackingDetailMessages.UpdateTrackingDetail) o;
+            writeString(out, update.getTrackingNumber());
+            writeTrackingDetail(out, update.getTrackingDetail());
+        } else if (o instanceof TrackingDetailMessages.DeleteTrackingDetail) {
+            writeString(out, ((TrackingDetailMessages.DeleteTrackingDetail) o).getTrackingNumber());
+        } else if (o instanceof TrackingDetailMessages.GetAllTrackingDetails) {
+            TrackingDetailMessages.GetAllTrackingDetails getAll = (TrackingDetailMessages.GetAllTrackingDetails) o;
+            writeString(out, getAll.getAfterTrackingNumber());
+            out.writeInt(getAll.getLimit());
+        } else if (o instanceof TrackingDetailMessages.FindTrackingDetails) {
+            TrackingDetailMessages.FindTrackingDetails find = (TrackingDetailMessages.FindTrackingDetails) o;
+            TrackingDetailQuery query = find.getQuery();
+            writeString(out, query.getDestinationZipCode());
+            writeString(out, query.getZipPrefix());
+            writeDate(out, query.getMailedFrom());
+            writeDate(out, query.getMailedTo());
+            writeString(out, find.getAfterPosition());
+            out.writeInt(find.getLimit());
+        } else if (o instanceof TrackingDetailMessages.TrackingDetailResponse) {
+            writeResponse(out, (TrackingDetailMessages.TrackingDetailResponse) o);
+        } else if (o instanceof TrackingDetailMessages.TrackingDetailListResponse) {
+            TrackingDetailMessages.TrackingDetailListResponse list = (TrackingDetailMessages.TrackingDetailListResponse) o;
+            writeTrackingDetails(out, list.getTrackingDetails());
+            writeError(out, list.getError());
+            writeString(out, list.getNextCursor());
+        } else if (o instanceof BatchTrackingDetailMessages.ApplyBatch) {
+            List<BatchTrackingDetailMessages.Operation> operations = ((BatchTrackingDetailMessages.ApplyBatch) o).getOperations();
+            out.writeInt(operations.size());
+            for (BatchTrackingDetailMessages.Operation operation : operations) {
+                out.writeByte(operation.getOp() == null ? -1 : operation.getOp().ordinal());
+                writeString(out, operation.getTrackingNumber());
+                writeTrackingDetail(out, operation.getTrackingDetail());
+            }
+        } else if (o instanceof BatchTrackingDetailMessages.BatchResponse) {
+            List<TrackingDetailMessages.TrackingDetailResponse> results = ((BatchTrackingDetailMessages.BatchResponse) o).getResults();
+            out.writeInt(results.size());
+            for (TrackingDetailMessages.TrackingDetailResponse result : results) {
+                writeResponse(out, result);
+            }
+        } else if (o instanceof ClusterTrackingDetailMessages.BucketEnvelope) {
+            ClusterTrackingDetailMessages.BucketEnvelope envelope = (ClusterTrackingDetailMessages.BucketEnvelope) o;
+            out.writeInt(envelope.getBucket());
+            out.writeUTF(manifest(envelope.getMessage()));
+            write(out, envelope.getMessage());
+        } else if (o instanceof ClusterTrackingDetailMessages.TakeBucket) {
+            out.writeInt(((ClusterTrackingDetailMessages.TakeBucket) o).getBucket());
+        } else if (o instanceof ClusterTrackingDetailMessages.BucketContents) {
+            ClusterTrackingDetailMessages.BucketContents contents = (ClusterTrackingDetailMessages.BucketContents) o;
+            out.writeInt(contents.getBucket());
+            writeTrackingDetails(out, contents.getTrackingDetails());
+            out.writeBoolean(contents.isLast());
+        } else if (o instanceof MailboxFullException) {
+            MailboxFullException full = (MailboxFullException) o;
+            writeString(out, full.getActorPath());
+            out.writeInt(full.getCapacity());
+            out.writeLong(full.getRetryAfterSeconds());
+        } else {
+            throw new IllegalArgumentException("Cannot serialize " + o.getClass().getName());
+        }
+    }
+
+    private Object read(DataInputStream in, String manifest) throws IOException {
+        switch (manifest) {
+            case CREATE:
+                return new TrackingDetailMessages.CreateTrackingDetail(readTrackingDetail(in), readString(in));
+            case GET:
+                return new TrackingDetailMessages.GetTrackingDetail(readString(in));
+            case UPDATE:
+                return new TrackingDetailMessages.UpdateTrackingDetail(readString(in), readTrackingDetail(in));
+            case DELETE:
+                return new TrackingDetailMessages.DeleteTrackingDetail(readString(in));
+            case GET_ALL:
+                return new TrackingDetailMessages.GetAllTrackingDetails(readString(in), in.readInt());
+            case FIND: {
+                TrackingDetailQuery query = new TrackingDetailQuery(readString(in), readString(in), readDate(in), readDate(in));
+                return new TrackingDetailMessages.FindTrackingDetails(query, readString(in), in.readInt());
+            }
+            case RESPONSE:
+                return readResponse(in);
+            case LIST_RESPONSE:
+                return new TrackingDetailMessages.TrackingDetailListResponse(readTrackingDetails(in), readError(in), readString(in));
+            case APPLY_BATCH: {
+                int size = in.readInt();
+                List<BatchTrackingDetailMessages.Operation> operations = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    int op = in.readByte();
+                    operations.add(new BatchTrackingDetailMessages.Operation(op < 0 ? null : BatchTrackingDetailMessages.OperationType.values()[op],
+                            readString(in), readTrackingDetail(in)));
+                }
+                return new BatchTrackingDetailMessages.ApplyBatch(operations);
+            }
+            case BATCH_RESPONSE: {
+                int size = in.readInt();
+                List<TrackingDetailMessages.TrackingDetailResponse> results = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    results.add(readResponse(in));
+                }
+                return new BatchTrackingDetailMessages.BatchResponse(results);
+            }
+            case BUCKET_ENVELOPE: {
+                int bucket = in.readInt();
+                return new ClusterTrackingDetailMessages.BucketEnvelope(bucket, read(in, in.readUTF()));
+            }
+            case TAKE_BUCKET:
+                return new ClusterTrackingDetailMessages.TakeBucket(in.readInt());
+            case BUCKET_CONTENTS:
+                return new ClusterTrackingDetailMessages.BucketContents(in.readInt(), readTrackingDetails(in), in.readBoolean());
+            case MAILBOX_FULL:
+                return new MailboxFullException(readString(in), in.readInt(), in.readLong());
+            default:
+                throw new NotSerializableException("Unknown manifest: " + manifest);
+        }
+    }
+
+    private void writeResponse(DataOutputStream out, TrackingDetailMessages.TrackingDetailResponse response) throws IOException {
+        writeTrackingDetail(out, response.getTrackingDetail());
+        writeError(out, response.getError());
+        out.writeBoolean(response.isConflict());
+    }
+
+    private TrackingDetailMessages.TrackingDetailResponse readResponse(DataInputStream in) throws IOException {
+        return new TrackingDetailMessages.TrackingDetailResponse(readTrackingDetail(in), readError(in), in.readBoolean());
+    }
+
+    private void writeTrackingDetails(DataOutputStream out, List<TrackingDetail> trackingDetails) throws IOException {
+        out.writeInt(trackingDetails.size());
+        for (TrackingDetail trackingDetail : trackingDetails) {
+            writeTrackingDetail(out, trackingDetail);
+        }
+    }
+
+    private List<TrackingDetail> readTrackingDetails(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<TrackingDetail> trackingDetails = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            trackingDetails.add(readTrackingDetail(in));
+        }
+        return trackingDetails;
+    }
+
+    private void writeTrackingDetail(DataOutputStream out, TrackingDetail trackingDetail) throws IOException {
+        out.writeBoolean(trackingDetail != null);
+        if (trackingDetail != null) {
+            writeString(out, trackingDetail.getTrackingNumber());
+            byte[] value = CODEC.encode(trackingDetail);
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    private TrackingDetail readTrackingDetail(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        String trackingNumber = readString(in);
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        return CODEC.decode(trackingNumber, value);
+    }
+
+    private void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeBoolean(date != null);
+        if (date != null) {
+            out.writeLong(date.toEpochDay());
+        }
+    }
+
+    private LocalDate readDate(DataInputStream in) throws IOException {
+        return in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+    }
+
+    private void writeError(DataOutputStream out, ErrorMessage error) throws IOException {
+        out.writeBoolean(error != null);
+        if (error != null) {
+            writeString(out, error.getApiVersion());
+            writeString(out, error.getReturnCode());
+            writeString(out, error.getMessage());
+            writeString(out, error.getTrackingNumber());
+        }
+    }
+
+    private ErrorMessage readError(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        ErrorMessage error = new ErrorMessage();
+        error.setApiVersion(readString(in));
+        error.setReturnCode(readString(in));
+        error.setMessage(readString(in));
+        error.setTrackingNumber(readString(in));
+        return error;
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
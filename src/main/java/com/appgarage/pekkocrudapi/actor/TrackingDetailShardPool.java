@@ -0,0 +1,87 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.typesafe.config.Config;
+import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.actor.SupervisorStrategy;
+import org.apache.pekko.routing.ConsistentHashingRouter.ConsistentHashable;
+import org.apache.pekko.routing.NoRoutee$;
+import org.apache.pekko.routing.Pool;
+import org.apache.pekko.routing.PoolBase;
+import org.apache.pekko.routing.Resizer;
+import org.apache.pekko.routing.Routee;
+import org.apache.pekko.routing.Router;
+import org.apache.pekko.routing.RoutingLogic;
+import org.apache.pekko.routing.SmallestMailboxRoutingLogic;
+import scala.Option;
+import scala.collection.immutable.IndexedSeq;
+
+/**
+ * Pool that pins every tracking number to a fixed routee.
+ * Unlike ConsistentHashingPool the owning routee is a plain function of the key and the pool size
+ * (see {@link TrackingDetailRouting#shardFor}), so callers can group work by owner before sending it.
+ * Deployed from config with router = tracking-shard-pool; nr-of-instances = 0 starts one routee per core.
+ */
+public class TrackingDetailShardPool extends PoolBase {
+
+    private final int nrOfInstances;
+
+    public TrackingDetailShardPool(int nrOfInstances) {
+        this.nrOfInstances = nrOfInstances > 0 ? nrOfInstances : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Used by FromConfig to build the pool from a pekko.actor.deployment section.
+     */
+    public TrackingDetailShardPool(Config config) {
+        this(config.getInt("nr-of-instances"));
+    }
+
+    @Override
+    public int nrOfInstances(ActorSystem system) {
+        return nrOfInstances;
+    }
+
+    @Override
+    public Option<Resizer> resizer() {
+        return Option.empty();
+    }
+
+    @Override
+    public SupervisorStrategy supervisorStrategy() {
+        return Pool.defaultSupervisorStrategy();
+    }
+
+    @Override
+    public String routerDispatcher() {
+        return "pekko.actor.default-dispatcher";
+    }
+
+    @Override
+    public Router createRouter(ActorSystem system) {
+        return new Router(new ShardingLogic());
+    }
+
+    /**
+     * Routes ConsistentHashable messages to the routee owning their key.
+     * Messages without a key (e.g. GetAll, which reads the shared store) go to the least busy routee.
+     * The pool is never resized, since that would move keys between routees.
+     */
+    static class ShardingLogic implements RoutingLogic {
+
+        private final RoutingLogic leastBusy = new SmallestMailboxRoutingLogic();
+
+        @Override
+        public Routee select(Object message, IndexedSeq<Routee> routees) {
+            if (routees.isEmpty()) {
+                return NoRoutee$.MODULE$;
+            }
+            // A command from the ReplyPool is routed by the request it carries
+            Object request = message instanceof EntityCommand ? ((EntityCommand) message).getRequest() : message;
+            if (request instanceof ConsistentHashable) {
+                Object key = ((ConsistentHashable) request).consistentHashKey();
+                return routees.apply(TrackingDetailRouting.shardFor(String.valueOf(key), routees.size()));
+            }
+            return leastBusy.select(message, routees);
+        }
+    }
+}
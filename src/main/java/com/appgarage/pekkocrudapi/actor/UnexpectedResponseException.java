@@ -0,0 +1,13 @@
+package com.appgarage.pekkocrudapi.actor;
+
+/**
+ * Failure of an ask whose reply is not the response type its request declares.
+ * Routes answer it with 500, like any other unexpected error.
+ */
+public class UnexpectedResponseException extends RuntimeException {
+
+    public UnexpectedResponseException(EntityRequest<?> request, Object response) {
+        super("Unexpected response " + (response == null ? null : response.getClass().getName())
+                + " to " + request.getClass().getName() + ", expected " + request.responseType().getName());
+    }
+}
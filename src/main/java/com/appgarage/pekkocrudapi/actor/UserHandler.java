@@ -0,0 +1,73 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.model.User;
+import com.appgarage.pekkocrudapi.store.DuplicateUserException;
+import com.appgarage.pekkocrudapi.store.Page;
+import com.appgarage.pekkocrudapi.store.UserStore;
+import com.appgarage.pekkocrudapi.utils.Pagination;
+
+/**
+ * Handling of the user protocol for UserActor and its typed behavior: CRUD operations, lookups by username or
+ * email and pages. All handlers share one thread-safe UserStore (replace with DB in production).
+ */
+public class UserHandler extends EntityHandler<User, UserMessages.UserResponse> {
+
+    private final UserStore userStore;
+
+    public UserHandler(UserStore userStore) {
+        super(UserMessages.UserResponse.NOT_FOUND);
+        this.userStore = userStore;
+        on(UserMessages.CreateUser.class, this::handleCreate);
+        on(UserMessages.GetUser.class, this::handleGet);
+        on(UserMessages.UpdateUser.class, this::handleUpdate);
+        on(UserMessages.DeleteUser.class, this::handleDelete);
+        on(UserMessages.GetUserByUsername.class, this::handleGetByUsername);
+        on(UserMessages.GetUserByEmail.class, this::handleGetByEmail);
+        on(UserMessages.GetAllUsers.class, this::handleGetAll);
+    }
+
+    @Override
+    protected UserMessages.UserResponse response(User user) {
+        return new UserMessages.UserResponse(user, null);
+    }
+
+    private UserMessages.UserResponse handleCreate(UserMessages.CreateUser msg) {
+        try {
+            return response(userStore.create(msg.getUser()));
+        } catch (DuplicateUserException e) {
+            return new UserMessages.UserResponse(null, e.getMessage(), true);
+        }
+    }
+
+    private UserMessages.UserResponse handleGet(UserMessages.GetUser msg) {
+        return found(userStore.get(msg.getId()));
+    }
+
+    private UserMessages.UserResponse handleGetByUsername(UserMessages.GetUserByUsername msg) {
+        return found(userStore.getByUsername(msg.getUsername()));
+    }
+
+    private UserMessages.UserResponse handleGetByEmail(UserMessages.GetUserByEmail msg) {
+        return found(userStore.getByEmail(msg.getEmail()));
+    }
+
+    private UserMessages.UserResponse handleUpdate(UserMessages.UpdateUser msg) {
+        try {
+            return found(userStore.update(msg.getId(), msg.getUser()));
+        } catch (DuplicateUserException e) {
+            return new UserMessages.UserResponse(null, e.getMessage(), true);
+        }
+    }
+
+    private UserMessages.UserResponse handleDelete(UserMessages.DeleteUser msg) {
+        return found(userStore.delete(msg.getId()));
+    }
+
+    private UserMessages.UserListResponse handleGetAll(UserMessages.GetAllUsers msg) {
+        if (msg.isPaged()) {
+            Page<User> page = userStore.page(msg.getAfterId(), msg.getLimit());
+            return new UserMessages.UserListResponse(page.getItems(), null, Pagination.encodeCursor(page.getNextKey()));
+        }
+        return new UserMessages.UserListResponse(userStore.getAll(), null);
+    }
+}
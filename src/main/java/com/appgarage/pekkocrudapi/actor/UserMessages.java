@@ -6,10 +6,27 @@ import java.util.List;
 
 /**
  * Message classes for Pekko actor communication for User operations.
+ * Requests implement UserRequest or UserListRequest, which name the response UserActor answers them with.
  */
 public class UserMessages {
 
-    public static class CreateUser implements Serializable {
+    // Requests answered with a UserResponse
+    public interface UserRequest extends EntityRequest<UserResponse> {
+        @Override
+        default Class<UserResponse> responseType() {
+            return UserResponse.class;
+        }
+    }
+
+    // Requests answered with a UserListResponse
+    public interface UserListRequest extends EntityRequest<UserListResponse> {
+        @Override
+        default Class<UserListResponse> responseType() {
+            return UserListResponse.class;
+        }
+    }
+
+    public static class CreateUser implements UserRequest, Serializable {
         private final User user;
 
         public CreateUser(User user) {
@@ -21,7 +38,7 @@ public class UserMessages {
         }
     }
 
-    public static class GetUser implements Serializable {
+    public static class GetUser implements UserRequest, Serializable {
         private final String id;
 
         public GetUser(String id) {
@@ -33,7 +50,7 @@ public class UserMessages {
         }
     }
 
-    public static class UpdateUser implements Serializable {
+    public static class UpdateUser implements UserRequest, Serializable {
         private final String id;
         private final User user;
 
@@ -51,7 +68,7 @@ public class UserMessages {
         }
     }
 
-    public static class DeleteUser implements Serializable {
+    public static class DeleteUser implements UserRequest, Serializable {
         private final String id;
 
         public DeleteUser(String id) {
@@ -63,43 +80,130 @@ public class UserMessages {
         }
     }
 
-    public static class GetAllUsers implements Serializable {
-        // No fields needed for this message
+    public static class GetUserByUsername implements UserRequest, Serializable {
+        private final String username;
+
+        public GetUserByUsername(String username) {
+            this.username = username;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+    }
+
+    public static class GetUserByEmail implements UserRequest, Serializable {
+        private final String email;
+
+        public GetUserByEmail(String email) {
+            this.email = email;
+        }
+
+        public String getEmail() {
+            return email;
+        }
     }
 
-    public static class UserResponse implements Serializable {
+    public static class GetAllUsers implements UserListRequest, Serializable {
+        private final String afterId;
+        private final int limit;
+
+        // Requests every user in one response
+        public GetAllUsers() {
+            this(null, 0);
+        }
+
+        // Requests one page of at most limit users following afterId
+        public GetAllUsers(String afterId, int limit) {
+            this.afterId = afterId;
+            this.limit = limit;
+        }
+
+        public String getAfterId() {
+            return afterId;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public boolean isPaged() {
+            return limit > 0;
+        }
+    }
+
+    public static class UserResponse implements EntityResponse<User, String>, Serializable {
+        // Answer to a request for a user that does not exist
+        public static final UserResponse NOT_FOUND = new UserResponse(null, "User not found");
+
         private final User user;
         private final String error;
+        private final boolean conflict;
 
         public UserResponse(User user, String error) {
+            this(user, error, false);
+        }
+
+        public UserResponse(User user, String error, boolean conflict) {
             this.user = user;
             this.error = error;
+            this.conflict = conflict;
         }
 
         public User getUser() {
             return user;
         }
 
+        @Override
+        public User getEntity() {
+            return user;
+        }
+
+        @Override
         public String getError() {
             return error;
         }
+
+        // True if the error is a username or email already held by another user
+        @Override
+        public boolean isConflict() {
+            return conflict;
+        }
     }
 
-    public static class UserListResponse implements Serializable {
+    public static class UserListResponse implements EntityListResponse<User, String>, Serializable {
         private final List<User> users;
         private final String error;
+        private final String nextCursor;
 
         public UserListResponse(List<User> users, String error) {
+            this(users, error, null);
+        }
+
+        public UserListResponse(List<User> users, String error, String nextCursor) {
             this.users = users;
             this.error = error;
+            this.nextCursor = nextCursor;
         }
 
         public List<User> getUsers() {
             return users;
         }
 
+        @Override
+        public List<User> getEntities() {
+            return users;
+        }
+
+        @Override
         public String getError() {
             return error;
         }
+
+        // Cursor for the next page, or null when this was the last page
+        @Override
+        public String getNextCursor() {
+            return nextCursor;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.appgarage.pekkocrudapi.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate recent request counts of keys, for TinyLFU admission: a count-min sketch of 4-bit counters, four per
+ * key, sixteen to a long. Once 10 increments per cache entry were counted every counter is halved, so keys that
+ * stopped being requested age out. Counters stop at 15, which means the hottest keys are only read, not written.
+ * Increments from concurrent threads use compare-and-set on the affected longs and never block.
+ */
+class FrequencySketch {
+
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    FrequencySketch(int maxEntries) {
+        int length = Integer.highestOneBit(Math.max(2, Math.min(maxEntries, 1 << 24)) - 1) << 1;
+        this.table = new AtomicLongArray(length);
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * Math.max(1, Math.min(maxEntries, Integer.MAX_VALUE / 10));
+    }
+
+    /**
+     * Estimated number of times the key was counted recently, 0 to 15.
+     */
+    int frequency(String key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            int count = (int) ((table.get(indexOf(hash, i)) >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(String key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && additions.incrementAndGet() == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        while (true) {
+            long current = table.get(index);
+            if ((current & mask) == mask) {
+                return false;
+            }
+            if (table.compareAndSet(index, current, current + (1L << offset))) {
+                return true;
+            }
+        }
+    }
+
+    // Halves every counter; the odd counts lost to the shift are subtracted from the additions, as in TinyLFU
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length(); i++) {
+            long previous = table.getAndUpdate(i, value -> (value >>> 1) & RESET_MASK);
+            odd += Long.bitCount(previous & ONE_MASK);
+        }
+        additions.addAndGet((sampleSize >>> 1) - (odd >>> 2) - sampleSize);
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
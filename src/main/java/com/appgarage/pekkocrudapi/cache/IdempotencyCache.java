@@ -0,0 +1,200 @@
+package com.appgarage.pekkocrudapi.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, time-windowed record of the responses to requests sent with an idempotency key, so a retried request
+ * can be answered with the original response instead of being applied again.
+ * <p>
+ * Entries are kept in a fixed array of slots, so memory does not grow with the number of distinct keys. A key can
+ * only be in one set of {@value #WAYS} slots chosen by its hash; a new key takes a free or expired slot of its set,
+ * or else displaces the oldest entry there. An entry is kept for the window after it was recorded, unless more
+ * than about maxEntries keys are recorded within the window, in which case it may be displaced earlier (counted
+ * in cache.evictions). Reads and writes are a few volatile array accesses, without locks.
+ * <p>
+ * The cache does not order concurrent requests with the same key: callers must handle them one at a time, as the
+ * tracking detail shards do for the requests on one tracking number.
+ *
+ * @param <Q> request the response was recorded for, compared with the request of a retry
+ * @param <R> response type
+ */
+public class IdempotencyCache<Q, R> {
+
+    private static final int WAYS = 4;
+
+    private final AtomicReferenceArray<Entry<Q, R>> slots;
+    private final int setMask;
+    private final long windowNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries slots, rounded up to a power of two; 0 disables the cache
+     * @param windowSeconds how long a response is replayed for
+     */
+    public IdempotencyCache(int maxEntries, long windowSeconds) {
+        int size = maxEntries <= 0 ? 0 : Math.max(WAYS, Integer.highestOneBit(maxEntries - 1) << 1);
+        this.slots = new AtomicReferenceArray<>(size);
+        this.setMask = size / WAYS - 1;
+        this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+    }
+
+    public boolean isEnabled() {
+        return slots.length() > 0;
+    }
+
+    /**
+     * @return the entry recorded for key within the window, or null
+     */
+    public Entry<Q, R> get(String key) {
+        if (!isEnabled()) {
+            return null;
+        }
+        long now = System.nanoTime();
+        int first = firstSlot(key);
+        for (int i = first; i < first + WAYS; i++) {
+            Entry<Q, R> entry = slots.get(i);
+            if (entry != null && entry.key.equals(key) && !entry.isExpired(now, windowNanos)) {
+                hits.increment();
+                return entry;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Records the response to the request sent with key, replacing an earlier entry for the key.
+     */
+    public void put(String key, Q request, R response) {
+        if (!isEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        int first = firstSlot(key);
+        int slot = first;
+        Entry<Q, R> replaced = slots.get(first);
+        for (int i = first; i < first + WAYS && replaced != null; i++) {
+            Entry<Q, R> entry = slots.get(i);
+            if (entry == null || entry.key.equals(key) || entry.isExpired(now, windowNanos)) {
+                slot = i;
+                replaced = entry;
+                break;
+            }
+            if (entry.recordedAt - replaced.recordedAt < 0) {
+                slot = i;
+                replaced = entry;
+            }
+        }
+        slots.set(slot, new Entry<>(key, request, response, now));
+        puts.increment();
+        if (replaced != null && !replaced.key.equals(key) && !replaced.isExpired(now, windowNanos)) {
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Entries within the window; counts every slot.
+     */
+    public long size() {
+        long now = System.nanoTime();
+        long size = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            Entry<Q, R> entry = slots.get(i);
+            if (entry != null && !entry.isExpired(now, windowNanos)) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Publishes the cache.gets (replays and misses), cache.puts, cache.evictions and cache.size meters that
+     * Micrometer's cache binders use, tagged with the cache name.
+     */
+    public void bindTo(MeterRegistry meterRegistry, String name) {
+        new Metrics(this, name).bindTo(meterRegistry);
+    }
+
+    private int firstSlot(String key) {
+        int hash = key.hashCode();
+        return ((hash ^ (hash >>> 16)) & setMask) * WAYS;
+    }
+
+    /**
+     * Response recorded for a key, with the request it answered.
+     */
+    public static final class Entry<Q, R> {
+
+        private final String key;
+        private final Q request;
+        private final R response;
+        private final long recordedAt;
+
+        Entry(String key, Q request, R response, long recordedAt) {
+            this.key = key;
+            this.request = request;
+            this.response = response;
+            this.recordedAt = recordedAt;
+        }
+
+        public Q getRequest() {
+            return request;
+        }
+
+        public R getResponse() {
+            return response;
+        }
+
+        boolean isExpired(long now, long windowNanos) {
+            return now - recordedAt >= windowNanos;
+        }
+    }
+
+    private static final class Metrics extends CacheMeterBinder<IdempotencyCache<?, ?>> {
+
+        private final IdempotencyCache<?, ?> cache;
+
+        Metrics(IdempotencyCache<?, ?> cache, String name) {
+            super(cache, name, Tags.empty());
+            this.cache = cache;
+        }
+
+        @Override
+        protected Long size() {
+            return cache.size();
+        }
+
+        @Override
+        protected long hitCount() {
+            return cache.hits.sum();
+        }
+
+        @Override
+        protected Long missCount() {
+            return cache.misses.sum();
+        }
+
+        @Override
+        protected Long evictionCount() {
+            return cache.evictions.sum();
+        }
+
+        @Override
+        protected long putCount() {
+            return cache.puts.sum();
+        }
+
+        @Override
+        protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.appgarage.pekkocrudapi.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import org.apache.pekko.util.ByteString;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of already encoded JSON responses by entity key, so entities that are polled over and over are
+ * served without asking an actor or serializing them again.
+ * <p>
+ * A hit is a ConcurrentHashMap read plus a FrequencySketch increment, without locks. Admission follows TinyLFU:
+ * when the cache is full a new key only replaces the eviction candidate if it was requested more often recently,
+ * otherwise the candidate gets another round and the new key is not cached, so one-off reads cannot flush the
+ * hot entries. Candidates are taken in insertion order.
+ * <p>
+ * Writers call {@link #invalidate} after changing an entity. Readers take a {@link #stamp} before reading the entity
+ * they encode; {@link #put} drops the bytes if the key may have been invalidated since, so a read that raced with a
+ * write cannot leave the old version cached.
+ */
+public class JsonResponseCache {
+
+    // Invalidations are remembered per stripe of keys; a collision only costs a put that is dropped
+    private static final int INVALIDATION_STRIPES = 1024;
+
+    private final int maxEntries;
+    private final Map<String, Node> entries = new ConcurrentHashMap<>();
+    private final FrequencySketch sketch;
+    // Eviction candidates, oldest first; changed only under its own lock, may hold nodes already removed
+    private final ArrayDeque<Node> evictionOrder = new ArrayDeque<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLongArray lastInvalidation = new AtomicLongArray(INVALIDATION_STRIPES);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * @param maxEntries most responses kept; 0 disables the cache
+     */
+    public JsonResponseCache(int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.sketch = new FrequencySketch(this.maxEntries);
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * @return the cached JSON for the key, or null
+     */
+    public ByteString get(String key) {
+        if (maxEntries == 0) {
+            return null;
+        }
+        sketch.increment(key);
+        Node node = entries.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return node.json;
+    }
+
+    /**
+     * Position in the invalidation history, to pass to {@link #put} for a value read after this call.
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Caches the JSON of a key's entity, read after stamp was taken, unless the key was invalidated since or the
+     * cache is full of entries requested more often.
+     */
+    public void put(String key, ByteString json, long stamp) {
+        if (maxEntries == 0 || invalidatedSince(key, stamp)) {
+            return;
+        }
+        Node node = new Node(key, json);
+        synchronized (evictionOrder) {
+            if (entries.containsKey(key)) {
+                return;
+            }
+            if (!makeRoomFor(key)) {
+                rejections.increment();
+                return;
+            }
+            entries.put(key, node);
+            evictionOrder.addLast(node);
+            puts.increment();
+        }
+        // An invalidation between the first check and the insert may have missed the node, so it is removed here
+        if (invalidatedSince(key, stamp)) {
+            entries.remove(key, node);
+        }
+    }
+
+    /**
+     * Drops the key's cached JSON and keeps JSON read before this call from being cached.
+     * Call after the entity was changed or removed.
+     */
+    public void invalidate(String key) {
+        if (maxEntries == 0) {
+            return;
+        }
+        lastInvalidation.set(stripe(key), invalidations.incrementAndGet());
+        entries.remove(key);
+    }
+
+    public long size() {
+        return entries.size();
+    }
+
+    /**
+     * Publishes the cache.gets (hits and misses), cache.puts, cache.evictions and cache.size meters that Micrometer's
+     * cache binders use, tagged with the cache name, and cache.rejections for keys refused by the admission policy.
+     */
+    public void bindTo(MeterRegistry meterRegistry, String name) {
+        new Metrics(this, name).bindTo(meterRegistry);
+    }
+
+    // Evicts the oldest entries requested less often than key until there is room; false if one of them wins
+    private boolean makeRoomFor(String key) {
+        if (evictionOrder.size() >= 2 * maxEntries) {
+            evictionOrder.removeIf(node -> entries.get(node.key) != node);
+        }
+        int frequency = sketch.frequency(key);
+        while (entries.size() >= maxEntries) {
+            Node candidate = evictionOrder.pollFirst();
+            if (candidate == null) {
+                return false;
+            }
+            if (entries.get(candidate.key) != candidate) {
+                continue;
+            }
+            if (sketch.frequency(candidate.key) >= frequency) {
+                evictionOrder.addLast(candidate);
+                return false;
+            }
+            entries.remove(candidate.key, candidate);
+            evictions.increment();
+        }
+        return true;
+    }
+
+    private boolean invalidatedSince(String key, long stamp) {
+        return lastInvalidation.get(stripe(key)) > stamp;
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % INVALIDATION_STRIPES;
+    }
+
+    private static final class Node {
+
+        final String key;
+        final ByteString json;
+
+        Node(String key, ByteString json) {
+            this.key = key;
+            this.json = json;
+        }
+    }
+
+    private static final class Metrics extends CacheMeterBinder<JsonResponseCache> {
+
+        private final JsonResponseCache cache;
+
+        Metrics(JsonResponseCache cache, String name) {
+            super(cache, name, Tags.empty());
+            this.cache = cache;
+        }
+
+        @Override
+        protected Long size() {
+            return cache.size();
+        }
+
+        @Override
+        protected long hitCount() {
+            return cache.hits.sum();
+        }
+
+        @Override
+        protected Long missCount() {
+            return cache.misses.sum();
+        }
+
+        @Override
+        protected Long evictionCount() {
+            return cache.evictions.sum();
+        }
+
+        @Override
+        protected long putCount() {
+            return cache.puts.sum();
+        }
+
+        @Override
+        protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+            FunctionCounter.builder("cache.rejections", cache, c -> c.rejections.sum())
+                    .tags(getTagsWithCacheName())
+                    .description("Responses not cached because the admission policy preferred the entries already cached")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.appgarage.pekkocrudapi.config;
+
+import com.appgarage.pekkocrudapi.actor.TrackingDetailMessages;
+import com.appgarage.pekkocrudapi.cache.IdempotencyCache;
+import com.appgarage.pekkocrudapi.cache.JsonResponseCache;
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the response caches.
+ * GET /api/tracking-details/{trackingNumber} on the Pekko HTTP port answers from a JsonResponseCache of up to
+ * tracking.response-cache.max-entries encoded tracking details, which TrackingDetailActor invalidates on every
+ * update and delete. Its hit and miss counts are published as cache.gets{cache=tracking-details}.
+ * POST /api/tracking-details requests with an Idempotency-Key are recorded for tracking.idempotency.window-seconds
+ * in an IdempotencyCache of tracking.idempotency.max-entries slots, published as cache.gets{cache=tracking-idempotency}.
+ */
+@Configuration
+public class CacheConfig {
+
+    private static final String TRACKING_DETAILS = "tracking-details";
+    private static final String TRACKING_IDEMPOTENCY = "tracking-idempotency";
+
+    @Value("${tracking.response-cache.max-entries:10000}")
+    private int trackingDetailMaxEntries;
+
+    @Value("${tracking.idempotency.max-entries:262144}")
+    private int idempotencyMaxEntries;
+
+    @Value("${tracking.idempotency.window-seconds:300}")
+    private long idempotencyWindowSeconds;
+
+    @Bean
+    public JsonResponseCache trackingDetailResponseCache(MeterRegistry meterRegistry) {
+        JsonResponseCache cache = new JsonResponseCache(trackingDetailMaxEntries);
+        cache.bindTo(meterRegistry, TRACKING_DETAILS);
+        return cache;
+    }
+
+    @Bean
+    public IdempotencyCache<TrackingDetail, TrackingDetailMessages.TrackingDetailResponse> trackingDetailIdempotencyCache(MeterRegistry meterRegistry) {
+        IdempotencyCache<TrackingDetail, TrackingDetailMessages.TrackingDetailResponse> cache = new IdempotencyCache<>(idempotencyMaxEntries, idempotencyWindowSeconds);
+        cache.bindTo(meterRegistry, TRACKING_IDEMPOTENCY);
+        return cache;
+    }
+}
@@ -0,0 +1,23 @@
+package com.appgarage.pekkocrudapi.config;
+
+import com.appgarage.pekkocrudapi.metrics.ActorMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.pekko.actor.ActorSystem;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the actor metrics.
+ * Publishes the actor system's meters (see ActorMetrics) to the application's MeterRegistry, which
+ * Spring Boot Actuator exposes at /actuator/prometheus next to its JVM and Spring MVC metrics.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public ActorMetrics actorMetrics(ActorSystem actorSystem, MeterRegistry meterRegistry) {
+        ActorMetrics actorMetrics = ActorMetrics.get(actorSystem);
+        actorMetrics.bind(meterRegistry);
+        return actorMetrics;
+    }
+}
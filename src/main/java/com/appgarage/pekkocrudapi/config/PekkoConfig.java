@@ -1,18 +1,70 @@
 package com.appgarage.pekkocrudapi.config;
 
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
 import org.apache.pekko.actor.ActorSystem;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.PropertySource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Configuration for Pekko actor system.
+ * The actor system reads application.conf, overridden by Spring properties whose root key is defined there
+ * (pekko.*, the entity dispatchers, entity-mailbox). Router deployment, dispatcher and mailbox settings can
+ * therefore be set in application.properties, on the command line or in an external properties file.
  */
 @Configuration
 public class PekkoConfig {
 
+    // Spring's notation for list elements, e.g. pekko.cluster.seed-nodes[0]
+    private static final Pattern LIST_ELEMENT = Pattern.compile("(.+)\\[(\\d+)]");
+
     @Bean
-    public ActorSystem actorSystem() {
-        // Create Pekko actor system with default configuration
-        return ActorSystem.create("ProductActorSystem");
+    public ActorSystem actorSystem(ConfigurableEnvironment environment) {
+        // Only application.conf: ConfigFactory's default would also parse application.properties, bypassing Spring
+        Config application = ConfigFactory.parseResources("application.conf");
+        return ActorSystem.create("ProductActorSystem", ConfigFactory.load(springOverrides(environment, application).withFallback(application)));
+    }
+
+    /**
+     * Spring properties overriding keys of the Pekko config, with placeholders resolved and Spring's
+     * precedence applied. HOCON-only syntax needs quoting in the key, e.g.
+     * pekko.actor.deployment."/productRouter/*".dispatcher=product-dispatcher.
+     * Indexed properties become lists, e.g. pekko.cluster.seed-nodes[0]=pekko://ProductActorSystem@127.0.0.1:25520.
+     */
+    static Config springOverrides(ConfigurableEnvironment environment, Config application) {
+        Set<String> rootKeys = application.withFallback(ConfigFactory.defaultReferenceUnresolved()).root().keySet();
+        Map<String, Object> overrides = new HashMap<>();
+        Map<String, TreeMap<Integer, String>> lists = new HashMap<>();
+        for (PropertySource<?> source : environment.getPropertySources()) {
+            if (!(source instanceof EnumerablePropertySource)) {
+                continue;
+            }
+            for (String name : ((EnumerablePropertySource<?>) source).getPropertyNames()) {
+                int dot = name.indexOf('.');
+                if (dot <= 0 || !rootKeys.contains(name.substring(0, dot))) {
+                    continue;
+                }
+                Matcher element = LIST_ELEMENT.matcher(name);
+                if (element.matches()) {
+                    lists.computeIfAbsent(element.group(1), key -> new TreeMap<>())
+                            .putIfAbsent(Integer.valueOf(element.group(2)), environment.getProperty(name));
+                } else if (!overrides.containsKey(name)) {
+                    overrides.put(name, environment.getProperty(name));
+                }
+            }
+        }
+        lists.forEach((name, elements) -> overrides.put(name, new ArrayList<>(elements.values())));
+        return ConfigFactory.parseMap(overrides, "Spring environment");
     }
-}
\ No newline at end of file
+}
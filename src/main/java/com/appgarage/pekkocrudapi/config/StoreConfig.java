@@ -0,0 +1,103 @@
+package com.appgarage.pekkocrudapi.config;
+
+import com.appgarage.pekkocrudapi.model.Product;
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.model.User;
+import com.appgarage.pekkocrudapi.store.CompactTrackingDetailStore;
+import com.appgarage.pekkocrudapi.store.EntityCodec;
+import com.appgarage.pekkocrudapi.store.EntityStore;
+import com.appgarage.pekkocrudapi.store.InMemoryEntityStore;
+import com.appgarage.pekkocrudapi.store.JsonEntityCodec;
+import com.appgarage.pekkocrudapi.store.TrackingDetailBucketStores;
+import com.appgarage.pekkocrudapi.store.TrackingDetailCodec;
+import com.appgarage.pekkocrudapi.store.WalEntityStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Configuration for the storage engine behind ProductStore, UserStore and TrackingDetailStore.
+ * store.engine=memory, the default, keeps entities only in memory; store.engine=wal also logs every write
+ * to store.wal.directory and rebuilds the stores from it on startup. With store.wal.sync a write is acknowledged
+ * only after its group commit is fsynced, and the actor handling it waits for that. store.engine=event-sourced logs
+ * Created, Updated and Deleted events instead; with enable.audit.logging their journal is kept as an
+ * audit trail rather than truncated at each snapshot.
+ * Tracking details are held in a CompactTrackingDetailStore and logged with the binary TrackingDetailCodec;
+ * products and users are held as objects and logged as JSON. In cluster mode every tracking detail bucket has its
+ * own store under store.wal.directory/tracking-detail-buckets.
+ */
+@Configuration
+public class StoreConfig {
+
+    public static final String ENGINE_MEMORY = "memory";
+    public static final String ENGINE_WAL = "wal";
+    public static final String ENGINE_EVENT_SOURCED = "event-sourced";
+
+    @Value("${store.engine:memory}")
+    private String engine;
+
+    @Value("${store.wal.directory:data}")
+    private String directory;
+
+    @Value("${store.wal.sync:true}")
+    private boolean sync;
+
+    @Value("${store.wal.max-batch:1024}")
+    private int maxBatch;
+
+    @Value("${store.wal.snapshot-every:100000}")
+    private long snapshotEvery;
+
+    @Value("${enable.audit.logging:false}")
+    private boolean auditLogging;
+
+    @Bean
+    public EntityStore<Product> productEntityStore(ObjectMapper objectMapper) throws IOException {
+        return createStore("products", new JsonEntityCodec<>(objectMapper, Product.class), new InMemoryEntityStore<>());
+    }
+
+    @Bean
+    public EntityStore<User> userEntityStore(ObjectMapper objectMapper) throws IOException {
+        return createStore("users", new JsonEntityCodec<>(objectMapper, User.class), new InMemoryEntityStore<>());
+    }
+
+    @Bean
+    public EntityStore<TrackingDetail> trackingDetailEntityStore() throws IOException {
+        return createStore("tracking-details", new TrackingDetailCodec(), new CompactTrackingDetailStore());
+    }
+
+    @Bean
+    public TrackingDetailBucketStores trackingDetailBucketStores() {
+        if (!isDurable()) {
+            return TrackingDetailBucketStores.MEMORY;
+        }
+        return new TrackingDetailBucketStores(Paths.get(directory, "tracking-detail-buckets"), sync, maxBatch, snapshotEvery,
+                ENGINE_EVENT_SOURCED.equalsIgnoreCase(engine), auditLogging);
+    }
+
+    private <V> EntityStore<V> createStore(String name, EntityCodec<V> codec, EntityStore<V> memory) throws IOException {
+        if (!isDurable()) {
+            return memory;
+        }
+        return new WalEntityStore<>(Paths.get(directory), name, codec, memory, sync, maxBatch, snapshotEvery,
+                ENGINE_EVENT_SOURCED.equalsIgnoreCase(engine), auditLogging);
+    }
+
+    private boolean isDurable() {
+        boolean eventSourced = ENGINE_EVENT_SOURCED.equalsIgnoreCase(engine);
+        if (auditLogging && !eventSourced) {
+            throw new IllegalArgumentException("enable.audit.logging requires store.engine=" + ENGINE_EVENT_SOURCED);
+        }
+        if (ENGINE_MEMORY.equalsIgnoreCase(engine)) {
+            return false;
+        }
+        if (!ENGINE_WAL.equalsIgnoreCase(engine) && !eventSourced) {
+            throw new IllegalArgumentException("Unknown store engine: " + engine);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,27 @@
+package com.appgarage.pekkocrudapi.controller;
+
+import com.appgarage.pekkocrudapi.actor.MailboxFullException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Answers requests shed by a full actor mailbox with 503 and Retry-After, for all REST controllers.
+ */
+@RestControllerAdvice
+public class OverloadExceptionHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(OverloadExceptionHandler.class);
+
+    @ExceptionHandler(MailboxFullException.class)
+    public ResponseEntity<String> handleMailboxFull(MailboxFullException e) {
+        log.warn("Shedding request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body("Service overloaded, retry later");
+    }
+}
@@ -3,6 +3,8 @@ package com.appgarage.pekkocrudapi.controller;
 import com.appgarage.pekkocrudapi.actor.ProductMessages;
 import com.appgarage.pekkocrudapi.model.Product;
 import com.appgarage.pekkocrudapi.service.ProductService;
+import com.appgarage.pekkocrudapi.store.ProductSearchQuery;
+import com.appgarage.pekkocrudapi.utils.Pagination;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -52,7 +54,11 @@ public class ProductController {
     }
 
     @GetMapping
-    public CompletableFuture<ResponseEntity<?>> getAllProducts() {
+    public CompletableFuture<ResponseEntity<?>> getAllProducts(@RequestParam(required = false) Integer limit,
+                                                          @RequestParam(required = false) String cursor) {
+        if (limit != null || cursor != null) {
+            return getProductsPage(limit, cursor);
+        }
         return productService.getAllProducts()
                 .thenApply(response -> {
                     if (response.getError() != null) {
@@ -62,6 +68,48 @@ public class ProductController {
                 });
     }
 
+    private CompletableFuture<ResponseEntity<?>> getProductsPage(Integer limit, String cursor) {
+        String afterId;
+        try {
+            afterId = Pagination.decodeCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid cursor"));
+        }
+        return productService.getProductsPage(afterId, Pagination.clampLimit(limit))
+                .thenApply(response -> {
+                    if (response.getError() != null) {
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response.getError());
+                    }
+                    ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+                    if (response.getNextCursor() != null) {
+                        ok.header(Pagination.NEXT_CURSOR_HEADER, response.getNextCursor());
+                    }
+                    return ok.body(response.getProducts());
+                });
+    }
+
+    // Returns the limit best matches of q in name and description, or the cheapest products within the price range
+    @GetMapping("/search")
+    public CompletableFuture<ResponseEntity<?>> searchProducts(@RequestParam(required = false) String q,
+                                                               @RequestParam(required = false) Double minPrice,
+                                                               @RequestParam(required = false) Double maxPrice,
+                                                               @RequestParam(required = false) Integer limit) {
+        ProductSearchQuery query = new ProductSearchQuery(q, minPrice, maxPrice);
+        if (!query.hasText() && !query.hasPriceRange()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Search needs q, minPrice or maxPrice"));
+        }
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("minPrice is greater than maxPrice"));
+        }
+        return productService.searchProducts(query, Pagination.clampLimit(limit))
+                .thenApply(response -> {
+                    if (response.getError() != null) {
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response.getError());
+                    }
+                    return ResponseEntity.ok(response.getProducts());
+                });
+    }
+
     @PutMapping("/{id}")
     public CompletableFuture<ResponseEntity<?>> updateProduct(@PathVariable String id, @Valid @RequestBody Product product) {
         return productService.updateProduct(id, product)
@@ -3,6 +3,7 @@ package com.appgarage.pekkocrudapi.controller;
 import com.appgarage.pekkocrudapi.actor.UserMessages;
 import com.appgarage.pekkocrudapi.model.User;
 import com.appgarage.pekkocrudapi.service.UserService;
+import com.appgarage.pekkocrudapi.utils.Pagination;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -33,7 +34,8 @@ public class UserController {
         return userService.createUser(user)
                 .thenApply(response -> {
                     if (response.getError() != null) {
-                        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response.getError());
+                        HttpStatus status = response.isConflict() ? HttpStatus.CONFLICT : HttpStatus.BAD_REQUEST;
+                        return ResponseEntity.status(status).body(response.getError());
                     }
                     return ResponseEntity.status(HttpStatus.CREATED).body(response.getUser());
                 });
@@ -50,8 +52,23 @@ public class UserController {
                 });
     }
 
+    @GetMapping("/by-username/{username}")
+    public CompletableFuture<ResponseEntity<?>> getUserByUsername(@PathVariable String username) {
+        return userService.getUserByUsername(username).thenApply(UserController::foundOrNotFound);
+    }
+
+    // Emails are matched ignoring case
+    @GetMapping("/by-email/{email}")
+    public CompletableFuture<ResponseEntity<?>> getUserByEmail(@PathVariable String email) {
+        return userService.getUserByEmail(email).thenApply(UserController::foundOrNotFound);
+    }
+
     @GetMapping
-    public CompletableFuture<ResponseEntity<?>> getAllUsers() {
+    public CompletableFuture<ResponseEntity<?>> getAllUsers(@RequestParam(required = false) Integer limit,
+                                                          @RequestParam(required = false) String cursor) {
+        if (limit != null || cursor != null) {
+            return getUsersPage(limit, cursor);
+        }
         return userService.getAllUsers()
                 .thenApply(response -> {
                     if (response.getError() != null) {
@@ -61,12 +78,33 @@ public class UserController {
                 });
     }
 
+    private CompletableFuture<ResponseEntity<?>> getUsersPage(Integer limit, String cursor) {
+        String afterId;
+        try {
+            afterId = Pagination.decodeCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid cursor"));
+        }
+        return userService.getUsersPage(afterId, Pagination.clampLimit(limit))
+                .thenApply(response -> {
+                    if (response.getError() != null) {
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response.getError());
+                    }
+                    ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+                    if (response.getNextCursor() != null) {
+                        ok.header(Pagination.NEXT_CURSOR_HEADER, response.getNextCursor());
+                    }
+                    return ok.body(response.getUsers());
+                });
+    }
+
     @PutMapping("/{id}")
     public CompletableFuture<ResponseEntity<?>> updateUser(@PathVariable String id, @Valid @RequestBody User user) {
         return userService.updateUser(id, user)
                 .thenApply(response -> {
                     if (response.getError() != null) {
-                        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response.getError());
+                        HttpStatus status = response.isConflict() ? HttpStatus.CONFLICT : HttpStatus.NOT_FOUND;
+                        return ResponseEntity.status(status).body(response.getError());
                     }
                     return ResponseEntity.ok(response.getUser());
                 });
@@ -82,4 +120,11 @@ public class UserController {
                     return ResponseEntity.noContent().build();
                 });
     }
+
+    private static ResponseEntity<?> foundOrNotFound(UserMessages.UserResponse response) {
+        if (response.getError() != null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response.getError());
+        }
+        return ResponseEntity.ok(response.getUser());
+    }
 }
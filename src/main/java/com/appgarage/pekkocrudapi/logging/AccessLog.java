@@ -0,0 +1,320 @@
+package com.appgarage.pekkocrudapi.logging;
+
+import com.appgarage.pekkocrudapi.metrics.UriTemplates;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.pekko.http.javadsl.model.HttpEntity;
+import org.apache.pekko.http.javadsl.model.HttpRequest;
+import org.apache.pekko.http.javadsl.model.Uri;
+import org.apache.pekko.http.javadsl.server.AllDirectives;
+import org.apache.pekko.http.javadsl.server.Route;
+import org.apache.pekko.util.ByteString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Structured access log for Pekko HTTP routes, kept off the request path.
+ * <p>
+ * A request only decides whether it is logged and captures its fields: successful responses are sampled at
+ * sample-rate, 4xx and 5xx at error-sample-rate, and a route whose level is off or disabled on the
+ * com.appgarage.pekkocrudapi.access logger is skipped. The entry goes into a lock-free AccessLogRing; when the
+ * ring is full it is dropped and counted in access.log.dropped rather than slowing the request down. A daemon
+ * thread drains the ring, formats each entry as key=value pairs and writes it to the logger, so neither
+ * formatting nor the logback appenders run on the HTTP dispatcher.
+ * <p>
+ * Request bodies are only logged when the request entity was received whole, truncated to max-body-bytes, with
+ * the values of the redact-fields JSON fields replaced by ***. Levels are per route, keyed by method and the uri
+ * template of pekko.http.server.requests, e.g. "GET /api/tracking-details/{id}=debug"; a 4xx response is logged
+ * at warn or above and a 5xx at error.
+ */
+@Component
+public class AccessLog extends AllDirectives implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger("com.appgarage.pekkocrudapi.access");
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final String REDACTED = "***";
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final double errorSampleRate;
+    private final boolean includeBody;
+    private final int maxBodyBytes;
+    // Null if no fields are redacted
+    private final Pattern redactedFields;
+    private final Level defaultLevel;
+    // Only the configured templates; levels by method, where a null value turns the route's access log off
+    private final UriTemplates<Map<String, Level>> routeLevels = new UriTemplates<>(0, template -> new HashMap<>());
+    private final boolean hasRouteLevels;
+    private final AccessLogRing<Entry> ring;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    @Autowired
+    public AccessLog(MeterRegistry meterRegistry,
+                     @Value("${tracking.access-log.enabled:true}") boolean enabled,
+                     @Value("${tracking.access-log.buffer-size:8192}") int bufferSize,
+                     @Value("${tracking.access-log.sample-rate:0.01}") double sampleRate,
+                     @Value("${tracking.access-log.error-sample-rate:1.0}") double errorSampleRate,
+                     @Value("${tracking.access-log.include-body:true}") boolean includeBody,
+                     @Value("${tracking.access-log.max-body-bytes:256}") int maxBodyBytes,
+                     @Value("${tracking.access-log.redact-fields:destinationZipCode}") String[] redactFields,
+                     @Value("${tracking.access-log.level:info}") String defaultLevel,
+                     @Value("${tracking.access-log.levels:}") String[] routeLevels) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.errorSampleRate = errorSampleRate;
+        this.includeBody = includeBody;
+        this.maxBodyBytes = maxBodyBytes;
+        this.redactedFields = redactedFieldsPattern(redactFields);
+        this.defaultLevel = parseLevel(defaultLevel);
+        for (String routeLevel : routeLevels) {
+            int separator = routeLevel.lastIndexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Access log level must be METHOD uri-template=level: " + routeLevel);
+            }
+            String[] route = routeLevel.substring(0, separator).trim().split("\\s+", 2);
+            if (route.length < 2) {
+                throw new IllegalArgumentException("Access log level must be METHOD uri-template=level: " + routeLevel);
+            }
+            this.routeLevels.register(route[1]).put(route[0], parseLevel(routeLevel.substring(separator + 1)));
+        }
+        this.hasRouteLevels = routeLevels.length > 0;
+        this.ring = new AccessLogRing<>(bufferSize);
+        this.writer = new Thread(this::writeLoop, "access-log-writer");
+        writer.setDaemon(true);
+        if (enabled) {
+            writer.start();
+        }
+        FunctionCounter.builder("access.log.dropped", dropped, LongAdder::sum)
+                .description("Access log entries dropped because the buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("access.log.buffered", ring, AccessLogRing::size)
+                .description("Access log entries waiting to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Logs the responses of route. The decision and capture happen when the response is ready; everything else
+     * happens on the writer thread.
+     */
+    public Route log(Route route) {
+        if (!enabled) {
+            return route;
+        }
+        return extractRequest(request -> {
+            long start = System.nanoTime();
+            return mapResponse(response -> {
+                record(request, response.status().intValue(), System.nanoTime() - start);
+                return response;
+            }, () -> route);
+        });
+    }
+
+    private void record(HttpRequest request, int status, long nanos) {
+        if (ThreadLocalRandom.current().nextDouble() >= (status >= 400 ? errorSampleRate : sampleRate)) {
+            return;
+        }
+        String method = request.method().value();
+        Level level = level(request, method, status);
+        if (level == null || !isEnabled(level)) {
+            return;
+        }
+        HttpEntity entity = request.entity();
+        long bodyBytes = entity.getContentLengthOption().orElse(-1L);
+        ByteString body = null;
+        if (includeBody && bodyBytes > 0 && entity.isStrict()) {
+            // Copied, so the ring never keeps a whole request body alive
+            body = ((HttpEntity.Strict) entity).getData().take(maxBodyBytes).compact();
+        }
+        if (!ring.offer(new Entry(System.currentTimeMillis(), level, method, request.getUri(), status, nanos, bodyBytes, body))) {
+            dropped.increment();
+        }
+    }
+
+    private Level level(HttpRequest request, String method, int status) {
+        Level level = defaultLevel;
+        if (hasRouteLevels) {
+            Map<String, Level> levels = routeLevels.get(request);
+            if (levels.containsKey(method)) {
+                level = levels.get(method);
+            }
+        }
+        if (level == null) {
+            return null;
+        }
+        if (status >= 500) {
+            return Level.ERROR;
+        }
+        return status >= 400 && level.toInt() < Level.WARN.toInt() ? Level.WARN : level;
+    }
+
+    private void writeLoop() {
+        StringBuilder line = new StringBuilder(256);
+        while (running) {
+            Entry entry = ring.poll();
+            if (entry == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            write(entry, line);
+        }
+        // Whatever was buffered when the application stopped
+        for (Entry entry = ring.poll(); entry != null; entry = ring.poll()) {
+            write(entry, line);
+        }
+    }
+
+    private void write(Entry entry, StringBuilder line) {
+        try {
+            line.setLength(0);
+            line.append("time=").append(Instant.ofEpochMilli(entry.timestamp))
+                    .append(" method=").append(entry.method)
+                    .append(" path=").append(entry.uri.path());
+            entry.uri.rawQueryString().ifPresent(query -> line.append(" query=").append(query));
+            line.append(" status=").append(entry.status)
+                    .append(" duration_ms=").append(String.format(Locale.ROOT, "%.3f", entry.nanos / 1e6));
+            if (entry.bodyBytes > 0) {
+                line.append(" body_bytes=").append(entry.bodyBytes);
+            }
+            if (entry.body != null) {
+                line.append(" body=\"");
+                appendEscaped(line, redact(entry.body.decodeString(StandardCharsets.UTF_8)));
+                if (entry.body.length() < entry.bodyBytes) {
+                    line.append("...");
+                }
+                line.append('"');
+            }
+            String message = line.toString();
+            switch (entry.level) {
+                case ERROR:
+                    log.error(message);
+                    break;
+                case WARN:
+                    log.warn(message);
+                    break;
+                case INFO:
+                    log.info(message);
+                    break;
+                case DEBUG:
+                    log.debug(message);
+                    break;
+                default:
+                    log.trace(message);
+            }
+        } catch (RuntimeException e) {
+            // One bad entry must not stop the writer
+            LoggerFactory.getLogger(AccessLog.class).warn("Failed to write an access log entry", e);
+        }
+    }
+
+    private String redact(String body) {
+        if (redactedFields == null) {
+            return body;
+        }
+        Matcher matcher = redactedFields.matcher(body);
+        return matcher.find() ? matcher.replaceAll("$1\"" + REDACTED + "\"") : body;
+    }
+
+    private static void appendEscaped(StringBuilder line, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c == '\n' || c == '\r') {
+                line.append(' ');
+            } else {
+                line.append(c);
+            }
+        }
+    }
+
+    private static boolean isEnabled(Level level) {
+        switch (level) {
+            case ERROR:
+                return log.isErrorEnabled();
+            case WARN:
+                return log.isWarnEnabled();
+            case INFO:
+                return log.isInfoEnabled();
+            case DEBUG:
+                return log.isDebugEnabled();
+            default:
+                return log.isTraceEnabled();
+        }
+    }
+
+    // Null for off
+    private static Level parseLevel(String level) {
+        String name = level.trim().toUpperCase(Locale.ROOT);
+        return "OFF".equals(name) ? null : Level.valueOf(name);
+    }
+
+    // Matches "field": followed by a string, number, true, false or null value, keeping the name in group 1
+    private static Pattern redactedFieldsPattern(String[] fields) {
+        StringBuilder names = new StringBuilder();
+        for (String field : fields) {
+            if (!field.trim().isEmpty()) {
+                names.append(names.length() == 0 ? "" : "|").append(Pattern.quote(field.trim()));
+            }
+        }
+        if (names.length() == 0) {
+            return null;
+        }
+        return Pattern.compile("(\"(?:" + names + ")\"\\s*:\\s*)(?:\"(?:[^\"\\\\]|\\\\.)*\"?|[-\\w.+]+)");
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (writer.isAlive()) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final long timestamp;
+        private final Level level;
+        private final String method;
+        private final Uri uri;
+        private final int status;
+        private final long nanos;
+        // -1 if unknown, 0 without a body
+        private final long bodyBytes;
+        // At most max-body-bytes, or null if not logged
+        private final ByteString body;
+
+        Entry(long timestamp, Level level, String method, Uri uri, int status, long nanos, long bodyBytes, ByteString body) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.method = method;
+            this.uri = uri;
+            this.status = status;
+            this.nanos = nanos;
+            this.bodyBytes = bodyBytes;
+            this.body = body;
+        }
+    }
+}
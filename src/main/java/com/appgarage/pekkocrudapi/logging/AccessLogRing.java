@@ -0,0 +1,89 @@
+package com.appgarage.pekkocrudapi.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer ring of access log entries, without locks.
+ * <p>
+ * Every slot has a sequence number saying whose turn it is: a producer claims position p by moving the tail
+ * from p to p + 1 when slot p's sequence is p, writes the entry and publishes it by setting the sequence to p + 1.
+ * The consumer takes it when the sequence is head + 1 and hands the slot to the next lap by setting it to
+ * head + capacity. A producer that finds its slot not yet released is a full ring, and the entry is refused
+ * rather than waited for.
+ */
+class AccessLogRing<T> {
+
+    private final Object[] entries;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Only read and written by the consumer
+    private long head;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    AccessLogRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.entries = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the ring is full
+     */
+    boolean offer(T entry) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    entries[index] = entry;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (sequence < position) {
+                // The consumer has not taken this slot's entry from the previous lap yet
+                return false;
+            } else {
+                // Another producer claimed the position first
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest published entry; only called from the consumer thread.
+     * @return null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        T entry = (T) entries[index];
+        entries[index] = null;
+        sequences.lazySet(index, head + entries.length);
+        head++;
+        return entry;
+    }
+
+    int capacity() {
+        return entries.length;
+    }
+
+    /**
+     * Entries claimed but not yet taken, approximately.
+     */
+    long size() {
+        return Math.max(0, tail.get() - head);
+    }
+}
@@ -0,0 +1,216 @@
+package com.appgarage.pekkocrudapi.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.apache.pekko.actor.AbstractExtensionId;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.actor.ExtendedActorSystem;
+import org.apache.pekko.actor.Extension;
+import org.apache.pekko.actor.ExtensionIdProvider;
+import org.apache.pekko.pattern.AskTimeoutException;
+import org.apache.pekko.pattern.Patterns;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pekko extension holding the actor system's meters: message processing time per actor and message type,
+ * mailbox depth per router, ask latency and timeouts, and the dispatcher thread pools.
+ * <p>
+ * Meters are registered in a composite registry, so actors can record before Spring binds the application's
+ * MeterRegistry, and record into nothing when none is bound (as in the benchmarks). Each meter is looked up
+ * once and cached by class or router name; on the hot path recording is a map lookup plus a timer or
+ * LongAdder update, neither of which allocates.
+ */
+public class ActorMetrics implements Extension {
+
+    public static final Id ID = new Id();
+
+    // Dispatcher pools are started by Pekko before the extension exists, so they are handed over by the system's
+    // Settings, the one object of the system that dispatchers see; each system has its own instance, even with the same name
+    private static final Map<ActorSystem.Settings, ActorMetrics> SYSTEMS = new IdentityHashMap<>();
+    private static final Map<ActorSystem.Settings, Map<String, ExecutorService>> PENDING_DISPATCHERS = new IdentityHashMap<>();
+
+    private final CompositeMeterRegistry registry = new CompositeMeterRegistry();
+    private final Map<Class<?>, MessageTimers> messageTimers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> mailboxDepths = new ConcurrentHashMap<>();
+    private final Map<String, Counter> mailboxRejections = new ConcurrentHashMap<>();
+    private final Map<String, Map<Class<?>, AskMeters>> askMeters = new ConcurrentHashMap<>();
+
+    public static ActorMetrics get(ActorSystem system) {
+        return ID.get(system);
+    }
+
+    /**
+     * Publishes every meter of this actor system to the given registry, including meters created earlier.
+     */
+    public void bind(MeterRegistry meterRegistry) {
+        registry.add(meterRegistry);
+    }
+
+    /**
+     * Sends an ask, recording its round trip and counting it if it times out.
+     */
+    public CompletionStage<Object> ask(ActorRef target, Object message, long timeoutMillis) {
+        AskMeters meters = askMeters(target.path().name(), message.getClass());
+        long start = System.nanoTime();
+        CompletionStage<Object> reply = Patterns.ask(target, message, Duration.ofMillis(timeoutMillis));
+        // Returns the ask itself rather than the whenComplete stage, so failures reach callers unwrapped
+        reply.whenComplete((response, failure) -> meters.record(System.nanoTime() - start, failure));
+        return reply;
+    }
+
+    /**
+     * Processing time meters for all instances of one actor class.
+     */
+    public MessageTimers messageTimers(Class<?> actorClass) {
+        MessageTimers timers = messageTimers.get(actorClass);
+        return timers != null ? timers : messageTimers.computeIfAbsent(actorClass, MessageTimers::new);
+    }
+
+    /**
+     * Number of messages queued in the mailboxes of a router's routees.
+     */
+    public LongAdder mailboxDepth(String router) {
+        return mailboxDepths.computeIfAbsent(router, name -> {
+            LongAdder depth = new LongAdder();
+            Gauge.builder("pekko.mailbox.depth", depth, LongAdder::sum)
+                    .description("Messages queued in the routees' mailboxes")
+                    .tag("router", name)
+                    .register(registry);
+            return depth;
+        });
+    }
+
+    /**
+     * Messages a router's routees refused because their bounded mailbox was full.
+     */
+    public Counter mailboxRejections(String router) {
+        return mailboxRejections.computeIfAbsent(router, name -> Counter.builder("pekko.mailbox.rejected")
+                .description("Messages shed because the routee's mailbox was full")
+                .tag("router", name)
+                .register(registry));
+    }
+
+    static void dispatcherStarted(ActorSystem.Settings system, String dispatcherId, ExecutorService executor) {
+        ActorMetrics metrics;
+        synchronized (SYSTEMS) {
+            metrics = SYSTEMS.get(system);
+            if (metrics == null) {
+                PENDING_DISPATCHERS.computeIfAbsent(system, settings -> new HashMap<>()).put(dispatcherId, executor);
+                return;
+            }
+        }
+        metrics.bindDispatcher(dispatcherId, executor);
+    }
+
+    private void bindDispatcher(String dispatcherId, ExecutorService executor) {
+        new ExecutorServiceMetrics(executor, dispatcherId, Tags.empty()).bindTo(registry);
+    }
+
+    /**
+     * Round trip meters of asks of one message type to one target, for asks not sent through {@link #ask}.
+     */
+    public AskMeters askMeters(String target, Class<?> messageType) {
+        Map<Class<?>, AskMeters> byMessage = askMeters.get(target);
+        if (byMessage == null) {
+            byMessage = askMeters.computeIfAbsent(target, name -> new ConcurrentHashMap<>());
+        }
+        AskMeters meters = byMessage.get(messageType);
+        return meters != null ? meters : byMessage.computeIfAbsent(messageType, type -> new AskMeters(target, type));
+    }
+
+    /**
+     * Processing time per message type of one actor class.
+     */
+    public final class MessageTimers {
+
+        private final String actor;
+        private final Map<Class<?>, Timer> timers = new ConcurrentHashMap<>();
+
+        private MessageTimers(Class<?> actorClass) {
+            this.actor = actorClass.getSimpleName();
+        }
+
+        public void record(Class<?> messageType, long nanos) {
+            Timer timer = timers.get(messageType);
+            if (timer == null) {
+                timer = timers.computeIfAbsent(messageType, type -> Timer.builder("pekko.actor.processing")
+                        .description("Time spent in an actor's receive per message type")
+                        .tags("actor", actor, "message", type.getSimpleName())
+                        .register(registry));
+            }
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public final class AskMeters {
+
+        private final Timer latency;
+        private final Counter timeouts;
+
+        private AskMeters(String target, Class<?> messageType) {
+            Tags tags = Tags.of("target", target, "message", messageType.getSimpleName());
+            this.latency = Timer.builder("pekko.ask.latency")
+                    .description("Round trip of asks, from send to reply or failure")
+                    .tags(tags)
+                    .register(registry);
+            this.timeouts = Counter.builder("pekko.ask.timeouts")
+                    .description("Asks that timed out before a reply")
+                    .tags(tags)
+                    .register(registry);
+        }
+
+        /**
+         * Records one round trip, counting it as a timeout if it failed with an AskTimeoutException.
+         */
+        public void record(long nanos, Throwable failure) {
+            latency.record(nanos, TimeUnit.NANOSECONDS);
+            if (failure instanceof AskTimeoutException) {
+                timeouts.increment();
+            }
+        }
+    }
+
+    public static class Id extends AbstractExtensionId<ActorMetrics> implements ExtensionIdProvider {
+
+        @Override
+        public Id lookup() {
+            return ID;
+        }
+
+        @Override
+        public ActorMetrics createExtension(ExtendedActorSystem system) {
+            ActorMetrics metrics = new ActorMetrics();
+            ActorSystem.Settings settings = system.settings();
+            Map<String, ExecutorService> pending;
+            synchronized (SYSTEMS) {
+                SYSTEMS.put(settings, metrics);
+                pending = PENDING_DISPATCHERS.remove(settings);
+            }
+            if (pending != null) {
+                pending.forEach(metrics::bindDispatcher);
+            }
+            system.registerOnTermination(() -> {
+                synchronized (SYSTEMS) {
+                    SYSTEMS.remove(settings);
+                    PENDING_DISPATCHERS.remove(settings);
+                }
+            });
+            return metrics;
+        }
+    }
+}
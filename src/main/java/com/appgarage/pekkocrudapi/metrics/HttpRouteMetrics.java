@@ -0,0 +1,123 @@
+package com.appgarage.pekkocrudapi.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.http.Outcome;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.apache.pekko.http.javadsl.model.ContentType;
+import org.apache.pekko.http.javadsl.model.ContentTypes;
+import org.apache.pekko.http.javadsl.model.HttpEntities;
+import org.apache.pekko.http.javadsl.model.HttpRequest;
+import org.apache.pekko.http.javadsl.server.AllDirectives;
+import org.apache.pekko.http.javadsl.server.PathMatchers;
+import org.apache.pekko.http.javadsl.server.Route;
+import org.apache.pekko.util.ByteString;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request timing for the Pekko HTTP routes, published as pekko.http.server.requests with the same
+ * method, uri, status and outcome tags Spring MVC uses for http.server.requests.
+ * The uri tag is a template: path segments after /api/{resource} become {id} unless they name an
+ * action like _batch, search or by-email, and at most
+ * management.metrics.web.server.max-uri-tags distinct templates are kept.
+ * Requests are matched to their template and timer without building strings; see UriTemplates.
+ */
+@Component
+public class HttpRouteMetrics extends AllDirectives {
+
+    private static final ContentType PROMETHEUS_TEXT = ContentTypes.parse(TextFormat.CONTENT_TYPE_004);
+
+    private final MeterRegistry meterRegistry;
+    private final UriTemplates<RouteTimers> routes;
+
+    @Autowired
+    public HttpRouteMetrics(MeterRegistry meterRegistry, @Value("${management.metrics.web.server.max-uri-tags:100}") int maxUriTags) {
+        this.meterRegistry = meterRegistry;
+        this.routes = new UriTemplates<>(maxUriTags, RouteTimers::new);
+    }
+
+    /**
+     * Seals a route and times every response from the moment the request reached it.
+     * Sealing first means rejected requests are timed with the status they are answered with.
+     */
+    public Route instrument(Route route) {
+        return extractRequest(request -> {
+            long start = System.nanoTime();
+            return mapResponse(response -> {
+                timer(request, response.status().intValue()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return response;
+            }, route::seal);
+        });
+    }
+
+    /**
+     * GET /actuator/prometheus, for http.stack=pekko where Spring MVC and its actuator endpoints are not started.
+     */
+    public Route prometheusScrape(PrometheusMeterRegistry prometheusRegistry) {
+        return path(PathMatchers.segment("actuator").slash("prometheus"), () ->
+                get(() -> complete(HttpEntities.create(PROMETHEUS_TEXT, ByteString.fromString(prometheusRegistry.scrape())))));
+    }
+
+    private Timer timer(HttpRequest request, int status) {
+        return routes.get(request).timer(request.method().value(), status);
+    }
+
+    /**
+     * The timers of one uri template, created as its methods and statuses are first seen.
+     */
+    private final class RouteTimers {
+
+        private final String uri;
+        // Copied on write; a route answers a handful of method and status pairs
+        private volatile StatusTimer[] timers = new StatusTimer[0];
+
+        RouteTimers(String uri) {
+            this.uri = uri;
+        }
+
+        Timer timer(String method, int status) {
+            for (StatusTimer timer : timers) {
+                if (timer.status == status && timer.method.equals(method)) {
+                    return timer.timer;
+                }
+            }
+            return register(method, status);
+        }
+
+        private synchronized Timer register(String method, int status) {
+            StatusTimer[] current = timers;
+            for (StatusTimer timer : current) {
+                if (timer.status == status && timer.method.equals(method)) {
+                    return timer.timer;
+                }
+            }
+            Timer timer = Timer.builder("pekko.http.server.requests")
+                    .description("Pekko HTTP request handling, until the response is ready to be sent")
+                    .tags("method", method, "uri", uri, "status", Integer.toString(status),
+                            "outcome", Outcome.forStatus(status).name())
+                    .register(meterRegistry);
+            StatusTimer[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = new StatusTimer(method, status, timer);
+            timers = grown;
+            return timer;
+        }
+    }
+
+    private static final class StatusTimer {
+        private final String method;
+        private final int status;
+        private final Timer timer;
+
+        StatusTimer(String method, int status, Timer timer) {
+            this.method = method;
+            this.status = status;
+            this.timer = timer;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.appgarage.pekkocrudapi.metrics;
+
+import com.typesafe.config.Config;
+import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.dispatch.DispatcherPrerequisites;
+import org.apache.pekko.dispatch.ExecutorServiceConfigurator;
+import org.apache.pekko.dispatch.ExecutorServiceFactory;
+import org.apache.pekko.dispatch.ForkJoinExecutorConfigurator;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Dispatcher executor that builds the regular fork-join pool from the dispatcher's fork-join-executor
+ * section and hands it to ActorMetrics, which publishes its pool size, active, queued and steal counts.
+ * Enabled with executor = "com.appgarage.pekkocrudapi.metrics.InstrumentedExecutorConfigurator".
+ */
+public class InstrumentedExecutorConfigurator extends ExecutorServiceConfigurator {
+
+    private final ForkJoinExecutorConfigurator forkJoin;
+    private final ActorSystem.Settings system;
+
+    public InstrumentedExecutorConfigurator(Config config, DispatcherPrerequisites prerequisites) {
+        super(config, prerequisites);
+        this.forkJoin = new ForkJoinExecutorConfigurator(config.getConfig("fork-join-executor"), prerequisites);
+        this.system = prerequisites.settings();
+    }
+
+    @Override
+    public ExecutorServiceFactory createExecutorServiceFactory(String id, ThreadFactory threadFactory) {
+        ExecutorServiceFactory factory = forkJoin.createExecutorServiceFactory(id, threadFactory);
+        return () -> {
+            ExecutorService executor = factory.createExecutorService();
+            ActorMetrics.dispatcherStarted(system, id, executor);
+            return executor;
+        };
+    }
+}
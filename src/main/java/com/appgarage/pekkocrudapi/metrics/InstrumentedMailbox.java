@@ -0,0 +1,120 @@
+package com.appgarage.pekkocrudapi.metrics;
+
+import com.appgarage.pekkocrudapi.actor.EntityCommand;
+import com.appgarage.pekkocrudapi.actor.MailboxFullException;
+import com.typesafe.config.Config;
+import io.micrometer.core.instrument.Counter;
+import org.apache.pekko.actor.ActorPath;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.actor.Status;
+import org.apache.pekko.dispatch.Envelope;
+import org.apache.pekko.dispatch.MailboxType;
+import org.apache.pekko.dispatch.MessageQueue;
+import org.apache.pekko.dispatch.ProducesMessageQueue;
+import org.apache.pekko.dispatch.UnboundedMailbox;
+import scala.Option;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mailbox that keeps ActorMetrics' mailbox depth of the owner's router up to date and can shed load.
+ * Only routees of top-level routers (/user/router/routee) are counted. With mailbox-capacity set, a message
+ * arriving at a full mailbox is not queued: its sender (the replyTo of an EntityCommand) gets a Status.Failure with a MailboxFullException
+ * right away, so an ask fails fast instead of timing out. Without it the mailbox is unbounded.
+ * The queue keeps its own size, so numberOfMessages (read by smallest-mailbox routing and the
+ * optimal-size-exploring resizer on every message) is O(1) instead of walking the queue.
+ * <p>
+ * Settings: mailbox-capacity (messages per actor) and retry-after (passed on in the MailboxFullException).
+ * Enabled with mailbox-type = "com.appgarage.pekkocrudapi.metrics.InstrumentedMailbox".
+ */
+public class InstrumentedMailbox implements MailboxType, ProducesMessageQueue<UnboundedMailbox.MessageQueue> {
+
+    private final int capacity;
+    private final long retryAfterSeconds;
+
+    public InstrumentedMailbox(ActorSystem.Settings settings, Config config) {
+        this.capacity = config.hasPath("mailbox-capacity") ? config.getInt("mailbox-capacity") : 0;
+        this.retryAfterSeconds = config.hasPath("retry-after") ? config.getDuration("retry-after", TimeUnit.SECONDS) : 1;
+        if (capacity < 0) {
+            throw new IllegalArgumentException("mailbox-capacity must be positive, or 0 for unbounded: " + capacity);
+        }
+    }
+
+    @Override
+    public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system) {
+        LongAdder depth = null;
+        Counter rejected = null;
+        if (owner.isDefined() && system.isDefined()) {
+            ActorPath router = owner.get().path().parent();
+            if ("/user".equals(router.parent().toStringWithoutAddress())) {
+                ActorMetrics metrics = ActorMetrics.get(system.get());
+                depth = metrics.mailboxDepth(router.name());
+                rejected = metrics.mailboxRejections(router.name());
+            }
+        }
+        if (depth == null && capacity == 0) {
+            return new UnboundedMailbox.MessageQueue();
+        }
+        return new CountingMessageQueue(capacity, retryAfterSeconds, depth, rejected);
+    }
+
+    static class CountingMessageQueue extends UnboundedMailbox.MessageQueue {
+
+        private final int capacity;
+        private final long retryAfterSeconds;
+        private final AtomicInteger size;
+        private final LongAdder depth;
+        private final Counter rejected;
+
+        CountingMessageQueue(int capacity, long retryAfterSeconds, LongAdder depth, Counter rejected) {
+            this.capacity = capacity;
+            this.retryAfterSeconds = retryAfterSeconds;
+            this.size = new AtomicInteger();
+            this.depth = depth;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public void enqueue(ActorRef receiver, Envelope handle) {
+            int queued = size.incrementAndGet();
+            if (capacity > 0 && queued > capacity) {
+                size.decrementAndGet();
+                if (rejected != null) {
+                    rejected.increment();
+                }
+                Status.Failure failure = new Status.Failure(new MailboxFullException(receiver.path().toString(), capacity, retryAfterSeconds));
+                if (handle.message() instanceof EntityCommand) {
+                    // Sent through the ReplyPool, so the failure goes to the command's replyTo with its correlation id
+                    ((EntityCommand) handle.message()).reply(failure);
+                } else {
+                    handle.sender().tell(failure, receiver);
+                }
+                return;
+            }
+            super.enqueue(receiver, handle);
+            if (depth != null) {
+                depth.increment();
+            }
+        }
+
+        @Override
+        public Envelope dequeue() {
+            Envelope envelope = super.dequeue();
+            if (envelope != null) {
+                size.decrementAndGet();
+                if (depth != null) {
+                    depth.decrement();
+                }
+            }
+            return envelope;
+        }
+
+        @Override
+        public int numberOfMessages() {
+            return size.get();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.appgarage.pekkocrudapi.metrics;
+
+import org.apache.pekko.http.javadsl.model.HttpRequest;
+import org.apache.pekko.http.scaladsl.model.Uri;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bounded set of the uri templates of request paths, each with a value for callers to keep per-route state in.
+ * In a template the path segments after /api/{resource} become {id} unless they name an action like _batch,
+ * search or by-email.
+ * <p>
+ * A request is matched by walking the segments of its parsed path, hashing them as they would appear in the
+ * template, and probing a table of the templates seen so far, so a known route costs no allocation. The template
+ * string and its value are only created the first time a template is seen; once maxTemplates have been added,
+ * new templates share the value of {@value #OTHER}, also without allocating. Reads are a volatile load and a
+ * probe; additions take a lock and publish a copy of the table.
+ *
+ * @param <T> per-template value
+ */
+public class UriTemplates<T> {
+
+    public static final String OTHER = "OTHER";
+    private static final String ID = "{id}";
+    // Fixed words under /api/{resource}; anything else there is an id
+    private static final Set<String> ACTIONS = new HashSet<>(Arrays.asList("search", "by-username", "by-email"));
+
+    private final int maxTemplates;
+    private final Function<String, T> values;
+    private final T other;
+    // Open addressing, at most half full; replaced, never written in place, once published
+    private volatile Template<T>[] table = newTable(8);
+    // Set once maxTemplates have been added, so new templates go to OTHER without taking the lock
+    private volatile boolean full;
+    // Guarded by this
+    private int added;
+    private int size;
+
+    /**
+     * @param maxTemplates templates added as they are first seen; registered ones do not count
+     * @param values creates the value of a template the first time it is seen
+     */
+    public UriTemplates(int maxTemplates, Function<String, T> values) {
+        this.maxTemplates = maxTemplates;
+        this.values = values;
+        this.other = values.apply(OTHER);
+        this.full = maxTemplates <= 0;
+    }
+
+    /**
+     * The value of the template of the request's path, or of {@value #OTHER} if that template is new and
+     * maxTemplates have been added already.
+     */
+    public T get(HttpRequest request) {
+        // Every javadsl request is a scaladsl one, whose parsed path can be walked without rendering it
+        Uri.Path path = ((org.apache.pekko.http.scaladsl.model.HttpRequest) request).uri().path();
+        int hash = hash(path);
+        Template<T>[] current = table;
+        int mask = current.length - 1;
+        for (int i = spread(hash) & mask; current[i] != null; i = (i + 1) & mask) {
+            Template<T> template = current[i];
+            if (template.hash == hash && template.matches(path)) {
+                return template.value;
+            }
+        }
+        return full ? other : add(path, hash);
+    }
+
+    /**
+     * Adds a template ahead of the requests using it, e.g. one named in configuration, regardless of maxTemplates.
+     *
+     * @throws IllegalArgumentException if no request path has this template
+     */
+    public synchronized T register(String template) {
+        List<String> parts = new ArrayList<>();
+        for (String part : template.split("/")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            boolean literal = isLiteral(parts.size(), part);
+            if (literal == ID.equals(part)) {
+                throw new IllegalArgumentException("Not a uri template: " + template);
+            }
+            parts.add(literal ? part : null);
+        }
+        String[] segments = parts.toArray(new String[0]);
+        int hash = hash(segments);
+        Template<T> existing = find(segments, hash);
+        if (existing != null) {
+            return existing.value;
+        }
+        return insert(segments, hash).value;
+    }
+
+    private synchronized T add(Uri.Path path, int hash) {
+        List<String> parts = new ArrayList<>();
+        for (Uri.Path rest = path; !rest.isEmpty(); rest = rest.tail()) {
+            if (rest.startsWithSegment()) {
+                String segment = (String) rest.head();
+                parts.add(isLiteral(parts.size(), segment) ? segment : null);
+            }
+        }
+        String[] segments = parts.toArray(new String[0]);
+        // Another request may have added it since the table was read
+        Template<T> existing = find(segments, hash);
+        if (existing != null) {
+            return existing.value;
+        }
+        if (added >= maxTemplates) {
+            return other;
+        }
+        full = ++added >= maxTemplates;
+        return insert(segments, hash).value;
+    }
+
+    // Called with the lock held
+    private Template<T> find(String[] segments, int hash) {
+        Template<T>[] current = table;
+        int mask = current.length - 1;
+        for (int i = spread(hash) & mask; current[i] != null; i = (i + 1) & mask) {
+            if (current[i].hash == hash && Arrays.equals(current[i].segments, segments)) {
+                return current[i];
+            }
+        }
+        return null;
+    }
+
+    // Called with the lock held
+    private Template<T> insert(String[] segments, int hash) {
+        Template<T> template = new Template<>(segments, hash, values.apply(render(segments)));
+        Template<T>[] current = table;
+        Template<T>[] copy = newTable((size + 1) * 2 > current.length ? current.length * 2 : current.length);
+        for (Template<T> t : current) {
+            if (t != null) {
+                put(copy, t);
+            }
+        }
+        put(copy, template);
+        size++;
+        table = copy;
+        return template;
+    }
+
+    private static <T> void put(Template<T>[] table, Template<T> template) {
+        int mask = table.length - 1;
+        int i = spread(template.hash) & mask;
+        while (table[i] != null) {
+            i = (i + 1) & mask;
+        }
+        table[i] = template;
+    }
+
+    /**
+     * Whether the index'th segment of a path stays as it is in the template, rather than becoming {id}.
+     */
+    static boolean isLiteral(int index, String segment) {
+        return index < 2 || segment.startsWith("_") || (index == 2 && ACTIONS.contains(segment));
+    }
+
+    // The same as hash(segments) for the segments of the path's template
+    private static int hash(Uri.Path path) {
+        int hash = 1;
+        int index = 0;
+        for (Uri.Path rest = path; !rest.isEmpty(); rest = rest.tail()) {
+            if (rest.startsWithSegment()) {
+                String segment = (String) rest.head();
+                hash = 31 * hash + (isLiteral(index, segment) ? segment.hashCode() : 0);
+                index++;
+            }
+        }
+        return hash;
+    }
+
+    // A null segment is {id}
+    private static int hash(String[] segments) {
+        int hash = 1;
+        for (String segment : segments) {
+            hash = 31 * hash + (segment != null ? segment.hashCode() : 0);
+        }
+        return hash;
+    }
+
+    private static String render(String[] segments) {
+        if (segments.length == 0) {
+            return "/";
+        }
+        StringBuilder template = new StringBuilder();
+        for (String segment : segments) {
+            template.append('/').append(segment != null ? segment : ID);
+        }
+        return template.toString();
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Template<T>[] newTable(int size) {
+        return (Template<T>[]) new Template<?>[size];
+    }
+
+    private static final class Template<T> {
+        // Null for {id}
+        private final String[] segments;
+        private final int hash;
+        private final T value;
+
+        Template(String[] segments, int hash, T value) {
+            this.segments = segments;
+            this.hash = hash;
+            this.value = value;
+        }
+
+        boolean matches(Uri.Path path) {
+            int index = 0;
+            for (Uri.Path rest = path; !rest.isEmpty(); rest = rest.tail()) {
+                if (!rest.startsWithSegment()) {
+                    continue;
+                }
+                if (index == segments.length) {
+                    return false;
+                }
+                String segment = (String) rest.head();
+                String expected = segments[index];
+                if (isLiteral(index, segment) ? !segment.equals(expected) : expected != null) {
+                    return false;
+                }
+                index++;
+            }
+            return index == segments.length;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.appgarage.pekkocrudapi.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Result of one operation in a tracking detail batch request.
+ * Status is the HTTP status the operation would have returned on its own.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+
+    @JsonProperty("index")
+    private int index;
+
+    @JsonProperty("op")
+    private String op;
+
+    @JsonProperty("trackingNumber")
+    private String trackingNumber;
+
+    @JsonProperty("status")
+    private int status;
+
+    @JsonProperty("trackingDetail")
+    private TrackingDetail trackingDetail;
+
+    @JsonProperty("error")
+    private ErrorMessage error;
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public String getTrackingNumber() {
+        return trackingNumber;
+    }
+
+    public void setTrackingNumber(String trackingNumber) {
+        this.trackingNumber = trackingNumber;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public TrackingDetail getTrackingDetail() {
+        return trackingDetail;
+    }
+
+    public void setTrackingDetail(TrackingDetail trackingDetail) {
+        this.trackingDetail = trackingDetail;
+    }
+
+    public ErrorMessage getError() {
+        return error;
+    }
+
+    public void setError(ErrorMessage error) {
+        this.error = error;
+    }
+}
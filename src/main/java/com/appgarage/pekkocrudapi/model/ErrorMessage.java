@@ -20,6 +20,15 @@ public class ErrorMessage {
     @JsonProperty("trackingNumber")
     private String trackingNumber;
 
+    public ErrorMessage() {
+    }
+
+    public ErrorMessage(String apiVersion, String returnCode, String message) {
+        this.apiVersion = apiVersion;
+        this.returnCode = returnCode;
+        this.message = message;
+    }
+
     public String getApiVersion() {
         return apiVersion;
     }
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import javax.validation.constraints.NotBlank;
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.util.Objects;
 
 /**
  * TrackingDetail model representing a tracking entity with validation constraints.
@@ -60,4 +61,24 @@ public class TrackingDetail implements Serializable {
     public void setDestinationZipCode(String destinationZipCode) {
         this.destinationZipCode = destinationZipCode;
     }
+
+    // Value equality, so stores that rebuild objects from their encoded form can still compare-and-set
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TrackingDetail)) {
+            return false;
+        }
+        TrackingDetail other = (TrackingDetail) o;
+        return Objects.equals(trackingNumber, other.trackingNumber)
+                && Objects.equals(mailingDate, other.mailingDate)
+                && Objects.equals(destinationZipCode, other.destinationZipCode);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(trackingNumber, mailingDate, destinationZipCode);
+    }
 }
\ No newline at end of file
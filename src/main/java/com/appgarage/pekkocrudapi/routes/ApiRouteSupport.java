@@ -0,0 +1,78 @@
+package com.appgarage.pekkocrudapi.routes;
+
+import com.appgarage.pekkocrudapi.actor.MailboxFullException;
+import org.apache.pekko.http.javadsl.model.StatusCodes;
+import org.apache.pekko.http.javadsl.model.headers.RawHeader;
+import org.apache.pekko.http.javadsl.server.ExceptionHandler;
+import org.apache.pekko.http.javadsl.server.Route;
+import org.apache.pekko.http.javadsl.unmarshalling.Unmarshaller;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import static org.apache.pekko.http.javadsl.server.Directives.*;
+
+/**
+ * Request handling shared by the Pekko HTTP routes for products and users, matching what Spring MVC does for
+ * ProductController and UserController: @Valid request bodies and OverloadExceptionHandler's 503 for shed requests.
+ */
+final class ApiRouteSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiRouteSupport.class);
+
+    private ApiRouteSupport() {
+    }
+
+    /**
+     * Answers requests shed by a full actor mailbox with 503 and Retry-After, like OverloadExceptionHandler.
+     */
+    static ExceptionHandler overloadHandler() {
+        return ExceptionHandler.newBuilder()
+                .match(MailboxFullException.class, ApiRouteSupport::overloaded)
+                .match(CompletionException.class, e -> e.getCause() instanceof MailboxFullException,
+                        e -> overloaded((MailboxFullException) e.getCause()))
+                .build();
+    }
+
+    /**
+     * Reads a JSON request body of the given type within the entity size limit and validates it like
+     * {@code @Valid @RequestBody}: 400 if it is not valid JSON or breaks a constraint.
+     */
+    static <T> Route validEntity(JsonEntitySupport jsonEntitySupport, Validator validator, Class<T> type, Function<T, Route> inner) {
+        return withSizeLimit(jsonEntitySupport.getMaxEntityBytes(), () ->
+                entity(Unmarshaller.entityToByteString(), content -> {
+                    T value;
+                    try {
+                        value = jsonEntitySupport.read(content, type);
+                    } catch (IOException e) {
+                        return complete(StatusCodes.BAD_REQUEST, "Invalid JSON format: " + e.getMessage());
+                    }
+                    if (value == null) {
+                        return complete(StatusCodes.BAD_REQUEST, "Request body is missing");
+                    }
+                    Set<ConstraintViolation<T>> violations = validator.validate(value);
+                    if (!violations.isEmpty()) {
+                        // Sorted, so the same body always gets the same message
+                        Set<String> messages = new TreeSet<>();
+                        for (ConstraintViolation<T> violation : violations) {
+                            messages.add(violation.getPropertyPath() + ": " + violation.getMessage());
+                        }
+                        return complete(StatusCodes.BAD_REQUEST, "Validation failed: " + String.join(", ", messages));
+                    }
+                    return inner.apply(value);
+                }));
+    }
+
+    private static Route overloaded(MailboxFullException e) {
+        log.warn("Shedding request: {}", e.getMessage());
+        return respondWithHeader(RawHeader.create("Retry-After", Long.toString(e.getRetryAfterSeconds())), () ->
+                complete(StatusCodes.SERVICE_UNAVAILABLE, "Service overloaded, retry later"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.appgarage.pekkocrudapi.routes;
+
+import com.appgarage.pekkocrudapi.actor.EntityListResponse;
+import com.appgarage.pekkocrudapi.actor.EntityResponse;
+import com.appgarage.pekkocrudapi.utils.Pagination;
+import org.apache.pekko.http.javadsl.model.ContentTypes;
+import org.apache.pekko.http.javadsl.model.HttpEntities;
+import org.apache.pekko.http.javadsl.model.HttpResponse;
+import org.apache.pekko.http.javadsl.model.ResponseEntity;
+import org.apache.pekko.http.javadsl.model.StatusCode;
+import org.apache.pekko.http.javadsl.model.StatusCodes;
+import org.apache.pekko.http.javadsl.model.headers.RawHeader;
+import org.apache.pekko.http.javadsl.server.AllDirectives;
+import org.apache.pekko.http.javadsl.server.Route;
+
+import java.util.function.Function;
+
+/**
+ * Base class of the Pekko HTTP entity routes, which complete every actor response on one shared path instead of an
+ * ask, type check, error and complete block per operation.
+ * Completions are created once per route and reused by all requests, entities are written by the shared
+ * JsonEntitySupport writer straight into strict entities without marshaller lookups, and errors that do not depend
+ * on the request are encoded once into immutable responses.
+ *
+ * @param <V> entity type
+ * @param <E> error body: a message text for products and users, an ErrorMessage for tracking details
+ */
+public abstract class EntityRoute<V, E> extends AllDirectives {
+
+    protected final JsonEntitySupport jsonEntitySupport;
+    private final Function<E, ResponseEntity> errorEntity;
+
+    /**
+     * @param errorEntity encodes an error body, e.g. {@link #textEntity(String)} for message texts
+     */
+    protected EntityRoute(JsonEntitySupport jsonEntitySupport, Function<E, ResponseEntity> errorEntity) {
+        this.jsonEntitySupport = jsonEntitySupport;
+        this.errorEntity = errorEntity;
+    }
+
+    protected static ResponseEntity textEntity(String text) {
+        return HttpEntities.create(ContentTypes.TEXT_PLAIN_UTF8, text);
+    }
+
+    /**
+     * A response with an error body. Errors that do not depend on the request are created once and kept.
+     */
+    protected final HttpResponse errorResponse(StatusCode status, E error) {
+        return HttpResponse.create().withStatus(status).withEntity(errorEntity.apply(error));
+    }
+
+    protected final HttpResponse jsonResponse(StatusCode status, Object value) {
+        return HttpResponse.create().withStatus(status).withEntity(HttpEntities.create(ContentTypes.APPLICATION_JSON, jsonEntitySupport.write(value)));
+    }
+
+    /**
+     * Completes responses for one entity: the entity with okStatus, or the error with errorStatus
+     * (409 Conflict if the error is a conflict).
+     */
+    protected final <R extends EntityResponse<V, E>> Function<R, Route> entityOrError(StatusCode okStatus, StatusCode errorStatus) {
+        return response -> {
+            if (response.getError() != null) {
+                return complete(errorResponse(response.isConflict() ? StatusCodes.CONFLICT : errorStatus, response.getError()));
+            }
+            return complete(jsonResponse(okStatus, response.getEntity()));
+        };
+    }
+
+    /**
+     * Completes responses to deletes: 204 No Content, or the error with 404.
+     */
+    protected final <R extends EntityResponse<V, E>> Function<R, Route> deletedOrNotFound() {
+        return response -> {
+            if (response.getError() != null) {
+                return complete(errorResponse(StatusCodes.NOT_FOUND, response.getError()));
+            }
+            return complete(StatusCodes.NO_CONTENT);
+        };
+    }
+
+    /**
+     * Completes lists and pages: the entities, with the next page's cursor in the X-Next-Cursor header unless it was
+     * the last page, or the error with 500.
+     */
+    protected final <L extends EntityListResponse<V, E>> Function<L, Route> listOrError() {
+        return response -> {
+            if (response.getError() != null) {
+                return complete(errorResponse(StatusCodes.INTERNAL_SERVER_ERROR, response.getError()));
+            }
+            HttpResponse ok = jsonResponse(StatusCodes.OK, response.getEntities());
+            if (response.getNextCursor() != null) {
+                ok = ok.addHeader(RawHeader.create(Pagination.NEXT_CURSOR_HEADER, response.getNextCursor()));
+            }
+            return complete(ok);
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package com.appgarage.pekkocrudapi.routes;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.pekko.NotUsed;
+import org.apache.pekko.stream.javadsl.Flow;
+import org.apache.pekko.stream.javadsl.JsonFraming;
+import org.apache.pekko.util.ByteString;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * JSON request and response body support for the Pekko HTTP routes.
+ * Bodies are parsed by Jackson straight from the entity bytes instead of being decoded into a String first,
+ * and batch bodies are framed one array element at a time so memory stays bounded by the element size.
+ * Responses are written by one ObjectWriter shared by all routes.
+ */
+@Component
+public class JsonEntitySupport {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
+    private final long maxEntityBytes;
+    private final long maxBatchEntityBytes;
+    private final int maxBatchElementBytes;
+    private final int batchChunkSize;
+
+    @Autowired
+    public JsonEntitySupport(ObjectMapper objectMapper,
+                             @Value("${tracking.http.max-entity-bytes:65536}") long maxEntityBytes,
+                             @Value("${tracking.http.batch.max-entity-bytes:268435456}") long maxBatchEntityBytes,
+                             @Value("${tracking.http.batch.max-element-bytes:65536}") int maxBatchElementBytes,
+                             @Value("${tracking.http.batch.chunk-size:1000}") int batchChunkSize) {
+        this.objectMapper = objectMapper;
+        this.objectWriter = objectMapper.writer();
+        this.maxEntityBytes = maxEntityBytes;
+        this.maxBatchEntityBytes = maxBatchEntityBytes;
+        this.maxBatchElementBytes = maxBatchElementBytes;
+        this.batchChunkSize = batchChunkSize;
+    }
+
+    /**
+     * Parses a JSON document from entity bytes.
+     * Compact ByteStrings, as produced for strict entities, are handed to Jackson without copying.
+     */
+    public <T> T read(ByteString bytes, Class<T> type) throws IOException {
+        return objectMapper.readValue(bytes.toArrayUnsafe(), type);
+    }
+
+    /**
+     * Encodes a response body as JSON. The ByteString wraps the encoded array without copying it.
+     */
+    public ByteString write(Object value) {
+        try {
+            return ByteString.fromArrayUnsafe(objectWriter.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Splits a streamed JSON array (or a sequence of JSON objects) into one ByteString per element
+     * as the bytes arrive, failing the stream if a single element exceeds the configured maximum.
+     */
+    public Flow<ByteString, ByteString, NotUsed> arrayElements() {
+        return JsonFraming.objectScanner(maxBatchElementBytes);
+    }
+
+    public long getMaxEntityBytes() {
+        return maxEntityBytes;
+    }
+
+    public long getMaxBatchEntityBytes() {
+        return maxBatchEntityBytes;
+    }
+
+    // Number of batch operations sent to the actors per round trip
+    public int getBatchChunkSize() {
+        return batchChunkSize;
+    }
+}
@@ -0,0 +1,130 @@
+package com.appgarage.pekkocrudapi.routes;
+
+import com.appgarage.pekkocrudapi.actor.ProductMessages;
+import com.appgarage.pekkocrudapi.model.Product;
+import com.appgarage.pekkocrudapi.service.ProductService;
+import com.appgarage.pekkocrudapi.store.ProductSearchQuery;
+import com.appgarage.pekkocrudapi.utils.Pagination;
+import org.apache.pekko.http.javadsl.model.HttpResponse;
+import org.apache.pekko.http.javadsl.model.StatusCodes;
+import org.apache.pekko.http.javadsl.server.PathMatchers;
+import org.apache.pekko.http.javadsl.server.Route;
+import org.apache.pekko.http.javadsl.unmarshalling.StringUnmarshallers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.validation.Validator;
+import java.util.function.Function;
+
+/**
+ * Pekko HTTP route for product CRUD operations, product search and retrieving all products.
+ * Serves the same /api/products contract as ProductController through ProductService, so with http.stack=pekko
+ * products are served next to the tracking details on the Pekko HTTP port and Tomcat is not needed.
+ */
+@Component
+public class ProductApiRoute extends EntityRoute<Product, String> {
+
+    private final ProductService productService;
+    private final Validator validator;
+    private final HttpResponse invalidCursor;
+    private final HttpResponse searchWithoutCriteria;
+    private final HttpResponse invertedPriceRange;
+    private final Function<ProductMessages.ProductResponse, Route> created;
+    private final Function<ProductMessages.ProductResponse, Route> foundOrNotFound;
+    private final Function<ProductMessages.ProductResponse, Route> deleted;
+    private final Function<ProductMessages.ProductListResponse, Route> products;
+
+    @Autowired
+    public ProductApiRoute(ProductService productService, JsonEntitySupport jsonEntitySupport, Validator validator) {
+        super(jsonEntitySupport, EntityRoute::textEntity);
+        this.productService = productService;
+        this.validator = validator;
+        this.invalidCursor = errorResponse(StatusCodes.BAD_REQUEST, "Invalid cursor");
+        this.searchWithoutCriteria = errorResponse(StatusCodes.BAD_REQUEST, "Search needs q, minPrice or maxPrice");
+        this.invertedPriceRange = errorResponse(StatusCodes.BAD_REQUEST, "minPrice is greater than maxPrice");
+        this.created = entityOrError(StatusCodes.CREATED, StatusCodes.BAD_REQUEST);
+        this.foundOrNotFound = entityOrError(StatusCodes.OK, StatusCodes.NOT_FOUND);
+        this.deleted = deletedOrNotFound();
+        this.products = listOrError();
+    }
+
+    public Route createRoute() {
+        return handleExceptions(ApiRouteSupport.overloadHandler(), () ->
+                pathPrefix("api", () ->
+                        pathPrefix("products", () ->
+                                concat(
+                                        pathEndOrSingleSlash(() ->
+                                                concat(
+                                                        // POST /api/products
+                                                        post(() ->
+                                                                ApiRouteSupport.validEntity(jsonEntitySupport, validator, Product.class, product ->
+                                                                        onSuccess(productService.createProduct(product), created))
+                                                        ),
+                                                        // GET /api/products?limit={limit}&cursor={cursor}
+                                                        get(() ->
+                                                                parameterOptional(StringUnmarshallers.INTEGER, "limit", limit ->
+                                                                        parameterOptional("cursor", cursor -> {
+                                                                            if (limit.isPresent() || cursor.isPresent()) {
+                                                                                return getProductsPage(limit.orElse(null), cursor.orElse(null));
+                                                                            }
+                                                                            return onSuccess(productService.getAllProducts(), products);
+                                                                        }))
+                                                        )
+                                                )
+                                        ),
+
+                                        // GET /api/products/search?q={text}&minPrice={price}&maxPrice={price}&limit={limit}
+                                        path("search", () ->
+                                                get(() ->
+                                                        parameterOptional("q", q ->
+                                                                parameterOptional(StringUnmarshallers.DOUBLE, "minPrice", minPrice ->
+                                                                        parameterOptional(StringUnmarshallers.DOUBLE, "maxPrice", maxPrice ->
+                                                                                parameterOptional(StringUnmarshallers.INTEGER, "limit", limit ->
+                                                                                        searchProducts(new ProductSearchQuery(q.orElse(null), minPrice.orElse(null), maxPrice.orElse(null)),
+                                                                                                limit.orElse(null))))))
+                                                )
+                                        ),
+
+                                        path(PathMatchers.segment(), id ->
+                                                concat(
+                                                        // GET /api/products/{id}
+                                                        get(() ->
+                                                                onSuccess(productService.getProduct(id), foundOrNotFound)
+                                                        ),
+                                                        // PUT /api/products/{id}
+                                                        put(() ->
+                                                                ApiRouteSupport.validEntity(jsonEntitySupport, validator, Product.class, product ->
+                                                                        onSuccess(productService.updateProduct(id, product), foundOrNotFound))
+                                                        ),
+                                                        // DELETE /api/products/{id}
+                                                        delete(() ->
+                                                                onSuccess(productService.deleteProduct(id), deleted)
+                                                        )
+                                                )
+                                        )
+                                )
+                        )
+                )
+        );
+    }
+
+    private Route getProductsPage(Integer limit, String cursor) {
+        String afterId;
+        try {
+            afterId = Pagination.decodeCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return complete(invalidCursor);
+        }
+        return onSuccess(productService.getProductsPage(afterId, Pagination.clampLimit(limit)), products);
+    }
+
+    private Route searchProducts(ProductSearchQuery query, Integer limit) {
+        if (!query.hasText() && !query.hasPriceRange()) {
+            return complete(searchWithoutCriteria);
+        }
+        if (query.getMinPrice() != null && query.getMaxPrice() != null && query.getMinPrice() > query.getMaxPrice()) {
+            return complete(invertedPriceRange);
+        }
+        return onSuccess(productService.searchProducts(query, Pagination.clampLimit(limit)), products);
+    }
+}
@@ -1,244 +1,499 @@
 package com.appgarage.pekkocrudapi.routes;
 
+import com.appgarage.pekkocrudapi.actor.BatchTrackingDetailMessages;
+import com.appgarage.pekkocrudapi.actor.EntityClient;
+import com.appgarage.pekkocrudapi.actor.EntityRouters;
+import com.appgarage.pekkocrudapi.actor.MailboxFullException;
+import com.appgarage.pekkocrudapi.actor.TrackingDetailCluster;
 import com.appgarage.pekkocrudapi.actor.TrackingDetailMessages;
+import com.appgarage.pekkocrudapi.actor.TrackingDetailRouting;
+import com.appgarage.pekkocrudapi.actor.UnexpectedResponseException;
+import com.appgarage.pekkocrudapi.cache.JsonResponseCache;
+import com.appgarage.pekkocrudapi.logging.AccessLog;
+import com.appgarage.pekkocrudapi.model.BatchItemResult;
 import com.appgarage.pekkocrudapi.model.ErrorMessage;
 import com.appgarage.pekkocrudapi.model.TrackingDetail;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.appgarage.pekkocrudapi.store.TrackingDetailStore;
+import com.appgarage.pekkocrudapi.store.Page;
+import com.appgarage.pekkocrudapi.store.TrackingDetailQuery;
+import com.appgarage.pekkocrudapi.utils.Pagination;
+import org.apache.pekko.NotUsed;
+import org.apache.pekko.japi.Pair;
 import org.apache.pekko.actor.ActorRef;
 import org.apache.pekko.actor.ActorSystem;
-import org.apache.pekko.http.javadsl.marshalling.Marshaller;
+import org.apache.pekko.http.javadsl.model.ContentType;
+import org.apache.pekko.http.javadsl.model.ContentTypes;
+import org.apache.pekko.http.javadsl.model.HttpCharsets;
+import org.apache.pekko.http.javadsl.model.HttpEntities;
+import org.apache.pekko.http.javadsl.model.HttpResponse;
+import org.apache.pekko.http.javadsl.model.MediaTypes;
 import org.apache.pekko.http.javadsl.model.StatusCodes;
-import org.apache.pekko.http.javadsl.server.AllDirectives;
+import org.apache.pekko.http.javadsl.model.headers.RawHeader;
+import org.apache.pekko.http.javadsl.server.MalformedRequestContentRejection;
 import org.apache.pekko.http.javadsl.server.PathMatchers;
 import org.apache.pekko.http.javadsl.server.Route;
 import org.apache.pekko.http.javadsl.server.RejectionHandler;
 import org.apache.pekko.http.javadsl.server.ExceptionHandler;
+import org.apache.pekko.http.javadsl.unmarshalling.StringUnmarshallers;
+import org.apache.pekko.http.scaladsl.model.EntityStreamSizeException;
 import org.apache.pekko.http.javadsl.unmarshalling.Unmarshaller;
-import org.apache.pekko.http.javadsl.marshallers.jackson.Jackson;
+import org.apache.pekko.stream.scaladsl.Framing;
+import org.apache.pekko.stream.javadsl.Sink;
+import org.apache.pekko.stream.javadsl.Source;
+import org.apache.pekko.util.ByteString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import scala.jdk.javaapi.FutureConverters;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 
 import static org.apache.pekko.http.javadsl.server.Directives.*;
-import static org.apache.pekko.pattern.Patterns.ask;
 
 /**
- * Pekko HTTP route for TrackingDetail CRUD operations.
- * Inspired by TrackingDetailApiRoute and AbstractRouteWithJsonBody from USPS code.
- * Handles JSON requests and responses with custom error handling.
- * Converts Scala Futures to Java CompletionStage for compatibility with Pekko HTTP directives.
- * Uses Jackson marshaller for serializing response objects to JSON.
- * Includes custom RejectionHandler and ExceptionHandler for robust error handling.
+ * Pekko HTTP route for TrackingDetail CRUD, batch, search and streaming operations, with custom rejection and
+ * exception handling. In read-through mode GETs are answered from the store or the response cache; writes always
+ * go through the actors.
  */
 @Component
-public class TrackingDetailApiRoute extends AllDirectives {
+public class TrackingDetailApiRoute extends EntityRoute<TrackingDetail, ErrorMessage> {
 
     private static final Logger log = LoggerFactory.getLogger(TrackingDetailApiRoute.class);
+    private static final ContentType NDJSON = MediaTypes.applicationWithFixedCharset("x-ndjson", HttpCharsets.UTF_8).toContentType();
+    private static final ByteString NEWLINE = ByteString.fromString("\n");
+    private static final String DESTINATION_ZIP_CODE = "destinationZipCode";
+    private static final String ZIP_PREFIX = "zipPrefix";
+    private static final String MAILED_FROM = "mailedFrom";
+    private static final String MAILED_TO = "mailedTo";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
     private final ActorSystem actorSystem;
     private final String apiVersion;
-    private final ActorRef trackingDetailRouter;
-    private final ObjectMapper objectMapper;
+    private final EntityClient trackingDetailClient;
+    private final TrackingDetailStore trackingDetailStore;
+    private final boolean readThrough;
+    // Null in cluster mode
+    private final JsonResponseCache responseCache;
+    private final AccessLog accessLog;
+    private final HttpResponse rejected;
+    private final HttpResponse entityTooLarge;
+    private final HttpResponse internalError;
+    private final HttpResponse unexpectedResponse;
+    private final HttpResponse overloaded;
+    private final HttpResponse notFound;
+    private final HttpResponse invalidCursor;
+    private final HttpResponse invalidIdempotencyKey;
+    private final HttpResponse missingTrackingNumber;
+    private final HttpResponse missingTrackingDetail;
+    private final Function<TrackingDetailMessages.TrackingDetailResponse, Route> created;
+    private final Function<TrackingDetailMessages.TrackingDetailResponse, Route> updated;
+    private final Function<TrackingDetailMessages.TrackingDetailResponse, Route> deleted;
+    private final Function<TrackingDetailMessages.TrackingDetailListResponse, Route> trackingDetailList;
 
     @Autowired
-    public TrackingDetailApiRoute(ActorSystem actorSystem, @Value("${api.version}") String apiVersion, ActorRef trackingDetailRouter, ObjectMapper objectMapper) {
+    public TrackingDetailApiRoute(ActorSystem actorSystem, @Value("${api.version}") String apiVersion, ActorRef trackingDetailRouter,
+                                  TrackingDetailStore trackingDetailStore, @Value("${read.through.enabled:true}") boolean readThrough,
+                                  JsonEntitySupport jsonEntitySupport, JsonResponseCache responseCache, AccessLog accessLog) {
+        super(jsonEntitySupport, error -> HttpEntities.create(ContentTypes.APPLICATION_JSON, jsonEntitySupport.write(error)));
         this.actorSystem = actorSystem;
         this.apiVersion = apiVersion;
-        this.trackingDetailRouter = trackingDetailRouter;
-        this.objectMapper = objectMapper;
+        this.trackingDetailClient = new EntityClient(actorSystem, trackingDetailRouter, EntityRouters.TRACKING_DETAIL_ROUTER,
+                !TrackingDetailCluster.isEnabled(actorSystem));
+        this.trackingDetailStore = trackingDetailStore;
+        this.readThrough = readThrough;
+        this.responseCache = responseCache;
+        this.accessLog = accessLog;
+        this.rejected = errorResponse(StatusCodes.BAD_REQUEST, new ErrorMessage(apiVersion, "150003", "Invalid request format or method not allowed"));
+        this.entityTooLarge = errorResponse(StatusCodes.PAYLOAD_TOO_LARGE, new ErrorMessage(apiVersion, "150005", "Request entity too large"));
+        this.internalError = errorResponse(StatusCodes.INTERNAL_SERVER_ERROR, new ErrorMessage(apiVersion, "150000", "Internal server error"));
+        this.unexpectedResponse = errorResponse(StatusCodes.INTERNAL_SERVER_ERROR, new ErrorMessage(apiVersion, "150000", "Unexpected response from actor"));
+        this.overloaded = errorResponse(StatusCodes.SERVICE_UNAVAILABLE, new ErrorMessage(apiVersion, "150006", "Service overloaded, retry later"));
+        this.notFound = errorResponse(StatusCodes.NOT_FOUND, new ErrorMessage(apiVersion, "150002", "Tracking detail not found"));
+        this.invalidCursor = errorResponse(StatusCodes.BAD_REQUEST, new ErrorMessage(apiVersion, "150003", "Invalid cursor"));
+        this.invalidIdempotencyKey = errorResponse(StatusCodes.BAD_REQUEST, new ErrorMessage(apiVersion, "150008",
+                "Idempotency-Key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " visible ASCII characters"));
+        this.missingTrackingNumber = errorResponse(StatusCodes.BAD_REQUEST, new ErrorMessage(apiVersion, "150001", "trackingNumber is required"));
+        this.missingTrackingDetail = errorResponse(StatusCodes.BAD_REQUEST, new ErrorMessage(apiVersion, "150001", "Tracking detail is required"));
+        this.created = entityOrError(StatusCodes.CREATED, StatusCodes.BAD_REQUEST);
+        this.updated = entityOrError(StatusCodes.OK, StatusCodes.NOT_FOUND);
+        this.deleted = deletedOrNotFound();
+        this.trackingDetailList = listOrError();
     }
 
     public Route createRoute() {
-        // Create a Jackson marshaller for serializing responses to JSON
-        Marshaller<Object, org.apache.pekko.http.javadsl.model.RequestEntity> marshaller = Jackson.marshaller(objectMapper);
-
         // Custom RejectionHandler for handling invalid requests
         RejectionHandler rejectionHandler = RejectionHandler.newBuilder()
+                .handle(MalformedRequestContentRejection.class, rejection -> {
+                    if (rejection.getCause() instanceof EntityStreamSizeException) {
+                        log.warn("Request entity too large: {}", rejection.getCause().getMessage());
+                        return complete(entityTooLarge);
+                    }
+                    log.warn("Request rejected: {}", rejection);
+                    return complete(rejected);
+                })
                 .handleAll(org.apache.pekko.http.javadsl.server.Rejection.class, rejection -> {
                     log.warn("Request rejected: {}", rejection);
-                    ErrorMessage error = new ErrorMessage();
-                    error.setApiVersion(apiVersion);
-                    error.setReturnCode("150003");
-                    error.setMessage("Invalid request format or method not allowed");
-                    return complete(StatusCodes.BAD_REQUEST, error, marshaller);
+                    return complete(rejected);
                 })
                 .build();
 
         // Custom ExceptionHandler for unexpected errors
         ExceptionHandler exceptionHandler = ExceptionHandler.newBuilder()
+                .match(EntityStreamSizeException.class, e -> {
+                    log.warn("Request entity too large: {}", e.getMessage());
+                    return complete(entityTooLarge);
+                })
+                .match(Framing.FramingException.class, e -> {
+                    log.warn("Invalid JSON in streamed request: {}", e.getMessage());
+                    return invalidJson(e);
+                })
+                .match(MailboxFullException.class, this::overloaded)
+                .match(CompletionException.class, e -> e.getCause() instanceof MailboxFullException,
+                        e -> overloaded((MailboxFullException) e.getCause()))
+                .match(UnexpectedResponseException.class, this::unexpectedResponse)
+                .match(CompletionException.class, e -> e.getCause() instanceof UnexpectedResponseException,
+                        e -> unexpectedResponse((UnexpectedResponseException) e.getCause()))
                 .match(Exception.class, e -> {
                     log.error("Unexpected error processing request", e);
-                    ErrorMessage error = new ErrorMessage();
-                    error.setApiVersion(apiVersion);
-                    error.setReturnCode("150000");
-                    error.setMessage("Internal server error");
-                    return complete(StatusCodes.INTERNAL_SERVER_ERROR, error, marshaller);
+                    return complete(internalError);
                 })
                 .build();
 
-        return handleRejections(rejectionHandler, () ->
+        return accessLog.log(handleRejections(rejectionHandler, () ->
                 handleExceptions(exceptionHandler, () ->
                         pathPrefix("api", () ->
                                 pathPrefix("tracking-details", () ->
                                         route(
-                                                // POST /api/tracking-details
+                                                // POST /api/tracking-details/_batch
+                                                path("_batch", () ->
+                                                        post(() ->
+                                                                withSizeLimit(jsonEntitySupport.getMaxBatchEntityBytes(), () ->
+                                                                        extractRequestEntity(requestEntity -> {
+                                                                            // Array elements are decoded as they arrive and applied chunk by chunk, in order,
+                                                                            // so neither the request nor the response is ever held in memory as a whole
+                                                                            Source<List<BatchItemResult>, NotUsed> chunks = requestEntity.getDataBytes()
+                                                                                    .via(jsonEntitySupport.arrayElements())
+                                                                                    .map(this::readOperation)
+                                                                                    .zipWithIndex()
+                                                                                    .grouped(jsonEntitySupport.getBatchChunkSize())
+                                                                                    .mapAsync(1, this::applyBatchChunk)
+                                                                                    .mapMaterializedValue(mat -> NotUsed.getInstance());
+                                                                            // The first chunk is applied before the response starts, so a malformed or
+                                                                            // oversized body is still reported with a proper status code
+                                                                            CompletionStage<Pair<List<List<BatchItemResult>>, Source<List<BatchItemResult>, NotUsed>>> head =
+                                                                                    chunks.prefixAndTail(1).runWith(Sink.head(), actorSystem);
+                                                                            return onSuccess(head, firstAndRest -> {
+                                                                                Source<ByteString, NotUsed> items = Source.from(firstAndRest.first())
+                                                                                        .concat(firstAndRest.second())
+                                                                                        .mapConcat(chunk -> chunk)
+                                                                                        .map(jsonEntitySupport::write);
+                                                                                return complete(HttpResponse.create().withEntity(HttpEntities.createChunked(ContentTypes.APPLICATION_JSON,
+                                                                                        items.intersperse(ByteString.fromString("["), ByteString.fromString(","), ByteString.fromString("]")))));
+                                                                            });
+                                                                        })
+                                                                )
+                                                        )
+                                                ),
+
+                                                // POST /api/tracking-details, optionally with an Idempotency-Key header
                                                 post(() ->
-                                                        entity(Unmarshaller.entityToString(), content -> {
+                                                        optionalHeaderValueByName(IDEMPOTENCY_KEY, idempotencyKey ->
+                                                        withSizeLimit(jsonEntitySupport.getMaxEntityBytes(), () ->
+                                                        entity(Unmarshaller.entityToByteString(), content -> {
+                                                            if (idempotencyKey.isPresent() && !isValidIdempotencyKey(idempotencyKey.get())) {
+                                                                return complete(invalidIdempotencyKey);
+                                                            }
+                                                            TrackingDetail trackingDetail;
                                                             try {
-                                                                log.info("Processing POST request with content: {}", content);
-                                                                TrackingDetail trackingDetail = objectMapper.readValue(content, TrackingDetail.class);
-                                                                // Convert Scala Future to Java CompletionStage
-                                                                CompletionStage<Object> future = FutureConverters.asJava(ask(trackingDetailRouter, new TrackingDetailMessages.CreateTrackingDetail(trackingDetail), 5000));
-                                                                return onSuccess(future, response -> {
-                                                                    if (!(response instanceof TrackingDetailMessages.TrackingDetailResponse)) {
-                                                                        log.error("Unexpected response type: {}", response.getClass().getName());
-                                                                        ErrorMessage error = new ErrorMessage();
-                                                                        error.setApiVersion(apiVersion);
-                                                                        error.setReturnCode("150000");
-                                                                        error.setMessage("Unexpected response from actor");
-                                                                        return complete(StatusCodes.INTERNAL_SERVER_ERROR, error, marshaller);
-                                                                    }
-                                                                    TrackingDetailMessages.TrackingDetailResponse resp = (TrackingDetailMessages.TrackingDetailResponse) response;
-                                                                    if (resp.getError() != null) {
-                                                                        log.warn("Create failed: {}", resp.getError().getMessage());
-                                                                        return complete(StatusCodes.BAD_REQUEST, resp.getError(), marshaller);
-                                                                    }
-                                                                    log.info("Created tracking detail: {}", resp.getTrackingDetail().getTrackingNumber());
-                                                                    return complete(StatusCodes.CREATED, resp.getTrackingDetail(), marshaller);
-                                                                });
+                                                                trackingDetail = jsonEntitySupport.read(content, TrackingDetail.class);
                                                             } catch (Exception e) {
                                                                 log.error("Invalid JSON in POST request", e);
-                                                                ErrorMessage error = new ErrorMessage();
-                                                                error.setApiVersion(apiVersion);
-                                                                error.setReturnCode("150001");
-                                                                error.setMessage("Invalid JSON format: " + e.getMessage());
-                                                                return complete(StatusCodes.BAD_REQUEST, error, marshaller);
+                                                                return invalidJson(e);
                                                             }
-                                                        })
+                                                            if (trackingDetail == null || trackingDetail.getTrackingNumber() == null
+                                                                    || trackingDetail.getTrackingNumber().trim().isEmpty()) {
+                                                                return complete(missingTrackingNumber);
+                                                            }
+                                                            return onSuccess(trackingDetailClient.ask(new TrackingDetailMessages.CreateTrackingDetail(trackingDetail, idempotencyKey.orElse(null))), created);
+                                                        })))
+                                                ),
+
+                                                // GET /api/tracking-details/_stream?format={ndjson|json}
+                                                path("_stream", () ->
+                                                        get(() ->
+                                                                parameterOptional("format", format ->
+                                                                        streamTrackingDetails(format.map("json"::equalsIgnoreCase).orElse(false)))
+                                                        )
                                                 ),
 
                                                 // GET /api/tracking-details/{trackingNumber}
                                                 path(PathMatchers.segment(), trackingNumber ->
                                                         get(() -> {
-                                                            log.info("Processing GET request for tracking number: {}", trackingNumber);
-                                                            // Convert Scala Future to Java CompletionStage
-                                                            CompletionStage<Object> future = FutureConverters.asJava(ask(trackingDetailRouter, new TrackingDetailMessages.GetTrackingDetail(trackingNumber), 5000));
-                                                            return onSuccess(future, response -> {
-                                                                if (!(response instanceof TrackingDetailMessages.TrackingDetailResponse)) {
-                                                                    log.error("Unexpected response type: {}", response.getClass().getName());
-                                                                    ErrorMessage error = new ErrorMessage();
-                                                                    error.setApiVersion(apiVersion);
-                                                                    error.setReturnCode("150000");
-                                                                    error.setMessage("Unexpected response from actor");
-                                                                    return complete(StatusCodes.INTERNAL_SERVER_ERROR, error, marshaller);
+                                                            ByteString cached = responseCache == null ? null : responseCache.get(trackingNumber);
+                                                            if (cached != null) {
+                                                                return complete(HttpResponse.create().withEntity(ContentTypes.APPLICATION_JSON, cached));
+                                                            }
+                                                            long stamp = responseCache == null ? 0 : responseCache.stamp();
+                                                            if (readThrough) {
+                                                                TrackingDetail trackingDetail = trackingDetailStore.get(trackingNumber);
+                                                                if (trackingDetail == null) {
+                                                                    return complete(notFound);
                                                                 }
-                                                                TrackingDetailMessages.TrackingDetailResponse resp = (TrackingDetailMessages.TrackingDetailResponse) response;
+                                                                return completeTrackingDetail(trackingNumber, trackingDetail, stamp);
+                                                            }
+                                                            return onSuccess(trackingDetailClient.ask(new TrackingDetailMessages.GetTrackingDetail(trackingNumber)), resp -> {
                                                                 if (resp.getError() != null) {
-                                                                    log.warn("Tracking detail not found: {}", trackingNumber);
-                                                                    return complete(StatusCodes.NOT_FOUND, resp.getError(), marshaller);
+                                                                    return complete(notFound);
                                                                 }
-                                                                log.info("Retrieved tracking detail: {}", trackingNumber);
-                                                                return complete(StatusCodes.OK, resp.getTrackingDetail(), marshaller);
+                                                                return completeTrackingDetail(trackingNumber, resp.getTrackingDetail(), stamp);
                                                             });
                                                         })
                                                 ),
 
-                                                // GET /api/tracking-details
-                                                get(() -> {
-                                                    log.info("Processing GET request for all tracking details");
-                                                    // Convert Scala Future to Java CompletionStage
-                                                    CompletionStage<Object> future = FutureConverters.asJava(ask(trackingDetailRouter, new TrackingDetailMessages.GetAllTrackingDetails(), 5000));
-                                                    return onSuccess(future, response -> {
-                                                        if (!(response instanceof TrackingDetailMessages.TrackingDetailListResponse)) {
-                                                            log.error("Unexpected response type: {}", response.getClass().getName());
-                                                            ErrorMessage error = new ErrorMessage();
-                                                            error.setApiVersion(apiVersion);
-                                                            error.setReturnCode("150000");
-                                                            error.setMessage("Unexpected response from actor");
-                                                            return complete(StatusCodes.INTERNAL_SERVER_ERROR, error, marshaller);
-                                                        }
-                                                        TrackingDetailMessages.TrackingDetailListResponse resp = (TrackingDetailMessages.TrackingDetailListResponse) response;
-                                                        if (resp.getError() != null) {
-                                                            log.error("Failed to retrieve tracking details: {}", resp.getError().getMessage());
-                                                            return complete(StatusCodes.INTERNAL_SERVER_ERROR, resp.getError(), marshaller);
-                                                        }
-                                                        log.info("Retrieved {} tracking details", resp.getTrackingDetails().size());
-                                                        return complete(StatusCodes.OK, resp.getTrackingDetails(), marshaller);
-                                                    });
-                                                }),
+                                                // GET /api/tracking-details?destinationZipCode={zip}&zipPrefix={zip5}&mailedFrom={date}&mailedTo={date}&limit={limit}&cursor={cursor}
+                                                get(() ->
+                                                        parameterMap(params -> {
+                                                            if (!params.containsKey(DESTINATION_ZIP_CODE) && !params.containsKey(ZIP_PREFIX)
+                                                                    && !params.containsKey(MAILED_FROM) && !params.containsKey(MAILED_TO)) {
+                                                                return reject();
+                                                            }
+                                                            return findTrackingDetails(params);
+                                                        })
+                                                ),
+
+                                                // GET /api/tracking-details?limit={limit}&cursor={cursor}
+                                                get(() ->
+                                                        parameterOptional(StringUnmarshallers.INTEGER, "limit", limit ->
+                                                                parameterOptional("cursor", cursor -> {
+                                                                    if (limit.isPresent() || cursor.isPresent()) {
+                                                                        return getTrackingDetailsPage(limit.orElse(null), cursor.orElse(null));
+                                                                    }
+                                                                    if (readThrough) {
+                                                                        return complete(jsonResponse(StatusCodes.OK, trackingDetailStore.getAll()));
+                                                                    }
+                                                                    return onSuccess(trackingDetailClient.ask(new TrackingDetailMessages.GetAllTrackingDetails()), trackingDetailList);
+                                                                })
+                                                        )
+                                                ),
 
                                                 // PUT /api/tracking-details/{trackingNumber}
                                                 path(PathMatchers.segment(), trackingNumber ->
                                                         put(() ->
-                                                                entity(Unmarshaller.entityToString(), content -> {
+                                                                withSizeLimit(jsonEntitySupport.getMaxEntityBytes(), () ->
+                                                                entity(Unmarshaller.entityToByteString(), content -> {
+                                                                    TrackingDetail trackingDetail;
                                                                     try {
-                                                                        log.info("Processing PUT request for tracking number: {} with content: {}", trackingNumber, content);
-                                                                        TrackingDetail trackingDetail = objectMapper.readValue(content, TrackingDetail.class);
-                                                                        // Convert Scala Future to Java CompletionStage
-                                                                        CompletionStage<Object> future = FutureConverters.asJava(ask(trackingDetailRouter, new TrackingDetailMessages.UpdateTrackingDetail(trackingNumber, trackingDetail), 5000));
-                                                                        return onSuccess(future, response -> {
-                                                                            if (!(response instanceof TrackingDetailMessages.TrackingDetailResponse)) {
-                                                                                log.error("Unexpected response type: {}", response.getClass().getName());
-                                                                                ErrorMessage error = new ErrorMessage();
-                                                                                error.setApiVersion(apiVersion);
-                                                                                error.setReturnCode("150000");
-                                                                                error.setMessage("Unexpected response from actor");
-                                                                                return complete(StatusCodes.INTERNAL_SERVER_ERROR, error, marshaller);
-                                                                            }
-                                                                            TrackingDetailMessages.TrackingDetailResponse resp = (TrackingDetailMessages.TrackingDetailResponse) response;
-                                                                            if (resp.getError() != null) {
-                                                                                log.warn("Update failed for tracking number: {}", trackingNumber);
-                                                                                return complete(StatusCodes.NOT_FOUND, resp.getError(), marshaller);
-                                                                            }
-                                                                            log.info("Updated tracking detail: {}", trackingNumber);
-                                                                            return complete(StatusCodes.OK, resp.getTrackingDetail(), marshaller);
-                                                                        });
+                                                                        trackingDetail = jsonEntitySupport.read(content, TrackingDetail.class);
                                                                     } catch (Exception e) {
                                                                         log.error("Invalid JSON in PUT request", e);
-                                                                        ErrorMessage error = new ErrorMessage();
-                                                                        error.setApiVersion(apiVersion);
-                                                                        error.setReturnCode("150001");
-                                                                        error.setMessage("Invalid JSON format: " + e.getMessage());
-                                                                        return complete(StatusCodes.BAD_REQUEST, error, marshaller);
+                                                                        return invalidJson(e);
                                                                     }
-                                                                })
+                                                                    if (trackingDetail == null) {
+                                                                        return complete(missingTrackingDetail);
+                                                                    }
+                                                                    return onSuccess(trackingDetailClient.ask(new TrackingDetailMessages.UpdateTrackingDetail(trackingNumber, trackingDetail)), updated);
+                                                                }))
                                                         )
                                                 ),
 
                                                 // DELETE /api/tracking-details/{trackingNumber}
                                                 path(PathMatchers.segment(), trackingNumber ->
-                                                        delete(() -> {
-                                                            log.info("Processing DELETE request for tracking number: {}", trackingNumber);
-                                                            // Convert Scala Future to Java CompletionStage
-                                                            CompletionStage<Object> future = FutureConverters.asJava(ask(trackingDetailRouter, new TrackingDetailMessages.DeleteTrackingDetail(trackingNumber), 5000));
-                                                            return onSuccess(future, response -> {
-                                                                if (!(response instanceof TrackingDetailMessages.TrackingDetailResponse)) {
-                                                                    log.error("Unexpected response type: {}", response.getClass().getName());
-                                                                    ErrorMessage error = new ErrorMessage();
-                                                                    error.setApiVersion(apiVersion);
-                                                                    error.setReturnCode("150000");
-                                                                    error.setMessage("Unexpected response from actor");
-                                                                    return complete(StatusCodes.INTERNAL_SERVER_ERROR, error, marshaller);
-                                                                }
-                                                                TrackingDetailMessages.TrackingDetailResponse resp = (TrackingDetailMessages.TrackingDetailResponse) response;
-                                                                if (resp.getError() != null) {
-                                                                    log.warn("Delete failed for tracking number: {}", trackingNumber);
-                                                                    return complete(StatusCodes.NOT_FOUND, resp.getError(), marshaller);
-                                                                }
-                                                                log.info("Deleted tracking detail: {}", trackingNumber);
-                                                                return complete(StatusCodes.NO_CONTENT);
-                                                            });
-                                                        })
+                                                        delete(() ->
+                                                                onSuccess(trackingDetailClient.ask(new TrackingDetailMessages.DeleteTrackingDetail(trackingNumber)), deleted))
                                                 )
                                         )
                                 )
                         )
                 )
-        );
+        ));
+    }
+
+    // Encodes a found tracking detail once, for this response and, unless it changed since stamp was taken, later GETs
+    private Route completeTrackingDetail(String trackingNumber, TrackingDetail trackingDetail, long stamp) {
+        ByteString json = jsonEntitySupport.write(trackingDetail);
+        if (responseCache != null) {
+            responseCache.put(trackingNumber, json, stamp);
+        }
+        return complete(HttpResponse.create().withEntity(ContentTypes.APPLICATION_JSON, json));
+    }
+
+    // Keys are kept in memory until they leave the idempotency window, so their length is bounded
+    private static boolean isValidIdempotencyKey(String key) {
+        if (key.isEmpty() || key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '!' || c > '~') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The message names the parse error, so this is the one error response encoded per request
+    private Route invalidJson(Exception e) {
+        return complete(errorResponse(StatusCodes.BAD_REQUEST, new ErrorMessage(apiVersion, "150001", "Invalid JSON format: " + e.getMessage())));
+    }
+
+    // Sheds the request when a routee's bounded mailbox is full instead of letting it wait for the ask timeout
+    private Route overloaded(MailboxFullException e) {
+        log.warn("Shedding request: {}", e.getMessage());
+        return complete(overloaded.addHeader(RawHeader.create("Retry-After", Long.toString(e.getRetryAfterSeconds()))));
+    }
+
+    private Route unexpectedResponse(UnexpectedResponseException e) {
+        log.error(e.getMessage());
+        return complete(unexpectedResponse);
+    }
+
+    // Decodes one batch array element; an element that is not a valid operation is reported per item instead of failing the batch
+    private BatchTrackingDetailMessages.Operation readOperation(ByteString element) {
+        try {
+            return jsonEntitySupport.read(element, BatchTrackingDetailMessages.Operation.class);
+        } catch (IOException e) {
+            log.warn("Invalid batch operation: {}", e.getMessage());
+            return new BatchTrackingDetailMessages.Operation(null, null, null);
+        }
+    }
+
+    // Applies one chunk of a streamed batch; mapAsync(1) keeps chunks in order, so operations on one key are never reordered
+    private CompletionStage<List<BatchItemResult>> applyBatchChunk(List<Pair<BatchTrackingDetailMessages.Operation, Long>> chunk) {
+        List<BatchTrackingDetailMessages.Operation> operations = new ArrayList<>(chunk.size());
+        for (Pair<BatchTrackingDetailMessages.Operation, Long> indexed : chunk) {
+            operations.add(indexed.first());
+        }
+        return TrackingDetailRouting.applyBatch(trackingDetailClient.getRouter(), operations, Duration.ofMillis(trackingDetailClient.getAskTimeoutMillis()))
+                .thenApply(results -> toBatchItemResults(chunk, results));
+    }
+
+    // Maps each operation's actor response to the status code the single-item route would have returned
+    private List<BatchItemResult> toBatchItemResults(List<Pair<BatchTrackingDetailMessages.Operation, Long>> operations,
+                                                     List<TrackingDetailMessages.TrackingDetailResponse> results) {
+        List<BatchItemResult> items = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            BatchTrackingDetailMessages.Operation operation = operations.get(i).first();
+            TrackingDetailMessages.TrackingDetailResponse resp = results.get(i);
+            BatchItemResult item = new BatchItemResult();
+            item.setIndex(operations.get(i).second().intValue());
+            item.setOp(operation.getOp() == null ? null : operation.getOp().name().toLowerCase());
+            item.setTrackingNumber(operation.key());
+            if (resp.getError() != null) {
+                item.setError(resp.getError());
+                String returnCode = resp.getError().getReturnCode();
+                item.setStatus("150002".equals(returnCode) ? StatusCodes.NOT_FOUND.intValue() : StatusCodes.BAD_REQUEST.intValue());
+            } else if (operation.getOp() == BatchTrackingDetailMessages.OperationType.CREATE) {
+                item.setStatus(StatusCodes.CREATED.intValue());
+                item.setTrackingDetail(resp.getTrackingDetail());
+            } else if (operation.getOp() == BatchTrackingDetailMessages.OperationType.UPDATE) {
+                item.setStatus(StatusCodes.OK.intValue());
+                item.setTrackingDetail(resp.getTrackingDetail());
+            } else {
+                item.setStatus(StatusCodes.NO_CONTENT.intValue());
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    // Completes one page of tracking details in tracking number order
+    private Route getTrackingDetailsPage(Integer limit, String cursor) {
+        String afterTrackingNumber;
+        try {
+            afterTrackingNumber = Pagination.decodeCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return complete(invalidCursor);
+        }
+        int pageSize = Pagination.clampLimit(limit);
+        CompletionStage<TrackingDetailMessages.TrackingDetailListResponse> future;
+        if (readThrough) {
+            Page<TrackingDetail> page = trackingDetailStore.page(afterTrackingNumber, pageSize);
+            future = CompletableFuture.completedFuture(new TrackingDetailMessages.TrackingDetailListResponse(page.getItems(), null, Pagination.encodeCursor(page.getNextKey())));
+        } else {
+            future = trackingDetailClient.ask(new TrackingDetailMessages.GetAllTrackingDetails(afterTrackingNumber, pageSize));
+        }
+        return onSuccess(future, trackingDetailList);
+    }
+
+    // Completes one page of tracking details matching the filter parameters, ordered by mailing date and then tracking number.
+    // The indexes make the cost depend on the matches read, not on the number of tracking details.
+    private Route findTrackingDetails(Map<String, String> params) {
+        TrackingDetailQuery query;
+        Integer limit;
+        try {
+            String zipPrefix = params.get(ZIP_PREFIX);
+            if (zipPrefix != null && zipPrefix.length() != TrackingDetailQuery.ZIP_PREFIX_LENGTH) {
+                throw new IllegalArgumentException("zipPrefix must have " + TrackingDetailQuery.ZIP_PREFIX_LENGTH + " characters");
+            }
+            query = new TrackingDetailQuery(params.get(DESTINATION_ZIP_CODE), zipPrefix, parseDate(params.get(MAILED_FROM)), parseDate(params.get(MAILED_TO)));
+            limit = params.containsKey("limit") ? Integer.valueOf(params.get("limit")) : null;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            log.warn("Invalid tracking detail query: {}", e.getMessage());
+            return complete(errorResponse(StatusCodes.BAD_REQUEST, new ErrorMessage(apiVersion, "150007", "Invalid query parameter: " + e.getMessage())));
+        }
+        String afterPosition;
+        try {
+            afterPosition = Pagination.decodeCursor(params.get("cursor"));
+        } catch (IllegalArgumentException e) {
+            return complete(invalidCursor);
+        }
+        int pageSize = Pagination.clampLimit(limit);
+        CompletionStage<TrackingDetailMessages.TrackingDetailListResponse> future;
+        if (readThrough) {
+            Page<TrackingDetail> page = trackingDetailStore.find(query, afterPosition, pageSize);
+            future = CompletableFuture.completedFuture(new TrackingDetailMessages.TrackingDetailListResponse(page.getItems(), null, Pagination.encodeCursor(page.getNextKey())));
+        } else {
+            future = trackingDetailClient.ask(new TrackingDetailMessages.FindTrackingDetails(query, afterPosition, pageSize));
+        }
+        return onSuccess(future, trackingDetailList);
+    }
+
+    private static LocalDate parseDate(String date) {
+        return date == null ? null : LocalDate.parse(date);
+    }
+
+    // Streams every tracking detail straight from the store as chunked NDJSON, or as one JSON array.
+    // The store is iterated lazily, so heap use does not grow with the number of tracking details.
+    // Without read-through (always in cluster mode) the router is asked page by page instead.
+    private Route streamTrackingDetails(boolean jsonArray) {
+        Source<TrackingDetail, NotUsed> trackingDetails = readThrough
+                ? Source.fromIterator(() -> trackingDetailStore.values().iterator())
+                : pagesFromRouter();
+        Source<ByteString, NotUsed> elements = trackingDetails.map(jsonEntitySupport::write);
+        if (jsonArray) {
+            return complete(HttpResponse.create().withEntity(HttpEntities.createChunked(ContentTypes.APPLICATION_JSON,
+                    elements.intersperse(ByteString.fromString("["), ByteString.fromString(","), ByteString.fromString("]")))));
+        }
+        return complete(HttpResponse.create().withEntity(HttpEntities.createChunked(NDJSON,
+                elements.map(bytes -> bytes.concat(NEWLINE)))));
+    }
+
+    // State is (more pages, cursor); a page is only requested once the previous one has been written
+    private Source<TrackingDetail, NotUsed> pagesFromRouter() {
+        return Source.unfoldAsync(Pair.create(true, (String) null), state -> {
+            if (!state.first()) {
+                return CompletableFuture.completedFuture(Optional.<Pair<Pair<Boolean, String>, List<TrackingDetail>>>empty());
+            }
+            return trackingDetailClient.ask(new TrackingDetailMessages.GetAllTrackingDetails(state.second(), Pagination.MAX_LIMIT))
+                    .thenApply(page -> {
+                        if (page.getError() != null) {
+                            throw new IllegalStateException(page.getError().getMessage());
+                        }
+                        String next = page.getNextCursor() == null ? null : Pagination.decodeCursor(page.getNextCursor());
+                        return Optional.of(Pair.create(Pair.create(next != null, next), page.getTrackingDetails()));
+                    });
+        }).mapConcat(page -> page);
     }
-}
\ No newline at end of file
+}
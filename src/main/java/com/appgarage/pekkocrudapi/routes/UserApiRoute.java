@@ -0,0 +1,113 @@
+package com.appgarage.pekkocrudapi.routes;
+
+import com.appgarage.pekkocrudapi.actor.UserMessages;
+import com.appgarage.pekkocrudapi.model.User;
+import com.appgarage.pekkocrudapi.service.UserService;
+import com.appgarage.pekkocrudapi.utils.Pagination;
+import org.apache.pekko.http.javadsl.model.HttpResponse;
+import org.apache.pekko.http.javadsl.model.StatusCodes;
+import org.apache.pekko.http.javadsl.server.PathMatchers;
+import org.apache.pekko.http.javadsl.server.Route;
+import org.apache.pekko.http.javadsl.unmarshalling.StringUnmarshallers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.validation.Validator;
+import java.util.function.Function;
+
+/**
+ * Pekko HTTP route for User CRUD operations, lookups by username or email and retrieving all users.
+ * Serves the same /api/users contract as UserController through UserService, for http.stack=pekko.
+ */
+@Component
+public class UserApiRoute extends EntityRoute<User, String> {
+
+    private final UserService userService;
+    private final Validator validator;
+    private final HttpResponse invalidCursor;
+    private final Function<UserMessages.UserResponse, Route> created;
+    private final Function<UserMessages.UserResponse, Route> foundOrNotFound;
+    private final Function<UserMessages.UserResponse, Route> deleted;
+    private final Function<UserMessages.UserListResponse, Route> users;
+
+    @Autowired
+    public UserApiRoute(UserService userService, JsonEntitySupport jsonEntitySupport, Validator validator) {
+        super(jsonEntitySupport, EntityRoute::textEntity);
+        this.userService = userService;
+        this.validator = validator;
+        this.invalidCursor = errorResponse(StatusCodes.BAD_REQUEST, "Invalid cursor");
+        // A username or email held by another user is answered with 409 on create and update
+        this.created = entityOrError(StatusCodes.CREATED, StatusCodes.BAD_REQUEST);
+        this.foundOrNotFound = entityOrError(StatusCodes.OK, StatusCodes.NOT_FOUND);
+        this.deleted = deletedOrNotFound();
+        this.users = listOrError();
+    }
+
+    public Route createRoute() {
+        return handleExceptions(ApiRouteSupport.overloadHandler(), () ->
+                pathPrefix("api", () ->
+                        pathPrefix("users", () ->
+                                concat(
+                                        pathEndOrSingleSlash(() ->
+                                                concat(
+                                                        // POST /api/users
+                                                        post(() ->
+                                                                ApiRouteSupport.validEntity(jsonEntitySupport, validator, User.class, user ->
+                                                                        onSuccess(userService.createUser(user), created))
+                                                        ),
+                                                        // GET /api/users?limit={limit}&cursor={cursor}
+                                                        get(() ->
+                                                                parameterOptional(StringUnmarshallers.INTEGER, "limit", limit ->
+                                                                        parameterOptional("cursor", cursor -> {
+                                                                            if (limit.isPresent() || cursor.isPresent()) {
+                                                                                return getUsersPage(limit.orElse(null), cursor.orElse(null));
+                                                                            }
+                                                                            return onSuccess(userService.getAllUsers(), users);
+                                                                        }))
+                                                        )
+                                                )
+                                        ),
+
+                                        // GET /api/users/by-username/{username}
+                                        path(PathMatchers.segment("by-username").slash(PathMatchers.segment()), username ->
+                                                get(() -> onSuccess(userService.getUserByUsername(username), foundOrNotFound))
+                                        ),
+
+                                        // GET /api/users/by-email/{email}, matched ignoring case
+                                        path(PathMatchers.segment("by-email").slash(PathMatchers.segment()), email ->
+                                                get(() -> onSuccess(userService.getUserByEmail(email), foundOrNotFound))
+                                        ),
+
+                                        path(PathMatchers.segment(), id ->
+                                                concat(
+                                                        // GET /api/users/{id}
+                                                        get(() ->
+                                                                onSuccess(userService.getUser(id), foundOrNotFound)
+                                                        ),
+                                                        // PUT /api/users/{id}
+                                                        put(() ->
+                                                                ApiRouteSupport.validEntity(jsonEntitySupport, validator, User.class, user ->
+                                                                        onSuccess(userService.updateUser(id, user), foundOrNotFound))
+                                                        ),
+                                                        // DELETE /api/users/{id}
+                                                        delete(() ->
+                                                                onSuccess(userService.deleteUser(id), deleted)
+                                                        )
+                                                )
+                                        )
+                                )
+                        )
+                )
+        );
+    }
+
+    private Route getUsersPage(Integer limit, String cursor) {
+        String afterId;
+        try {
+            afterId = Pagination.decodeCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return complete(invalidCursor);
+        }
+        return onSuccess(userService.getUsersPage(afterId, Pagination.clampLimit(limit)), users);
+    }
+}
@@ -1,65 +1,84 @@
 package com.appgarage.pekkocrudapi.service;
 
+import com.appgarage.pekkocrudapi.actor.EntityClient;
+import com.appgarage.pekkocrudapi.actor.EntityRouters;
 import com.appgarage.pekkocrudapi.actor.ProductActor;
 import com.appgarage.pekkocrudapi.actor.ProductMessages;
 import com.appgarage.pekkocrudapi.model.Product;
-import org.apache.pekko.actor.ActorRef;
+import com.appgarage.pekkocrudapi.store.Page;
+import com.appgarage.pekkocrudapi.store.ProductSearchQuery;
+import com.appgarage.pekkocrudapi.store.ProductStore;
+import com.appgarage.pekkocrudapi.utils.Pagination;
 import org.apache.pekko.actor.ActorSystem;
-import org.apache.pekko.routing.RoundRobinPool;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
-
-import static org.apache.pekko.pattern.PatternsCS.ask;
 
 
 /**
  * Service layer to interact with Pekko actors for product operations.
- * Uses RoundRobinPool for load balancing across multiple actor instances.
+ * The router's type and pool size come from its deployment section in application.conf.
+ * In read-through mode GETs are answered directly from the shared store without an ask.
  */
 @Service
 public class ProductService {
 
-    private final ActorRef productRouter;
+    private final EntityClient productRouter;
+    private final ProductStore productStore;
+    private final boolean readThrough;
 
     @Autowired
-    public ProductService(ActorSystem actorSystem) {
-        // Create a router with 5 actor instances for concurrency
-        this.productRouter = actorSystem.actorOf(
-                new RoundRobinPool(5).props(ProductActor.props()),
-                "productRouter"
-        );
+    public ProductService(ActorSystem actorSystem, ProductStore productStore, @Value("${read.through.enabled:true}") boolean readThrough) {
+        // Routees share one thread-safe store
+        this.productRouter = new EntityClient(actorSystem,
+                EntityRouters.create(actorSystem, EntityRouters.PRODUCT_ROUTER, ProductActor.props(productStore)), EntityRouters.PRODUCT_ROUTER);
+        this.productStore = productStore;
+        this.readThrough = readThrough;
     }
 
     public CompletableFuture<ProductMessages.ProductResponse> createProduct(Product product) {
-        return ask(productRouter, new ProductMessages.CreateProduct(product), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (ProductMessages.ProductResponse) response);
+        return productRouter.ask(new ProductMessages.CreateProduct(product));
     }
 
     public CompletableFuture<ProductMessages.ProductResponse> getProduct(String id) {
-        return ask(productRouter, new ProductMessages.GetProduct(id), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (ProductMessages.ProductResponse) response);
+        if (readThrough) {
+            Product product = productStore.get(id);
+            return CompletableFuture.completedFuture(product == null
+                    ? ProductMessages.ProductResponse.NOT_FOUND
+                    : new ProductMessages.ProductResponse(product, null));
+        }
+        return productRouter.ask(new ProductMessages.GetProduct(id));
     }
 
     public CompletableFuture<ProductMessages.ProductResponse> updateProduct(String id, Product product) {
-        return ask(productRouter, new ProductMessages.UpdateProduct(id, product), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (ProductMessages.ProductResponse) response);
+        return productRouter.ask(new ProductMessages.UpdateProduct(id, product));
     }
 
     public CompletableFuture<ProductMessages.ProductResponse> deleteProduct(String id) {
-        return ask(productRouter, new ProductMessages.DeleteProduct(id), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (ProductMessages.ProductResponse) response);
+        return productRouter.ask(new ProductMessages.DeleteProduct(id));
     }
 
     public CompletableFuture<ProductMessages.ProductListResponse> getAllProducts() {
-        return ask(productRouter, new ProductMessages.GetAllProducts(), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (ProductMessages.ProductListResponse) response);
+        if (readThrough) {
+            return CompletableFuture.completedFuture(new ProductMessages.ProductListResponse(productStore.getAll(), null));
+        }
+        return productRouter.ask(new ProductMessages.GetAllProducts());
+    }
+
+    public CompletableFuture<ProductMessages.ProductListResponse> getProductsPage(String afterId, int limit) {
+        if (readThrough) {
+            Page<Product> page = productStore.page(afterId, limit);
+            return CompletableFuture.completedFuture(new ProductMessages.ProductListResponse(page.getItems(), null, Pagination.encodeCursor(page.getNextKey())));
+        }
+        return productRouter.ask(new ProductMessages.GetAllProducts(afterId, limit));
+    }
+
+    public CompletableFuture<ProductMessages.ProductListResponse> searchProducts(ProductSearchQuery query, int limit) {
+        if (readThrough) {
+            return CompletableFuture.completedFuture(new ProductMessages.ProductListResponse(productStore.search(query, limit), null));
+        }
+        return productRouter.ask(new ProductMessages.SearchProducts(query, limit));
     }
-}
\ No newline at end of file
+}
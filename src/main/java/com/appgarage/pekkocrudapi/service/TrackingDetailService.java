@@ -1,59 +1,80 @@
 package com.appgarage.pekkocrudapi.service;
 
+import com.appgarage.pekkocrudapi.actor.EntityClient;
+import com.appgarage.pekkocrudapi.actor.EntityRouters;
+import com.appgarage.pekkocrudapi.actor.TrackingDetailCluster;
 import com.appgarage.pekkocrudapi.actor.TrackingDetailMessages;
+import com.appgarage.pekkocrudapi.model.ErrorMessage;
 import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.store.Page;
+import com.appgarage.pekkocrudapi.store.TrackingDetailStore;
+import com.appgarage.pekkocrudapi.utils.Pagination;
 import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.ActorSystem;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.CompletableFuture;
 
-import static org.apache.pekko.pattern.PatternsCS.ask;
-
 /**
  * Service layer to interact with Pekko actors for TrackingDetail operations.
- * Uses RoundRobinPool for load balancing, similar to ProductService and UserService.
+ * The trackingDetailRouter bean is created from its deployment section, like the product and user routers.
+ * In read-through mode GETs are answered directly from the shared store without an ask; in cluster mode
+ * the store only sees this node's writes, so read-through is off.
  */
 @Service
 public class TrackingDetailService {
 
-    private final ActorRef trackingDetailRouter;
-    private final String apiVersion;
+    private final EntityClient trackingDetailRouter;
+    private final TrackingDetailMessages.TrackingDetailResponse notFound;
+    private final TrackingDetailStore trackingDetailStore;
+    private final boolean readThrough;
 
     @Autowired
-    public TrackingDetailService(ActorRef trackingDetailRouter, @Value("${api.version}") String apiVersion) {
-        this.trackingDetailRouter = trackingDetailRouter;
-        this.apiVersion = apiVersion;
+    public TrackingDetailService(ActorSystem actorSystem, ActorRef trackingDetailRouter, @Value("${api.version}") String apiVersion,
+                                 TrackingDetailStore trackingDetailStore, @Value("${read.through.enabled:true}") boolean readThrough) {
+        this.trackingDetailRouter = new EntityClient(actorSystem, trackingDetailRouter, EntityRouters.TRACKING_DETAIL_ROUTER,
+                !TrackingDetailCluster.isEnabled(actorSystem));
+        this.notFound = new TrackingDetailMessages.TrackingDetailResponse(null, new ErrorMessage(apiVersion, "150002", "Tracking detail not found"));
+        this.trackingDetailStore = trackingDetailStore;
+        this.readThrough = readThrough && !TrackingDetailCluster.isEnabled(actorSystem);
     }
 
     public CompletableFuture<TrackingDetailMessages.TrackingDetailResponse> createTrackingDetail(TrackingDetail trackingDetail) {
-        return ask(trackingDetailRouter, new TrackingDetailMessages.CreateTrackingDetail(trackingDetail), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (TrackingDetailMessages.TrackingDetailResponse) response);
+        return trackingDetailRouter.ask(new TrackingDetailMessages.CreateTrackingDetail(trackingDetail));
     }
 
     public CompletableFuture<TrackingDetailMessages.TrackingDetailResponse> getTrackingDetail(String trackingNumber) {
-        return ask(trackingDetailRouter, new TrackingDetailMessages.GetTrackingDetail(trackingNumber), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (TrackingDetailMessages.TrackingDetailResponse) response);
+        if (readThrough) {
+            TrackingDetail trackingDetail = trackingDetailStore.get(trackingNumber);
+            return CompletableFuture.completedFuture(trackingDetail == null
+                    ? notFound
+                    : new TrackingDetailMessages.TrackingDetailResponse(trackingDetail, null));
+        }
+        return trackingDetailRouter.ask(new TrackingDetailMessages.GetTrackingDetail(trackingNumber));
     }
 
     public CompletableFuture<TrackingDetailMessages.TrackingDetailResponse> updateTrackingDetail(String trackingNumber, TrackingDetail trackingDetail) {
-        return ask(trackingDetailRouter, new TrackingDetailMessages.UpdateTrackingDetail(trackingNumber, trackingDetail), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (TrackingDetailMessages.TrackingDetailResponse) response);
+        return trackingDetailRouter.ask(new TrackingDetailMessages.UpdateTrackingDetail(trackingNumber, trackingDetail));
     }
 
     public CompletableFuture<TrackingDetailMessages.TrackingDetailResponse> deleteTrackingDetail(String trackingNumber) {
-        return ask(trackingDetailRouter, new TrackingDetailMessages.DeleteTrackingDetail(trackingNumber), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (TrackingDetailMessages.TrackingDetailResponse) response);
+        return trackingDetailRouter.ask(new TrackingDetailMessages.DeleteTrackingDetail(trackingNumber));
     }
 
     public CompletableFuture<TrackingDetailMessages.TrackingDetailListResponse> getAllTrackingDetails() {
-        return ask(trackingDetailRouter, new TrackingDetailMessages.GetAllTrackingDetails(), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (TrackingDetailMessages.TrackingDetailListResponse) response);
+        if (readThrough) {
+            return CompletableFuture.completedFuture(new TrackingDetailMessages.TrackingDetailListResponse(trackingDetailStore.getAll(), null));
+        }
+        return trackingDetailRouter.ask(new TrackingDetailMessages.GetAllTrackingDetails());
+    }
+
+    public CompletableFuture<TrackingDetailMessages.TrackingDetailListResponse> getTrackingDetailsPage(String afterTrackingNumber, int limit) {
+        if (readThrough) {
+            Page<TrackingDetail> page = trackingDetailStore.page(afterTrackingNumber, limit);
+            return CompletableFuture.completedFuture(new TrackingDetailMessages.TrackingDetailListResponse(page.getItems(), null, Pagination.encodeCursor(page.getNextKey())));
+        }
+        return trackingDetailRouter.ask(new TrackingDetailMessages.GetAllTrackingDetails(afterTrackingNumber, limit));
     }
 }
\ No newline at end of file
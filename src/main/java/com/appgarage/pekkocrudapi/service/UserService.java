@@ -1,63 +1,90 @@
 package com.appgarage.pekkocrudapi.service;
 
+import com.appgarage.pekkocrudapi.actor.EntityClient;
+import com.appgarage.pekkocrudapi.actor.EntityRouters;
 import com.appgarage.pekkocrudapi.actor.UserActor;
 import com.appgarage.pekkocrudapi.actor.UserMessages;
 import com.appgarage.pekkocrudapi.model.User;
-import org.apache.pekko.actor.ActorRef;
+import com.appgarage.pekkocrudapi.store.Page;
+import com.appgarage.pekkocrudapi.store.UserStore;
+import com.appgarage.pekkocrudapi.utils.Pagination;
 import org.apache.pekko.actor.ActorSystem;
-import org.apache.pekko.routing.RoundRobinPool;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.CompletableFuture;
 
-import static org.apache.pekko.pattern.PatternsCS.ask;
-
 /**
  * Service layer to interact with Pekko actors for User operations.
- * Uses RoundRobinPool for load balancing across multiple actor instances.
+ * The router's type and pool size come from its deployment section in application.conf.
+ * In read-through mode GETs are answered directly from the shared store without an ask.
  */
 @Service
 public class UserService {
 
-    private final ActorRef userRouter;
+    private final EntityClient userRouter;
+    private final UserStore userStore;
+    private final boolean readThrough;
 
     @Autowired
-    public UserService(ActorSystem actorSystem) {
-        // Create a router with 5 actor instances for concurrency
-        this.userRouter = actorSystem.actorOf(
-                new RoundRobinPool(5).props(UserActor.props()),
-                "userRouter"
-        );
+    public UserService(ActorSystem actorSystem, UserStore userStore, @Value("${read.through.enabled:true}") boolean readThrough) {
+        // Routees share one thread-safe store
+        this.userRouter = new EntityClient(actorSystem,
+                EntityRouters.create(actorSystem, EntityRouters.USER_ROUTER, UserActor.props(userStore)), EntityRouters.USER_ROUTER);
+        this.userStore = userStore;
+        this.readThrough = readThrough;
     }
 
     public CompletableFuture<UserMessages.UserResponse> createUser(User user) {
-        return ask(userRouter, new UserMessages.CreateUser(user), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (UserMessages.UserResponse) response);
+        return userRouter.ask(new UserMessages.CreateUser(user));
     }
 
     public CompletableFuture<UserMessages.UserResponse> getUser(String id) {
-        return ask(userRouter, new UserMessages.GetUser(id), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (UserMessages.UserResponse) response);
+        if (readThrough) {
+            return CompletableFuture.completedFuture(found(userStore.get(id)));
+        }
+        return userRouter.ask(new UserMessages.GetUser(id));
+    }
+
+    public CompletableFuture<UserMessages.UserResponse> getUserByUsername(String username) {
+        if (readThrough) {
+            return CompletableFuture.completedFuture(found(userStore.getByUsername(username)));
+        }
+        return userRouter.ask(new UserMessages.GetUserByUsername(username));
+    }
+
+    public CompletableFuture<UserMessages.UserResponse> getUserByEmail(String email) {
+        if (readThrough) {
+            return CompletableFuture.completedFuture(found(userStore.getByEmail(email)));
+        }
+        return userRouter.ask(new UserMessages.GetUserByEmail(email));
     }
 
     public CompletableFuture<UserMessages.UserResponse> updateUser(String id, User user) {
-        return ask(userRouter, new UserMessages.UpdateUser(id, user), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (UserMessages.UserResponse) response);
+        return userRouter.ask(new UserMessages.UpdateUser(id, user));
     }
 
     public CompletableFuture<UserMessages.UserResponse> deleteUser(String id) {
-        return ask(userRouter, new UserMessages.DeleteUser(id), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (UserMessages.UserResponse) response);
+        return userRouter.ask(new UserMessages.DeleteUser(id));
     }
 
     public CompletableFuture<UserMessages.UserListResponse> getAllUsers() {
-        return ask(userRouter, new UserMessages.GetAllUsers(), 5000)
-                .toCompletableFuture()
-                .thenApply(response -> (UserMessages.UserListResponse) response);
+        if (readThrough) {
+            return CompletableFuture.completedFuture(new UserMessages.UserListResponse(userStore.getAll(), null));
+        }
+        return userRouter.ask(new UserMessages.GetAllUsers());
+    }
+
+    public CompletableFuture<UserMessages.UserListResponse> getUsersPage(String afterId, int limit) {
+        if (readThrough) {
+            Page<User> page = userStore.page(afterId, limit);
+            return CompletableFuture.completedFuture(new UserMessages.UserListResponse(page.getItems(), null, Pagination.encodeCursor(page.getNextKey())));
+        }
+        return userRouter.ask(new UserMessages.GetAllUsers(afterId, limit));
+    }
+
+    private static UserMessages.UserResponse found(User user) {
+        return user == null ? UserMessages.UserResponse.NOT_FOUND : new UserMessages.UserResponse(user, null);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,560 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * EntityStore for tracking details that keeps records in primitive columns instead of objects.
+ * <p>
+ * Each record is a slot: the tracking number in a shared byte arena (one byte per char when every char
+ * fits, two otherwise), the mailing date as an epoch-day int and the destination ZIP packed into a long
+ * (see {@link #packZip}). Key order is kept by sorted blocks of up to BLOCK_CAPACITY slot numbers,
+ * indexed by a ConcurrentSkipListMap on each block's lower bound.
+ * <p>
+ * Writers hold one lock. A published slot is never changed: inserts and updates write a new slot and
+ * publish a copy of the block array, so readers never lock. Slots and arena bytes left behind by updates
+ * and deletes are reclaimed by rebuilding the table once they outnumber the live ones.
+ * TrackingDetail objects are only created when a record is read.
+ */
+public class CompactTrackingDetailStore implements EntityStore<TrackingDetail> {
+
+    private static final int BLOCK_CAPACITY = 128;
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int ARENA_CHUNK_BYTES = 1 << 20;
+    private static final int MAX_STRING_CHARS = 0xFFFF;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    // String reference layout: [2 bits free for the ZIP tag][1 bit two-byte chars][25 bits arena chunk][20 bits offset][16 bits length in chars]
+    private static final long WIDE = 1L << 61;
+
+    // Packed ZIP layout: [2 bit tag][...]; tag 1 holds digits, tag 2 a string reference; 0 is a null ZIP
+    private static final long ZIP_DIGITS = 1L << 62;
+    private static final long ZIP_STRING = 2L << 62;
+    private static final long ZIP_TAG_MASK = 3L << 62;
+    private static final int ZIP5 = 1;
+    private static final int ZIP9 = 2;
+    private static final int ZIP_PLUS4 = 3;
+
+    private final Object writeLock = new Object();
+    private volatile Table table = new Table();
+    private volatile int size;
+
+    @Override
+    public TrackingDetail get(String key) {
+        Table current = table;
+        int slot = current.find(key);
+        return slot < 0 ? null : current.materialize(slot);
+    }
+
+    @Override
+    public Page<TrackingDetail> page(String afterKey, int limit) {
+        List<TrackingDetail> items = new ArrayList<>(Math.min(limit, 256));
+        Table current = table;
+        Iterator<Integer> slots = current.slotsAfter(afterKey);
+        while (slots.hasNext()) {
+            int slot = slots.next();
+            if (items.size() == limit) {
+                return new Page<>(items, items.get(items.size() - 1).getTrackingNumber());
+            }
+            items.add(current.materialize(slot));
+        }
+        return new Page<>(items, null);
+    }
+
+    @Override
+    public Collection<TrackingDetail> values() {
+        return new AbstractCollection<TrackingDetail>() {
+            @Override
+            public Iterator<TrackingDetail> iterator() {
+                Iterator<Map.Entry<String, TrackingDetail>> entries = entries();
+                return new Iterator<TrackingDetail>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public TrackingDetail next() {
+                        return entries.next().getValue();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, TrackingDetail>> entries() {
+        Table current = table;
+        Iterator<Integer> slots = current.slotsAfter(null);
+        return new Iterator<Map.Entry<String, TrackingDetail>>() {
+            @Override
+            public boolean hasNext() {
+                return slots.hasNext();
+            }
+
+            @Override
+            public Map.Entry<String, TrackingDetail> next() {
+                TrackingDetail trackingDetail = current.materialize(slots.next());
+                return new AbstractMap.SimpleImmutableEntry<>(trackingDetail.getTrackingNumber(), trackingDetail);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, TrackingDetail value) {
+        synchronized (writeLock) {
+            Table current = table;
+            Block block = current.blockFor(key);
+            int[] slots = block.slots;
+            int index = current.search(slots, key);
+            if (index >= 0) {
+                return false;
+            }
+            int slot = current.writeSlot(current.writeString(key), value);
+            current.insert(block, slots, -index - 1, slot);
+            size++;
+            return true;
+        }
+    }
+
+    @Override
+    public boolean replace(String key, TrackingDetail expected, TrackingDetail value) {
+        synchronized (writeLock) {
+            Table current = table;
+            Block block = current.blockFor(key);
+            int[] slots = block.slots;
+            int index = current.search(slots, key);
+            if (index < 0 || !current.materialize(slots[index]).equals(expected)) {
+                return false;
+            }
+            current.update(block, slots, index, value);
+            compactIfMostlyDead();
+            return true;
+        }
+    }
+
+    @Override
+    public void put(String key, TrackingDetail value) {
+        synchronized (writeLock) {
+            Table current = table;
+            Block block = current.blockFor(key);
+            int[] slots = block.slots;
+            int index = current.search(slots, key);
+            if (index >= 0) {
+                current.update(block, slots, index, value);
+                compactIfMostlyDead();
+            } else {
+                current.insert(block, slots, -index - 1, current.writeSlot(current.writeString(key), value));
+                size++;
+            }
+        }
+    }
+
+    @Override
+    public TrackingDetail remove(String key) {
+        synchronized (writeLock) {
+            Table current = table;
+            Map.Entry<String, Block> entry = current.blocks.floorEntry(key);
+            int[] slots = entry.getValue().slots;
+            int index = current.search(slots, key);
+            if (index < 0) {
+                return null;
+            }
+            TrackingDetail removed = current.materialize(slots[index]);
+            current.delete(entry.getKey(), entry.getValue(), slots, index);
+            size--;
+            compactIfMostlyDead();
+            return removed;
+        }
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    // Rebuilds the table without dead slots and arena bytes; readers still on the old table see it unchanged
+    private void compactIfMostlyDead() {
+        Table current = table;
+        if (current.deadSlots < PAGE_SIZE || current.deadSlots < size) {
+            return;
+        }
+        Table compacted = new Table();
+        Block block = compacted.blocks.get("");
+        List<Integer> slots = new ArrayList<>(BLOCK_CAPACITY);
+        Iterator<Integer> live = current.slotsAfter(null);
+        while (live.hasNext()) {
+            int slot = live.next();
+            long keyRef = compacted.copyString(current, current.keyRef(slot));
+            long zip = current.zip(slot);
+            if ((zip & ZIP_TAG_MASK) == ZIP_STRING) {
+                zip = ZIP_STRING | compacted.copyString(current, zip & ~ZIP_TAG_MASK);
+            }
+            // Fill blocks to three quarters so the next inserts do not split them straight away
+            if (slots.size() == BLOCK_CAPACITY * 3 / 4) {
+                block.slots = toArray(slots);
+                slots.clear();
+                block = new Block(new int[0]);
+                compacted.blocks.put(compacted.readString(keyRef), block);
+            }
+            slots.add(compacted.appendSlot(keyRef, current.mailingDay(slot), zip));
+        }
+        block.slots = toArray(slots);
+        table = compacted;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Packs a ZIP or ZIP+4 ("12345", "123456789" or "12345-6789") into a long without allocating.
+     * @return the packed digits, or -1 if the value is not in one of those forms
+     */
+    static long packZip(String zip) {
+        int format;
+        if (zip.length() == 5) {
+            format = ZIP5;
+        } else if (zip.length() == 9) {
+            format = ZIP9;
+        } else if (zip.length() == 10 && zip.charAt(5) == '-') {
+            format = ZIP_PLUS4;
+        } else {
+            return -1;
+        }
+        long digits = 0;
+        for (int i = 0; i < zip.length(); i++) {
+            char c = zip.charAt(i);
+            if (format == ZIP_PLUS4 && i == 5) {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            digits = digits * 10 + (c - '0');
+        }
+        return ZIP_DIGITS | ((long) format << 40) | digits;
+    }
+
+    static String unpackZip(long packed) {
+        int format = (int) ((packed >>> 40) & 3);
+        long digits = packed & ((1L << 40) - 1);
+        char[] chars = new char[format == ZIP5 ? 5 : format == ZIP9 ? 9 : 10];
+        for (int i = chars.length - 1; i >= 0; i--) {
+            if (format == ZIP_PLUS4 && i == 5) {
+                chars[i] = '-';
+                continue;
+            }
+            chars[i] = (char) ('0' + digits % 10);
+            digits /= 10;
+        }
+        return new String(chars);
+    }
+
+    private static int chunkOf(long ref) {
+        return (int) ((ref >>> 36) & 0x1FFFFFF);
+    }
+
+    private static int offsetOf(long ref) {
+        return (int) ((ref >>> 16) & 0xFFFFF);
+    }
+
+    private static int lengthOf(long ref) {
+        return (int) (ref & 0xFFFF);
+    }
+
+    private static final class Block {
+        private volatile int[] slots;
+
+        Block(int[] slots) {
+            this.slots = slots;
+        }
+    }
+
+    /**
+     * Columns, arena and block index. Only the writer changes a table, and only by appending slots
+     * and arena bytes or publishing new block arrays, so a reader can use whatever table it read last.
+     */
+    private static final class Table {
+        // The block keyed by "" holds the lowest keys, so every key has a floor block
+        private final ConcurrentNavigableMap<String, Block> blocks = new ConcurrentSkipListMap<>();
+        private long[][] keyRefs = new long[0][];
+        private int[][] mailingDays = new int[0][];
+        private long[][] zips = new long[0][];
+        private byte[][] arena = new byte[0][];
+        private int slotCount;
+        private int arenaOffset = ARENA_CHUNK_BYTES;
+        private int deadSlots;
+
+        Table() {
+            blocks.put("", new Block(new int[0]));
+        }
+
+        long keyRef(int slot) {
+            return keyRefs[slot >>> PAGE_BITS][slot & PAGE_MASK];
+        }
+
+        int mailingDay(int slot) {
+            return mailingDays[slot >>> PAGE_BITS][slot & PAGE_MASK];
+        }
+
+        long zip(int slot) {
+            return zips[slot >>> PAGE_BITS][slot & PAGE_MASK];
+        }
+
+        TrackingDetail materialize(int slot) {
+            int day = mailingDay(slot);
+            long zip = zip(slot);
+            String zipCode;
+            if (zip == 0) {
+                zipCode = null;
+            } else if ((zip & ZIP_TAG_MASK) == ZIP_DIGITS) {
+                zipCode = unpackZip(zip);
+            } else {
+                zipCode = readString(zip & ~ZIP_TAG_MASK);
+            }
+            return new TrackingDetail(readString(keyRef(slot)), day == NO_DATE ? null : LocalDate.ofEpochDay(day), zipCode);
+        }
+
+        Block blockFor(String key) {
+            return blocks.floorEntry(key).getValue();
+        }
+
+        /**
+         * @return the slot holding the key, or -1
+         */
+        int find(String key) {
+            while (true) {
+                Block block = blockFor(key);
+                int[] slots = block.slots;
+                int index = search(slots, key);
+                if (index >= 0) {
+                    return slots[index];
+                }
+                // A miss is only final if the block was not split or removed while it was searched
+                if (blockFor(key) == block) {
+                    return -1;
+                }
+            }
+        }
+
+        /**
+         * Binary search in a block, with the same contract as Arrays.binarySearch.
+         */
+        int search(int[] slots, String key) {
+            int low = 0;
+            int high = slots.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int comparison = compare(keyRef(slots[mid]), key);
+                if (comparison < 0) {
+                    low = mid + 1;
+                } else if (comparison > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * Iterates live slots in key order, starting after the given key.
+         */
+        Iterator<Integer> slotsAfter(String afterKey) {
+            ConcurrentNavigableMap<String, Block> tail = afterKey == null ? blocks : blocks.tailMap(blocks.floorKey(afterKey), true);
+            Iterator<Block> remaining = tail.values().iterator();
+            return new Iterator<Integer>() {
+                private int[] slots = new int[0];
+                private int index;
+                private boolean skipping = afterKey != null;
+
+                @Override
+                public boolean hasNext() {
+                    while (index == slots.length && remaining.hasNext()) {
+                        slots = remaining.next().slots;
+                        index = 0;
+                        if (skipping) {
+                            int found = search(slots, afterKey);
+                            index = found >= 0 ? found + 1 : -found - 1;
+                            skipping = index == slots.length;
+                        }
+                    }
+                    return index < slots.length;
+                }
+
+                @Override
+                public Integer next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return slots[index++];
+                }
+            };
+        }
+
+        int writeSlot(long keyRef, TrackingDetail value) {
+            LocalDate mailingDate = value.getMailingDate();
+            String zipCode = value.getDestinationZipCode();
+            long zip = 0;
+            if (zipCode != null) {
+                zip = packZip(zipCode);
+                if (zip < 0) {
+                    zip = ZIP_STRING | writeString(zipCode);
+                }
+            }
+            return appendSlot(keyRef, mailingDate == null ? NO_DATE : (int) mailingDate.toEpochDay(), zip);
+        }
+
+        int appendSlot(long keyRef, int mailingDay, long zip) {
+            int slot = slotCount;
+            int page = slot >>> PAGE_BITS;
+            if (page == keyRefs.length) {
+                keyRefs = Arrays.copyOf(keyRefs, page + 1);
+                keyRefs[page] = new long[PAGE_SIZE];
+                mailingDays = Arrays.copyOf(mailingDays, page + 1);
+                mailingDays[page] = new int[PAGE_SIZE];
+                zips = Arrays.copyOf(zips, page + 1);
+                zips[page] = new long[PAGE_SIZE];
+            }
+            keyRefs[page][slot & PAGE_MASK] = keyRef;
+            mailingDays[page][slot & PAGE_MASK] = mailingDay;
+            zips[page][slot & PAGE_MASK] = zip;
+            slotCount++;
+            return slot;
+        }
+
+        void insert(Block block, int[] slots, int index, int slot) {
+            int[] inserted = new int[slots.length + 1];
+            System.arraycopy(slots, 0, inserted, 0, index);
+            inserted[index] = slot;
+            System.arraycopy(slots, index, inserted, index + 1, slots.length - index);
+            if (inserted.length <= BLOCK_CAPACITY) {
+                block.slots = inserted;
+                return;
+            }
+            // Publish the upper half before truncating, so a reader that sees the truncated block finds the new one
+            int half = inserted.length / 2;
+            blocks.put(readString(keyRef(inserted[half])), new Block(Arrays.copyOfRange(inserted, half, inserted.length)));
+            block.slots = Arrays.copyOfRange(inserted, 0, half);
+        }
+
+        void update(Block block, int[] slots, int index, TrackingDetail value) {
+            int[] updated = slots.clone();
+            updated[index] = writeSlot(keyRef(slots[index]), value);
+            block.slots = updated;
+            deadSlots++;
+        }
+
+        void delete(String blockKey, Block block, int[] slots, int index) {
+            int[] remaining = new int[slots.length - 1];
+            System.arraycopy(slots, 0, remaining, 0, index);
+            System.arraycopy(slots, index + 1, remaining, index, remaining.length - index);
+            block.slots = remaining;
+            if (remaining.length == 0 && !blockKey.isEmpty()) {
+                blocks.remove(blockKey, block);
+            }
+            deadSlots++;
+        }
+
+        long writeString(String value) {
+            int length = value.length();
+            if (length > MAX_STRING_CHARS) {
+                throw new IllegalArgumentException("Value too long for the compact tracking store: " + length + " chars");
+            }
+            boolean wide = false;
+            for (int i = 0; i < length && !wide; i++) {
+                wide = value.charAt(i) > 0xFF;
+            }
+            int bytes = wide ? length * 2 : length;
+            long ref = reserve(bytes);
+            byte[] chunk = arena[chunkOf(ref)];
+            int offset = offsetOf(ref);
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (wide) {
+                    chunk[offset + i * 2] = (byte) (c >>> 8);
+                    chunk[offset + i * 2 + 1] = (byte) c;
+                } else {
+                    chunk[offset + i] = (byte) c;
+                }
+            }
+            return (wide ? WIDE : 0) | ref | length;
+        }
+
+        long copyString(Table source, long ref) {
+            int bytes = (ref & WIDE) != 0 ? lengthOf(ref) * 2 : lengthOf(ref);
+            long target = reserve(bytes);
+            System.arraycopy(source.arena[chunkOf(ref)], offsetOf(ref), arena[chunkOf(target)], offsetOf(target), bytes);
+            return (ref & WIDE) | target | lengthOf(ref);
+        }
+
+        // Reserves arena bytes and returns their chunk and offset, already shifted into reference position
+        private long reserve(int bytes) {
+            if (arenaOffset + bytes > ARENA_CHUNK_BYTES) {
+                arena = Arrays.copyOf(arena, arena.length + 1);
+                arena[arena.length - 1] = new byte[ARENA_CHUNK_BYTES];
+                arenaOffset = 0;
+            }
+            long ref = ((long) (arena.length - 1) << 36) | ((long) arenaOffset << 16);
+            arenaOffset += bytes;
+            return ref;
+        }
+
+        String readString(long ref) {
+            boolean wide = (ref & WIDE) != 0;
+            byte[] chunk = arena[chunkOf(ref)];
+            int offset = offsetOf(ref);
+            int length = lengthOf(ref);
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = wide ? (char) (((chunk[offset + i * 2] & 0xFF) << 8) | (chunk[offset + i * 2 + 1] & 0xFF)) : (char) (chunk[offset + i] & 0xFF);
+            }
+            return new String(chars);
+        }
+
+        // Same order as String.compareTo, without decoding the stored key
+        int compare(long ref, String key) {
+            boolean wide = (ref & WIDE) != 0;
+            byte[] chunk = arena[chunkOf(ref)];
+            int offset = offsetOf(ref);
+            int length = lengthOf(ref);
+            int common = Math.min(length, key.length());
+            for (int i = 0; i < common; i++) {
+                char c = wide ? (char) (((chunk[offset + i * 2] & 0xFF) << 8) | (chunk[offset + i * 2 + 1] & 0xFF)) : (char) (chunk[offset + i] & 0xFF);
+                if (c != key.charAt(i)) {
+                    return c - key.charAt(i);
+                }
+            }
+            return length - key.length();
+        }
+    }
+}
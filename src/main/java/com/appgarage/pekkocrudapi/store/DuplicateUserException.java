@@ -0,0 +1,28 @@
+package com.appgarage.pekkocrudapi.store;
+
+/**
+ * Thrown by UserStore when a create or update would give a user the username or email of another user.
+ * Carries no stack trace, since it is an expected outcome of a request rather than a bug.
+ */
+public class DuplicateUserException extends RuntimeException {
+
+    private final String field;
+    private final String value;
+
+    public DuplicateUserException(String field, String value) {
+        super("A user with " + field + " " + value + " already exists", null, false, false);
+        this.field = field;
+        this.value = value;
+    }
+
+    /**
+     * @return "username" or "email"
+     */
+    public String getField() {
+        return field;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,12 @@
+package com.appgarage.pekkocrudapi.store;
+
+/**
+ * Binary encoding of an entity for the write-ahead log and snapshots.
+ * The key is stored next to the value, so codecs may leave it out of the encoded value.
+ */
+public interface EntityCodec<V> {
+
+    byte[] encode(V value);
+
+    V decode(String key, byte[] bytes);
+}
@@ -0,0 +1,46 @@
+package com.appgarage.pekkocrudapi.store;
+
+/**
+ * A change recorded in the journal of an event-sourced store: a create, update or delete of one entity,
+ * with the time it was applied. Created and Updated carry the new entity; Deleted carries none.
+ * @param <V> entity type, keyed by its String id
+ */
+public class EntityEvent<V> {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final String key;
+    private final V value;
+    private final long timestamp;
+
+    public EntityEvent(Type type, String key, V value, long timestamp) {
+        this.type = type;
+        this.key = key;
+        this.value = value;
+        this.timestamp = timestamp;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public V getValue() {
+        return value;
+    }
+
+    /**
+     * Milliseconds since the epoch at which the change was applied.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
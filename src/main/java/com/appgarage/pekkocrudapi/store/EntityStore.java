@@ -0,0 +1,57 @@
+package com.appgarage.pekkocrudapi.store;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Key-value storage engine behind the entity stores (ProductStore, UserStore, TrackingDetailStore).
+ * Reads must be safe from any thread; the conditional writes are what the stores build
+ * create, compare-and-set update and delete on.
+ * @param <V> entity type, keyed by its String id
+ */
+public interface EntityStore<V> extends Closeable {
+
+    V get(String key);
+
+    /**
+     * Returns up to limit entities in key order, starting after the given key.
+     * @param afterKey key of the last entity of the previous page, or null to start at the beginning
+     */
+    Page<V> page(String afterKey, int limit);
+
+    /**
+     * Live, weakly consistent view of all entities, in key order.
+     */
+    Collection<V> values();
+
+    /**
+     * Weakly consistent iteration over all keys and entities, in key order.
+     */
+    Iterator<Map.Entry<String, V>> entries();
+
+    int size();
+
+    /**
+     * Stores the value unless the key already exists.
+     * @return true if stored
+     */
+    boolean putIfAbsent(String key, V value);
+
+    /**
+     * Stores the value, replacing any existing one.
+     */
+    void put(String key, V value);
+
+    /**
+     * Replaces the value only if the key is currently mapped to expected (compared with equals).
+     * @return true if replaced
+     */
+    boolean replace(String key, V expected, V value);
+
+    /**
+     * @return the removed value, or null if the key does not exist
+     */
+    V remove(String key);
+}
@@ -0,0 +1,82 @@
+package com.appgarage.pekkocrudapi.store;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * EntityStore kept only in memory.
+ * Backed by a ConcurrentSkipListMap so reads never lock, writes are lock-free and
+ * entries can be paged in key order.
+ */
+public class InMemoryEntityStore<V> implements EntityStore<V> {
+
+    private final ConcurrentNavigableMap<String, V> entries = new ConcurrentSkipListMap<>();
+
+    @Override
+    public V get(String key) {
+        return entries.get(key);
+    }
+
+    @Override
+    public Page<V> page(String afterKey, int limit) {
+        NavigableMap<String, V> tail = afterKey == null ? entries : entries.tailMap(afterKey, false);
+        List<V> items = new ArrayList<>(Math.min(limit, 256));
+        String lastKey = null;
+        for (Map.Entry<String, V> entry : tail.entrySet()) {
+            if (items.size() == limit) {
+                return new Page<>(items, lastKey);
+            }
+            items.add(entry.getValue());
+            lastKey = entry.getKey();
+        }
+        return new Page<>(items, null);
+    }
+
+    @Override
+    public Collection<V> values() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, V>> entries() {
+        return Collections.unmodifiableMap(entries).entrySet().iterator();
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, V value) {
+        return entries.putIfAbsent(key, value) == null;
+    }
+
+    @Override
+    public void put(String key, V value) {
+        entries.put(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, V expected, V value) {
+        return entries.replace(key, expected, value);
+    }
+
+    @Override
+    public V remove(String key) {
+        return entries.remove(key);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,38 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * EntityCodec storing values as their Jackson JSON encoding.
+ */
+public class JsonEntityCodec<V> implements EntityCodec<V> {
+
+    private final ObjectMapper objectMapper;
+    private final Class<V> type;
+
+    public JsonEntityCodec(ObjectMapper objectMapper, Class<V> type) {
+        this.objectMapper = objectMapper;
+        this.type = type;
+    }
+
+    @Override
+    public byte[] encode(V value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public V decode(String key, byte[] bytes) {
+        try {
+            return objectMapper.readValue(bytes, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
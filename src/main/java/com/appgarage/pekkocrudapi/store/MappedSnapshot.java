@@ -0,0 +1,213 @@
+package com.appgarage.pekkocrudapi.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary snapshot of a store, read through FileChannel.map so lookups can start before anything is on the heap.
+ * <p>
+ * Layout: a header [int magic][int version][long first log generation to replay], the entries in key order
+ * as [int keyLength][key][int valueLength][value], an index of one long offset per entry, and a footer
+ * [long index offset][long entry count][int magic]. Point lookups binary-search the index; the file is only
+ * ever replaced by an atomic rename, so it carries no checksum and opening it reads just the header and footer.
+ */
+public class MappedSnapshot {
+
+    private static final int MAGIC = 0x454e5453;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final int FOOTER_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES;
+    // Files larger than one mapping are mapped in windows; values crossing a window boundary are copied
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private final MappedByteBuffer[] windows;
+    private final long firstGeneration;
+    private final long indexOffset;
+    private final long count;
+
+    private MappedSnapshot(MappedByteBuffer[] windows, long firstGeneration, long indexOffset, long count) {
+        this.windows = windows;
+        this.firstGeneration = firstGeneration;
+        this.indexOffset = indexOffset;
+        this.count = count;
+    }
+
+    /**
+     * Maps an existing snapshot file.
+     * @throws IOException if the file is not a complete snapshot
+     */
+    public static MappedSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + FOOTER_BYTES) {
+                throw new IOException("Truncated snapshot " + path);
+            }
+            MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((size + WINDOW_BYTES - 1) / WINDOW_BYTES)];
+            for (int i = 0; i < windows.length; i++) {
+                long start = i * WINDOW_BYTES;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, size - start));
+            }
+            MappedSnapshot snapshot = new MappedSnapshot(windows, 0, 0, 0);
+            if (snapshot.readInt(0) != MAGIC || snapshot.readInt(Integer.BYTES) != VERSION || snapshot.readInt(size - Integer.BYTES) != MAGIC) {
+                throw new IOException("Not a snapshot or unsupported version: " + path);
+            }
+            long footer = size - FOOTER_BYTES;
+            return new MappedSnapshot(windows, snapshot.readLong(Integer.BYTES * 2), snapshot.readLong(footer), snapshot.readLong(footer + Long.BYTES));
+        }
+    }
+
+    /**
+     * Writes the given entries, which must be in key order, as a snapshot file and fsyncs it.
+     * @return the number of entries written
+     */
+    public static long write(Path path, long firstGeneration, Iterator<Map.Entry<String, byte[]>> entries) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocateDirect(1 << 16);
+            out.putInt(MAGIC).putInt(VERSION).putLong(firstGeneration);
+            long position = HEADER_BYTES;
+            long[] offsets = new long[1024];
+            int count = 0;
+            while (entries.hasNext()) {
+                Map.Entry<String, byte[]> entry = entries.next();
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                byte[] value = entry.getValue();
+                int length = Integer.BYTES + key.length + Integer.BYTES + value.length;
+                if (out.remaining() < length) {
+                    drain(channel, out);
+                    if (out.capacity() < length) {
+                        out = ByteBuffer.allocateDirect(Integer.highestOneBit(length) << 1);
+                    }
+                }
+                out.putInt(key.length).put(key).putInt(value.length).put(value);
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+                offsets[count++] = position;
+                position += length;
+            }
+            for (int i = 0; i < count; i++) {
+                if (out.remaining() < Long.BYTES) {
+                    drain(channel, out);
+                }
+                out.putLong(offsets[i]);
+            }
+            if (out.remaining() < FOOTER_BYTES) {
+                drain(channel, out);
+            }
+            out.putLong(position).putLong(count).putInt(MAGIC);
+            drain(channel, out);
+            channel.force(true);
+            return count;
+        }
+    }
+
+    public long firstGeneration() {
+        return firstGeneration;
+    }
+
+    public long size() {
+        return count;
+    }
+
+    /**
+     * @return the encoded value stored under the key, or null if the snapshot does not contain it
+     */
+    public byte[] get(String key) {
+        long low = 0;
+        long high = count - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            long offset = readLong(indexOffset + mid * Long.BYTES);
+            int keyLength = readInt(offset);
+            // Compare as Strings so the order matches the in-memory ConcurrentSkipListMap
+            int comparison = new String(readBytes(offset + Integer.BYTES, keyLength), StandardCharsets.UTF_8).compareTo(key);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                long valueOffset = offset + Integer.BYTES + keyLength;
+                return readBytes(valueOffset + Integer.BYTES, readInt(valueOffset));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Iterates all entries in key order, decoding keys and copying values from the mapping.
+     */
+    public Iterator<Map.Entry<String, byte[]>> iterator() {
+        return new Iterator<Map.Entry<String, byte[]>>() {
+            private long position = HEADER_BYTES;
+
+            @Override
+            public boolean hasNext() {
+                return position < indexOffset;
+            }
+
+            @Override
+            public Map.Entry<String, byte[]> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int keyLength = readInt(position);
+                String key = new String(readBytes(position + Integer.BYTES, keyLength), StandardCharsets.UTF_8);
+                position += Integer.BYTES + keyLength;
+                int valueLength = readInt(position);
+                byte[] value = readBytes(position + Integer.BYTES, valueLength);
+                position += Integer.BYTES + valueLength;
+                return new AbstractMap.SimpleImmutableEntry<>(key, value);
+            }
+        };
+    }
+
+    private int readInt(long position) {
+        int window = (int) (position / WINDOW_BYTES);
+        int offset = (int) (position % WINDOW_BYTES);
+        if (offset + Integer.BYTES <= windows[window].limit()) {
+            return windows[window].getInt(offset);
+        }
+        return ByteBuffer.wrap(readBytes(position, Integer.BYTES)).getInt();
+    }
+
+    private long readLong(long position) {
+        int window = (int) (position / WINDOW_BYTES);
+        int offset = (int) (position % WINDOW_BYTES);
+        if (offset + Long.BYTES <= windows[window].limit()) {
+            return windows[window].getLong(offset);
+        }
+        return ByteBuffer.wrap(readBytes(position, Long.BYTES)).getLong();
+    }
+
+    private byte[] readBytes(long position, int length) {
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long at = position + copied;
+            ByteBuffer window = windows[(int) (at / WINDOW_BYTES)].duplicate();
+            window.position((int) (at % WINDOW_BYTES));
+            int chunk = Math.min(length - copied, window.remaining());
+            window.get(bytes, copied, chunk);
+            copied += chunk;
+        }
+        return bytes;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+}
@@ -0,0 +1,25 @@
+package com.appgarage.pekkocrudapi.store;
+
+import java.util.List;
+
+/**
+ * One page of entities read from a store in key order.
+ * nextKey is the key of the last item when more entities follow, otherwise null.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final String nextKey;
+
+    public Page(List<T> items, String nextKey) {
+        this.items = items;
+        this.nextKey = nextKey;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextKey() {
+        return nextKey;
+    }
+}
@@ -0,0 +1,382 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.appgarage.pekkocrudapi.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Search indexes of a ProductStore: an inverted index from every term of a product's name and description to the
+ * product, a sorted term dictionary for prefix lookups, and a sorted price index.
+ * Postings hold one Entry per indexed Product instance with its sorted terms, so candidates are scored without
+ * re-tokenizing them, name matches apart from description-only ones, and are read without locks. Removing a product
+ * only marks its Entry as removed; the postings drop it when they are compacted.
+ * The caller serializes changes per product id; changes to different products may run concurrently.
+ */
+class ProductSearchIndex {
+
+    // Terms of the last query term's prefix that are searched, in dictionary order
+    static final int MAX_PREFIX_TERMS = 64;
+
+    private static final Comparator<Entry> BY_PRICE = Comparator.comparingDouble((Entry entry) -> entry.product.getPrice())
+            .thenComparing((Entry entry) -> entry.product.getId());
+    // Orders ranked products worst first: lowest score, then found last
+    static final Comparator<Scored> WORST_FIRST = Comparator.comparingDouble((Scored scored) -> scored.score)
+            .thenComparing((Scored scored) -> scored.order, Comparator.reverseOrder());
+
+    private final ConcurrentMap<String, Postings> postings = new ConcurrentHashMap<>();
+    private final NavigableSet<String> dictionary = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Entry> byPrice = new ConcurrentSkipListSet<>(BY_PRICE);
+    // Current Entry per product id
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes a product that was just stored; does nothing if this instance is already indexed.
+     */
+    void add(Product product) {
+        Entry current = entries.get(product.getId());
+        if (current != null && current.product == product) {
+            return;
+        }
+        Entry entry = new Entry(product, canonical(ProductSearchQuery.sortedTerms(product.getName())),
+                canonical(ProductSearchQuery.sortedTerms(product.getDescription())));
+        entries.put(product.getId(), entry);
+        for (String term : entry.nameTerms) {
+            addPosting(term, entry, true);
+        }
+        for (String term : entry.descriptionTerms) {
+            if (Arrays.binarySearch(entry.nameTerms, term) < 0) {
+                addPosting(term, entry, false);
+            }
+        }
+        byPrice.add(entry);
+    }
+
+    /**
+     * Removes a product that was just replaced in or removed from the store.
+     */
+    void remove(Product product) {
+        Entry entry = entries.get(product.getId());
+        if (entry == null || entry.product != product) {
+            return;
+        }
+        entries.remove(product.getId());
+        entry.removed = true;
+        Set<String> terms = new HashSet<>(Arrays.asList(entry.nameTerms));
+        terms.addAll(Arrays.asList(entry.descriptionTerms));
+        for (String term : terms) {
+            // compute keeps compacting and dropping an emptied term atomic with adds to it
+            postings.computeIfPresent(term, (key, current) -> {
+                if (current.removed()) {
+                    return current;
+                }
+                dictionary.remove(key);
+                return null;
+            });
+        }
+        byPrice.remove(entry);
+    }
+
+    /**
+     * Ranks the products matching the query and returns the best limit of them, highest score first and ties in
+     * index order. Candidates come from the term with the fewest postings, name matches first, until no candidate
+     * left can beat the limit best found, or from the price range when it holds fewer products. At most
+     * maxCandidates candidates are visited, so a query for common terms ranks only the first maxCandidates.
+     * Without text the products in the price range are returned cheapest first.
+     */
+    List<Product> search(ProductSearchQuery query, int limit, int maxCandidates) {
+        if (!query.hasText()) {
+            List<Product> products = new ArrayList<>(Math.min(limit, 256));
+            for (Entry entry : priceRange(query)) {
+                if (products.size() == limit) {
+                    break;
+                }
+                if (!entry.removed) {
+                    products.add(entry.product);
+                }
+            }
+            return products;
+        }
+        List<Postings> candidates = null;
+        long fewest = Long.MAX_VALUE;
+        List<String> terms = query.getTerms();
+        for (String term : terms.subList(0, terms.size() - 1)) {
+            Postings termPostings = postings.get(term);
+            if (termPostings == null) {
+                return Collections.emptyList();
+            }
+            if (termPostings.size() < fewest) {
+                candidates = Collections.singletonList(termPostings);
+                fewest = termPostings.size();
+            }
+        }
+        List<Postings> prefixPostings = prefixPostings(terms.get(terms.size() - 1));
+        if (prefixPostings.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long prefixSize = 0;
+        for (Postings termPostings : prefixPostings) {
+            prefixSize += termPostings.size();
+        }
+        if (prefixSize < fewest) {
+            candidates = prefixPostings;
+            fewest = prefixSize;
+        }
+        if (query.hasPriceRange()) {
+            Segment range = smallPriceRange(query, Math.min(fewest, maxCandidates));
+            if (range != null) {
+                return rank(query, Collections.singletonList(range), Collections.emptyList(), false, limit, maxCandidates);
+            }
+        }
+        List<Segment> nameMatches = new ArrayList<>(candidates.size());
+        List<Segment> otherMatches = new ArrayList<>(candidates.size());
+        for (Postings termPostings : candidates) {
+            nameMatches.add(termPostings.name);
+            otherMatches.add(termPostings.other);
+        }
+        // A product is in the postings of every term sharing the prefix
+        return rank(query, nameMatches, otherMatches, candidates.size() > 1, limit, maxCandidates);
+    }
+
+    /**
+     * @param nameMatches candidates that may have the first term looked up in the name; otherMatches have it
+     *                    only in the description
+     */
+    private List<Product> rank(ProductSearchQuery query, List<Segment> nameMatches, List<Segment> otherMatches,
+                               boolean duplicates, int limit, int maxCandidates) {
+        PriorityQueue<Scored> best = new PriorityQueue<>(WORST_FIRST);
+        Set<Entry> seen = duplicates ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+        int visited = 0;
+        for (List<Segment> segments : Arrays.asList(nameMatches, otherMatches)) {
+            // Products found later only win with a higher score than the worst of a full result
+            double bound = query.bestScore(segments == nameMatches);
+            for (Segment segment : segments) {
+                for (int i = 0; i < segment.size; i++) {
+                    if (best.size() == limit && best.peek().score >= bound) {
+                        return sorted(best);
+                    }
+                    if (visited++ == maxCandidates) {
+                        return sorted(best);
+                    }
+                    Entry entry = segment.entries[i];
+                    if (entry.removed || (seen != null && !seen.add(entry))) {
+                        continue;
+                    }
+                    Product product = entry.product;
+                    double score = query.inPriceRange(product.getPrice()) ? query.score(entry.nameTerms, entry.descriptionTerms) : -1;
+                    if (score < 0 || (best.size() == limit && score <= best.peek().score)) {
+                        continue;
+                    }
+                    best.add(new Scored(product, score, visited));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+        return sorted(best);
+    }
+
+    private NavigableSet<Entry> priceRange(ProductSearchQuery query) {
+        if (query.getMinPrice() != null && query.getMaxPrice() != null && query.getMinPrice() > query.getMaxPrice()) {
+            return Collections.emptyNavigableSet();
+        }
+        NavigableSet<Entry> range = byPrice;
+        if (query.getMinPrice() != null) {
+            range = range.tailSet(probe(query.getMinPrice()), true);
+        }
+        if (query.getMaxPrice() != null) {
+            // Every product priced at most maxPrice sorts below the probe at the next higher price
+            range = range.headSet(probe(Math.nextUp(query.getMaxPrice())), false);
+        }
+        return range;
+    }
+
+    /**
+     * The entries in the query's price range if there are fewer than max of them, otherwise null.
+     */
+    private Segment smallPriceRange(ProductSearchQuery query, long max) {
+        Segment range = Segment.EMPTY;
+        for (Entry entry : priceRange(query)) {
+            if (range.size == max) {
+                return null;
+            }
+            range = range.append(entry);
+        }
+        return range;
+    }
+
+    private List<Postings> prefixPostings(String prefix) {
+        List<Postings> matches = new ArrayList<>();
+        for (String term : dictionary.tailSet(prefix, true)) {
+            if (!term.startsWith(prefix) || matches.size() == MAX_PREFIX_TERMS) {
+                break;
+            }
+            Postings termPostings = postings.get(term);
+            if (termPostings != null) {
+                matches.add(termPostings);
+            }
+        }
+        return matches;
+    }
+
+    private void addPosting(String term, Entry entry, boolean inName) {
+        postings.compute(term, (key, current) -> {
+            Postings target = current;
+            if (target == null) {
+                target = new Postings(key);
+                dictionary.add(key);
+            }
+            target.add(entry, inName);
+            return target;
+        });
+    }
+
+    // Shares the term Strings of the postings instead of keeping a copy per product
+    private String[] canonical(String[] terms) {
+        for (int i = 0; i < terms.length; i++) {
+            Postings termPostings = postings.get(terms[i]);
+            if (termPostings != null) {
+                terms[i] = termPostings.term;
+            }
+        }
+        return terms;
+    }
+
+    // Drains the queue into a list, best first
+    static List<Product> sorted(PriorityQueue<Scored> best) {
+        Product[] products = new Product[best.size()];
+        for (int i = products.length - 1; i >= 0; i--) {
+            products[i] = best.poll().product;
+        }
+        List<Product> ranked = new ArrayList<>(products.length);
+        Collections.addAll(ranked, products);
+        return ranked;
+    }
+
+    private static Entry probe(double price) {
+        Product probe = new Product();
+        probe.setPrice(price);
+        probe.setId("");
+        return new Entry(probe, new String[0], new String[0]);
+    }
+
+    /**
+     * The products containing one term, with the name matches and description-only matches in insertion order.
+     * Changed only inside compute on the term, so writers are serialized per term; readers see an immutable Segment.
+     */
+    private static class Postings {
+
+        private final String term;
+        private volatile Segment name = Segment.EMPTY;
+        private volatile Segment other = Segment.EMPTY;
+        private int removed;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        long size() {
+            return (long) name.size + other.size - removed;
+        }
+
+        void add(Entry entry, boolean inName) {
+            if (inName) {
+                name = name.append(entry);
+            } else {
+                other = other.append(entry);
+            }
+        }
+
+        /**
+         * Counts a removed product and compacts once half the postings are removed ones.
+         * @return false if no postings are left
+         */
+        boolean removed() {
+            removed++;
+            if (removed * 2 >= name.size + other.size) {
+                name = name.retain();
+                other = other.retain();
+                removed = 0;
+            }
+            return name.size + other.size > 0;
+        }
+    }
+
+    /**
+     * Immutable view of a postings array; appends fill the shared array past size and publish a new view.
+     */
+    private static class Segment {
+
+        static final Segment EMPTY = new Segment(new Entry[0], 0);
+
+        final Entry[] entries;
+        final int size;
+
+        Segment(Entry[] entries, int size) {
+            this.entries = entries;
+            this.size = size;
+        }
+
+        Segment append(Entry entry) {
+            Entry[] target = entries;
+            if (size == target.length) {
+                target = Arrays.copyOf(entries, Math.max(4, size + (size >> 1)));
+            }
+            target[size] = entry;
+            return new Segment(target, size + 1);
+        }
+
+        Segment retain() {
+            Entry[] target = new Entry[size];
+            int retained = 0;
+            for (int i = 0; i < size; i++) {
+                if (!entries[i].removed) {
+                    target[retained++] = entries[i];
+                }
+            }
+            return retained == 0 ? EMPTY : new Segment(target, retained);
+        }
+    }
+
+    /**
+     * One indexed version of a product with its distinct name and description terms, sorted.
+     */
+    private static class Entry {
+
+        final Product product;
+        final String[] nameTerms;
+        final String[] descriptionTerms;
+        volatile boolean removed;
+
+        Entry(Product product, String[] nameTerms, String[] descriptionTerms) {
+            this.product = product;
+            this.nameTerms = nameTerms;
+            this.descriptionTerms = descriptionTerms;
+        }
+    }
+
+    static class Scored {
+
+        final Product product;
+        final double score;
+        final long order;
+
+        Scored(Product product, double score, long order) {
+            this.product = product;
+            this.score = score;
+            this.order = order;
+        }
+    }
+}
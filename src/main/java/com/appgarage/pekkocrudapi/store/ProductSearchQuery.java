@@ -0,0 +1,146 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.appgarage.pekkocrudapi.model.Product;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Product search: free text matched against name and description, and an inclusive price range.
+ * Null criteria match everything. Every term of the text must occur in the product; the last term also matches
+ * as a prefix, for typeahead. Matches are ranked by {@link #score}.
+ */
+public class ProductSearchQuery implements Serializable {
+
+    // Points per term matched exactly in the name or the description, or only as a prefix (last term)
+    private static final double NAME_MATCH = 2;
+    private static final double DESCRIPTION_MATCH = 1;
+    private static final double PREFIX_FACTOR = 0.5;
+
+    private final String text;
+    private final Double minPrice;
+    private final Double maxPrice;
+    private final List<String> terms;
+
+    public ProductSearchQuery(String text, Double minPrice, Double maxPrice) {
+        this.text = text;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.terms = new ArrayList<>(new LinkedHashSet<>(terms(text)));
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    /**
+     * Distinct terms of the text, in order; the last one is matched as a prefix.
+     */
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    public boolean hasText() {
+        return !terms.isEmpty();
+    }
+
+    public boolean hasPriceRange() {
+        return minPrice != null || maxPrice != null;
+    }
+
+    public boolean inPriceRange(double price) {
+        return (minPrice == null || price >= minPrice) && (maxPrice == null || price <= maxPrice);
+    }
+
+    /**
+     * Relevance of a product: for each term, 2 if it is in the name, otherwise 1 if it is in the description,
+     * halved when the last term only matches as a prefix. Higher is better.
+     * @return the score, or -1 if the product does not match
+     */
+    public double score(Product product) {
+        if (!inPriceRange(product.getPrice())) {
+            return -1;
+        }
+        return score(sortedTerms(product.getName()), sortedTerms(product.getDescription()));
+    }
+
+    /**
+     * Relevance of the text alone, given the product's distinct terms in sorted order (see {@link #sortedTerms}).
+     */
+    double score(String[] nameTerms, String[] descriptionTerms) {
+        double score = 0;
+        int last = terms.size() - 1;
+        for (int i = 0; i <= last; i++) {
+            String term = terms.get(i);
+            if (Arrays.binarySearch(nameTerms, term) >= 0) {
+                score += NAME_MATCH;
+            } else if (Arrays.binarySearch(descriptionTerms, term) >= 0) {
+                score += DESCRIPTION_MATCH;
+            } else if (i == last && anyStartsWith(nameTerms, term)) {
+                score += NAME_MATCH * PREFIX_FACTOR;
+            } else if (i == last && anyStartsWith(descriptionTerms, term)) {
+                score += DESCRIPTION_MATCH * PREFIX_FACTOR;
+            } else {
+                return -1;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Highest score a product can reach, if its name contains the first term looked up or only its description does.
+     */
+    double bestScore(boolean firstTermInName) {
+        return NAME_MATCH * terms.size() - (firstTermInName ? 0 : NAME_MATCH - DESCRIPTION_MATCH);
+    }
+
+    /**
+     * Splits text into lower-case runs of letters and digits; everything else separates terms.
+     */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(c));
+            } else if (term.length() > 0) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (term.length() > 0) {
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+
+    /**
+     * Distinct terms of text in sorted order, for binary searches.
+     */
+    static String[] sortedTerms(String text) {
+        return new TreeSet<>(terms(text)).toArray(new String[0]);
+    }
+
+    // The terms starting with prefix sort at or right after its insertion point
+    private static boolean anyStartsWith(String[] sortedTerms, String prefix) {
+        int i = Arrays.binarySearch(sortedTerms, prefix);
+        int next = i >= 0 ? i : -i - 1;
+        return next < sortedTerms.length && sortedTerms[next].startsWith(prefix);
+    }
+}
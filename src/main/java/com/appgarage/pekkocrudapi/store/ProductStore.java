@@ -0,0 +1,208 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.appgarage.pekkocrudapi.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Shared store for products, used by every ProductActor routee.
+ * Storage is delegated to an EntityStore (in memory or write-ahead logged, see StoreConfig);
+ * updates are applied with a per-key compare-and-set instead of a global lock.
+ * <p>
+ * With the search index enabled, creates, updates and deletes also maintain a ProductSearchIndex, holding a lock
+ * striped by id so a product's store and index changes are applied in the same order. Products already in the
+ * EntityStore (recovered from the write-ahead log) are indexed on the first search.
+ */
+@Component
+public class ProductStore {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final EntityStore<Product> products;
+    private final ProductSearchIndex searchIndex;
+    private final int maxCandidates;
+    private final Object[] locks;
+    private volatile boolean indexed;
+
+    public ProductStore(EntityStore<Product> products) {
+        this(products, true, 10000);
+    }
+
+    @Autowired
+    public ProductStore(EntityStore<Product> products,
+                        @Value("${product.search.index.enabled:true}") boolean searchIndexEnabled,
+                        @Value("${product.search.max-candidates:10000}") int maxCandidates) {
+        this.products = products;
+        this.searchIndex = searchIndexEnabled ? new ProductSearchIndex() : null;
+        this.maxCandidates = maxCandidates;
+        this.locks = new Object[searchIndexEnabled ? LOCK_STRIPES : 0];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public Product get(String id) {
+        return products.get(id);
+    }
+
+    public List<Product> getAll() {
+        return new ArrayList<>(products.values());
+    }
+
+    /**
+     * Returns up to limit products in key order, starting after the given key.
+     * @param afterId key of the last product of the previous page, or null to start at the beginning
+     */
+    public Page<Product> page(String afterId, int limit) {
+        return products.page(afterId, limit);
+    }
+
+    /**
+     * Live, weakly consistent view of all products, for streaming without copying the store.
+     */
+    public Collection<Product> values() {
+        return products.values();
+    }
+
+    /**
+     * Stores a new product under a freshly generated id.
+     * @param product the product to store; its id is overwritten
+     * @return the stored product
+     */
+    public Product create(Product product) {
+        String id = UUID.randomUUID().toString();
+        product.setId(id);
+        while (!putIfAbsent(id, product)) {
+            id = UUID.randomUUID().toString();
+            product.setId(id);
+        }
+        return product;
+    }
+
+    /**
+     * Replaces an existing product.
+     * @return the stored product, or null if no product exists with the given id
+     */
+    public Product update(String id, Product product) {
+        if (searchIndex == null) {
+            return replace(id, product);
+        }
+        synchronized (lockFor(id)) {
+            return replace(id, product);
+        }
+    }
+
+    /**
+     * Removes a product.
+     * @return the removed product, or null if no product exists with the given id
+     */
+    public Product delete(String id) {
+        if (searchIndex == null) {
+            return products.remove(id);
+        }
+        synchronized (lockFor(id)) {
+            Product removed = products.remove(id);
+            if (removed != null) {
+                searchIndex.remove(removed);
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * Returns the limit best products matching the query, by descending score (see ProductSearchQuery.score);
+     * without text, the cheapest products in the price range.
+     * Uses the search index when enabled, otherwise scans the whole store.
+     */
+    public List<Product> search(ProductSearchQuery query, int limit) {
+        if (searchIndex == null) {
+            return scan(query, limit);
+        }
+        ensureIndexed();
+        return searchIndex.search(query, limit, maxCandidates);
+    }
+
+    private boolean putIfAbsent(String id, Product product) {
+        if (searchIndex == null) {
+            return products.putIfAbsent(id, product);
+        }
+        synchronized (lockFor(id)) {
+            if (!products.putIfAbsent(id, product)) {
+                return false;
+            }
+            searchIndex.add(product);
+            return true;
+        }
+    }
+
+    // Compare-and-set loop; with the search index the caller holds the id's lock
+    private Product replace(String id, Product product) {
+        Product current = products.get(id);
+        while (current != null) {
+            product.setId(id);
+            if (products.replace(id, current, product)) {
+                if (searchIndex != null) {
+                    searchIndex.remove(current);
+                    searchIndex.add(product);
+                }
+                return product;
+            }
+            current = products.get(id);
+        }
+        return null;
+    }
+
+    // Indexes what was in the store before the first indexed write; re-reading under the id's lock keeps it in step with concurrent writes
+    private void ensureIndexed() {
+        if (indexed) {
+            return;
+        }
+        synchronized (searchIndex) {
+            if (indexed) {
+                return;
+            }
+            Iterator<Map.Entry<String, Product>> entries = products.entries();
+            while (entries.hasNext()) {
+                String id = entries.next().getKey();
+                synchronized (lockFor(id)) {
+                    Product current = products.get(id);
+                    if (current != null) {
+                        searchIndex.add(current);
+                    }
+                }
+            }
+            indexed = true;
+        }
+    }
+
+    // Without the search index: scores every product, keeping the limit best with ties in id order; without text cheaper is better
+    private List<Product> scan(ProductSearchQuery query, int limit) {
+        PriorityQueue<ProductSearchIndex.Scored> best = new PriorityQueue<>(ProductSearchIndex.WORST_FIRST);
+        long order = 0;
+        for (Product product : products.values()) {
+            order++;
+            double score = query.score(product);
+            if (score < 0) {
+                continue;
+            }
+            best.add(new ProductSearchIndex.Scored(product, query.hasText() ? score : -product.getPrice(), order));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        return ProductSearchIndex.sorted(best);
+    }
+
+    private Object lockFor(String id) {
+        return locks[(id == null ? 0 : id.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+}
@@ -0,0 +1,105 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Opens the stores of the tracking detail buckets of cluster mode under the configured store engine.
+ * With a write-ahead log every bucket has a directory of its own, so a node keeps the buckets it owned on disk
+ * and an idle bucket can be stopped and reopened; in memory a bucket only exists while its entity runs.
+ */
+public class TrackingDetailBucketStores {
+
+    public static final TrackingDetailBucketStores MEMORY = new TrackingDetailBucketStores(null, false, 0, 0, false, false);
+
+    private static final String STORE_NAME = "tracking-details";
+
+    private final Path directory;
+    private final boolean sync;
+    private final int maxBatch;
+    private final long snapshotEvery;
+    private final boolean eventSourced;
+    private final boolean retainEvents;
+
+    /**
+     * @param directory parent of the bucket directories, or null to keep buckets in memory only
+     */
+    public TrackingDetailBucketStores(Path directory, boolean sync, int maxBatch, long snapshotEvery, boolean eventSourced, boolean retainEvents) {
+        this.directory = directory;
+        this.sync = sync;
+        this.maxBatch = maxBatch;
+        this.snapshotEvery = snapshotEvery;
+        this.eventSourced = eventSourced;
+        this.retainEvents = retainEvents;
+    }
+
+    /**
+     * Whether a bucket outlives its entity on this node.
+     */
+    public boolean isDurable() {
+        return directory != null;
+    }
+
+    /**
+     * Opens the bucket's store with whatever this node has of it.
+     */
+    public EntityStore<TrackingDetail> open(int bucket) throws IOException {
+        if (!isDurable()) {
+            return new CompactTrackingDetailStore();
+        }
+        return new WalEntityStore<>(bucketDirectory(bucket), STORE_NAME, new TrackingDetailCodec(), new CompactTrackingDetailStore(),
+                sync, maxBatch, snapshotEvery, eventSourced, retainEvents);
+    }
+
+    /**
+     * Whether this node has the bucket on disk.
+     */
+    public boolean exists(int bucket) {
+        return isDurable() && Files.isDirectory(bucketDirectory(bucket));
+    }
+
+    /**
+     * The buckets this node has on disk.
+     */
+    public List<Integer> storedBuckets() throws IOException {
+        List<Integer> buckets = new ArrayList<>();
+        if (!isDurable() || !Files.isDirectory(directory)) {
+            return buckets;
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(Files::isDirectory)
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.chars().allMatch(Character::isDigit))
+                    .forEach(name -> buckets.add(Integer.parseInt(name)));
+        }
+        return buckets;
+    }
+
+    /**
+     * Drops this node's copy of a bucket that moved to another node. A retained event journal is kept,
+     * renamed aside, as the audit trail of the writes made here.
+     */
+    public void retire(int bucket) throws IOException {
+        Path bucketDirectory = bucketDirectory(bucket);
+        if (retainEvents) {
+            Files.move(bucketDirectory, bucketDirectory.resolveSibling(bucket + ".retired-" + System.currentTimeMillis()));
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(bucketDirectory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private Path bucketDirectory(int bucket) {
+        return directory.resolve(String.valueOf(bucket));
+    }
+}
@@ -0,0 +1,39 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Fixed-layout binary encoding of a TrackingDetail: [int mailing epoch day][int zip length][zip bytes].
+ * The tracking number is the key and is not repeated in the value.
+ * Null fields are written as Integer.MIN_VALUE and a length of -1.
+ */
+public class TrackingDetailCodec implements EntityCodec<TrackingDetail> {
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    @Override
+    public byte[] encode(TrackingDetail trackingDetail) {
+        byte[] zip = trackingDetail.getDestinationZipCode() == null ? null : trackingDetail.getDestinationZipCode().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer out = ByteBuffer.allocate(Integer.BYTES + Integer.BYTES + (zip == null ? 0 : zip.length));
+        out.putInt(trackingDetail.getMailingDate() == null ? NO_DATE : (int) trackingDetail.getMailingDate().toEpochDay());
+        if (zip == null) {
+            out.putInt(-1);
+        } else {
+            out.putInt(zip.length).put(zip);
+        }
+        return out.array();
+    }
+
+    @Override
+    public TrackingDetail decode(String trackingNumber, byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        int epochDay = in.getInt();
+        int zipLength = in.getInt();
+        String zip = zipLength < 0 ? null : new String(bytes, in.position(), zipLength, StandardCharsets.UTF_8);
+        return new TrackingDetail(trackingNumber, epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay), zip);
+    }
+}
@@ -0,0 +1,96 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Secondary indexes of a TrackingDetailStore: hash indexes on the destination ZIP and on its 5-digit prefix,
+ * and a sorted index on the mailing date.
+ * Every index holds positions (see {@link TrackingDetailQuery#positionOf}) in sorted sets, so the entries of one
+ * ZIP are ordered by mailing date too and a ZIP within a date range is a single sub-set scan. The indexes of
+ * one tracking detail share its position String.
+ * The caller serializes changes per tracking number; changes to different tracking numbers may run concurrently.
+ */
+class TrackingDetailIndexes {
+
+    private final ConcurrentMap<String, NavigableSet<String>> byZip = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, NavigableSet<String>> byZipPrefix = new ConcurrentHashMap<>();
+    private final NavigableSet<String> byMailingDate = new ConcurrentSkipListSet<>();
+
+    void add(TrackingDetail trackingDetail) {
+        String position = TrackingDetailQuery.positionOf(trackingDetail);
+        String zip = trackingDetail.getDestinationZipCode();
+        add(byZip, zip, position);
+        add(byZipPrefix, TrackingDetailQuery.zipPrefixOf(zip), position);
+        if (trackingDetail.getMailingDate() != null) {
+            byMailingDate.add(position);
+        }
+    }
+
+    void remove(TrackingDetail trackingDetail) {
+        String position = TrackingDetailQuery.positionOf(trackingDetail);
+        String zip = trackingDetail.getDestinationZipCode();
+        remove(byZip, zip, position);
+        remove(byZipPrefix, TrackingDetailQuery.zipPrefixOf(zip), position);
+        byMailingDate.remove(position);
+    }
+
+    /**
+     * Positions after afterPosition that the most selective index yields for the query, in order.
+     * The query's other criteria are not applied, and positions of changes in flight may be stale;
+     * the caller checks every position against the store.
+     * @param afterPosition position of the last result of the previous page, or null to start at the beginning
+     */
+    Iterator<String> scan(TrackingDetailQuery query, String afterPosition) {
+        NavigableSet<String> positions;
+        if (query.getDestinationZipCode() != null) {
+            positions = byZip.getOrDefault(query.getDestinationZipCode(), Collections.emptyNavigableSet());
+        } else if (query.getZipPrefix() != null) {
+            positions = byZipPrefix.getOrDefault(query.getZipPrefix(), Collections.emptyNavigableSet());
+        } else {
+            positions = byMailingDate;
+        }
+        String from = query.lowestPosition();
+        boolean inclusive = true;
+        if (afterPosition != null && afterPosition.compareTo(from) >= 0) {
+            from = afterPosition;
+            inclusive = false;
+        }
+        String limit = query.positionLimit();
+        if (limit == null) {
+            return positions.tailSet(from, inclusive).iterator();
+        }
+        if (from.compareTo(limit) >= 0) {
+            return Collections.emptyIterator();
+        }
+        return positions.subSet(from, inclusive, limit, false).iterator();
+    }
+
+    // compute keeps adding to and dropping an emptied set atomic per ZIP
+    private static void add(ConcurrentMap<String, NavigableSet<String>> index, String key, String position) {
+        if (key == null) {
+            return;
+        }
+        index.compute(key, (ignored, positions) -> {
+            NavigableSet<String> target = positions == null ? new ConcurrentSkipListSet<>() : positions;
+            target.add(position);
+            return target;
+        });
+    }
+
+    private static void remove(ConcurrentMap<String, NavigableSet<String>> index, String key, String position) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (ignored, positions) -> {
+            positions.remove(position);
+            return positions.isEmpty() ? null : positions;
+        });
+    }
+}
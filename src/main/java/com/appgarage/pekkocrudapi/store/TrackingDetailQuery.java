@@ -0,0 +1,101 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Filter on the indexed fields of tracking details: an exact destination ZIP or its 5-digit prefix,
+ * and an inclusive mailing date range. Null criteria match everything.
+ * Matches are returned in position order, i.e. by mailing date and then tracking number (see {@link #positionOf}).
+ */
+public class TrackingDetailQuery implements Serializable {
+
+    public static final int ZIP_PREFIX_LENGTH = 5;
+
+    // Separates the date from the tracking number in a position; sorts below every date, so undated entries come first
+    private static final char POSITION_SEPARATOR = ' ';
+
+    private final String destinationZipCode;
+    private final String zipPrefix;
+    private final LocalDate mailedFrom;
+    private final LocalDate mailedTo;
+
+    public TrackingDetailQuery(String destinationZipCode, String zipPrefix, LocalDate mailedFrom, LocalDate mailedTo) {
+        this.destinationZipCode = destinationZipCode;
+        this.zipPrefix = zipPrefix;
+        this.mailedFrom = mailedFrom;
+        this.mailedTo = mailedTo;
+    }
+
+    public String getDestinationZipCode() {
+        return destinationZipCode;
+    }
+
+    public String getZipPrefix() {
+        return zipPrefix;
+    }
+
+    public LocalDate getMailedFrom() {
+        return mailedFrom;
+    }
+
+    public LocalDate getMailedTo() {
+        return mailedTo;
+    }
+
+    public boolean hasDateRange() {
+        return mailedFrom != null || mailedTo != null;
+    }
+
+    public boolean matches(TrackingDetail trackingDetail) {
+        String zip = trackingDetail.getDestinationZipCode();
+        if (destinationZipCode != null && !destinationZipCode.equals(zip)) {
+            return false;
+        }
+        if (zipPrefix != null && !zipPrefix.equals(zipPrefixOf(zip))) {
+            return false;
+        }
+        LocalDate mailingDate = trackingDetail.getMailingDate();
+        if (hasDateRange() && mailingDate == null) {
+            return false;
+        }
+        return (mailedFrom == null || !mailingDate.isBefore(mailedFrom))
+                && (mailedTo == null || !mailingDate.isAfter(mailedTo));
+    }
+
+    /**
+     * Lowest position within the date range; everything matching sorts at or above it.
+     */
+    String lowestPosition() {
+        return mailedFrom == null ? "" : mailedFrom.toString();
+    }
+
+    /**
+     * Bound just above the date range, or null when it is open-ended.
+     */
+    String positionLimit() {
+        return mailedTo == null ? null : mailedTo.plusDays(1).toString();
+    }
+
+    /**
+     * Sort key of a tracking detail in query results: the ISO mailing date, which orders like the date,
+     * then the tracking number. Cursors of filtered pages are positions.
+     */
+    public static String positionOf(TrackingDetail trackingDetail) {
+        LocalDate mailingDate = trackingDetail.getMailingDate();
+        return (mailingDate == null ? "" : mailingDate.toString()) + POSITION_SEPARATOR + trackingDetail.getTrackingNumber();
+    }
+
+    static String trackingNumberOf(String position) {
+        return position.substring(position.indexOf(POSITION_SEPARATOR) + 1);
+    }
+
+    /**
+     * @return the first five characters of the ZIP, or null if it is shorter
+     */
+    public static String zipPrefixOf(String zip) {
+        return zip == null || zip.length() < ZIP_PREFIX_LENGTH ? null : zip.substring(0, ZIP_PREFIX_LENGTH);
+    }
+}
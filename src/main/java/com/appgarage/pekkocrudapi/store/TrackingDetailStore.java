@@ -0,0 +1,211 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Shared store for tracking details, used by every TrackingDetailActor routee.
+ * The sharded router still gives each tracking number a single writing routee;
+ * the EntityStore behind it (in memory or write-ahead logged, see StoreConfig) lets any thread
+ * read without going through a mailbox and keeps entries in key order for paging.
+ * <p>
+ * With indexes enabled, creates, updates and deletes also maintain TrackingDetailIndexes, holding a lock striped
+ * by tracking number so a key's store and index changes are applied in the same order. Entities already in the
+ * EntityStore (recovered from the write-ahead log) are indexed on the first query.
+ */
+@Component
+public class TrackingDetailStore {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final EntityStore<TrackingDetail> trackingDetails;
+    private final TrackingDetailIndexes indexes;
+    private final Object[] locks;
+    private volatile boolean indexed;
+
+    public TrackingDetailStore(EntityStore<TrackingDetail> trackingDetails) {
+        this(trackingDetails, true);
+    }
+
+    @Autowired
+    public TrackingDetailStore(EntityStore<TrackingDetail> trackingDetails, @Value("${tracking.indexes.enabled:true}") boolean indexesEnabled) {
+        this.trackingDetails = trackingDetails;
+        this.indexes = indexesEnabled ? new TrackingDetailIndexes() : null;
+        this.locks = new Object[indexesEnabled ? LOCK_STRIPES : 0];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public TrackingDetail get(String trackingNumber) {
+        return trackingDetails.get(trackingNumber);
+    }
+
+    public List<TrackingDetail> getAll() {
+        return new ArrayList<>(trackingDetails.values());
+    }
+
+    /**
+     * Returns up to limit tracking details in key order, starting after the given key.
+     * @param afterTrackingNumber key of the last tracking detail of the previous page, or null to start at the beginning
+     */
+    public Page<TrackingDetail> page(String afterTrackingNumber, int limit) {
+        return trackingDetails.page(afterTrackingNumber, limit);
+    }
+
+    /**
+     * Live, weakly consistent view of all tracking details, for streaming without copying the store.
+     */
+    public Collection<TrackingDetail> values() {
+        return trackingDetails.values();
+    }
+
+    /**
+     * Stores a new tracking detail.
+     * @return true if stored, false if the tracking number already exists
+     */
+    public boolean create(TrackingDetail trackingDetail) {
+        String trackingNumber = trackingDetail.getTrackingNumber();
+        if (indexes == null) {
+            return trackingDetails.putIfAbsent(trackingNumber, trackingDetail);
+        }
+        synchronized (lockFor(trackingNumber)) {
+            if (!trackingDetails.putIfAbsent(trackingNumber, trackingDetail)) {
+                return false;
+            }
+            indexes.add(trackingDetail);
+            return true;
+        }
+    }
+
+    /**
+     * Replaces an existing tracking detail.
+     * @return the stored tracking detail, or null if the tracking number does not exist
+     */
+    public TrackingDetail update(String trackingNumber, TrackingDetail trackingDetail) {
+        if (indexes == null) {
+            return replace(trackingNumber, trackingDetail);
+        }
+        synchronized (lockFor(trackingNumber)) {
+            return replace(trackingNumber, trackingDetail);
+        }
+    }
+
+    /**
+     * Removes a tracking detail.
+     * @return the removed tracking detail, or null if the tracking number does not exist
+     */
+    public TrackingDetail delete(String trackingNumber) {
+        if (indexes == null) {
+            return trackingDetails.remove(trackingNumber);
+        }
+        synchronized (lockFor(trackingNumber)) {
+            TrackingDetail removed = trackingDetails.remove(trackingNumber);
+            if (removed != null) {
+                indexes.remove(removed);
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * Returns up to limit tracking details matching the query, ordered by mailing date and then tracking number.
+     * Uses the indexes when enabled, otherwise scans the whole store.
+     * @param afterPosition position (see TrackingDetailQuery.positionOf) of the last result of the previous page,
+     *                      or null to start at the beginning; the returned page's next key is a position too
+     */
+    public Page<TrackingDetail> find(TrackingDetailQuery query, String afterPosition, int limit) {
+        if (indexes == null) {
+            return scan(query, afterPosition, limit);
+        }
+        ensureIndexed();
+        List<TrackingDetail> items = new ArrayList<>(Math.min(limit, 256));
+        String lastPosition = null;
+        Iterator<String> positions = indexes.scan(query, afterPosition);
+        while (positions.hasNext()) {
+            String position = positions.next();
+            TrackingDetail trackingDetail = trackingDetails.get(TrackingDetailQuery.trackingNumberOf(position));
+            // Skips positions of a write still in flight, which the store and the index briefly disagree on
+            if (trackingDetail == null || !query.matches(trackingDetail) || !position.equals(TrackingDetailQuery.positionOf(trackingDetail))) {
+                continue;
+            }
+            if (items.size() == limit) {
+                return new Page<>(items, lastPosition);
+            }
+            items.add(trackingDetail);
+            lastPosition = position;
+        }
+        return new Page<>(items, null);
+    }
+
+    // Compare-and-set loop; with indexes the caller holds the tracking number's lock
+    private TrackingDetail replace(String trackingNumber, TrackingDetail trackingDetail) {
+        TrackingDetail current = trackingDetails.get(trackingNumber);
+        while (current != null) {
+            trackingDetail.setTrackingNumber(trackingNumber);
+            if (trackingDetails.replace(trackingNumber, current, trackingDetail)) {
+                if (indexes != null) {
+                    indexes.remove(current);
+                    indexes.add(trackingDetail);
+                }
+                return trackingDetail;
+            }
+            current = trackingDetails.get(trackingNumber);
+        }
+        return null;
+    }
+
+    // Indexes what was in the store before the first indexed write; re-reading under the key's lock keeps it in step with concurrent writes
+    private void ensureIndexed() {
+        if (indexed) {
+            return;
+        }
+        synchronized (indexes) {
+            if (indexed) {
+                return;
+            }
+            Iterator<Map.Entry<String, TrackingDetail>> entries = trackingDetails.entries();
+            while (entries.hasNext()) {
+                String trackingNumber = entries.next().getKey();
+                synchronized (lockFor(trackingNumber)) {
+                    TrackingDetail current = trackingDetails.get(trackingNumber);
+                    if (current != null) {
+                        indexes.add(current);
+                    }
+                }
+            }
+            indexed = true;
+        }
+    }
+
+    // Without indexes: keeps the limit lowest matching positions after afterPosition
+    private Page<TrackingDetail> scan(TrackingDetailQuery query, String afterPosition, int limit) {
+        TreeMap<String, TrackingDetail> lowest = new TreeMap<>();
+        boolean more = false;
+        for (TrackingDetail trackingDetail : trackingDetails.values()) {
+            String position = TrackingDetailQuery.positionOf(trackingDetail);
+            if (!query.matches(trackingDetail) || (afterPosition != null && position.compareTo(afterPosition) <= 0)) {
+                continue;
+            }
+            lowest.put(position, trackingDetail);
+            if (lowest.size() > limit) {
+                lowest.pollLastEntry();
+                more = true;
+            }
+        }
+        return new Page<>(new ArrayList<>(lowest.values()), more ? lowest.lastKey() : null);
+    }
+
+    private Object lockFor(String trackingNumber) {
+        return locks[(trackingNumber == null ? 0 : trackingNumber.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+}
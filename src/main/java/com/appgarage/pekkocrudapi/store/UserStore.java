@@ -0,0 +1,250 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.appgarage.pekkocrudapi.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shared store for users, used by every UserActor routee.
+ * Storage is delegated to an EntityStore (in memory or write-ahead logged, see StoreConfig);
+ * updates are applied with a per-key compare-and-set instead of a global lock.
+ * <p>
+ * Usernames and emails (compared case-insensitively) are unique. Hash indexes map each to the id of the user holding
+ * it: a write claims the new values with putIfAbsent before changing the EntityStore, so two writers can never both
+ * get one, and releases the values it no longer uses afterwards. Updates and deletes of one id hold a lock striped by
+ * id. Users already in the EntityStore (recovered from the write-ahead log) are indexed on first use.
+ */
+@Component
+public class UserStore {
+
+    private static final Logger log = LoggerFactory.getLogger(UserStore.class);
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final EntityStore<User> users;
+    private final ConcurrentMap<String, String> idsByUsername = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> idsByEmail = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private volatile boolean indexed;
+
+    @Autowired
+    public UserStore(EntityStore<User> users) {
+        this.users = users;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public User get(String id) {
+        return users.get(id);
+    }
+
+    /**
+     * @return the user with exactly this username, or null if there is none
+     */
+    public User getByUsername(String username) {
+        ensureIndexed();
+        String id = username == null ? null : idsByUsername.get(username);
+        User user = id == null ? null : users.get(id);
+        // The index briefly still holds the old value of a user being updated
+        return user != null && Objects.equals(user.getUsername(), username) ? user : null;
+    }
+
+    /**
+     * @return the user with this email, ignoring case, or null if there is none
+     */
+    public User getByEmail(String email) {
+        ensureIndexed();
+        String normalized = normalizeEmail(email);
+        String id = normalized == null ? null : idsByEmail.get(normalized);
+        User user = id == null ? null : users.get(id);
+        return user != null && Objects.equals(normalizeEmail(user.getEmail()), normalized) ? user : null;
+    }
+
+    public List<User> getAll() {
+        return new ArrayList<>(users.values());
+    }
+
+    /**
+     * Returns up to limit users in key order, starting after the given key.
+     * @param afterId key of the last user of the previous page, or null to start at the beginning
+     */
+    public Page<User> page(String afterId, int limit) {
+        return users.page(afterId, limit);
+    }
+
+    /**
+     * Live, weakly consistent view of all users, for streaming without copying the store.
+     */
+    public Collection<User> values() {
+        return users.values();
+    }
+
+    /**
+     * Stores a new user under a freshly generated id.
+     * @param user the user to store; its id is overwritten
+     * @return the stored user
+     * @throws DuplicateUserException if another user has the username or email
+     */
+    public User create(User user) {
+        ensureIndexed();
+        String id = UUID.randomUUID().toString();
+        user.setId(id);
+        claim(user, id);
+        try {
+            while (!users.putIfAbsent(id, user)) {
+                release(user, null, id);
+                id = UUID.randomUUID().toString();
+                user.setId(id);
+                claim(user, id);
+            }
+        } catch (RuntimeException e) {
+            // E.g. the write could not be logged: the user was not stored, so neither are its claims
+            release(user, null, id);
+            throw e;
+        }
+        return user;
+    }
+
+    /**
+     * Replaces an existing user.
+     * @return the stored user, or null if no user exists with the given id
+     * @throws DuplicateUserException if another user has the new username or email
+     */
+    public User update(String id, User user) {
+        ensureIndexed();
+        synchronized (lockFor(id)) {
+            User current = users.get(id);
+            if (current == null) {
+                return null;
+            }
+            user.setId(id);
+            claim(user, id);
+            try {
+                while (current != null) {
+                    if (users.replace(id, current, user)) {
+                        release(current, user, id);
+                        return user;
+                    }
+                    current = users.get(id);
+                }
+            } catch (RuntimeException e) {
+                release(user, current, id);
+                throw e;
+            }
+            release(user, null, id);
+            return null;
+        }
+    }
+
+    /**
+     * Removes a user.
+     * @return the removed user, or null if no user exists with the given id
+     */
+    public User delete(String id) {
+        synchronized (lockFor(id)) {
+            User removed = users.remove(id);
+            if (removed != null) {
+                release(removed, null, id);
+            }
+            return removed;
+        }
+    }
+
+    // Claims the user's username and email for id, or neither if another user holds one of them
+    private void claim(User user, String id) {
+        boolean claimedUsername = claim(idsByUsername, user.getUsername(), id, "username");
+        try {
+            claim(idsByEmail, normalizeEmail(user.getEmail()), id, "email");
+        } catch (DuplicateUserException e) {
+            if (claimedUsername) {
+                idsByUsername.remove(user.getUsername(), id);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if newly claimed, false if id already held the value or there is none
+     */
+    private static boolean claim(ConcurrentMap<String, String> index, String value, String id, String field) {
+        if (value == null) {
+            return false;
+        }
+        String holder = index.putIfAbsent(value, id);
+        if (holder == null) {
+            return true;
+        }
+        if (holder.equals(id)) {
+            return false;
+        }
+        throw new DuplicateUserException(field, value);
+    }
+
+    // Releases the values of a user's previous version that its current version (or null) does not use
+    private void release(User previous, User current, String id) {
+        String username = previous.getUsername();
+        if (username != null && (current == null || !username.equals(current.getUsername()))) {
+            idsByUsername.remove(username, id);
+        }
+        String email = normalizeEmail(previous.getEmail());
+        if (email != null && (current == null || !email.equals(normalizeEmail(current.getEmail())))) {
+            idsByEmail.remove(email, id);
+        }
+    }
+
+    // Indexes what was in the store before the first write or lookup; earlier duplicates keep the first holder
+    private void ensureIndexed() {
+        if (indexed) {
+            return;
+        }
+        synchronized (idsByUsername) {
+            if (indexed) {
+                return;
+            }
+            int duplicates = 0;
+            Iterator<Map.Entry<String, User>> entries = users.entries();
+            while (entries.hasNext()) {
+                String id = entries.next().getKey();
+                synchronized (lockFor(id)) {
+                    User current = users.get(id);
+                    if (current == null) {
+                        continue;
+                    }
+                    if (current.getUsername() != null && idsByUsername.putIfAbsent(current.getUsername(), id) != null) {
+                        duplicates++;
+                    }
+                    String email = normalizeEmail(current.getEmail());
+                    if (email != null && idsByEmail.putIfAbsent(email, id) != null) {
+                        duplicates++;
+                    }
+                }
+            }
+            if (duplicates > 0) {
+                log.warn("{} stored usernames or emails are held by more than one user; lookups return the first", duplicates);
+            }
+            indexed = true;
+        }
+    }
+
+    private static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private Object lockFor(String id) {
+        return locks[(id == null ? 0 : id.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+}
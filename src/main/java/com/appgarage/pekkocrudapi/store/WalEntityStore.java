@@ -0,0 +1,353 @@
+package com.appgarage.pekkocrudapi.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * EntityStore that keeps every entity in an in-memory EntityStore and makes writes durable through a WriteAheadLog.
+ * Each write is applied to the map and queued to the log under one lock, so the log order matches the
+ * map order; the caller then waits for the group commit outside the lock, so concurrent writers share fsyncs.
+ * A write whose record fails is undone in memory before the failure is thrown to its caller.
+ * <p>
+ * On startup the snapshot is only mapped, the log tail is replayed onto the heap, and a background thread
+ * copies the snapshot into the heap map. Until it finishes, a key is "resolved" once it is on the heap or
+ * in the tombstone set; point reads and writes of unresolved keys fall back to the mapped snapshot
+ * (resolving them under the write lock), while scans and size() wait for the load to complete.
+ * <p>
+ * In event-sourced mode writes are logged as EntityEvents: putIfAbsent as Created, put and replace as Updated,
+ * remove as Deleted, each with its timestamp. The actors' create, update and delete commands map one to one
+ * onto them, so with retainEvents the log is an audit trail of every change, read back with readEvents.
+ */
+public class WalEntityStore<V> implements EntityStore<V> {
+
+    private static final Logger log = LoggerFactory.getLogger(WalEntityStore.class);
+    private static final int LOAD_BATCH = 1024;
+
+    private final String name;
+    private final EntityCodec<V> codec;
+    private final EntityStore<V> memory;
+    private final boolean eventSourced;
+    private final WriteAheadLog writeAheadLog;
+    private final Object writeLock = new Object();
+    private final Set<String> tombstones = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private volatile MappedSnapshot snapshot;
+
+    /**
+     * Opens the store from the latest snapshot and log tail in the directory.
+     * Returns once the log tail is replayed; the snapshot is loaded onto the heap in the background.
+     * @param name file name prefix for this store's log segments and snapshot
+     * @param memory empty store holding the entities in memory
+     */
+    public WalEntityStore(Path directory, String name, EntityCodec<V> codec, EntityStore<V> memory,
+                          boolean sync, int maxBatch, long snapshotEvery) throws IOException {
+        this(directory, name, codec, memory, sync, maxBatch, snapshotEvery, false, false);
+    }
+
+    /**
+     * @param eventSourced log writes as EntityEvents instead of puts and deletes
+     * @param retainEvents keep the log segments covered by snapshots, so readEvents sees every change
+     */
+    public WalEntityStore(Path directory, String name, EntityCodec<V> codec, EntityStore<V> memory,
+                          boolean sync, int maxBatch, long snapshotEvery, boolean eventSourced, boolean retainEvents) throws IOException {
+        this.name = name;
+        this.codec = codec;
+        this.memory = memory;
+        this.eventSourced = eventSourced;
+        this.writeAheadLog = new WriteAheadLog(directory, name, sync, maxBatch, snapshotEvery, retainEvents, this::encodedEntries);
+        // Records of either kind are replayed, so a store can switch between modes
+        MappedSnapshot mapped = writeAheadLog.open((op, key, value) -> {
+            if (op == WriteAheadLog.PUT) {
+                memory.put(key, codec.decode(key, value));
+            } else if (op == WriteAheadLog.CREATED || op == WriteAheadLog.UPDATED) {
+                memory.put(key, decodeEvent(codec, key, value));
+            } else {
+                memory.remove(key);
+                tombstones.add(key);
+            }
+        });
+        if (mapped == null) {
+            tombstones.clear();
+            loaded.countDown();
+        } else {
+            snapshot = mapped;
+            Thread loader = new Thread(this::loadSnapshot, name + "-snapshot-loader");
+            loader.setDaemon(true);
+            loader.start();
+        }
+    }
+
+    @Override
+    public V get(String key) {
+        V value = memory.get(key);
+        if (value != null || snapshot == null) {
+            return value;
+        }
+        synchronized (writeLock) {
+            return resolve(key);
+        }
+    }
+
+    @Override
+    public Page<V> page(String afterKey, int limit) {
+        awaitLoaded();
+        return memory.page(afterKey, limit);
+    }
+
+    @Override
+    public Collection<V> values() {
+        awaitLoaded();
+        return memory.values();
+    }
+
+    @Override
+    public int size() {
+        awaitLoaded();
+        return memory.size();
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, V>> entries() {
+        awaitLoaded();
+        return memory.entries();
+    }
+
+    @Override
+    public void put(String key, V value) {
+        byte[] encoded = codec.encode(value);
+        V previous;
+        CompletableFuture<Void> written;
+        synchronized (writeLock) {
+            previous = resolve(key);
+            if (snapshot != null) {
+                tombstones.add(key);
+            }
+            memory.put(key, value);
+            written = append(WriteAheadLog.UPDATED, key, encoded);
+        }
+        awaitWritten(written, key, value, previous);
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, V value) {
+        byte[] encoded = codec.encode(value);
+        CompletableFuture<Void> written;
+        synchronized (writeLock) {
+            if (resolve(key) != null || !memory.putIfAbsent(key, value)) {
+                return false;
+            }
+            written = append(WriteAheadLog.CREATED, key, encoded);
+        }
+        awaitWritten(written, key, value, null);
+        return true;
+    }
+
+    @Override
+    public boolean replace(String key, V expected, V value) {
+        byte[] encoded = codec.encode(value);
+        V previous;
+        CompletableFuture<Void> written;
+        synchronized (writeLock) {
+            previous = resolve(key);
+            if (!memory.replace(key, expected, value)) {
+                return false;
+            }
+            written = append(WriteAheadLog.UPDATED, key, encoded);
+        }
+        awaitWritten(written, key, value, previous);
+        return true;
+    }
+
+    @Override
+    public V remove(String key) {
+        V removed;
+        CompletableFuture<Void> written;
+        synchronized (writeLock) {
+            resolve(key);
+            removed = memory.remove(key);
+            if (removed == null) {
+                return null;
+            }
+            if (snapshot != null) {
+                tombstones.add(key);
+            }
+            written = append(WriteAheadLog.DELETED, key, null);
+        }
+        awaitWritten(written, key, null, removed);
+        return removed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeAheadLog.close();
+        memory.close();
+    }
+
+    /**
+     * Blocks until the mapped snapshot has been copied onto the heap.
+     */
+    public void awaitLoaded() {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading the " + name + " snapshot", e);
+        }
+    }
+
+    /**
+     * Reads every event retained in the log of an event-sourced store, oldest first, e.g. to audit the
+     * changes to one entity. Can be called while the store is open; events written since are not seen.
+     * Records of a store that was not event-sourced have no timestamp and are skipped.
+     */
+    public static <V> void readEvents(Path directory, String name, EntityCodec<V> codec, Consumer<EntityEvent<V>> handler) throws IOException {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, name, false, 1, Long.MAX_VALUE, true, Collections::emptyIterator);
+        writeAheadLog.replayAll((op, key, value) -> {
+            long timestamp = op >= WriteAheadLog.CREATED ? ByteBuffer.wrap(value).getLong() : 0;
+            if (op == WriteAheadLog.CREATED) {
+                handler.accept(new EntityEvent<>(EntityEvent.Type.CREATED, key, decodeEvent(codec, key, value), timestamp));
+            } else if (op == WriteAheadLog.UPDATED) {
+                handler.accept(new EntityEvent<>(EntityEvent.Type.UPDATED, key, decodeEvent(codec, key, value), timestamp));
+            } else if (op == WriteAheadLog.DELETED) {
+                handler.accept(new EntityEvent<>(EntityEvent.Type.DELETED, key, null, timestamp));
+            }
+        });
+    }
+
+    // Maps a write to its record: the event with a timestamp prefix, or a plain put or delete.
+    // A record that cannot be queued, e.g. after close, is a failed future, so awaitWritten undoes the write.
+    private CompletableFuture<Void> append(byte event, String key, byte[] encoded) {
+        try {
+            return appendRecord(event, key, encoded);
+        } catch (RuntimeException e) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private CompletableFuture<Void> appendRecord(byte event, String key, byte[] encoded) {
+        if (!eventSourced) {
+            return writeAheadLog.append(event == WriteAheadLog.DELETED ? WriteAheadLog.DELETE : WriteAheadLog.PUT, key, encoded);
+        }
+        int length = encoded == null ? 0 : encoded.length;
+        ByteBuffer value = ByteBuffer.allocate(Long.BYTES + length).putLong(System.currentTimeMillis());
+        if (encoded != null) {
+            value.put(encoded);
+        }
+        return writeAheadLog.append(event, key, value.array());
+    }
+
+    private static <V> V decodeEvent(EntityCodec<V> codec, String key, byte[] value) {
+        return codec.decode(key, Arrays.copyOfRange(value, Long.BYTES, value.length));
+    }
+
+    // Moves an unresolved key from the mapped snapshot onto the heap. Caller holds writeLock.
+    private V resolve(String key) {
+        V value = memory.get(key);
+        MappedSnapshot mapped = snapshot;
+        if (value != null || mapped == null || tombstones.contains(key)) {
+            return value;
+        }
+        byte[] encoded = mapped.get(key);
+        if (encoded == null) {
+            return null;
+        }
+        value = codec.decode(key, encoded);
+        memory.put(key, value);
+        return value;
+    }
+
+    private void loadSnapshot() {
+        long start = System.nanoTime();
+        MappedSnapshot mapped = snapshot;
+        Iterator<Map.Entry<String, byte[]>> iterator = mapped.iterator();
+        try {
+            while (iterator.hasNext()) {
+                synchronized (writeLock) {
+                    for (int i = 0; i < LOAD_BATCH && iterator.hasNext(); i++) {
+                        Map.Entry<String, byte[]> entry = iterator.next();
+                        if (!tombstones.contains(entry.getKey())) {
+                            memory.putIfAbsent(entry.getKey(), codec.decode(entry.getKey(), entry.getValue()));
+                        }
+                    }
+                }
+            }
+            synchronized (writeLock) {
+                snapshot = null;
+                tombstones.clear();
+            }
+            log.info("Loaded {} snapshot entries of {} in {} ms", mapped.size(), name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            log.error("Failed to load the {} snapshot; unloaded keys are still read from the mapped file", name, e);
+        } finally {
+            loaded.countDown();
+        }
+    }
+
+    // Snapshots need every entry on the heap, so this waits for a pending load first
+    private Iterator<Map.Entry<String, byte[]>> encodedEntries() {
+        awaitLoaded();
+        if (snapshot != null) {
+            throw new IllegalStateException("The " + name + " snapshot was not fully loaded; keeping the previous snapshot");
+        }
+        Iterator<Map.Entry<String, V>> live = memory.entries();
+        return new Iterator<Map.Entry<String, byte[]>>() {
+            @Override
+            public boolean hasNext() {
+                return live.hasNext();
+            }
+
+            @Override
+            public Map.Entry<String, byte[]> next() {
+                Map.Entry<String, V> entry = live.next();
+                return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), codec.encode(entry.getValue()));
+            }
+        };
+    }
+
+    /**
+     * Waits for the record of a write to key, which changed it from previous to value (null for absent). If the
+     * record could not be written, the write is undone in memory, unless a later write has changed the key
+     * since, and the failure is thrown; the write was not acknowledged, so it must not outlive a restart either.
+     * The entity actors wait for each write before the next, so one group never holds two writes of a key.
+     */
+    private void awaitWritten(CompletableFuture<Void> written, String key, V value, V previous) {
+        if (written == null) {
+            return;
+        }
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            synchronized (writeLock) {
+                if (Objects.equals(memory.get(key), value)) {
+                    if (previous == null) {
+                        memory.remove(key);
+                    } else {
+                        memory.put(key, previous);
+                    }
+                }
+            }
+            throw new UncheckedIOException(new IOException("Write-ahead log append failed for " + name + " key " + key, e.getCause()));
+        }
+    }
+}
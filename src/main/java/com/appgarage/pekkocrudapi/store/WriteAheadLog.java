@@ -0,0 +1,442 @@
+package com.appgarage.pekkocrudapi.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only redo log with group commit and periodic snapshots.
+ * <p>
+ * Records are whole-value puts and deletes, so replaying them is idempotent. A single writer thread drains
+ * all records queued since its last write, writes them in one call and, in sync mode, fsyncs once for the
+ * whole group before acknowledging any of them. After snapshotEvery records the writer rolls to a new
+ * segment and a background thread writes a snapshot of the live entries; segments older than the snapshot
+ * are then deleted. The snapshot does not need to be consistent: everything written after the roll is
+ * also in the newer segments, which recovery replays on top of it.
+ * <p>
+ * Replay of a segment stops at its first torn or corrupt record, so nothing may be appended after one: a group
+ * whose write fails is cut off the segment again, or, if that fails too, the writer continues in a new segment.
+ * New files, the snapshot included, are made durable by fsyncing the directory after creating or renaming them.
+ * <p>
+ * With retainSegments the covered segments are kept instead, so the log doubles as a full history of changes
+ * that replayAll reads back; recovery still starts from the snapshot.
+ * <p>
+ * On disk a record is [int length][int crc32][byte op][int keyLength][key][value]. Segments are named
+ * name-generation.wal; the snapshot, name.snapshot, is a MappedSnapshot recording the first generation to replay.
+ */
+public class WriteAheadLog implements Closeable {
+
+    public static final byte PUT = 1;
+    public static final byte DELETE = 2;
+    // Event records of event-sourced stores, whose value starts with the event's timestamp
+    public static final byte CREATED = 3;
+    public static final byte UPDATED = 4;
+    public static final byte DELETED = 5;
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+    private static final int HEADER_BYTES = 8;
+    private static final int REPLAY_BUFFER_BYTES = 1 << 20;
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    /**
+     * Receives records during recovery, oldest first.
+     */
+    public interface RecordHandler {
+        void apply(byte op, String key, byte[] value);
+    }
+
+    private final Path directory;
+    private final String name;
+    private final boolean sync;
+    private final int maxBatch;
+    private final long snapshotEvery;
+    private final boolean retainSegments;
+    private final Supplier<Iterator<Map.Entry<String, byte[]>>> snapshotSource;
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService snapshotExecutor;
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private FileChannel segment;
+    private long generation;
+    private long segmentRecords;
+    // End of the last group written whole to the current segment
+    private long segmentEnd;
+
+    /**
+     * @param sync if true, append futures complete only after the group containing the record is fsynced
+     * @param maxBatch maximum number of records written and fsynced as one group
+     * @param snapshotEvery number of records after which the log rolls over and a snapshot is taken
+     * @param retainSegments if true, segments covered by a snapshot are kept rather than deleted
+     * @param snapshotSource iterates the live entries, encoded, when a snapshot is taken
+     */
+    public WriteAheadLog(Path directory, String name, boolean sync, int maxBatch, long snapshotEvery, boolean retainSegments,
+                         Supplier<Iterator<Map.Entry<String, byte[]>>> snapshotSource) {
+        this.directory = directory;
+        this.name = name;
+        this.sync = sync;
+        this.maxBatch = maxBatch;
+        this.snapshotEvery = snapshotEvery;
+        this.retainSegments = retainSegments;
+        this.snapshotSource = snapshotSource;
+        this.snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, name + "-wal-snapshot"));
+        this.writer = daemon(this::writeLoop, name + "-wal-writer");
+    }
+
+    /**
+     * Maps the latest snapshot, replays every newer segment into the handler, then opens a fresh segment
+     * and starts the writer. A torn record at the end of a segment (from a crash mid-write) ends the replay of that segment.
+     * @return the snapshot the replayed records apply on top of, or null if there is none
+     */
+    public MappedSnapshot open(RecordHandler handler) throws IOException {
+        Files.createDirectories(directory);
+        // Left by a crash while a snapshot was written; the previous snapshot is still in place
+        Files.deleteIfExists(temporarySnapshotPath());
+        long firstGeneration = 0;
+        MappedSnapshot snapshot = null;
+        if (Files.exists(snapshotPath())) {
+            snapshot = MappedSnapshot.open(snapshotPath());
+            firstGeneration = snapshot.firstGeneration();
+        }
+        long lastGeneration = firstGeneration - 1;
+        for (Path path : segmentsFrom(firstGeneration)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (!replay(channel, handler)) {
+                    log.warn("Ignored the torn or corrupt end of {}", path);
+                }
+            }
+            lastGeneration = generationOf(path);
+        }
+        roll(Math.max(lastGeneration + 1, firstGeneration));
+        writer.start();
+        return snapshot;
+    }
+
+    /**
+     * Replays every segment in the directory into the handler, oldest first, ignoring the snapshot.
+     * Only complete when segments are retained; safe to call while another instance appends to the log.
+     */
+    public void replayAll(RecordHandler handler) throws IOException {
+        for (Path path : segmentsFrom(0)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                replay(channel, handler);
+            }
+        }
+    }
+
+    /**
+     * Queues a record for the writer thread. Call under the same lock as the in-memory change,
+     * so records for a key reach the log in the order they were applied.
+     * @return a future completed once the record is written (and fsynced in sync mode), or null when not in sync mode
+     */
+    public CompletableFuture<Void> append(byte op, String key, byte[] value) {
+        if (!running) {
+            throw new IllegalStateException("Write-ahead log " + name + " is closed");
+        }
+        CompletableFuture<Void> written = sync ? new CompletableFuture<>() : null;
+        queue.add(new PendingRecord(encode(op, key, value), written));
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join();
+            snapshotExecutor.shutdown();
+            snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Records queued after the writer stopped were never written
+        for (PendingRecord record : queue) {
+            if (record.written != null) {
+                record.written.completeExceptionally(new IOException("Write-ahead log " + name + " is closed"));
+            }
+        }
+        if (segment != null) {
+            segment.force(false);
+            segment.close();
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                writeGroup(batch);
+                for (PendingRecord record : batch) {
+                    if (record.written != null) {
+                        record.written.complete(null);
+                    }
+                }
+                segmentRecords += batch.size();
+                if (segmentRecords >= snapshotEvery && snapshotRunning.compareAndSet(false, true)) {
+                    roll(generation + 1);
+                    long snapshotGeneration = generation;
+                    snapshotExecutor.execute(() -> snapshot(snapshotGeneration));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to write {} records to the {} write-ahead log", batch.size(), name, e);
+                for (PendingRecord record : batch) {
+                    if (record.written != null) {
+                        record.written.completeExceptionally(e);
+                    }
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeGroup(List<PendingRecord> batch) throws IOException {
+        if (segment == null) {
+            // The previous group failed and so did opening a new segment
+            roll(generation + 1);
+        }
+        int size = 0;
+        for (PendingRecord record : batch) {
+            size += record.bytes.length;
+        }
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(size) << 1);
+        }
+        buffer.clear();
+        for (PendingRecord record : batch) {
+            buffer.put(record.bytes);
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            if (sync) {
+                segment.force(false);
+            }
+        } catch (IOException | RuntimeException e) {
+            discardFailedGroup();
+            throw e;
+        }
+        segmentEnd += size;
+    }
+
+    // Cuts a partly written group off the segment, so the records appended next are not lost behind it on replay
+    private void discardFailedGroup() {
+        try {
+            segment.truncate(segmentEnd);
+            segment.position(segmentEnd);
+            return;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to truncate the {} write-ahead log segment {}; continuing in a new segment", name, generation, e);
+        }
+        // Replay stops at the tear in the abandoned segment and goes on with the next one
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.warn("Failed to close the {} write-ahead log segment {}", name, generation, e);
+        }
+        segment = null;
+        try {
+            roll(generation + 1);
+        } catch (IOException e) {
+            log.error("Failed to open a new {} write-ahead log segment", name, e);
+        }
+    }
+
+    private void roll(long nextGeneration) throws IOException {
+        if (segment != null) {
+            segment.force(false);
+            segment.close();
+        }
+        segment = null;
+        generation = nextGeneration;
+        segmentRecords = 0;
+        segment = FileChannel.open(segmentPath(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentEnd = segment.size();
+        if (sync) {
+            syncDirectory();
+        }
+    }
+
+    // Writes every live entry to a temporary file, swaps it in atomically and drops the segments it covers, unless retained
+    private void snapshot(long firstGeneration) {
+        long start = System.nanoTime();
+        Path temporary = temporarySnapshotPath();
+        try {
+            long count = MappedSnapshot.write(temporary, firstGeneration, snapshotSource.get());
+            Files.move(temporary, snapshotPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // Before the segments it covers are deleted, the rename must be durable
+            syncDirectory();
+            for (Path path : segmentsFrom(0)) {
+                if (!retainSegments && generationOf(path) < firstGeneration) {
+                    Files.delete(path);
+                }
+            }
+            log.info("Wrote {} snapshot with {} entries in {} ms", name, count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write {} snapshot", name, e);
+        } finally {
+            snapshotRunning.set(false);
+        }
+    }
+
+    // Reads the segment through one buffer rather than two reads per record, which dominated replay time.
+    // Returns false if it stopped at a torn or corrupt record before the end of the segment.
+    private static boolean replay(FileChannel channel, RecordHandler handler) throws IOException {
+        long unread = channel.size() - channel.position();
+        ByteBuffer buffer = ByteBuffer.allocate(REPLAY_BUFFER_BYTES);
+        buffer.flip();
+        CRC32 crc = new CRC32();
+        while (unread >= HEADER_BYTES) {
+            buffer = fill(channel, buffer, HEADER_BYTES);
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            unread -= HEADER_BYTES;
+            if (length < 5 || length > unread) {
+                return false;
+            }
+            buffer = fill(channel, buffer, length);
+            unread -= length;
+            int start = buffer.position();
+            crc.reset();
+            crc.update(buffer.array(), start, length);
+            if ((int) crc.getValue() != checksum) {
+                return false;
+            }
+            byte op = buffer.get();
+            int keyLength = buffer.getInt();
+            String key = new String(buffer.array(), buffer.position(), keyLength, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + keyLength);
+            byte[] value = new byte[start + length - buffer.position()];
+            buffer.get(value);
+            handler.apply(op, key, value);
+        }
+        return unread == 0;
+    }
+
+    // Makes at least bytes readable, compacting the buffer or growing it for a large record; the caller checked the segment holds them
+    private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        ByteBuffer target = buffer.capacity() >= bytes ? buffer.compact() : ByteBuffer.allocate(bytes).put(buffer);
+        while (target.position() < bytes) {
+            if (channel.read(target) < 0) {
+                throw new EOFException("Write-ahead log segment ended inside a record");
+            }
+        }
+        target.flip();
+        return target;
+    }
+
+    private static byte[] encode(byte op, String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int valueLength = value == null ? 0 : value.length;
+        int length = 1 + Integer.BYTES + keyBytes.length + valueLength;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + length);
+        record.putInt(length).putInt(0).put(op).putInt(keyBytes.length).put(keyBytes);
+        if (value != null) {
+            record.put(value);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, length);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        return record.array();
+    }
+
+    private List<Path> segmentsFrom(long firstGeneration) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> isSegment(path) && generationOf(path) >= firstGeneration)
+                    .sorted((a, b) -> Long.compare(generationOf(a), generationOf(b)))
+                    .forEach(segments::add);
+        }
+        return segments;
+    }
+
+    private boolean isSegment(Path path) {
+        String fileName = path.getFileName().toString();
+        return fileName.startsWith(name + "-") && fileName.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private long generationOf(Path path) {
+        String fileName = path.getFileName().toString();
+        try {
+            return Long.parseLong(fileName.substring(name.length() + 1, fileName.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new UncheckedIOException(new IOException("Unexpected write-ahead log file " + path, e));
+        }
+    }
+
+    private Path segmentPath(long segmentGeneration) {
+        return directory.resolve(String.format("%s-%016d%s", name, segmentGeneration, SEGMENT_SUFFIX));
+    }
+
+    private Path snapshotPath() {
+        return directory.resolve(name + ".snapshot");
+    }
+
+    private Path temporarySnapshotPath() {
+        return directory.resolve(name + ".snapshot.tmp");
+    }
+
+    private void syncDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            // Directories cannot be opened on Windows, where creates and renames need no fsync of their own
+            log.debug("Cannot fsync directory {}", directory, e);
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String threadName) {
+        Thread thread = new Thread(runnable, threadName);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static class PendingRecord {
+        private final byte[] bytes;
+        private final CompletableFuture<Void> written;
+
+        PendingRecord(byte[] bytes, CompletableFuture<Void> written) {
+            this.bytes = bytes;
+            this.written = written;
+        }
+    }
+}
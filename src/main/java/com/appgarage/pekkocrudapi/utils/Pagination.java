@@ -0,0 +1,48 @@
+package com.appgarage.pekkocrudapi.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Utility class for cursor-based pagination of GET-all endpoints.
+ * Pages are returned in key order; a cursor is the opaque, URL-safe encoding of the last key returned on the
+ * previous page, and the cursor for the next page is sent in the {@value #NEXT_CURSOR_HEADER} header.
+ */
+public class Pagination {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private Pagination() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Clamps a requested page size to 1..MAX_LIMIT, using DEFAULT_LIMIT when none was given.
+     */
+    public static int clampLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    public static String encodeCursor(String key) {
+        if (key == null) {
+            return null;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor back into the key it was created from.
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public static String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+}
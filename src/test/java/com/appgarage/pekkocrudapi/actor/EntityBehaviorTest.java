@@ -0,0 +1,73 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.model.Product;
+import com.appgarage.pekkocrudapi.store.InMemoryEntityStore;
+import com.appgarage.pekkocrudapi.store.ProductStore;
+import com.typesafe.config.ConfigFactory;
+import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.actor.typed.ActorRef;
+import org.apache.pekko.actor.typed.javadsl.Adapter;
+import org.apache.pekko.actor.typed.javadsl.AskPattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EntityBehaviorTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    // The cluster provider, where the typed Receptionist would need pekko-cluster-typed
+    private final ActorSystem system = ActorSystem.create("EntityBehaviorTest", ConfigFactory.parseString(
+            "pekko.actor.provider = cluster\npekko.remote.artery.canonical.port = 0").withFallback(ConfigFactory.load()));
+    private final ProductStore productStore = new ProductStore(new InMemoryEntityStore<>());
+
+    @AfterEach
+    void terminate() throws Exception {
+        system.terminate();
+        system.getWhenTerminated().toCompletableFuture().get(30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void answersAskPatternThroughReplyTo() throws Exception {
+        Product product = productStore.create(product("Shirt"));
+        ActorRef<EntityCommand> behavior = Adapter.spawn(system, ProductActor.behavior(productStore), "products");
+
+        ProductMessages.ProductResponse found = (ProductMessages.ProductResponse) ask(behavior, new ProductMessages.GetProduct(product.getId()));
+        ProductMessages.ProductResponse missing = (ProductMessages.ProductResponse) ask(behavior, new ProductMessages.GetProduct("missing"));
+
+        assertEquals("Shirt", found.getEntity().getName());
+        assertNull(missing.getEntity());
+        assertNotNull(missing.getError());
+    }
+
+    @Test
+    void answersThroughTheReplyPool() throws Exception {
+        Product product = productStore.create(product("Shirt"));
+        ActorRef<EntityCommand> behavior = Adapter.spawn(system, ProductActor.behavior(productStore), "products");
+
+        ProductMessages.ProductResponse found = ReplyPool.get(system)
+                .ask(Adapter.toClassic(behavior), new ProductMessages.GetProduct(product.getId()), TIMEOUT.toMillis())
+                .get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+
+        assertEquals("Shirt", found.getEntity().getName());
+    }
+
+    private static Product product(String name) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(10);
+        product.setDescription(name);
+        return product;
+    }
+
+    private Object ask(ActorRef<EntityCommand> behavior, EntityRequest<?> request) throws Exception {
+        return AskPattern.<EntityCommand, EntityReply>ask(behavior, replyTo -> new EntityCommand(request, 0, replyTo), TIMEOUT, Adapter.toTyped(system.scheduler()))
+                .toCompletableFuture().get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).getResponse();
+    }
+}
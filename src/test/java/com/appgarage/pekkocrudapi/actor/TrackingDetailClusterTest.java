@@ -0,0 +1,173 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.store.TrackingDetailBucketStores;
+import com.typesafe.config.ConfigFactory;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.actor.CoordinatedShutdown;
+import org.apache.pekko.cluster.Cluster;
+import org.apache.pekko.cluster.sharding.ClusterSharding;
+import org.apache.pekko.cluster.sharding.ShardRegion;
+import org.apache.pekko.pattern.Patterns;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two cluster nodes in one JVM: buckets rebalanced to a joining node, and back when it leaves, keep their
+ * tracking details, whether they are held in memory or passivated to disk.
+ */
+class TrackingDetailClusterTest {
+
+    private static final int TRACKING_DETAILS = 100;
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final List<ActorSystem> systems = new ArrayList<>();
+
+    @AfterEach
+    void terminate() throws Exception {
+        for (ActorSystem system : systems) {
+            system.terminate();
+            system.getWhenTerminated().toCompletableFuture().get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void handsBucketsOverWhenNodesJoinAndLeave() throws Exception {
+        ActorSystem first = node(null);
+        ActorRef firstRouter = TrackingDetailCluster.start(first, "1.0", TrackingDetailBucketStores.MEMORY, null);
+        createAll(firstRouter);
+
+        ActorSystem second = node(Cluster.get(first).selfAddress().toString());
+        ActorRef secondRouter = TrackingDetailCluster.start(second, "1.0", TrackingDetailBucketStores.MEMORY, null);
+        awaitCondition(() -> shardCount(second) > 0);
+
+        // Buckets now on the second node were pulled from the first one's archive
+        assertAllReadable(secondRouter);
+        assertAllReadable(firstRouter);
+
+        CoordinatedShutdown.get(second).runAll(CoordinatedShutdown.clusterLeavingReason())
+                .toCompletableFuture().get(30, TimeUnit.SECONDS);
+        awaitCondition(() -> Cluster.get(first).state().members().size() == 1);
+
+        assertAllReadable(firstRouter);
+    }
+
+    @Test
+    void reloadsPassivatedBucketsAndHandsThemOverFromDisk() throws Exception {
+        ActorSystem first = node(null);
+        ActorRef firstRouter = TrackingDetailCluster.start(first, "1.0", bucketStores("first"), null);
+        createAll(firstRouter);
+        awaitCondition(() -> entityCount(first) == 0);
+
+        // Reopened from the first node's disk
+        assertAllReadable(firstRouter);
+        awaitCondition(() -> entityCount(first) == 0);
+
+        // Buckets moving to the second node while passivated are taken from the first node's disk
+        ActorSystem second = node(Cluster.get(first).selfAddress().toString());
+        ActorRef secondRouter = TrackingDetailCluster.start(second, "1.0", bucketStores("second"), null);
+        awaitCondition(() -> shardCount(second) > 0);
+        assertAllReadable(secondRouter);
+        awaitCondition(() -> entityCount(second) == 0);
+
+        // The leaving node has its passivated buckets started on the first node before it goes
+        CoordinatedShutdown.get(second).runAll(CoordinatedShutdown.clusterLeavingReason())
+                .toCompletableFuture().get(30, TimeUnit.SECONDS);
+        awaitCondition(() -> Cluster.get(first).state().members().size() == 1);
+
+        assertAllReadable(firstRouter);
+    }
+
+    private TrackingDetailBucketStores bucketStores(String node) {
+        return new TrackingDetailBucketStores(directory.resolve(node), true, 1024, 100000, false, false);
+    }
+
+    private static void createAll(ActorRef router) throws Exception {
+        for (int i = 0; i < TRACKING_DETAILS; i++) {
+            TrackingDetailMessages.TrackingDetailResponse created =
+                    ask(router, new TrackingDetailMessages.CreateTrackingDetail(new TrackingDetail("TN-" + i, null, "10001")));
+            assertNull(created.getError());
+        }
+    }
+
+    private ActorSystem node(String seedNode) {
+        String config = "pekko.actor.provider = cluster\n"
+                + "pekko.remote.artery.canonical.port = 0\n"
+                + "pekko.cluster.seed-nodes = [" + (seedNode != null ? "\"" + seedNode + "\"" : "") + "]\n"
+                + "pekko.cluster.jmx.multi-mbeans-in-same-jvm = on\n"
+                + "pekko.cluster.sharding.rebalance-interval = 500ms\n"
+                + "tracking-detail-cluster.number-of-buckets = 16\n"
+                + "tracking-detail-cluster.passivate-after = 1s\n";
+        ActorSystem system = ActorSystem.create("TrackingDetailClusterTest", ConfigFactory.parseString(config).withFallback(ConfigFactory.load()));
+        systems.add(0, system);
+        return system;
+    }
+
+    private static void assertAllReadable(ActorRef router) throws Exception {
+        for (int i = 0; i < TRACKING_DETAILS; i++) {
+            TrackingDetailMessages.TrackingDetailResponse response = ask(router, new TrackingDetailMessages.GetTrackingDetail("TN-" + i));
+            assertNotNull(response.getTrackingDetail(), "TN-" + i);
+            assertEquals("10001", response.getTrackingDetail().getDestinationZipCode());
+        }
+        TrackingDetailMessages.TrackingDetailListResponse all = (TrackingDetailMessages.TrackingDetailListResponse) Patterns
+                .ask(router, new TrackingDetailMessages.GetAllTrackingDetails(), TIMEOUT)
+                .toCompletableFuture().get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        assertEquals(TRACKING_DETAILS, all.getTrackingDetails().size());
+    }
+
+    private static int shardCount(ActorSystem system) {
+        try {
+            ActorRef region = ClusterSharding.get(system).shardRegion(TrackingDetailCluster.TYPE_NAME);
+            Object state = Patterns.ask(region, ShardRegion.getShardRegionStateInstance(), TIMEOUT)
+                    .toCompletableFuture().get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            return ((ShardRegion.CurrentShardRegionState) state).getShards().size();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static int entityCount(ActorSystem system) {
+        try {
+            ActorRef region = ClusterSharding.get(system).shardRegion(TrackingDetailCluster.TYPE_NAME);
+            Object state = Patterns.ask(region, ShardRegion.getShardRegionStateInstance(), TIMEOUT)
+                    .toCompletableFuture().get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            int entities = 0;
+            for (ShardRegion.ShardState shard : ((ShardRegion.CurrentShardRegionState) state).getShards()) {
+                entities += shard.getEntityIds().size();
+            }
+            return entities;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static TrackingDetailMessages.TrackingDetailResponse ask(ActorRef router, Object message) throws Exception {
+        return (TrackingDetailMessages.TrackingDetailResponse) Patterns.ask(router, message, TIMEOUT)
+                .toCompletableFuture().get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(100);
+        }
+    }
+}
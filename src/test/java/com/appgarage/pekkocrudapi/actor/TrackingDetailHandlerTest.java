@@ -0,0 +1,75 @@
+package com.appgarage.pekkocrudapi.actor;
+
+import com.appgarage.pekkocrudapi.cache.IdempotencyCache;
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.store.InMemoryEntityStore;
+import com.appgarage.pekkocrudapi.store.TrackingDetailStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrackingDetailHandlerTest {
+
+    private final TrackingDetailStore store = new TrackingDetailStore(new InMemoryEntityStore<>());
+    private final TrackingDetailHandler handler = new TrackingDetailHandler("1.0", store, null, new IdempotencyCache<>(1024, 300));
+
+    @Test
+    void replaysCreatesRetriedWithTheSameKey() {
+        TrackingDetail trackingDetail = new TrackingDetail("9400", LocalDate.of(2024, 5, 1), "10001");
+
+        TrackingDetailMessages.TrackingDetailResponse created = create(trackingDetail, "key-1");
+        TrackingDetailMessages.TrackingDetailResponse retried = create(copy(trackingDetail), "key-1");
+
+        assertNull(created.getError());
+        assertSame(created, retried);
+        // Without the key the second create is a duplicate
+        assertEquals("150004", create(copy(trackingDetail), null).getError().getReturnCode());
+    }
+
+    @Test
+    void replaysDuplicatesToo() {
+        TrackingDetail trackingDetail = new TrackingDetail("9400", null, "10001");
+        create(trackingDetail, null);
+
+        TrackingDetailMessages.TrackingDetailResponse duplicate = create(copy(trackingDetail), "key-1");
+        store.delete("9400");
+
+        assertEquals("150004", duplicate.getError().getReturnCode());
+        assertSame(duplicate, create(copy(trackingDetail), "key-1"));
+    }
+
+    @Test
+    void rejectsKeyReusedForAnotherTrackingDetail() {
+        create(new TrackingDetail("9400", null, "10001"), "key-1");
+
+        TrackingDetailMessages.TrackingDetailResponse reused = create(new TrackingDetail("9401", null, "10001"), "key-1");
+
+        assertEquals("150009", reused.getError().getReturnCode());
+        assertTrue(reused.isConflict());
+        assertNull(store.get("9401"));
+    }
+
+    @Test
+    void rejectsUpdatesWithoutATrackingDetail() {
+        create(new TrackingDetail("9400", null, "10001"), null);
+
+        TrackingDetailMessages.TrackingDetailResponse response =
+                (TrackingDetailMessages.TrackingDetailResponse) handler.handle(new TrackingDetailMessages.UpdateTrackingDetail("9400", null));
+
+        assertEquals("150001", response.getError().getReturnCode());
+        assertEquals("10001", store.get("9400").getDestinationZipCode());
+    }
+
+    private TrackingDetailMessages.TrackingDetailResponse create(TrackingDetail trackingDetail, String idempotencyKey) {
+        return (TrackingDetailMessages.TrackingDetailResponse) handler.handle(new TrackingDetailMessages.CreateTrackingDetail(trackingDetail, idempotencyKey));
+    }
+
+    private static TrackingDetail copy(TrackingDetail trackingDetail) {
+        return new TrackingDetail(trackingDetail.getTrackingNumber(), trackingDetail.getMailingDate(), trackingDetail.getDestinationZipCode());
+    }
+}
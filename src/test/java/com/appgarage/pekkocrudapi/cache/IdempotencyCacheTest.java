@@ -0,0 +1,61 @@
+package com.appgarage.pekkocrudapi.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IdempotencyCacheTest {
+
+    @Test
+    void replaysTheLatestResponseForAKey() {
+        IdempotencyCache<String, String> cache = new IdempotencyCache<>(64, 300);
+
+        assertNull(cache.get("key"));
+        cache.put("key", "request", "created");
+        assertEquals("request", cache.get("key").getRequest());
+        assertEquals("created", cache.get("key").getResponse());
+        assertNull(cache.get("other"));
+
+        cache.put("key", "request", "duplicate");
+        assertEquals("duplicate", cache.get("key").getResponse());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void forgetsResponsesOutsideTheWindow() {
+        IdempotencyCache<String, String> cache = new IdempotencyCache<>(64, 0);
+        cache.put("key", "request", "created");
+
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void staysWithinItsSlotsAndKeepsRecentKeys() {
+        IdempotencyCache<String, String> cache = new IdempotencyCache<>(1000, 300);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry, "test");
+        for (int i = 0; i < 100_000; i++) {
+            cache.put("key" + i, "request", "response" + i);
+        }
+
+        assertEquals(1024, cache.size());
+        // Each set displaces its oldest entry, so the newest key is always kept
+        assertEquals("response99999", cache.get("key99999").getResponse());
+        assertEquals(100_000, registry.get("cache.puts").tag("cache", "test").functionCounter().count());
+        assertEquals(100_000 - 1024, registry.get("cache.evictions").tag("cache", "test").functionCounter().count());
+    }
+
+    @Test
+    void disabledCacheKeepsNothing() {
+        IdempotencyCache<String, String> cache = new IdempotencyCache<>(0, 300);
+        cache.put("key", "request", "created");
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+}
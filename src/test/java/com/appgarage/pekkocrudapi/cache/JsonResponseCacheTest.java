@@ -0,0 +1,99 @@
+package com.appgarage.pekkocrudapi.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pekko.util.ByteString;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonResponseCacheTest {
+
+    @Test
+    void servesCachedJsonUntilInvalidated() {
+        JsonResponseCache cache = new JsonResponseCache(100);
+        ByteString json = ByteString.fromString("{\"trackingNumber\":\"A\"}");
+
+        assertNull(cache.get("A"));
+        cache.put("A", json, cache.stamp());
+        assertEquals(json, cache.get("A"));
+
+        cache.invalidate("A");
+        assertNull(cache.get("A"));
+    }
+
+    @Test
+    void dropsJsonReadBeforeAnInvalidation() {
+        JsonResponseCache cache = new JsonResponseCache(100);
+        long stamp = cache.stamp();
+        // A write lands between the read of the entity and its put
+        cache.invalidate("A");
+        cache.put("A", ByteString.fromString("old"), stamp);
+        assertNull(cache.get("A"));
+
+        cache.put("A", ByteString.fromString("new"), cache.stamp());
+        assertEquals(ByteString.fromString("new"), cache.get("A"));
+        // Other keys are unaffected by the invalidation
+        cache.put("B", ByteString.fromString("b"), stamp);
+        assertNotNull(cache.get("B"));
+    }
+
+    @Test
+    void keepsHotEntriesThroughScansOfOneOffKeys() {
+        JsonResponseCache cache = new JsonResponseCache(100);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                String key = "hot" + i;
+                if (cache.get(key) == null) {
+                    cache.put(key, ByteString.fromString(key), cache.stamp());
+                }
+            }
+        }
+        // The hot keys keep being read while one-off keys stream past
+        for (int i = 0; i < 10_000; i++) {
+            cache.get("hot" + i % 100);
+            String key = "cold" + i;
+            if (cache.get(key) == null) {
+                cache.put(key, ByteString.fromString(key), cache.stamp());
+            }
+            assertTrue(cache.size() <= 100);
+        }
+
+        int hot = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.get("hot" + i) != null) {
+                hot++;
+            }
+        }
+        assertTrue(hot >= 90, hot + " hot entries left");
+    }
+
+    @Test
+    void disabledCacheKeepsNothing() {
+        JsonResponseCache cache = new JsonResponseCache(0);
+        cache.put("A", ByteString.fromString("a"), cache.stamp());
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.get("A"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void publishesCacheMeters() {
+        JsonResponseCache cache = new JsonResponseCache(100);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry, "test");
+        cache.get("A");
+        cache.put("A", ByteString.fromString("a"), cache.stamp());
+        cache.get("A");
+        cache.get("A");
+
+        assertEquals(2, registry.get("cache.gets").tag("cache", "test").tag("result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tag("cache", "test").tag("result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("cache.puts").tag("cache", "test").functionCounter().count());
+        assertEquals(1, registry.get("cache.size").tag("cache", "test").gauge().value());
+    }
+}
@@ -0,0 +1,61 @@
+package com.appgarage.pekkocrudapi.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pekko.actor.ActorSystem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ActorMetricsTest {
+
+    private static final String DEFAULT_DISPATCHER = "pekko.actor.default-dispatcher";
+
+    private final List<ActorSystem> systems = new ArrayList<>();
+
+    @AfterEach
+    void terminate() throws Exception {
+        for (ActorSystem system : systems) {
+            system.terminate();
+            system.getWhenTerminated().toCompletableFuture().get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void bindsTheDispatchersOfSystemsWithTheSameName() throws Exception {
+        SimpleMeterRegistry first = bind(start());
+        SimpleMeterRegistry second = bind(start());
+
+        assertNotNull(first.find("executor.active").tag("name", DEFAULT_DISPATCHER).gauge());
+        assertNotNull(second.find("executor.active").tag("name", DEFAULT_DISPATCHER).gauge());
+    }
+
+    @Test
+    void bindsAgainAfterASystemOfTheSameNameTerminated() throws Exception {
+        ActorSystem previous = start();
+        previous.terminate();
+        previous.getWhenTerminated().toCompletableFuture().get(30, TimeUnit.SECONDS);
+
+        SimpleMeterRegistry registry = bind(start());
+
+        assertNotNull(registry.find("executor.active").tag("name", DEFAULT_DISPATCHER).gauge());
+    }
+
+    private ActorSystem start() throws Exception {
+        ActorSystem system = ActorSystem.create("ActorMetricsTest");
+        systems.add(system);
+        // Runs a task so the default dispatcher has started its pool
+        system.dispatcher().execute(() -> { });
+        return system;
+    }
+
+    private static SimpleMeterRegistry bind(ActorSystem system) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ActorMetrics.get(system).bind(registry);
+        return registry;
+    }
+}
@@ -0,0 +1,81 @@
+package com.appgarage.pekkocrudapi.metrics;
+
+import org.apache.pekko.http.javadsl.model.HttpRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UriTemplatesTest {
+
+    private static final Function<String, String> TEMPLATE = Function.identity();
+
+    @Test
+    void replacesIdsButKeepsActions() {
+        UriTemplates<String> templates = new UriTemplates<>(100, TEMPLATE);
+
+        assertEquals("/", templates.get(HttpRequest.create("/")));
+        assertEquals("/api/tracking-details", templates.get(HttpRequest.create("/api/tracking-details")));
+        assertEquals("/api/tracking-details/{id}", templates.get(HttpRequest.create("/api/tracking-details/TN-1")));
+        assertEquals("/api/tracking-details/{id}", templates.get(HttpRequest.create("/api/tracking-details/TN-2/")));
+        assertEquals("/api/tracking-details/_batch", templates.get(HttpRequest.create("/api/tracking-details/_batch")));
+        assertEquals("/api/users/by-email/{id}", templates.get(HttpRequest.create("/api/users/by-email/a@example.com")));
+        assertEquals("/api/products/{id}/{id}", templates.get(HttpRequest.create("/api/products/1/search")));
+        assertEquals("/api/products/search", templates.get(HttpRequest.create("/api/products/search?q=shirt")));
+    }
+
+    @Test
+    void createsOneValuePerTemplate() {
+        UriTemplates<Object> templates = new UriTemplates<>(100, template -> new Object());
+
+        Object first = templates.get(HttpRequest.create("/api/products/1"));
+        assertSame(first, templates.get(HttpRequest.create("/api/products/2")));
+        assertSame(first, templates.register("/api/products/{id}"));
+    }
+
+    @Test
+    void sharesOtherOnceFull() {
+        UriTemplates<String> templates = new UriTemplates<>(2, TEMPLATE);
+        templates.get(HttpRequest.create("/api/products"));
+        templates.get(HttpRequest.create("/api/users"));
+
+        assertEquals(UriTemplates.OTHER, templates.get(HttpRequest.create("/api/tracking-details")));
+        assertEquals("/api/products", templates.get(HttpRequest.create("/api/products")));
+        // Registered templates do not count against the bound
+        assertEquals("/api/tracking-details/{id}", templates.register("/api/tracking-details/{id}"));
+        assertEquals("/api/tracking-details/{id}", templates.get(HttpRequest.create("/api/tracking-details/TN-1")));
+    }
+
+    @Test
+    void matchesOnlyRegisteredTemplatesWithoutABound() {
+        UriTemplates<String> templates = new UriTemplates<>(0, TEMPLATE);
+        templates.register("/api/tracking-details/{id}");
+
+        assertEquals("/api/tracking-details/{id}", templates.get(HttpRequest.create("/api/tracking-details/TN-1")));
+        assertEquals(UriTemplates.OTHER, templates.get(HttpRequest.create("/api/tracking-details")));
+        assertEquals(UriTemplates.OTHER, templates.get(HttpRequest.create("/api/tracking-details/_batch")));
+    }
+
+    @Test
+    void keepsMatchingAsTheTableGrows() {
+        UriTemplates<String> templates = new UriTemplates<>(1000, TEMPLATE);
+        for (int i = 0; i < 200; i++) {
+            assertEquals("/api/resource" + i + "/{id}", templates.get(HttpRequest.create("/api/resource" + i + "/" + i)));
+        }
+        for (int i = 0; i < 200; i++) {
+            assertEquals("/api/resource" + i, templates.get(HttpRequest.create("/api/resource" + i)));
+            assertEquals("/api/resource" + i + "/{id}", templates.get(HttpRequest.create("/api/resource" + i + "/x")));
+        }
+    }
+
+    @Test
+    void rejectsTemplatesNoPathHas() {
+        UriTemplates<String> templates = new UriTemplates<>(100, TEMPLATE);
+
+        assertThrows(IllegalArgumentException.class, () -> templates.register("/api/products/1"));
+        assertThrows(IllegalArgumentException.class, () -> templates.register("/{id}/products"));
+    }
+}
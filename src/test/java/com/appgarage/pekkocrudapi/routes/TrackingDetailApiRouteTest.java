@@ -0,0 +1,72 @@
+package com.appgarage.pekkocrudapi.routes;
+
+import com.appgarage.pekkocrudapi.actor.EntityRouters;
+import com.appgarage.pekkocrudapi.actor.TrackingDetailActor;
+import com.appgarage.pekkocrudapi.config.JacksonConfig;
+import com.appgarage.pekkocrudapi.logging.AccessLog;
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import com.appgarage.pekkocrudapi.store.InMemoryEntityStore;
+import com.appgarage.pekkocrudapi.store.TrackingDetailStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pekko.actor.ActorRef;
+import org.apache.pekko.actor.ActorSystem;
+import org.apache.pekko.http.javadsl.model.ContentTypes;
+import org.apache.pekko.http.javadsl.model.HttpRequest;
+import org.apache.pekko.http.javadsl.model.HttpResponse;
+import org.apache.pekko.japi.function.Function;
+import org.apache.pekko.stream.Materializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrackingDetailApiRouteTest {
+
+    private static final String PATH = "/api/tracking-details";
+
+    private final ActorSystem actorSystem = ActorSystem.create("TrackingDetailApiRouteTest");
+    private final TrackingDetailStore store = new TrackingDetailStore(new InMemoryEntityStore<>());
+    private final AccessLog accessLog = new AccessLog(new SimpleMeterRegistry(), false, 16, 0, 0, false, 0, new String[0], "info", new String[0]);
+    private final Function<HttpRequest, CompletionStage<HttpResponse>> handler;
+
+    TrackingDetailApiRouteTest() {
+        ActorRef router = EntityRouters.create(actorSystem, EntityRouters.TRACKING_DETAIL_ROUTER, TrackingDetailActor.props("1.0", store));
+        JsonEntitySupport jsonEntitySupport = new JsonEntitySupport(new JacksonConfig().objectMapper(), 65536, 268435456L, 65536, 1000);
+        TrackingDetailApiRoute route = new TrackingDetailApiRoute(actorSystem, "1.0", router, store, true, jsonEntitySupport, null, accessLog);
+        handler = route.createRoute().seal().handler(actorSystem);
+    }
+
+    @AfterEach
+    void terminate() throws Exception {
+        accessLog.close();
+        actorSystem.terminate();
+        actorSystem.getWhenTerminated().toCompletableFuture().get(30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void rejectsNullBodies() throws Exception {
+        store.create(new TrackingDetail("9400", null, "10001"));
+
+        assertBadRequest(handle(HttpRequest.POST(PATH).withEntity(ContentTypes.APPLICATION_JSON, "null")));
+        assertBadRequest(handle(HttpRequest.PUT(PATH + "/9400").withEntity(ContentTypes.APPLICATION_JSON, "null")));
+        assertEquals("10001", store.get("9400").getDestinationZipCode());
+    }
+
+    private static void assertBadRequest(String[] response) {
+        assertEquals("400", response[0]);
+        assertTrue(response[1].contains("\"150001\""), response[1]);
+    }
+
+    // Status code and body
+    private String[] handle(HttpRequest request) throws Exception {
+        HttpResponse response = handler.apply(request).toCompletableFuture().get(5, TimeUnit.SECONDS);
+        String body = response.entity().toStrict(5000, Materializer.matFromSystem(actorSystem)).toCompletableFuture()
+                .get(5, TimeUnit.SECONDS).getData().decodeString(StandardCharsets.UTF_8);
+        return new String[]{Integer.toString(response.status().intValue()), body};
+    }
+}
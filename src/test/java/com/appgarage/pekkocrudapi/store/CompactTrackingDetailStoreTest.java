@@ -0,0 +1,168 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactTrackingDetailStoreTest {
+
+    @Test
+    void roundTripsEveryFieldEncoding() {
+        CompactTrackingDetailStore store = new CompactTrackingDetailStore();
+        String[] zips = {"02134", "021340001", "02134-0001", "ABC12", "", null, "1234-56789", "0213-40001"};
+        List<TrackingDetail> stored = new ArrayList<>();
+        for (int i = 0; i < zips.length; i++) {
+            stored.add(trackingDetail("9400" + i, i % 2 == 0 ? null : LocalDate.of(2024, 1, i), zips[i]));
+        }
+        // Characters outside Latin-1 are stored two bytes each
+        stored.add(trackingDetail("9400\u0394\u03a9", LocalDate.of(1999, 12, 31), "\u00e9t\u00e9"));
+
+        for (TrackingDetail trackingDetail : stored) {
+            assertTrue(store.putIfAbsent(trackingDetail.getTrackingNumber(), trackingDetail));
+        }
+
+        for (TrackingDetail trackingDetail : stored) {
+            assertEquals(trackingDetail, store.get(trackingDetail.getTrackingNumber()));
+        }
+        assertEquals(stored.size(), store.size());
+    }
+
+    @Test
+    void packsOnlyZipDigitForms() {
+        for (String zip : new String[]{"00000", "99999", "123456789", "12345-6789"}) {
+            assertEquals(zip, CompactTrackingDetailStore.unpackZip(CompactTrackingDetailStore.packZip(zip)));
+        }
+        for (String zip : new String[]{"1234", "1234a", "12345 6789", "12345678", "123456-789"}) {
+            assertEquals(-1, CompactTrackingDetailStore.packZip(zip));
+        }
+    }
+
+    @Test
+    void matchesSortedMapUnderRandomWrites() {
+        CompactTrackingDetailStore store = new CompactTrackingDetailStore();
+        TreeMap<String, TrackingDetail> expected = new TreeMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            String key = String.format("TN%05d", random.nextInt(3000));
+            TrackingDetail value = trackingDetail(key, LocalDate.ofEpochDay(random.nextInt(20_000)), String.format("%05d", random.nextInt(100_000)));
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertEquals(expected.putIfAbsent(key, value) == null, store.putIfAbsent(key, value));
+                    break;
+                case 1:
+                    TrackingDetail current = expected.get(key);
+                    boolean replaced = store.replace(key, current == null ? value : current, value);
+                    assertEquals(current != null, replaced);
+                    if (replaced) {
+                        expected.put(key, value);
+                    }
+                    break;
+                case 2:
+                    store.put(key, value);
+                    expected.put(key, value);
+                    break;
+                default:
+                    assertEquals(expected.remove(key), store.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), store.size());
+        Iterator<Map.Entry<String, TrackingDetail>> entries = store.entries();
+        for (Map.Entry<String, TrackingDetail> entry : expected.entrySet()) {
+            Map.Entry<String, TrackingDetail> actual = entries.next();
+            assertEquals(entry.getKey(), actual.getKey());
+            assertEquals(entry.getValue(), actual.getValue());
+        }
+        assertFalse(entries.hasNext());
+
+        List<TrackingDetail> paged = new ArrayList<>();
+        String after = null;
+        do {
+            Page<TrackingDetail> page = store.page(after, 100);
+            paged.addAll(page.getItems());
+            after = page.getNextKey();
+        } while (after != null);
+        assertEquals(new ArrayList<>(expected.values()), paged);
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(store.values()));
+    }
+
+    @Test
+    void iterationIsUnaffectedByConcurrentWrites() throws Exception {
+        CompactTrackingDetailStore store = new CompactTrackingDetailStore();
+        for (int i = 0; i < 10_000; i += 2) {
+            store.put(key(i), trackingDetail(key(i), null, "12345"));
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            Random random = new Random(7);
+            while (writing.get()) {
+                int i = random.nextInt(10_000);
+                if (random.nextBoolean()) {
+                    store.put(key(i), trackingDetail(key(i), LocalDate.ofEpochDay(i), "54321"));
+                } else {
+                    store.remove(key(i));
+                }
+            }
+        });
+        try {
+            for (int round = 0; round < 50; round++) {
+                String previous = null;
+                for (Iterator<Map.Entry<String, TrackingDetail>> entries = store.entries(); entries.hasNext(); ) {
+                    Map.Entry<String, TrackingDetail> entry = entries.next();
+                    // Slots are never changed once published, so a record is always whole and in key order
+                    assertEquals(entry.getKey(), entry.getValue().getTrackingNumber());
+                    assertTrue(previous == null || previous.compareTo(entry.getKey()) < 0);
+                    previous = entry.getKey();
+                }
+            }
+        } finally {
+            writing.set(false);
+            writer.get();
+        }
+    }
+
+    @Test
+    void reclaimsSpaceOfUpdatesAndDeletes() {
+        CompactTrackingDetailStore store = new CompactTrackingDetailStore();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 1000; i++) {
+                store.put(key(i), trackingDetail(key(i), LocalDate.ofEpochDay(round), "round-" + round));
+            }
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            store.remove(key(i));
+        }
+
+        assertEquals(500, store.size());
+        for (int i = 0; i < 1000; i++) {
+            TrackingDetail trackingDetail = store.get(key(i));
+            if (i % 2 == 0) {
+                assertNull(trackingDetail);
+            } else {
+                assertEquals(trackingDetail(key(i), LocalDate.ofEpochDay(19), "round-19"), trackingDetail);
+            }
+        }
+    }
+
+    private static TrackingDetail trackingDetail(String trackingNumber, LocalDate mailingDate, String zip) {
+        return new TrackingDetail(trackingNumber, mailingDate, zip);
+    }
+
+    private static String key(int i) {
+        return String.format("TN%05d", i);
+    }
+}
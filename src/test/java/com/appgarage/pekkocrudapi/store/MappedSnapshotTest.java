@@ -0,0 +1,88 @@
+package com.appgarage.pekkocrudapi.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void looksUpAndIteratesWrittenEntries() throws IOException {
+        Map<String, byte[]> entries = new TreeMap<>();
+        for (int i = 0; i < 5000; i++) {
+            entries.put("key-" + i, ("value-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        // Larger than the write buffer
+        byte[] large = new byte[200_000];
+        Arrays.fill(large, (byte) 7);
+        entries.put("large", large);
+        entries.put("empty", new byte[0]);
+        Path path = directory.resolve("test.snapshot");
+
+        assertEquals(entries.size(), MappedSnapshot.write(path, 42, entries.entrySet().iterator()));
+        MappedSnapshot snapshot = MappedSnapshot.open(path);
+
+        assertEquals(42, snapshot.firstGeneration());
+        assertEquals(entries.size(), snapshot.size());
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            assertArrayEquals(entry.getValue(), snapshot.get(entry.getKey()), entry.getKey());
+        }
+        assertNull(snapshot.get("key-5000"));
+        assertNull(snapshot.get("a"));
+        assertNull(snapshot.get("z"));
+
+        Iterator<Map.Entry<String, byte[]>> expected = entries.entrySet().iterator();
+        Iterator<Map.Entry<String, byte[]>> actual = snapshot.iterator();
+        while (expected.hasNext()) {
+            Map.Entry<String, byte[]> entry = expected.next();
+            Map.Entry<String, byte[]> read = actual.next();
+            assertEquals(entry.getKey(), read.getKey());
+            assertArrayEquals(entry.getValue(), read.getValue());
+        }
+        assertFalse(actual.hasNext());
+    }
+
+    @Test
+    void opensEmptySnapshot() throws IOException {
+        Path path = directory.resolve("test.snapshot");
+        MappedSnapshot.write(path, 3, Collections.emptyIterator());
+
+        MappedSnapshot snapshot = MappedSnapshot.open(path);
+
+        assertEquals(3, snapshot.firstGeneration());
+        assertEquals(0, snapshot.size());
+        assertNull(snapshot.get("key"));
+        assertFalse(snapshot.iterator().hasNext());
+    }
+
+    @Test
+    void rejectsIncompleteSnapshot() throws IOException {
+        Path path = directory.resolve("test.snapshot");
+        MappedSnapshot.write(path, 0, Collections.singletonMap("key", new byte[64]).entrySet().iterator());
+        byte[] content = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(content, content.length - 1));
+
+        assertThrows(IOException.class, () -> MappedSnapshot.open(path));
+
+        Files.write(path, new byte[8]);
+        assertThrows(IOException.class, () -> MappedSnapshot.open(path));
+    }
+}
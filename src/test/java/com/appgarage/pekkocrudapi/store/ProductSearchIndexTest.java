@@ -0,0 +1,114 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.appgarage.pekkocrudapi.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTest {
+
+    private static final String[] WORDS = {"red", "shirt", "shoe", "shoes", "blue", "cotton", "wool", "sock", "socks", "hat"};
+
+    @Test
+    void ranksNameMatchesAbovePrefixAndDescriptionMatches() {
+        ProductStore store = new ProductStore(new InMemoryEntityStore<>());
+        Product shirt = store.create(product("Red shirt", "cotton", 20));
+        Product shoe = store.create(product("Red shoe", "leather", 50));
+        Product plain = store.create(product("Plain tee", "a red shirt print", 10));
+        Product blueShirt = store.create(product("Blue shirt", "cotton", 15));
+
+        assertEquals(Arrays.asList(shirt, plain), store.search(new ProductSearchQuery("red shirt", null, null), 10));
+        // "sh" only matches as a prefix: a name prefix scores twice a description prefix
+        assertEquals(Arrays.asList(shirt, shoe, plain), store.search(new ProductSearchQuery("red sh", null, null), 10));
+        assertEquals(Arrays.asList(shirt), store.search(new ProductSearchQuery("red sh", 15.0, 30.0), 10));
+        assertEquals(Arrays.asList(plain, blueShirt), store.search(new ProductSearchQuery(null, null, 25.0), 2));
+    }
+
+    @Test
+    void forgetsReplacedAndRemovedProducts() {
+        ProductStore store = new ProductStore(new InMemoryEntityStore<>());
+        Product product = store.create(product("Wool hat", "warm", 30));
+        Product renamed = product("Cotton cap", "light", 30);
+        store.update(product.getId(), renamed);
+
+        assertTrue(store.search(new ProductSearchQuery("wool", null, null), 10).isEmpty());
+        assertEquals(Arrays.asList(renamed), store.search(new ProductSearchQuery("cap", null, null), 10));
+
+        store.delete(product.getId());
+        assertTrue(store.search(new ProductSearchQuery("cap", null, null), 10).isEmpty());
+        assertTrue(store.search(new ProductSearchQuery(null, 0.0, 100.0), 10).isEmpty());
+    }
+
+    @Test
+    void indexedSearchesScoreLikeFullScans() {
+        EntityStore<Product> products = new InMemoryEntityStore<>();
+        ProductStore indexed = new ProductStore(products, true, Integer.MAX_VALUE);
+        ProductStore scanned = new ProductStore(products, false, Integer.MAX_VALUE);
+        Random random = new Random(5);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int op = ids.isEmpty() ? 0 : random.nextInt(4);
+            if (op <= 1) {
+                ids.add(indexed.create(randomProduct(random)).getId());
+            } else if (op == 2) {
+                indexed.update(ids.get(random.nextInt(ids.size())), randomProduct(random));
+            } else {
+                indexed.delete(ids.remove(random.nextInt(ids.size())));
+            }
+        }
+
+        for (int i = 0; i < 300; i++) {
+            ProductSearchQuery query = randomQuery(random);
+            int limit = 1 + random.nextInt(30);
+            List<Product> expected = scanned.search(query, limit);
+            List<Product> actual = indexed.search(query, limit);
+            // Ties may be broken in a different order, so the scores are compared
+            assertEquals(scores(query, expected), scores(query, actual), query.getText() + " " + query.getMinPrice() + " " + query.getMaxPrice());
+        }
+    }
+
+    private static List<Double> scores(ProductSearchQuery query, List<Product> products) {
+        List<Double> scores = new ArrayList<>();
+        for (Product product : products) {
+            scores.add(query.hasText() ? query.score(product) : -product.getPrice());
+        }
+        return scores;
+    }
+
+    private static Product randomProduct(Random random) {
+        return product(words(random, 1 + random.nextInt(3)), words(random, random.nextInt(5)), 1 + random.nextInt(100));
+    }
+
+    private static ProductSearchQuery randomQuery(Random random) {
+        String text = random.nextInt(4) == 0 ? null : words(random, 1 + random.nextInt(2));
+        if (text != null && random.nextBoolean()) {
+            // The last term as a prefix
+            text = text.substring(0, text.length() - 1 - random.nextInt(2));
+        }
+        Double minPrice = random.nextBoolean() ? (double) random.nextInt(60) : null;
+        Double maxPrice = random.nextBoolean() ? (double) (40 + random.nextInt(60)) : null;
+        return new ProductSearchQuery(text, minPrice, maxPrice);
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            words.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return words.toString();
+    }
+
+    private static Product product(String name, String description, double price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(description);
+        product.setPrice(price);
+        return product;
+    }
+}
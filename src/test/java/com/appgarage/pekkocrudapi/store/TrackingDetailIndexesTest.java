@@ -0,0 +1,149 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.appgarage.pekkocrudapi.model.TrackingDetail;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TrackingDetailIndexesTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final String[] ZIPS = {"10001", "10001-0002", "100019999", "10002", "94105", "9410", null};
+
+    @Test
+    void scansPositionsOfTheMostSelectiveIndex() {
+        TrackingDetailIndexes indexes = new TrackingDetailIndexes();
+        TrackingDetail a = new TrackingDetail("A", START.plusDays(2), "10001");
+        TrackingDetail b = new TrackingDetail("B", START, "10001-0002");
+        TrackingDetail c = new TrackingDetail("C", START.plusDays(1), "10001");
+        TrackingDetail undated = new TrackingDetail("D", null, "10001");
+        for (TrackingDetail trackingDetail : Arrays.asList(a, b, c, undated)) {
+            indexes.add(trackingDetail);
+        }
+
+        assertEquals(positions(undated, c, a), list(indexes.scan(new TrackingDetailQuery("10001", null, null, null), null)));
+        assertEquals(positions(b, c, a), list(indexes.scan(new TrackingDetailQuery(null, "10001", START, null), null)));
+        assertEquals(positions(b, c), list(indexes.scan(new TrackingDetailQuery(null, null, null, START.plusDays(1)), null)));
+        assertEquals(positions(a), list(indexes.scan(new TrackingDetailQuery("10001", null, null, null), TrackingDetailQuery.positionOf(c))));
+        assertFalse(indexes.scan(new TrackingDetailQuery(null, null, START.plusDays(3), START.plusDays(2)), null).hasNext());
+
+        indexes.remove(c);
+        indexes.remove(undated);
+        assertEquals(positions(a), list(indexes.scan(new TrackingDetailQuery("10001", null, null, null), null)));
+        indexes.remove(a);
+        assertFalse(indexes.scan(new TrackingDetailQuery("10001", null, null, null), null).hasNext());
+    }
+
+    @Test
+    void indexedQueriesMatchFullScans() {
+        TrackingDetailStore indexed = new TrackingDetailStore(new InMemoryEntityStore<>(), true);
+        TrackingDetailStore scanned = new TrackingDetailStore(new InMemoryEntityStore<>(), false);
+        Random random = new Random(17);
+        for (int i = 0; i < 20_000; i++) {
+            String trackingNumber = "TN" + random.nextInt(2000);
+            TrackingDetail trackingDetail = randomTrackingDetail(random, trackingNumber);
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(scanned.create(copy(trackingDetail)), indexed.create(copy(trackingDetail)));
+                    break;
+                case 1:
+                    assertEquals(scanned.update(trackingNumber, copy(trackingDetail)), indexed.update(trackingNumber, copy(trackingDetail)));
+                    break;
+                default:
+                    assertEquals(scanned.delete(trackingNumber), indexed.delete(trackingNumber));
+            }
+        }
+
+        for (int i = 0; i < 200; i++) {
+            TrackingDetailQuery query = randomQuery(random);
+            assertEquals(allPages(scanned, query), allPages(indexed, query), () -> describe(query));
+        }
+    }
+
+    @Test
+    void indexesEntitiesRecoveredBeforeTheFirstQuery() {
+        EntityStore<TrackingDetail> recovered = new InMemoryEntityStore<>();
+        recovered.put("A", new TrackingDetail("A", START, "10001"));
+        recovered.put("B", new TrackingDetail("B", START.plusDays(1), "10002"));
+        TrackingDetailStore store = new TrackingDetailStore(recovered, true);
+        store.create(new TrackingDetail("C", START.plusDays(2), "10001"));
+
+        Page<TrackingDetail> page = store.find(new TrackingDetailQuery(null, "10001", null, null), null, 10);
+
+        assertEquals(Arrays.asList("A", "C"), trackingNumbers(page.getItems()));
+    }
+
+    private static List<TrackingDetail> allPages(TrackingDetailStore store, TrackingDetailQuery query) {
+        List<TrackingDetail> results = new ArrayList<>();
+        String after = null;
+        do {
+            Page<TrackingDetail> page = store.find(query, after, 7);
+            results.addAll(page.getItems());
+            after = page.getNextKey();
+        } while (after != null);
+        return results;
+    }
+
+    private static TrackingDetail randomTrackingDetail(Random random, String trackingNumber) {
+        LocalDate mailingDate = random.nextInt(10) == 0 ? null : START.plusDays(random.nextInt(30));
+        return new TrackingDetail(trackingNumber, mailingDate, ZIPS[random.nextInt(ZIPS.length)]);
+    }
+
+    private static TrackingDetailQuery randomQuery(Random random) {
+        String zip = null;
+        String zipPrefix = null;
+        switch (random.nextInt(3)) {
+            case 0:
+                zip = ZIPS[random.nextInt(ZIPS.length - 1)];
+                break;
+            case 1:
+                zipPrefix = TrackingDetailQuery.zipPrefixOf(ZIPS[random.nextInt(ZIPS.length - 2)]);
+                break;
+            default:
+        }
+        LocalDate from = random.nextBoolean() ? START.plusDays(random.nextInt(30)) : null;
+        LocalDate to = random.nextBoolean() ? START.plusDays(random.nextInt(30)) : null;
+        if (zip == null && zipPrefix == null && from == null && to == null) {
+            from = START;
+        }
+        return new TrackingDetailQuery(zip, zipPrefix, from, to);
+    }
+
+    private static TrackingDetail copy(TrackingDetail trackingDetail) {
+        return new TrackingDetail(trackingDetail.getTrackingNumber(), trackingDetail.getMailingDate(), trackingDetail.getDestinationZipCode());
+    }
+
+    private static String describe(TrackingDetailQuery query) {
+        return query.getDestinationZipCode() + " " + query.getZipPrefix() + " " + query.getMailedFrom() + " " + query.getMailedTo();
+    }
+
+    private static List<String> positions(TrackingDetail... trackingDetails) {
+        List<String> positions = new ArrayList<>();
+        for (TrackingDetail trackingDetail : trackingDetails) {
+            positions.add(TrackingDetailQuery.positionOf(trackingDetail));
+        }
+        return positions;
+    }
+
+    private static List<String> trackingNumbers(List<TrackingDetail> trackingDetails) {
+        List<String> trackingNumbers = new ArrayList<>();
+        for (TrackingDetail trackingDetail : trackingDetails) {
+            trackingNumbers.add(trackingDetail.getTrackingNumber());
+        }
+        return trackingNumbers;
+    }
+
+    private static <T> List<T> list(Iterator<T> iterator) {
+        List<T> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+}
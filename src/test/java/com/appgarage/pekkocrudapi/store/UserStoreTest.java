@@ -0,0 +1,137 @@
+package com.appgarage.pekkocrudapi.store;
+
+import com.appgarage.pekkocrudapi.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserStoreTest {
+
+    @Test
+    void looksUpUsersByUsernameAndEmail() {
+        UserStore store = new UserStore(new InMemoryEntityStore<>());
+        User alice = store.create(user("alice", "Alice@Example.com"));
+
+        assertSame(alice, store.getByUsername("alice"));
+        assertNull(store.getByUsername("Alice"));
+        assertSame(alice, store.getByEmail(" alice@example.COM"));
+        assertNull(store.getByEmail("bob@example.com"));
+        assertNull(store.getByUsername(null));
+    }
+
+    @Test
+    void rejectsTakenUsernamesAndEmails() {
+        UserStore store = new UserStore(new InMemoryEntityStore<>());
+        User alice = store.create(user("alice", "alice@example.com"));
+        User bob = store.create(user("bob", "bob@example.com"));
+
+        DuplicateUserException e = assertThrows(DuplicateUserException.class, () -> store.create(user("alice", "carol@example.com")));
+        assertEquals("username", e.getField());
+        e = assertThrows(DuplicateUserException.class, () -> store.create(user("carol", "ALICE@example.com")));
+        assertEquals("email", e.getField());
+        assertThrows(DuplicateUserException.class, () -> store.update(bob.getId(), user("alice", "bob@example.com")));
+
+        // A rejected write claims nothing
+        assertNotNull(store.create(user("carol", "carol@example.com")));
+        assertSame(alice, store.getByUsername("alice"));
+        assertEquals("bob", store.get(bob.getId()).getUsername());
+    }
+
+    @Test
+    void releasesValuesNoLongerUsed() {
+        UserStore store = new UserStore(new InMemoryEntityStore<>());
+        User alice = store.create(user("alice", "alice@example.com"));
+
+        User renamed = store.update(alice.getId(), user("alicia", "alice@example.com"));
+        assertSame(renamed, store.getByUsername("alicia"));
+        assertNull(store.getByUsername("alice"));
+        assertSame(renamed, store.getByEmail("alice@example.com"));
+        assertNotNull(store.create(user("alice", "other@example.com")));
+
+        store.delete(alice.getId());
+        assertNull(store.getByUsername("alicia"));
+        assertNull(store.getByEmail("alice@example.com"));
+        assertNotNull(store.create(user("alicia", "alice@example.com")));
+    }
+
+    @Test
+    void onlyOneConcurrentCreateGetsUsername() throws Exception {
+        UserStore store = new UserStore(new InMemoryEntityStore<>());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 100; round++) {
+                String username = "user" + round;
+                List<Callable<User>> creates = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    String email = username + "-" + i + "@example.com";
+                    creates.add(() -> store.create(user(username, email)));
+                }
+                int created = 0;
+                for (Future<User> result : executor.invokeAll(creates)) {
+                    try {
+                        result.get();
+                        created++;
+                    } catch (ExecutionException e) {
+                        assertEquals(DuplicateUserException.class, e.getCause().getClass());
+                    }
+                }
+                assertEquals(1, created, username);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(100, store.getAll().size());
+    }
+
+    @Test
+    void indexesRecoveredUsersOnFirstUse() {
+        EntityStore<User> recovered = new InMemoryEntityStore<>();
+        User alice = user("alice", "alice@example.com");
+        alice.setId("1");
+        recovered.put("1", alice);
+        UserStore store = new UserStore(recovered);
+
+        assertSame(alice, store.getByEmail("ALICE@example.com"));
+        assertThrows(DuplicateUserException.class, () -> store.create(user("alice", "new@example.com")));
+    }
+
+    @Test
+    void releasesClaimsOfWriteTheStoreRejects() {
+        UserStore store = new UserStore(new InMemoryEntityStore<User>() {
+            @Override
+            public boolean putIfAbsent(String key, User value) {
+                if ("fail".equals(value.getUsername())) {
+                    throw new UncheckedIOException(new IOException("Write-ahead log append failed"));
+                }
+                return super.putIfAbsent(key, value);
+            }
+        });
+
+        assertThrows(UncheckedIOException.class, () -> store.create(user("fail", "fail@example.com")));
+
+        assertNull(store.getByUsername("fail"));
+        assertNotNull(store.create(user("other", "fail@example.com")));
+    }
+
+    private static User user(String username, String email) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setRole("user");
+        return user;
+    }
+}
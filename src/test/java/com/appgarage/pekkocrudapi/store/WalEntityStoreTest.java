@@ -0,0 +1,139 @@
+package com.appgarage.pekkocrudapi.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WalEntityStoreTest {
+
+    private static final EntityCodec<String> CODEC = new EntityCodec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(String key, byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesSurviveReopen() throws IOException {
+        try (WalEntityStore<String> store = open(Long.MAX_VALUE, false)) {
+            assertTrue(store.putIfAbsent("a", "1"));
+            assertFalse(store.putIfAbsent("a", "2"));
+            assertTrue(store.replace("a", "1", "3"));
+            assertFalse(store.replace("a", "1", "4"));
+            store.put("b", "5");
+            assertTrue(store.putIfAbsent("c", "6"));
+            assertEquals("6", store.remove("c"));
+        }
+
+        try (WalEntityStore<String> store = open(Long.MAX_VALUE, false)) {
+            store.awaitLoaded();
+            assertEquals("3", store.get("a"));
+            assertEquals("5", store.get("b"));
+            assertNull(store.get("c"));
+            assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    void reopensFromSnapshotAndLogTail() throws IOException {
+        try (WalEntityStore<String> store = open(10, false)) {
+            for (int i = 0; i < 25; i++) {
+                store.put(key(i), "v" + i);
+            }
+            store.remove(key(3));
+            store.put(key(4), "changed");
+        }
+
+        try (WalEntityStore<String> store = open(10, false)) {
+            // Point reads are served from the mapped snapshot until it is on the heap
+            assertEquals("v7", store.get(key(7)));
+            assertNull(store.get(key(3)));
+            assertEquals("changed", store.get(key(4)));
+            store.remove(key(8));
+            store.awaitLoaded();
+            assertEquals(23, store.size());
+            assertNull(store.get(key(8)));
+            assertEquals("v24", store.get(key(24)));
+        }
+    }
+
+    @Test
+    void undoesWriteWhoseRecordFails() throws IOException {
+        WalEntityStore<String> store = open(Long.MAX_VALUE, false);
+        store.put("a", "1");
+        store.put("b", "2");
+        // Closing the log makes every later append fail
+        store.close();
+
+        assertThrows(UncheckedIOException.class, () -> store.putIfAbsent("c", "3"));
+        assertThrows(UncheckedIOException.class, () -> store.replace("a", "1", "4"));
+        assertThrows(UncheckedIOException.class, () -> store.put("b", "5"));
+        assertThrows(UncheckedIOException.class, () -> store.remove("a"));
+
+        assertNull(store.get("c"));
+        assertEquals("1", store.get("a"));
+        assertEquals("2", store.get("b"));
+    }
+
+    @Test
+    void eventSourcedStoreJournalsEveryChange() throws IOException {
+        try (WalEntityStore<String> store = open(2, true)) {
+            assertTrue(store.putIfAbsent("a", "1"));
+            assertTrue(store.replace("a", "1", "2"));
+            store.put("b", "3");
+            store.remove("a");
+        }
+
+        try (WalEntityStore<String> store = open(2, true)) {
+            store.awaitLoaded();
+            assertNull(store.get("a"));
+            assertEquals("3", store.get("b"));
+        }
+
+        List<EntityEvent<String>> events = new ArrayList<>();
+        WalEntityStore.readEvents(directory, "test", CODEC, events::add);
+        assertEquals(4, events.size());
+        assertEvent(events.get(0), EntityEvent.Type.CREATED, "a", "1");
+        assertEvent(events.get(1), EntityEvent.Type.UPDATED, "a", "2");
+        assertEvent(events.get(2), EntityEvent.Type.UPDATED, "b", "3");
+        assertEvent(events.get(3), EntityEvent.Type.DELETED, "a", null);
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(events.get(i).getTimestamp() >= events.get(i - 1).getTimestamp());
+        }
+    }
+
+    private WalEntityStore<String> open(long snapshotEvery, boolean eventSourced) throws IOException {
+        return new WalEntityStore<>(directory, "test", CODEC, new InMemoryEntityStore<>(), true, 16, snapshotEvery,
+                eventSourced, eventSourced);
+    }
+
+    private static void assertEvent(EntityEvent<String> event, EntityEvent.Type type, String key, String value) {
+        assertEquals(type, event.getType());
+        assertEquals(key, event.getKey());
+        assertEquals(value, event.getValue());
+    }
+
+    private static String key(int i) {
+        return String.format("k%03d", i);
+    }
+}
@@ -0,0 +1,215 @@
+package com.appgarage.pekkocrudapi.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteAheadLogTest {
+
+    private static final String NAME = "test";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysAppendedRecordsAfterReopen() throws IOException {
+        WriteAheadLog writeAheadLog = open(Long.MAX_VALUE, Collections::emptyIterator);
+        writeAheadLog.append(WriteAheadLog.PUT, "a", bytes("1")).join();
+        writeAheadLog.append(WriteAheadLog.PUT, "b", bytes("2")).join();
+        writeAheadLog.append(WriteAheadLog.DELETE, "a", null).join();
+        writeAheadLog.append(WriteAheadLog.PUT, "b", bytes("3")).join();
+        writeAheadLog.close();
+
+        Map<String, String> replayed = new LinkedHashMap<>();
+        WriteAheadLog reopened = new WriteAheadLog(directory, NAME, true, 16, Long.MAX_VALUE, false, Collections::emptyIterator);
+        assertNull(reopened.open(apply(replayed)));
+        reopened.close();
+
+        assertEquals(Collections.singletonMap("b", "3"), replayed);
+    }
+
+    @Test
+    void ignoresTornTailAndKeepsLaterAppends() throws IOException {
+        WriteAheadLog writeAheadLog = open(Long.MAX_VALUE, Collections::emptyIterator);
+        writeAheadLog.append(WriteAheadLog.PUT, "a", bytes("1")).join();
+        writeAheadLog.append(WriteAheadLog.PUT, "b", bytes("2")).join();
+        writeAheadLog.close();
+        // A crash in the middle of the second record
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        Map<String, String> replayed = new LinkedHashMap<>();
+        WriteAheadLog reopened = new WriteAheadLog(directory, NAME, true, 16, Long.MAX_VALUE, false, Collections::emptyIterator);
+        reopened.open(apply(replayed));
+        assertEquals(Collections.singletonMap("a", "1"), replayed);
+        reopened.append(WriteAheadLog.PUT, "c", bytes("3")).join();
+        reopened.close();
+
+        replayed.clear();
+        WriteAheadLog again = new WriteAheadLog(directory, NAME, true, 16, Long.MAX_VALUE, false, Collections::emptyIterator);
+        again.open(apply(replayed));
+        again.close();
+        assertEquals("1", replayed.get("a"));
+        assertEquals("3", replayed.get("c"));
+        assertFalse(replayed.containsKey("b"));
+    }
+
+    @Test
+    void stopsReplayingSegmentAtCorruptRecord() throws IOException {
+        WriteAheadLog writeAheadLog = open(Long.MAX_VALUE, Collections::emptyIterator);
+        writeAheadLog.append(WriteAheadLog.PUT, "a", bytes("1")).join();
+        writeAheadLog.append(WriteAheadLog.PUT, "b", bytes("2")).join();
+        writeAheadLog.append(WriteAheadLog.PUT, "c", bytes("3")).join();
+        writeAheadLog.close();
+        Path segment = segments().get(0);
+        byte[] content = Files.readAllBytes(segment);
+        // Flips the last byte of the second record's value
+        int recordBytes = content.length / 3;
+        content[2 * recordBytes - 1] ^= 1;
+        Files.write(segment, content);
+
+        Map<String, String> replayed = new LinkedHashMap<>();
+        WriteAheadLog reopened = new WriteAheadLog(directory, NAME, true, 16, Long.MAX_VALUE, false, Collections::emptyIterator);
+        reopened.open(apply(replayed));
+        reopened.close();
+
+        assertEquals(Collections.singletonMap("a", "1"), replayed);
+    }
+
+    @Test
+    void snapshotReplacesCoveredSegments() throws IOException {
+        // Read by the snapshot thread while the test writes
+        Map<String, String> live = new ConcurrentSkipListMap<>();
+        WriteAheadLog writeAheadLog = open(2, () -> encoded(live));
+        for (int i = 0; i < 3; i++) {
+            live.put("k" + i, "v" + i);
+            writeAheadLog.append(WriteAheadLog.PUT, "k" + i, bytes("v" + i)).join();
+        }
+        // Waits for the snapshot taken after the second record
+        writeAheadLog.close();
+
+        Map<String, String> replayed = new LinkedHashMap<>();
+        WriteAheadLog reopened = new WriteAheadLog(directory, NAME, true, 16, Long.MAX_VALUE, false, Collections::emptyIterator);
+        MappedSnapshot snapshot = reopened.open(apply(replayed));
+        reopened.close();
+
+        assertNotNull(snapshot);
+        assertTrue(snapshot.size() >= 2);
+        for (Iterator<Map.Entry<String, byte[]>> entries = snapshot.iterator(); entries.hasNext(); ) {
+            Map.Entry<String, byte[]> entry = entries.next();
+            replayed.putIfAbsent(entry.getKey(), new String(entry.getValue(), StandardCharsets.UTF_8));
+        }
+        assertEquals(live, replayed);
+        assertTrue(segments().stream().allMatch(path -> generationOf(path) >= snapshot.firstGeneration()));
+    }
+
+    @Test
+    void recoversFromCrashWhileWritingSnapshot() throws IOException {
+        // Read by the snapshot thread while the test writes
+        Map<String, String> live = new ConcurrentSkipListMap<>();
+        WriteAheadLog writeAheadLog = open(2, () -> encoded(live));
+        for (int i = 0; i < 4; i++) {
+            live.put("k" + i, "v" + i);
+            writeAheadLog.append(WriteAheadLog.PUT, "k" + i, bytes("v" + i)).join();
+        }
+        writeAheadLog.close();
+        byte[] snapshot = Files.readAllBytes(directory.resolve(NAME + ".snapshot"));
+        // The next snapshot was cut short before its rename
+        Path temporary = directory.resolve(NAME + ".snapshot.tmp");
+        Files.write(temporary, Arrays.copyOf(snapshot, snapshot.length / 2));
+
+        Map<String, String> replayed = new LinkedHashMap<>();
+        WriteAheadLog reopened = new WriteAheadLog(directory, NAME, true, 16, Long.MAX_VALUE, false, Collections::emptyIterator);
+        MappedSnapshot mapped = reopened.open(apply(replayed));
+        reopened.close();
+
+        assertFalse(Files.exists(temporary));
+        for (Iterator<Map.Entry<String, byte[]>> entries = mapped.iterator(); entries.hasNext(); ) {
+            Map.Entry<String, byte[]> entry = entries.next();
+            replayed.putIfAbsent(entry.getKey(), new String(entry.getValue(), StandardCharsets.UTF_8));
+        }
+        assertEquals(live, replayed);
+    }
+
+    @Test
+    void retainedSegmentsReplayEveryRecord() throws IOException {
+        // Read by the snapshot thread while the test writes
+        Map<String, String> live = new ConcurrentSkipListMap<>();
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, NAME, true, 16, 2, true, () -> encoded(live));
+        writeAheadLog.open(apply(new LinkedHashMap<>()));
+        for (int i = 0; i < 5; i++) {
+            live.put("k", "v" + i);
+            writeAheadLog.append(WriteAheadLog.PUT, "k", bytes("v" + i)).join();
+        }
+        writeAheadLog.close();
+
+        StringBuilder history = new StringBuilder();
+        new WriteAheadLog(directory, NAME, false, 1, Long.MAX_VALUE, true, Collections::emptyIterator)
+                .replayAll((op, key, value) -> history.append(new String(value, StandardCharsets.UTF_8)));
+
+        assertEquals("v0v1v2v3v4", history.toString());
+    }
+
+    private WriteAheadLog open(long snapshotEvery, Supplier<Iterator<Map.Entry<String, byte[]>>> snapshotSource) throws IOException {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, NAME, true, 16, snapshotEvery, false, snapshotSource);
+        assertNull(writeAheadLog.open(apply(new LinkedHashMap<>())));
+        return writeAheadLog;
+    }
+
+    private static WriteAheadLog.RecordHandler apply(Map<String, String> map) {
+        return (op, key, value) -> {
+            if (op == WriteAheadLog.PUT) {
+                map.put(key, new String(value, StandardCharsets.UTF_8));
+            } else {
+                map.remove(key);
+            }
+        };
+    }
+
+    private static Iterator<Map.Entry<String, byte[]>> encoded(Map<String, String> live) {
+        return live.entrySet().stream()
+                .map(entry -> (Map.Entry<String, byte[]>) new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), bytes(entry.getValue())))
+                .collect(Collectors.toList())
+                .iterator();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".wal")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static long generationOf(Path segment) {
+        String fileName = segment.getFileName().toString();
+        return Long.parseLong(fileName.substring(NAME.length() + 1, fileName.length() - ".wal".length()));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}